@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logsearch.appender;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer. Every slot carries a sequence number which
+ * tells whether it may be written by the producer claiming that position or read by the consumer, so producers only
+ * race on one compare-and-set of the producer sequence.
+ */
+class EventRingBuffer<E> {
+
+  private final int mask;
+  private final AtomicReferenceArray<E> slots;
+  private final AtomicLongArray sequences;
+  private final AtomicLong producerSequence = new AtomicLong();
+  private volatile long consumerSequence = 0;
+
+  EventRingBuffer(int requestedCapacity) {
+    int capacity = 1;
+    while (capacity < requestedCapacity) {
+      capacity <<= 1;
+    }
+    mask = capacity - 1;
+    slots = new AtomicReferenceArray<>(capacity);
+    sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * @return false if the buffer is full
+   */
+  boolean offer(E element) {
+    while (true) {
+      long position = producerSequence.get();
+      int index = (int) (position & mask);
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (producerSequence.compareAndSet(position, position + 1)) {
+          slots.set(index, element);
+          sequences.set(index, position + 1);
+          return true;
+        }
+      } else if (difference < 0) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Must only be called by one consumer at a time.
+   *
+   * @return null if the buffer is empty
+   */
+  E poll() {
+    long position = consumerSequence;
+    int index = (int) (position & mask);
+    if (sequences.get(index) != position + 1) {
+      return null;
+    }
+    E element = slots.get(index);
+    slots.set(index, null);
+    sequences.set(index, position + mask + 1);
+    consumerSequence = position + 1;
+    return element;
+  }
+
+  int size() {
+    return (int) Math.max(0, producerSequence.get() - consumerSequence);
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+}
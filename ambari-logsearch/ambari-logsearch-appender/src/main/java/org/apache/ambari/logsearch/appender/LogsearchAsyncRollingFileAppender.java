@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logsearch.appender;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Asynchronous variant of {@link LogsearchRollingFileAppender}. The calling thread only freezes the lazily computed
+ * parts of the event (location, thread name, MDC, NDC, throwable) and puts it into a lock-free ring buffer. A
+ * background thread does the json formatting, writes the events in batches, flushes once per batch and rolls the
+ * files.
+ *
+ * When the buffer is full the event is either dropped (overflowPolicy=DISCARD, the default) or the caller waits for
+ * free space (overflowPolicy=BLOCK).
+ */
+public class LogsearchAsyncRollingFileAppender extends LogsearchRollingFileAppender {
+
+  public static final String OVERFLOW_POLICY_DISCARD = "DISCARD";
+  public static final String OVERFLOW_POLICY_BLOCK = "BLOCK";
+
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+  private static final int DEFAULT_BATCH_SIZE = 512;
+  private static final long IDLE_WAIT_NANOS = 1000000L;
+  private static final long BLOCK_WAIT_NANOS = 10000L;
+
+  private int bufferSize = DEFAULT_BUFFER_SIZE;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  private String overflowPolicy = OVERFLOW_POLICY_DISCARD;
+  private boolean locationInfo = true;
+
+  private volatile EventRingBuffer<LoggingEvent> ringBuffer;
+  private volatile Thread writerThread;
+  private volatile boolean stopped = false;
+
+  private final AtomicLong droppedEvents = new AtomicLong();
+  private final AtomicLong writtenEvents = new AtomicLong();
+
+  public LogsearchAsyncRollingFileAppender() {
+    setImmediateFlush(false);
+  }
+
+  @Override
+  public void activateOptions() {
+    super.activateOptions();
+    if (ringBuffer == null) {
+      ringBuffer = new EventRingBuffer<>(bufferSize);
+      Thread thread = new Thread(new EventWriter(), "LogsearchAsyncAppender-" + getName());
+      thread.setDaemon(true);
+      writerThread = thread;
+      thread.start();
+    }
+  }
+
+  /**
+   * Same checks as {@link org.apache.log4j.AppenderSkeleton#doAppend(LoggingEvent)}, without synchronizing the callers
+   * on the appender.
+   */
+  @Override
+  public void doAppend(LoggingEvent event) {
+    if (closed || !isAsSevereAsThreshold(event.getLevel())) {
+      return;
+    }
+    Filter filter = getFilter();
+    while (filter != null) {
+      int decision = filter.decide(event);
+      if (decision == Filter.DENY) {
+        return;
+      } else if (decision == Filter.ACCEPT) {
+        break;
+      }
+      filter = filter.getNext();
+    }
+    append(event);
+  }
+
+  @Override
+  public void append(LoggingEvent event) {
+    EventRingBuffer<LoggingEvent> buffer = ringBuffer;
+    if (buffer == null || stopped) {
+      synchronized (this) {
+        super.append(event);
+      }
+      return;
+    }
+    freeze(event);
+    if (buffer.offer(event)) {
+      if (stopped) {
+        // the writer thread may have exited before taking the event
+        drain(buffer);
+      }
+      return;
+    }
+    if (OVERFLOW_POLICY_BLOCK.equalsIgnoreCase(overflowPolicy)) {
+      while (!stopped) {
+        LockSupport.parkNanos(BLOCK_WAIT_NANOS);
+        if (buffer.offer(event)) {
+          return;
+        }
+      }
+    }
+    droppedEvents.incrementAndGet();
+  }
+
+  /**
+   * Computes the values which are otherwise taken lazily from the calling thread, so the event can be formatted later
+   * on the writer thread.
+   */
+  private void freeze(LoggingEvent event) {
+    event.getThreadName();
+    event.getNDC();
+    event.getMDCCopy();
+    event.getRenderedMessage();
+    event.getThrowableStrRep();
+    if (locationInfo) {
+      event.getLocationInformation();
+    }
+  }
+
+  @Override
+  public void close() {
+    stopped = true;
+    Thread thread = writerThread;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    synchronized (this) {
+      drain(ringBuffer);
+      if (droppedEvents.get() > 0) {
+        LogLog.warn("Appender [" + getName() + "] dropped " + droppedEvents.get() + " events");
+      }
+      super.close();
+    }
+  }
+
+  /**
+   * Writes the events which were put into the buffer after the writer thread exited on the calling thread, or counts
+   * them as dropped once the appender is closed.
+   */
+  private synchronized void drain(EventRingBuffer<LoggingEvent> buffer) {
+    if (buffer == null) {
+      return;
+    }
+    int written = 0;
+    LoggingEvent event;
+    while ((event = buffer.poll()) != null) {
+      if (closed) {
+        droppedEvents.incrementAndGet();
+        continue;
+      }
+      try {
+        super.append(event);
+      } catch (RuntimeException e) {
+        LogLog.error("Could not write event of appender [" + getName() + "]", e);
+      }
+      written++;
+    }
+    if (written > 0 && qw != null) {
+      qw.flush();
+    }
+    writtenEvents.addAndGet(written);
+  }
+
+  private class EventWriter implements Runnable {
+    @Override
+    public void run() {
+      EventRingBuffer<LoggingEvent> buffer = ringBuffer;
+      while (true) {
+        boolean stopping = stopped;
+        int written = writeBatch(buffer);
+        if (written == 0) {
+          if (stopping) {
+            break;
+          }
+          LockSupport.parkNanos(IDLE_WAIT_NANOS);
+        }
+      }
+    }
+
+    private int writeBatch(EventRingBuffer<LoggingEvent> buffer) {
+      int written = 0;
+      synchronized (LogsearchAsyncRollingFileAppender.this) {
+        LoggingEvent event;
+        while (written < batchSize && (event = buffer.poll()) != null) {
+          try {
+            LogsearchAsyncRollingFileAppender.super.append(event);
+          } catch (RuntimeException e) {
+            LogLog.error("Could not write event of appender [" + getName() + "]", e);
+          }
+          written++;
+        }
+        if (written > 0 && qw != null) {
+          qw.flush();
+        }
+      }
+      writtenEvents.addAndGet(written);
+      return written;
+    }
+  }
+
+  public long getDroppedEventCount() {
+    return droppedEvents.get();
+  }
+
+  public long getWrittenEventCount() {
+    return writtenEvents.get();
+  }
+
+  public int getQueuedEventCount() {
+    EventRingBuffer<LoggingEvent> buffer = ringBuffer;
+    return buffer == null ? 0 : buffer.size();
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  public String getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  public void setOverflowPolicy(String overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  public boolean getLocationInfo() {
+    return locationInfo;
+  }
+
+  public void setLocationInfo(boolean locationInfo) {
+    this.locationInfo = locationInfo;
+  }
+}
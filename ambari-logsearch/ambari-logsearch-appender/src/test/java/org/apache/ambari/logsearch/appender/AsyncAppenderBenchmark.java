@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logsearch.appender;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.RollingFileAppender;
+
+/**
+ * Compares the time the logging threads spend in the logger call with the synchronous and the asynchronous appender.
+ * Usage: AsyncAppenderBenchmark [threads] [events per thread]
+ */
+public class AsyncAppenderBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    int eventsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+
+    LogsearchRollingFileAppender syncAppender = new LogsearchRollingFileAppender();
+    LogsearchAsyncRollingFileAppender asyncAppender = new LogsearchAsyncRollingFileAppender();
+    asyncAppender.setOverflowPolicy(LogsearchAsyncRollingFileAppender.OVERFLOW_POLICY_BLOCK);
+
+    run("sync", syncAppender, "target/benchmark/sync.json", threads, eventsPerThread);
+    run("async", asyncAppender, "target/benchmark/async.json", threads, eventsPerThread);
+    System.out.println("async dropped events: " + asyncAppender.getDroppedEventCount());
+  }
+
+  private static void run(String name, RollingFileAppender appender, String file, int threads, final int eventsPerThread)
+      throws Exception {
+    appender.setName(name);
+    appender.setFile(file);
+    appender.setAppend(false);
+    appender.setMaxFileSize("100MB");
+    appender.setMaxBackupIndex(2);
+    appender.setLayout(new LogsearchConversion());
+    appender.activateOptions();
+
+    final Logger logger = Logger.getLogger("benchmark." + name);
+    logger.setAdditivity(false);
+    logger.setLevel(Level.INFO);
+    logger.addAppender(appender);
+
+    final long[] callerNanos = new long[threads];
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      final int worker = i;
+      workers[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          long start = System.nanoTime();
+          for (int j = 0; j < eventsPerThread; j++) {
+            logger.info("Processed block blk_" + j + " of worker " + worker);
+          }
+          callerNanos[worker] = System.nanoTime() - start;
+        }
+      });
+    }
+    for (Thread thread : workers) {
+      thread.start();
+    }
+    for (Thread thread : workers) {
+      thread.join();
+    }
+    long closeStart = System.nanoTime();
+    appender.close();
+    long closeNanos = System.nanoTime() - closeStart;
+
+    long totalNanos = 0;
+    for (long nanos : callerNanos) {
+      totalNanos += nanos;
+    }
+    System.out.println(String.format("%s: %d ns per logger call on the caller thread, close took %d ms", name,
+        totalNanos / ((long) threads * eventsPerThread), closeNanos / 1000000));
+  }
+}
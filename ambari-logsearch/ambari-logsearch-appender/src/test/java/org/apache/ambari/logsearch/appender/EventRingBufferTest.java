@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logsearch.appender;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EventRingBufferTest {
+
+  @Test
+  public void testCapacityIsRoundedToPowerOfTwo() {
+    assertEquals(8, new EventRingBuffer<String>(5).capacity());
+    assertEquals(8, new EventRingBuffer<String>(8).capacity());
+  }
+
+  @Test
+  public void testOfferAndPollInOrder() {
+    EventRingBuffer<String> buffer = new EventRingBuffer<>(2);
+    assertTrue(buffer.offer("a"));
+    assertTrue(buffer.offer("b"));
+    assertFalse(buffer.offer("c"));
+    assertEquals(2, buffer.size());
+
+    assertEquals("a", buffer.poll());
+    assertTrue(buffer.offer("c"));
+    assertEquals("b", buffer.poll());
+    assertEquals("c", buffer.poll());
+    assertNull(buffer.poll());
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void testConcurrentProducers() throws Exception {
+    final int producers = 4;
+    final int eventsPerProducer = 10000;
+    final EventRingBuffer<Integer> buffer = new EventRingBuffer<>(64);
+    Thread[] threads = new Thread[producers];
+    for (int i = 0; i < producers; i++) {
+      final int producer = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < eventsPerProducer; j++) {
+            Integer value = producer * eventsPerProducer + j;
+            while (!buffer.offer(value)) {
+              Thread.yield();
+            }
+          }
+        }
+      });
+      threads[i].start();
+    }
+
+    Set<Integer> received = new HashSet<>();
+    while (received.size() < producers * eventsPerProducer) {
+      Integer value = buffer.poll();
+      if (value != null) {
+        assertTrue("Duplicate value: " + value, received.add(value));
+      }
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(buffer.poll());
+  }
+}
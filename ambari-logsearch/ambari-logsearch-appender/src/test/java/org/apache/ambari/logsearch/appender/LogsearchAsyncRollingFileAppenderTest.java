@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logsearch.appender;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Layout;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogsearchAsyncRollingFileAppenderTest {
+
+  private static final Logger LOG = Logger.getLogger(LogsearchAsyncRollingFileAppenderTest.class);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File file;
+  private MessageLayout layout;
+  private LogsearchAsyncRollingFileAppender appender;
+
+  @Before
+  public void setUp() throws Exception {
+    file = new File(folder.getRoot(), "test.json");
+    layout = new MessageLayout();
+  }
+
+  @After
+  public void tearDown() {
+    layout.release();
+    if (appender != null) {
+      appender.close();
+    }
+  }
+
+  @Test
+  public void testCloseWritesQueuedEvents() throws Exception {
+    createAppender(LogsearchAsyncRollingFileAppender.OVERFLOW_POLICY_DISCARD, 128);
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      expected.add("event " + i);
+      appender.doAppend(createEvent("event " + i));
+      if (i == 0) {
+        assertTrue(layout.awaitFormatting());
+      }
+    }
+    // the writer thread is held with the first event, so the others are still queued
+    assertEquals(99, appender.getQueuedEventCount());
+    layout.release();
+
+    appender.close();
+
+    assertEquals(expected, readLines());
+    assertEquals(100, appender.getWrittenEventCount());
+    assertEquals(0, appender.getDroppedEventCount());
+    assertEquals(0, appender.getQueuedEventCount());
+  }
+
+  @Test
+  public void testDiscardWhenBufferIsFull() throws Exception {
+    createAppender(LogsearchAsyncRollingFileAppender.OVERFLOW_POLICY_DISCARD, 2);
+    fillBuffer();
+
+    appender.doAppend(createEvent("event 3"));
+    assertEquals(1, appender.getDroppedEventCount());
+
+    layout.release();
+    appender.close();
+
+    assertEquals(Arrays.asList("event 0", "event 1", "event 2"), readLines());
+    assertEquals(1, appender.getDroppedEventCount());
+  }
+
+  @Test
+  public void testBlockWhenBufferIsFull() throws Exception {
+    createAppender(LogsearchAsyncRollingFileAppender.OVERFLOW_POLICY_BLOCK, 2);
+    fillBuffer();
+
+    Thread caller = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        appender.doAppend(createEvent("event 3"));
+      }
+    });
+    caller.start();
+    caller.join(200);
+    assertTrue(caller.isAlive());
+
+    layout.release();
+    caller.join(10000);
+    assertFalse(caller.isAlive());
+    appender.close();
+
+    assertEquals(Arrays.asList("event 0", "event 1", "event 2", "event 3"), readLines());
+    assertEquals(0, appender.getDroppedEventCount());
+  }
+
+  private void createAppender(String overflowPolicy, int bufferSize) {
+    appender = new LogsearchAsyncRollingFileAppender();
+    appender.setName("test");
+    appender.setFile(file.getAbsolutePath());
+    appender.setAppend(false);
+    appender.setBufferSize(bufferSize);
+    appender.setLocationInfo(false);
+    appender.setOverflowPolicy(overflowPolicy);
+    appender.setLayout(layout);
+    appender.activateOptions();
+  }
+
+  /**
+   * Holds the writer thread in the layout with the first event, so that the next two events fill the buffer.
+   */
+  private void fillBuffer() throws Exception {
+    appender.doAppend(createEvent("event 0"));
+    assertTrue(layout.awaitFormatting());
+    appender.doAppend(createEvent("event 1"));
+    appender.doAppend(createEvent("event 2"));
+    assertEquals(2, appender.getQueuedEventCount());
+    assertEquals(0, appender.getDroppedEventCount());
+  }
+
+  private LoggingEvent createEvent(String message) {
+    return new LoggingEvent(Logger.class.getName(), LOG, Level.INFO, message, null);
+  }
+
+  private List<String> readLines() throws Exception {
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Writes the message of the event, waiting for {@link #release()} before the first one.
+   */
+  private static class MessageLayout extends Layout {
+    private final CountDownLatch formatting = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @Override
+    public String format(LoggingEvent event) {
+      formatting.countDown();
+      try {
+        released.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return event.getRenderedMessage() + LINE_SEP;
+    }
+
+    boolean awaitFormatting() throws InterruptedException {
+      return formatting.await(10, TimeUnit.SECONDS);
+    }
+
+    void release() {
+      released.countDown();
+    }
+
+    @Override
+    public boolean ignoresThrowable() {
+      return true;
+    }
+
+    @Override
+    public void activateOptions() {
+    }
+  }
+}
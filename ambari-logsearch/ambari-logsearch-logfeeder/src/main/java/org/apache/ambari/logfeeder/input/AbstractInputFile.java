@@ -28,6 +28,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.ambari.logfeeder.input.cache.LogTemplateAggregator;
 import org.apache.ambari.logfeeder.util.LogFeederUtil;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -130,6 +131,7 @@ public abstract class AbstractInputFile extends Input {
               resume = true;
             }
             sleepIteration++;
+            flushAggregations();
             if (sleepIteration == 2) {
               flush();
               if (!tail) {
@@ -259,11 +261,6 @@ public abstract class AbstractInputFile extends Input {
   public synchronized void checkIn(InputMarker inputMarker) {
     if (checkPointWriter != null) {
       try {
-        int lineNumber = LogFeederUtil.objectToInt(jsonCheckPoint.get("line_number"), 0, "line_number");
-        if (lineNumber > inputMarker.lineNumber) {
-          // Already wrote higher line number for this input
-          return;
-        }
         // If interval is greater than last checkPoint time, then write
         long currMS = System.currentTimeMillis();
         if (!isClosed() && (currMS - lastCheckPointTimeMS) < checkPointIntervalMS) {
@@ -271,9 +268,17 @@ public abstract class AbstractInputFile extends Input {
           lastCheckPointInputMarker = inputMarker;
           return;
         }
+
+        // only looked up when the check point is written, as it scans the held templates
+        int lineNumber = LogFeederUtil.objectToInt(jsonCheckPoint.get("line_number"), 0, "line_number");
+        int checkInLineNumber = getCheckInLineNumber(inputMarker);
+        if (lineNumber > checkInLineNumber) {
+          // Already wrote higher line number for this input
+          return;
+        }
         lastCheckPointTimeMS = currMS;
 
-        jsonCheckPoint.put("line_number", "" + new Integer(inputMarker.lineNumber));
+        jsonCheckPoint.put("line_number", "" + new Integer(checkInLineNumber));
         jsonCheckPoint.put("last_write_time_ms", "" + new Long(currMS));
         jsonCheckPoint.put("last_write_time_date", new Date());
 
@@ -297,6 +302,20 @@ public abstract class AbstractInputFile extends Input {
     }
   }
 
+  /**
+   * Lines which are held in a template aggregate were not written yet, so the checkpoint stays before the first of them.
+   */
+  private int getCheckInLineNumber(InputMarker inputMarker) {
+    LogTemplateAggregator templateAggregator = getTemplateAggregator();
+    if (templateAggregator != null) {
+      int firstHeldLineNumber = templateAggregator.getFirstHeldLineNumber(inputMarker.base64FileKey);
+      if (firstHeldLineNumber > 0 && firstHeldLineNumber <= inputMarker.lineNumber) {
+        return firstHeldLineNumber - 1;
+      }
+    }
+    return inputMarker.lineNumber;
+  }
+
   @Override
   public void lastCheckIn() {
     if (lastCheckPointInputMarker != null) {
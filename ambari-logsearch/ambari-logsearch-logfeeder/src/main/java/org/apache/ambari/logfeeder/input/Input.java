@@ -21,12 +21,16 @@ package org.apache.ambari.logfeeder.input;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.apache.ambari.logfeeder.input.cache.LRUCache;
+import org.apache.ambari.logfeeder.input.cache.LogTemplateAggregator;
 import org.apache.ambari.logfeeder.common.ConfigBlock;
+import org.apache.ambari.logfeeder.common.LogFeederConstants;
 import org.apache.ambari.logfeeder.common.LogfeederException;
 import org.apache.ambari.logfeeder.filter.Filter;
 import org.apache.ambari.logfeeder.metrics.MetricData;
@@ -53,6 +57,18 @@ public abstract class Input extends ConfigBlock implements Runnable {
   private static final String CACHE_SIZE = "cache_size";
   private static final String CACHE_DEDUP_INTERVAL = "cache_dedup_interval";
 
+  private static final boolean DEFAULT_AGGREGATION_ENABLED = false;
+  private static final long DEFAULT_AGGREGATION_WINDOW_MS = 10000;
+  private static final int DEFAULT_AGGREGATION_MAX_TEMPLATES = 1000;
+  private static final String DEFAULT_AGGREGATION_EXCLUDE_LEVELS = "FATAL,ERROR";
+  private static final String DEFAULT_SAMPLING_RATE = "1.0";
+
+  private static final String AGGREGATION_ENABLED = "aggregation_enabled";
+  private static final String AGGREGATION_WINDOW_MS = "aggregation_window_ms";
+  private static final String AGGREGATION_MAX_TEMPLATES = "aggregation_max_templates";
+  private static final String AGGREGATION_EXCLUDE_LEVELS = "aggregation_exclude_levels";
+  private static final String SAMPLING_RATE = "sampling_rate";
+
   protected InputManager inputManager;
   protected OutputManager outputManager;
   private List<Output> outputList = new ArrayList<Output>();
@@ -70,6 +86,8 @@ public abstract class Input extends ConfigBlock implements Runnable {
   private LRUCache cache;
   private String cacheKeyField;
 
+  private LogTemplateAggregator templateAggregator;
+
   protected MetricData readBytesMetric = new MetricData(getReadBytesMetricName(), false);
   protected String getReadBytesMetricName() {
     return null;
@@ -124,6 +142,7 @@ public abstract class Input extends ConfigBlock implements Runnable {
   public void init() throws Exception {
     super.init();
     initCache();
+    initTemplateAggregator();
     tail = getBooleanValue("tail", DEFAULT_TAIL);
     useEventMD5 = getBooleanValue("use_event_md5_as_id", DEFAULT_USE_EVENT_MD5);
     genEventMD5 = getBooleanValue("gen_event_md5", DEFAULT_GEN_EVENT_MD5);
@@ -187,6 +206,15 @@ public abstract class Input extends ConfigBlock implements Runnable {
     }
   }
 
+  /**
+   * Writes the aggregated lines whose window is over, while no new lines arrive.
+   */
+  protected void flushAggregations() {
+    if (templateAggregator != null && outputManager != null) {
+      outputManager.flushAggregations(this);
+    }
+  }
+
   @Override
   public void setDrain(boolean drain) {
     LOG.info("Request to drain. " + getShortDescription());
@@ -262,6 +290,35 @@ public abstract class Input extends ConfigBlock implements Runnable {
     }
   }
 
+  private void initTemplateAggregator() {
+    boolean aggregationEnabled = getConfigValue(AGGREGATION_ENABLED) != null
+      ? getBooleanValue(AGGREGATION_ENABLED, DEFAULT_AGGREGATION_ENABLED)
+      : LogFeederUtil.getBooleanProperty("logfeeder.aggregation.enabled", DEFAULT_AGGREGATION_ENABLED);
+    // Audit logs are never aggregated
+    if (aggregationEnabled && "service".equals(getConfigs().get(LogFeederConstants.ROW_TYPE))) {
+      long windowMS = getConfigValue(AGGREGATION_WINDOW_MS) != null
+        ? getLongValue(AGGREGATION_WINDOW_MS, DEFAULT_AGGREGATION_WINDOW_MS)
+        : Long.parseLong(LogFeederUtil.getStringProperty("logfeeder.aggregation.window.ms", String.valueOf(DEFAULT_AGGREGATION_WINDOW_MS)));
+
+      int maxTemplates = getConfigValue(AGGREGATION_MAX_TEMPLATES) != null
+        ? getIntValue(AGGREGATION_MAX_TEMPLATES, DEFAULT_AGGREGATION_MAX_TEMPLATES)
+        : LogFeederUtil.getIntProperty("logfeeder.aggregation.max.templates", DEFAULT_AGGREGATION_MAX_TEMPLATES);
+
+      String excludeLevels = getConfigValue(AGGREGATION_EXCLUDE_LEVELS) != null
+        ? getStringValue(AGGREGATION_EXCLUDE_LEVELS)
+        : LogFeederUtil.getStringProperty("logfeeder.aggregation.exclude.levels", DEFAULT_AGGREGATION_EXCLUDE_LEVELS);
+
+      double samplingRate = Double.parseDouble(getConfigValue(SAMPLING_RATE) != null
+        ? getStringValue(SAMPLING_RATE)
+        : LogFeederUtil.getStringProperty("logfeeder.sampling.rate", DEFAULT_SAMPLING_RATE));
+
+      LOG.info(String.format("Template aggregation enabled: windowMS=%d, maxTemplates=%d, excludeLevels=%s, samplingRate=%s. %s",
+        windowMS, maxTemplates, excludeLevels, samplingRate, getShortDescription()));
+      setTemplateAggregator(new LogTemplateAggregator(windowMS, maxTemplates, Arrays.asList(excludeLevels.split(",")),
+        samplingRate, new Random()));
+    }
+  }
+
   public boolean isTail() {
     return tail;
   }
@@ -310,6 +367,14 @@ public abstract class Input extends ConfigBlock implements Runnable {
     this.cache = cache;
   }
 
+  public LogTemplateAggregator getTemplateAggregator() {
+    return templateAggregator;
+  }
+
+  public void setTemplateAggregator(LogTemplateAggregator templateAggregator) {
+    this.templateAggregator = templateAggregator;
+  }
+
   public String getCacheKeyField() {
     return cacheKeyField;
   }
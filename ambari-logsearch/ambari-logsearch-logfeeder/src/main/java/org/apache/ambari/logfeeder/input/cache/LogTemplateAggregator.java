@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logfeeder.input.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.ambari.logfeeder.input.InputMarker;
+
+/**
+ * Aggregates similar log lines per input. The message is turned into a template by masking ip addresses, uuids and
+ * every token containing a digit (numbers, ids, timestamps), so lines which only differ in these parts fall into the
+ * same template. The first line of a template in a window is kept as representative and is emitted with the number
+ * of lines seen as event_count when the window is over. Lines with an excluded level (errors by default) are never
+ * aggregated.
+ *
+ * The representatives are sampled with the configured sampling rate; the event_count of a kept representative is
+ * scaled up accordingly, so the sum of event_count stays an estimate of the real number of lines.
+ */
+public class LogTemplateAggregator {
+  private static final Pattern IP_PATTERN = Pattern.compile("\\b\\d{1,3}(\\.\\d{1,3}){3}(:\\d+)?\\b");
+  private static final Pattern UUID_PATTERN =
+    Pattern.compile("\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b");
+  private static final Pattern TOKEN_WITH_DIGIT_PATTERN = Pattern.compile("[\\w.:/-]*\\d[\\w.:/-]*");
+
+  private static final String LOG_MESSAGE_FIELD = "log_message";
+  private static final String LEVEL_FIELD = "level";
+  private static final String EVENT_COUNT_FIELD = "event_count";
+
+  private final long windowMS;
+  private final int maxTemplates;
+  private final Set<String> excludedLevels = new HashSet<>();
+  private final double samplingRate;
+  private final Random random;
+
+  private final Map<String, Aggregate> aggregates = new LinkedHashMap<>();
+  private long sampledOutCount = 0;
+
+  public LogTemplateAggregator(long windowMS, int maxTemplates, Collection<String> excludedLevels, double samplingRate,
+                               Random random) {
+    this.windowMS = windowMS;
+    this.maxTemplates = maxTemplates;
+    for (String level : excludedLevels) {
+      this.excludedLevels.add(level.trim().toUpperCase());
+    }
+    this.samplingRate = Math.max(0.0, Math.min(1.0, samplingRate));
+    this.random = random;
+  }
+
+  /**
+   * @return true if the line was taken into an aggregate and must not be written by the caller
+   */
+  public synchronized boolean aggregate(Map<String, Object> jsonObj, InputMarker inputMarker, long now) {
+    Object logMessage = jsonObj.get(LOG_MESSAGE_FIELD);
+    Object level = jsonObj.get(LEVEL_FIELD);
+    if (logMessage == null || (level != null && excludedLevels.contains(level.toString().toUpperCase()))) {
+      return false;
+    }
+    String template = toTemplate(level + " " + logMessage);
+    Aggregate aggregate = aggregates.get(template);
+    if (aggregate == null) {
+      if (aggregates.size() >= maxTemplates) {
+        return false;
+      }
+      aggregates.put(template, new Aggregate(jsonObj, inputMarker, now + windowMS));
+    } else {
+      aggregate.count++;
+      aggregate.inputMarker = inputMarker;
+    }
+    return true;
+  }
+
+  /**
+   * Removes the aggregates whose window is over and returns their representatives which should be written.
+   */
+  public synchronized List<AggregatedEvent> pollExpired(long now) {
+    List<AggregatedEvent> result = new ArrayList<>();
+    Iterator<Aggregate> iterator = aggregates.values().iterator();
+    while (iterator.hasNext()) {
+      Aggregate aggregate = iterator.next();
+      if (aggregate.windowEnd <= now) {
+        iterator.remove();
+        addIfSampled(aggregate, result);
+      }
+    }
+    return result;
+  }
+
+  public synchronized List<AggregatedEvent> pollAll() {
+    List<AggregatedEvent> result = new ArrayList<>();
+    for (Aggregate aggregate : aggregates.values()) {
+      addIfSampled(aggregate, result);
+    }
+    aggregates.clear();
+    return result;
+  }
+
+  private void addIfSampled(Aggregate aggregate, List<AggregatedEvent> result) {
+    if (samplingRate < 1.0 && random.nextDouble() >= samplingRate) {
+      sampledOutCount++;
+      return;
+    }
+    long eventCount = samplingRate < 1.0 ? Math.round(aggregate.count / samplingRate) : aggregate.count;
+    aggregate.jsonObj.put(EVENT_COUNT_FIELD, (int) Math.min(Integer.MAX_VALUE, eventCount));
+    result.add(new AggregatedEvent(aggregate.jsonObj, aggregate.inputMarker));
+  }
+
+  /**
+   * The checkpoint of the input must not move past the first line of an aggregate which was not written yet, otherwise
+   * the aggregated lines would be lost on restart.
+   *
+   * @return the lowest line number of the file which is held in an aggregate, or -1 if no line of the file is held
+   */
+  public synchronized int getFirstHeldLineNumber(String base64FileKey) {
+    int firstHeldLineNumber = -1;
+    for (Aggregate aggregate : aggregates.values()) {
+      InputMarker firstInputMarker = aggregate.firstInputMarker;
+      if (firstInputMarker != null && (base64FileKey == null ? firstInputMarker.base64FileKey == null
+        : base64FileKey.equals(firstInputMarker.base64FileKey))) {
+        if (firstHeldLineNumber == -1 || firstInputMarker.lineNumber < firstHeldLineNumber) {
+          firstHeldLineNumber = firstInputMarker.lineNumber;
+        }
+      }
+    }
+    return firstHeldLineNumber;
+  }
+
+  public synchronized int getTemplateCount() {
+    return aggregates.size();
+  }
+
+  public synchronized long getSampledOutCount() {
+    return sampledOutCount;
+  }
+
+  static String toTemplate(String message) {
+    String template = IP_PATTERN.matcher(message).replaceAll("<IP>");
+    template = UUID_PATTERN.matcher(template).replaceAll("<UUID>");
+    return TOKEN_WITH_DIGIT_PATTERN.matcher(template).replaceAll("<*>");
+  }
+
+  private static class Aggregate {
+    private final Map<String, Object> jsonObj;
+    private final long windowEnd;
+    private final InputMarker firstInputMarker;
+    private InputMarker inputMarker;
+    private long count = 1;
+
+    Aggregate(Map<String, Object> jsonObj, InputMarker inputMarker, long windowEnd) {
+      this.jsonObj = jsonObj;
+      this.firstInputMarker = inputMarker;
+      this.inputMarker = inputMarker;
+      this.windowEnd = windowEnd;
+    }
+  }
+
+  public static class AggregatedEvent {
+    public final Map<String, Object> jsonObj;
+    public final InputMarker inputMarker;
+
+    AggregatedEvent(Map<String, Object> jsonObj, InputMarker inputMarker) {
+      this.jsonObj = jsonObj;
+      this.inputMarker = inputMarker;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logfeeder.output;
+
+/**
+ * Sizes Solr update batches using additive-increase / multiplicative-decrease. A batch that was sent within the target
+ * latency grows the next batch by a fixed step, a slow or failed batch halves it. The size always stays between the
+ * configured minimum and maximum.
+ */
+class AdaptiveBatchSizer {
+  private static final double DECREASE_FACTOR = 0.5;
+
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final int increaseStep;
+  private final long targetLatencyMS;
+
+  private volatile int batchSize;
+
+  AdaptiveBatchSizer(int minBatchSize, int maxBatchSize, int increaseStep, long targetLatencyMS) {
+    this.minBatchSize = Math.max(1, Math.min(minBatchSize, maxBatchSize));
+    this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+    this.increaseStep = Math.max(1, increaseStep);
+    this.targetLatencyMS = targetLatencyMS;
+    this.batchSize = this.minBatchSize;
+  }
+
+  int getBatchSize() {
+    return batchSize;
+  }
+
+  synchronized void onSuccess(int sentDocuments, long latencyMS) {
+    if (latencyMS > targetLatencyMS) {
+      decrease();
+    } else if (sentDocuments >= batchSize) {
+      // Only grow if the batch was actually full, idle flushes say nothing about the capacity of Solr
+      batchSize = Math.min(maxBatchSize, batchSize + increaseStep);
+    }
+  }
+
+  synchronized void onFailure() {
+    decrease();
+  }
+
+  private void decrease() {
+    batchSize = Math.max(minBatchSize, (int) (batchSize * DECREASE_FACTOR));
+  }
+}
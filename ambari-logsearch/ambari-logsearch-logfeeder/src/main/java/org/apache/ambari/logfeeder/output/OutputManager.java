@@ -22,15 +22,18 @@ package org.apache.ambari.logfeeder.output;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ambari.logfeeder.common.LogFeederConstants;
 import org.apache.ambari.logfeeder.input.Input;
 import org.apache.ambari.logfeeder.input.InputMarker;
-import org.apache.ambari.logfeeder.input.cache.LRUCache;
+import org.apache.ambari.logfeeder.input.cache.LogTemplateAggregator;
 import org.apache.ambari.logfeeder.logconfig.FilterLogData;
 import org.apache.ambari.logfeeder.metrics.MetricData;
 import org.apache.ambari.logfeeder.util.DateUtil;
@@ -52,6 +55,9 @@ public class OutputManager {
 
   private static long docCounter = 0;
   private MetricData messageTruncateMetric = new MetricData(null, false);
+  private MetricData messageAggregateMetric = new MetricData(null, false);
+
+  private final Set<Input> aggregatingInputs = Collections.newSetFromMap(new ConcurrentHashMap<Input, Boolean>());
 
   private OutputLineFilter outputLineFilter = new OutputLineFilter();
 
@@ -144,13 +150,50 @@ public class OutputManager {
     }
     if (FilterLogData.INSTANCE.isAllowed(jsonObj, inputMarker)
       && !outputLineFilter.apply(jsonObj, inputMarker.input)) {
-      for (Output output : input.getOutputList()) {
-        try {
-          output.write(jsonObj, inputMarker);
-        } catch (Exception e) {
-          LOG.error("Error writing. to " + output.getShortDescription(), e);
+      LogTemplateAggregator templateAggregator = input.getTemplateAggregator();
+      if (templateAggregator != null) {
+        aggregatingInputs.add(input);
+        long now = System.currentTimeMillis();
+        writeAggregatedEvents(templateAggregator.pollExpired(now));
+        if (templateAggregator.aggregate(jsonObj, inputMarker, now)) {
+          messageAggregateMetric.value++;
+          return;
         }
       }
+      writeToOutputs(jsonObj, inputMarker);
+    }
+  }
+
+  private void writeToOutputs(Map<String, Object> jsonObj, InputMarker inputMarker) {
+    for (Output output : inputMarker.input.getOutputList()) {
+      try {
+        output.write(jsonObj, inputMarker);
+      } catch (Exception e) {
+        LOG.error("Error writing. to " + output.getShortDescription(), e);
+      }
+    }
+  }
+
+  private void writeAggregatedEvents(List<LogTemplateAggregator.AggregatedEvent> aggregatedEvents) {
+    for (LogTemplateAggregator.AggregatedEvent aggregatedEvent : aggregatedEvents) {
+      writeToOutputs(aggregatedEvent.jsonObj, aggregatedEvent.inputMarker);
+    }
+  }
+
+  /**
+   * Writes the aggregated log lines of an input whose aggregation window is over. It is called from the thread of the
+   * input while it waits for new lines, so that the outputs are not written by another thread.
+   */
+  public void flushAggregations(Input input) {
+    LogTemplateAggregator templateAggregator = input.getTemplateAggregator();
+    if (templateAggregator != null) {
+      writeAggregatedEvents(templateAggregator.pollExpired(System.currentTimeMillis()));
+    }
+  }
+
+  private void flushAllAggregations() {
+    for (Input input : aggregatingInputs) {
+      writeAggregatedEvents(input.getTemplateAggregator().pollAll());
     }
   }
 
@@ -202,10 +245,12 @@ public class OutputManager {
       output.logStat();
     }
     LogFeederUtil.logStatForMetric(messageTruncateMetric, "Stat: Messages Truncated", "");
+    LogFeederUtil.logStatForMetric(messageAggregateMetric, "Stat: Messages Aggregated", "");
   }
 
   public void addMetricsContainers(List<MetricData> metricsList) {
     metricsList.add(messageTruncateMetric);
+    metricsList.add(messageAggregateMetric);
     for (Output output : outputs) {
       output.addMetricsContainers(metricsList);
     }
@@ -213,6 +258,7 @@ public class OutputManager {
 
   public void close() {
     LOG.info("Close called for outputs ...");
+    flushAllAggregations();
     for (Output output : outputs) {
       try {
         output.setDrain(true);
@@ -30,10 +30,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.logfeeder.input.InputMarker;
+import org.apache.ambari.logfeeder.metrics.MetricData;
 import org.apache.ambari.logfeeder.util.DateUtil;
 import org.apache.ambari.logfeeder.util.LogFeederUtil;
 import org.apache.commons.lang3.StringUtils;
@@ -50,6 +56,10 @@ import org.apache.solr.client.solrj.response.SolrPingResponse;
 import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.Slice;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class OutputSolr extends Output {
   private static final Logger LOG = Logger.getLogger(OutputSolr.class);
@@ -60,6 +70,12 @@ public class OutputSolr extends Output {
   private static final int DEFAULT_SPLIT_INTERVAL = 30;
   private static final int DEFAULT_NUMBER_OF_WORKERS = 1;
   private static final boolean DEFAULT_SKIP_LOGTIME = false;
+  private static final boolean DEFAULT_ADAPTIVE_BATCHING = false;
+  private static final int DEFAULT_MIN_FLUSH_SIZE = 100;
+  private static final int DEFAULT_FLUSH_SIZE_INCREASE_STEP = 100;
+  private static final int DEFAULT_TARGET_LATENCY_MS = 1000;
+  private static final boolean DEFAULT_SHARD_AWARE = false;
+  private static final int DEFAULT_MAX_INFLIGHT_REQUESTS = 4;
 
   private static final int RETRY_INTERVAL = 30;
 
@@ -73,10 +89,17 @@ public class OutputSolr extends Output {
   private boolean isComputeCurrentCollection = false;
   private int lastSlotByMin = -1;
   private boolean skipLogtime = false;
+  private boolean shardAware = false;
+  private int maxInflightRequests;
+
+  private AdaptiveBatchSizer batchSizer = null;
+  private ExecutorService shardUpdateExecutor = null;
 
   private BlockingQueue<OutputData> outgoingBuffer = null;
   private List<SolrWorkerThread> workerThreadList = new ArrayList<>();
 
+  private MetricData batchSizeMetric = new MetricData("output.solr.batch_size", true);
+
   @Override
   protected String getStatMetricName() {
     return "output.solr.write_logs";
@@ -93,6 +116,7 @@ public class OutputSolr extends Output {
     initParams();
     setupSecurity();
     createOutgoingBuffer();
+    createShardUpdateExecutor();
     createSolrWorkers();
   }
 
@@ -116,13 +140,34 @@ public class OutputSolr extends Output {
       maxBufferSize = 1;
     }
 
+    if (getBooleanValue("adaptive_batching", DEFAULT_ADAPTIVE_BATCHING)) {
+      int minBufferSize = getIntValue("min_flush_size", DEFAULT_MIN_FLUSH_SIZE);
+      int increaseStep = getIntValue("flush_size_increase_step", DEFAULT_FLUSH_SIZE_INCREASE_STEP);
+      int targetLatencyMS = getIntValue("target_latency_ms", DEFAULT_TARGET_LATENCY_MS);
+      batchSizer = new AdaptiveBatchSizer(minBufferSize, maxBufferSize, increaseStep, targetLatencyMS);
+      LOG.info(String.format("Adaptive batching enabled: minFlushSize=%d, maxFlushSize=%d, increaseStep=%d, " +
+          "targetLatencyMS=%d", minBufferSize, maxBufferSize, increaseStep, targetLatencyMS));
+    }
+
+    shardAware = getBooleanValue("shard_aware", DEFAULT_SHARD_AWARE);
+    maxInflightRequests = getIntValue("max_inflight_requests", DEFAULT_MAX_INFLIGHT_REQUESTS);
+    if (maxInflightRequests < 1) {
+      LOG.warn("maxInflightRequests is less than 1. Making it 1");
+      maxInflightRequests = 1;
+    }
+
     collection = getStringValue("collection");
     if (StringUtils.isEmpty(collection)) {
       throw new Exception("Collection property is mandatory");
     }
 
-    LOG.info(String.format("Config: Number of workers=%d, splitMode=%s, splitInterval=%d, numberOfShards=%d. "
-        + getShortDescription(), workers, splitMode, splitInterval, numberOfShards));
+    LOG.info(String.format("Config: Number of workers=%d, splitMode=%s, splitInterval=%d, numberOfShards=%d, " +
+        "shardAware=%b, maxInflightRequests=%d. " + getShortDescription(), workers, splitMode, splitInterval,
+        numberOfShards, shardAware, maxInflightRequests));
+  }
+
+  private int getFlushSize() {
+    return batchSizer != null ? batchSizer.getBatchSize() : maxBufferSize;
   }
 
 
@@ -142,6 +187,15 @@ public class OutputSolr extends Output {
     outgoingBuffer = new LinkedBlockingQueue<OutputData>(bufferSize);
   }
 
+  private void createShardUpdateExecutor() {
+    if (shardAware) {
+      LOG.info("Creating shard update executor with maxInflightRequests=" + maxInflightRequests);
+      shardUpdateExecutor = Executors.newFixedThreadPool(maxInflightRequests,
+          new ThreadFactoryBuilder().setNameFormat(getNameForThread() + "," + collection + ",shard-update-%d")
+              .setDaemon(true).build());
+    }
+  }
+
   private void createSolrWorkers() throws Exception, MalformedURLException {
     String solrUrl = getStringValue("url");
     String zkConnectString = getStringValue("zk_connect_string");
@@ -297,6 +351,9 @@ public class OutputSolr extends Output {
   public void close() {
     LOG.info("Closing Solr client...");
     flush();
+    if (shardUpdateExecutor != null) {
+      shardUpdateExecutor.shutdownNow();
+    }
 
     LOG.info("Closed Solr client");
     super.close();
@@ -307,6 +364,14 @@ public class OutputSolr extends Output {
     return "output:destination=solr,collection=" + collection;
   }
 
+  @Override
+  public void addMetricsContainers(List<MetricData> metricsList) {
+    super.addMetricsContainers(metricsList);
+    if (batchSizer != null) {
+      metricsList.add(batchSizeMetric);
+    }
+  }
+
   class SolrWorkerThread extends Thread {
     private static final String ROUTER_FIELD = "_router_field_";
 
@@ -341,7 +406,7 @@ public class OutputSolr extends Output {
           }
 
           if (localBuffer.size() > 0 && ((outputData == null && isDrain()) ||
-              (nextDispatchDuration <= 0 || localBuffer.size() >= maxBufferSize))) {
+              (nextDispatchDuration <= 0 || localBuffer.size() >= getFlushSize()))) {
             boolean response = sendToSolr(outputData);
             if( isDrain() && !response) {
               //Since sending to Solr response failed and it is in draining mode, let's break;
@@ -382,13 +447,23 @@ public class OutputSolr extends Output {
             // Compute the current router value
             addRouterField();
           }
+          int batchSize = localBuffer.size();
+          long startTime = System.currentTimeMillis();
           addToSolr(outputData);
+          if (batchSizer != null) {
+            batchSizer.onSuccess(batchSize, System.currentTimeMillis() - startTime);
+            batchSizeMetric.value = batchSizer.getBatchSize();
+          }
           resetLocalBuffer();
           //Send successful, will return 
           result = true;
           break;
         } catch (IOException | SolrException exception) {
           // Transient error, lets block till it is available
+          if (batchSizer != null) {
+            batchSizer.onFailure();
+            batchSizeMetric.value = batchSizer.getBatchSize();
+          }
           try {
             LOG.warn("Solr is not reachable. Going to retry after " + RETRY_INTERVAL + " seconds. " + "output="
                 + getShortDescription(), exception);
@@ -459,11 +534,11 @@ public class OutputSolr extends Output {
     }
 
     private void addToSolr(OutputData outputData) throws SolrServerException, IOException {
-      UpdateResponse response = solrClient.add(localBuffer);
-      if (response.getStatus() != 0) {
-        String logMessageKey = this.getClass().getSimpleName() + "_SOLR_UPDATE_ERROR";
-        LogFeederUtil.logErrorMessageByInterval(logMessageKey,
-            String.format("Error writing to Solr. response=%s, log=%s", response, outputData), null, LOG, Level.ERROR);
+      if (shardUpdateExecutor != null && solrClient instanceof CloudSolrClient) {
+        addToSolrByShard(outputData);
+      } else {
+        UpdateResponse response = solrClient.add(localBuffer);
+        checkResponse(response, outputData);
       }
       statMetric.value += localBuffer.size();
       writeBytesMetric.value += localBufferBytesSize;
@@ -472,6 +547,84 @@ public class OutputSolr extends Output {
       }
     }
 
+    /**
+     * Splits the local buffer by the shard the documents are routed to and sends the parts in parallel, so every
+     * shard leader gets its own update request. The number of requests in flight is bounded by the size of the shard
+     * update executor. Input markers are only checked in after all the parts were accepted.
+     */
+    private void addToSolrByShard(OutputData outputData) throws SolrServerException, IOException {
+      Map<String, List<SolrInputDocument>> shardBuffers = groupByShard((CloudSolrClient) solrClient);
+      List<Future<UpdateResponse>> futures = new ArrayList<>();
+      for (final List<SolrInputDocument> shardBuffer : shardBuffers.values()) {
+        futures.add(shardUpdateExecutor.submit(new Callable<UpdateResponse>() {
+          @Override
+          public UpdateResponse call() throws Exception {
+            return solrClient.add(shardBuffer);
+          }
+        }));
+      }
+
+      Throwable failure = null;
+      for (Future<UpdateResponse> future : futures) {
+        try {
+          checkResponse(future.get(), outputData);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for shard update", e);
+        } catch (ExecutionException e) {
+          failure = e.getCause();
+        }
+      }
+
+      if (failure instanceof IOException) {
+        throw (IOException) failure;
+      } else if (failure instanceof SolrException) {
+        throw (SolrException) failure;
+      } else if (failure instanceof SolrServerException) {
+        throw (SolrServerException) failure;
+      } else if (failure != null) {
+        throw new SolrServerException(failure);
+      }
+    }
+
+    private Map<String, List<SolrInputDocument>> groupByShard(CloudSolrClient cloudSolrClient) {
+      Map<String, List<SolrInputDocument>> shardBuffers = new HashMap<>();
+      DocCollection docCollection = null;
+      try {
+        cloudSolrClient.connect();
+        docCollection = cloudSolrClient.getZkStateReader().getClusterState().getCollection(collection);
+      } catch (Throwable t) {
+        String logMessageKey = this.getClass().getSimpleName() + "_SHARD_LOOKUP_ERROR";
+        LogFeederUtil.logErrorMessageByInterval(logMessageKey, "Could not get the shards of collection " + collection +
+            ", sending the documents in one request", t, LOG, Level.WARN);
+      }
+
+      for (SolrInputDocument document : localBuffer) {
+        String shardName = null;
+        if (docCollection != null) {
+          Object id = document.getFieldValue("id");
+          Slice slice = docCollection.getRouter().getTargetSlice(id == null ? null : id.toString(), document, null, null,
+              docCollection);
+          shardName = slice == null ? null : slice.getName();
+        }
+        List<SolrInputDocument> shardBuffer = shardBuffers.get(shardName);
+        if (shardBuffer == null) {
+          shardBuffer = new ArrayList<>();
+          shardBuffers.put(shardName, shardBuffer);
+        }
+        shardBuffer.add(document);
+      }
+      return shardBuffers;
+    }
+
+    private void checkResponse(UpdateResponse response, OutputData outputData) {
+      if (response.getStatus() != 0) {
+        String logMessageKey = this.getClass().getSimpleName() + "_SOLR_UPDATE_ERROR";
+        LogFeederUtil.logErrorMessageByInterval(logMessageKey,
+            String.format("Error writing to Solr. response=%s, log=%s", response, outputData), null, LOG, Level.ERROR);
+      }
+    }
+
     private void closeSolrClient() {
       if (solrClient != null) {
         try {
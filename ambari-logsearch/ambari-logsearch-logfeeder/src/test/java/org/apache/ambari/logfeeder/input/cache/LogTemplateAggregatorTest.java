@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logfeeder.input.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.ambari.logfeeder.input.InputMarker;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LogTemplateAggregatorTest {
+
+  private LogTemplateAggregator underTest;
+
+  @Before
+  public void setUp() {
+    underTest = new LogTemplateAggregator(1000L, 2, Arrays.asList("ERROR", "FATAL"), 1.0, new Random(1));
+  }
+
+  @Test
+  public void testToTemplateMasksVariableParts() {
+    // GIVEN
+    String message1 = "Received block blk_1073741825_1001 of size 1024 from /10.0.0.1:50010";
+    String message2 = "Received block blk_1073741999_1175 of size 77 from /10.0.0.22:50010";
+    // WHEN & THEN
+    assertEquals(LogTemplateAggregator.toTemplate(message1), LogTemplateAggregator.toTemplate(message2));
+    assertEquals("Request <UUID> done", LogTemplateAggregator.toTemplate("Request 0d4b1c3e-54a8-4e4a-9a36-6c2f3f0e8b2a done"));
+  }
+
+  @Test
+  public void testAggregateWithinWindow() {
+    // GIVEN
+    InputMarker marker1 = new InputMarker(null, "file", 1);
+    InputMarker marker2 = new InputMarker(null, "file", 2);
+    Map<String, Object> line1 = createLine("INFO", "Processed request 123 in 5 ms");
+    Map<String, Object> line2 = createLine("INFO", "Processed request 456 in 9 ms");
+    // WHEN
+    assertTrue(underTest.aggregate(line1, marker1, 0L));
+    assertTrue(underTest.aggregate(line2, marker2, 500L));
+    List<LogTemplateAggregator.AggregatedEvent> beforeWindowEnd = underTest.pollExpired(999L);
+    List<LogTemplateAggregator.AggregatedEvent> afterWindowEnd = underTest.pollExpired(1000L);
+    // THEN
+    assertTrue(beforeWindowEnd.isEmpty());
+    assertEquals(1, afterWindowEnd.size());
+    assertSame(line1, afterWindowEnd.get(0).jsonObj);
+    assertSame(marker2, afterWindowEnd.get(0).inputMarker);
+    assertEquals(2, afterWindowEnd.get(0).jsonObj.get("event_count"));
+    assertEquals(0, underTest.getTemplateCount());
+  }
+
+  @Test
+  public void testFirstHeldLineNumber() {
+    // GIVEN
+    assertEquals(-1, underTest.getFirstHeldLineNumber("file"));
+    underTest.aggregate(createLine("INFO", "Processed request 123 in 5 ms"), new InputMarker(null, "file", 3), 0L);
+    underTest.aggregate(createLine("INFO", "Processed request 456 in 9 ms"), new InputMarker(null, "file", 4), 0L);
+    underTest.aggregate(createLine("INFO", "Opened region 7"), new InputMarker(null, "file", 5), 500L);
+    // WHEN & THEN
+    assertEquals(3, underTest.getFirstHeldLineNumber("file"));
+    assertEquals(-1, underTest.getFirstHeldLineNumber("rolledOverFile"));
+    underTest.pollExpired(1000L);
+    assertEquals(5, underTest.getFirstHeldLineNumber("file"));
+    underTest.pollAll();
+    assertEquals(-1, underTest.getFirstHeldLineNumber("file"));
+  }
+
+  @Test
+  public void testExcludedLevelsAndTemplateLimitPassThrough() {
+    // GIVEN
+    InputMarker marker = new InputMarker(null, "file", 1);
+    // WHEN & THEN
+    assertFalse(underTest.aggregate(createLine("ERROR", "Failed request 1"), marker, 0L));
+    assertTrue(underTest.aggregate(createLine("INFO", "first template 1"), marker, 0L));
+    assertTrue(underTest.aggregate(createLine("INFO", "second template 1"), marker, 0L));
+    assertFalse(underTest.aggregate(createLine("INFO", "third template 1"), marker, 0L));
+    assertEquals(2, underTest.pollAll().size());
+  }
+
+  @Test
+  public void testSamplingScalesEventCount() {
+    // GIVEN
+    underTest = new LogTemplateAggregator(1000L, 100, Arrays.asList("ERROR"), 0.5, new Random(1));
+    InputMarker marker = new InputMarker(null, "file", 1);
+    for (int i = 0; i < 100; i++) {
+      underTest.aggregate(createLine("INFO", "template" + (char) ('a' + i % 26) + (char) ('a' + i / 26) + " " + i), marker, 0L);
+    }
+    // WHEN
+    List<LogTemplateAggregator.AggregatedEvent> result = underTest.pollAll();
+    // THEN
+    assertEquals(100, result.size() + underTest.getSampledOutCount());
+    for (LogTemplateAggregator.AggregatedEvent event : result) {
+      assertEquals(2, event.jsonObj.get("event_count"));
+    }
+  }
+
+  private Map<String, Object> createLine(String level, String message) {
+    Map<String, Object> line = new HashMap<>();
+    line.put("level", level);
+    line.put("log_message", message);
+    return line;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.logfeeder.output;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveBatchSizerTest {
+
+  @Test
+  public void testBatchSizer_startsFromMinimum() {
+    AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(100, 1000, 50, 500);
+    assertEquals(100, batchSizer.getBatchSize());
+  }
+
+  @Test
+  public void testBatchSizer_increasesAdditivelyOnFastFullBatches() {
+    AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(100, 1000, 50, 500);
+    batchSizer.onSuccess(100, 10);
+    assertEquals(150, batchSizer.getBatchSize());
+    batchSizer.onSuccess(150, 10);
+    assertEquals(200, batchSizer.getBatchSize());
+  }
+
+  @Test
+  public void testBatchSizer_doesNotIncreaseOnPartialBatches() {
+    AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(100, 1000, 50, 500);
+    batchSizer.onSuccess(20, 10);
+    assertEquals(100, batchSizer.getBatchSize());
+  }
+
+  @Test
+  public void testBatchSizer_neverExceedsMaximum() {
+    AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(100, 220, 50, 500);
+    for (int i = 0; i < 10; i++) {
+      batchSizer.onSuccess(batchSizer.getBatchSize(), 10);
+    }
+    assertEquals(220, batchSizer.getBatchSize());
+  }
+
+  @Test
+  public void testBatchSizer_decreasesMultiplicativelyOnSlowBatchOrFailure() {
+    AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(100, 1000, 300, 500);
+    batchSizer.onSuccess(100, 10);
+    batchSizer.onSuccess(400, 10);
+    assertEquals(700, batchSizer.getBatchSize());
+
+    batchSizer.onSuccess(700, 800);
+    assertEquals(350, batchSizer.getBatchSize());
+
+    batchSizer.onFailure();
+    assertEquals(175, batchSizer.getBatchSize());
+
+    batchSizer.onFailure();
+    assertEquals(100, batchSizer.getBatchSize());
+  }
+}
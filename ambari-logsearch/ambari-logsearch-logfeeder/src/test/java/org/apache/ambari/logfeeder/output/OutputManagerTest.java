@@ -104,6 +104,7 @@ public class OutputManagerTest {
     expect(mockInput.isGenEventMD5()).andReturn(false);
     expect(mockInput.getConfigs()).andReturn(Collections.<String, Object> emptyMap());
     expect(mockInput.getCache()).andReturn(null);
+    expect(mockInput.getTemplateAggregator()).andReturn(null);
     expect(mockInput.getOutputList()).andReturn(Arrays.asList(output1, output2, output3));
 
     output1.write(jsonObj, inputMarker); expectLastCall();
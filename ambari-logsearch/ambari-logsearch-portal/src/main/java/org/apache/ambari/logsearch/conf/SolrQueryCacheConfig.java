@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logsearch.conf;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SolrQueryCacheConfig {
+
+  @Value("${logsearch.solr.query.cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${logsearch.solr.query.cache.max.size:1000}")
+  private Integer maxSize;
+
+  @Value("${logsearch.solr.query.cache.historical.ttl.seconds:600}")
+  private Integer historicalTtlSeconds;
+
+  @Value("${logsearch.solr.query.cache.live.ttl.seconds:5}")
+  private Integer liveTtlSeconds;
+
+  @Value("${logsearch.solr.query.cache.live.window.seconds:300}")
+  private Integer liveWindowSeconds;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Integer getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(Integer maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public Integer getHistoricalTtlSeconds() {
+    return historicalTtlSeconds;
+  }
+
+  public void setHistoricalTtlSeconds(Integer historicalTtlSeconds) {
+    this.historicalTtlSeconds = historicalTtlSeconds;
+  }
+
+  public Integer getLiveTtlSeconds() {
+    return liveTtlSeconds;
+  }
+
+  public void setLiveTtlSeconds(Integer liveTtlSeconds) {
+    this.liveTtlSeconds = liveTtlSeconds;
+  }
+
+  public Integer getLiveWindowSeconds() {
+    return liveWindowSeconds;
+  }
+
+  public void setLiveWindowSeconds(Integer liveWindowSeconds) {
+    this.liveWindowSeconds = liveWindowSeconds;
+  }
+}
@@ -39,6 +39,9 @@ public class SolrServiceLogPropsConfig extends SolrConnectionPropsConfig {
   @Value("${logsearch.collection.service.logs.replication.factor:1}")
   private Integer replicationFactor;
 
+  @Value("${logsearch.service.logs.export.page.size:5000}")
+  private Integer exportPageSize;
+
   @Override
   public String getCollection() {
     return collection;
@@ -88,4 +91,12 @@ public class SolrServiceLogPropsConfig extends SolrConnectionPropsConfig {
   public void setReplicationFactor(Integer replicationFactor) {
     this.replicationFactor = replicationFactor;
   }
+
+  public Integer getExportPageSize() {
+    return exportPageSize;
+  }
+
+  public void setExportPageSize(Integer exportPageSize) {
+    this.exportPageSize = exportPageSize;
+  }
 }
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logsearch.dao;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.ambari.logsearch.common.LogSearchConstants;
+import org.apache.ambari.logsearch.conf.SolrQueryCacheConfig;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+
+/**
+ * Caches the responses of the facet queries behind the dashboard widgets. The key is the converted Solr query with
+ * its parameters in a normalized order, so equal requests of different users share one entry. Responses for time
+ * ranges that ended before the live window are immutable and kept for a long time, responses for ranges touching the
+ * live window are only kept for a few seconds to absorb concurrent refreshes.
+ */
+@Named
+public class SolrQueryCache {
+
+  private static final Logger LOG = Logger.getLogger(SolrQueryCache.class);
+
+  private static final String EVENT_PARAM = "event";
+
+  @Inject
+  private SolrQueryCacheConfig solrQueryCacheConfig;
+
+  private Cache<String, QueryResponse> historicalCache;
+  private Cache<String, QueryResponse> liveCache;
+
+  private final AtomicLong historicalHits = new AtomicLong();
+  private final AtomicLong liveHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public SolrQueryCache() {
+  }
+
+  SolrQueryCache(SolrQueryCacheConfig solrQueryCacheConfig) {
+    this.solrQueryCacheConfig = solrQueryCacheConfig;
+    init();
+  }
+
+  @PostConstruct
+  public void init() {
+    historicalCache = CacheBuilder.newBuilder()
+      .maximumSize(solrQueryCacheConfig.getMaxSize())
+      .expireAfterWrite(solrQueryCacheConfig.getHistoricalTtlSeconds(), TimeUnit.SECONDS)
+      .build();
+    liveCache = CacheBuilder.newBuilder()
+      .maximumSize(solrQueryCacheConfig.getMaxSize())
+      .expireAfterWrite(solrQueryCacheConfig.getLiveTtlSeconds(), TimeUnit.SECONDS)
+      .build();
+    LOG.info(String.format("Solr query cache: enabled=%s, maxSize=%d, historicalTtlSeconds=%d, liveTtlSeconds=%d",
+      solrQueryCacheConfig.isEnabled(), solrQueryCacheConfig.getMaxSize(), solrQueryCacheConfig.getHistoricalTtlSeconds(),
+      solrQueryCacheConfig.getLiveTtlSeconds()));
+  }
+
+  /**
+   * Returns the cached response for the query or runs it through the dao and caches the result.
+   *
+   * @param to the end of the queried time range in Solr date format, null if the query is not time bounded
+   */
+  public QueryResponse process(SolrDaoBase solrDao, SolrQuery solrQuery, String event, String to) {
+    if (!solrQueryCacheConfig.isEnabled()) {
+      return solrDao.process(solrQuery, event);
+    }
+    String key = createKey(solrQuery);
+    QueryResponse response = historicalCache.getIfPresent(key);
+    if (response != null) {
+      historicalHits.incrementAndGet();
+      return response;
+    }
+    response = liveCache.getIfPresent(key);
+    if (response != null) {
+      liveHits.incrementAndGet();
+      return response;
+    }
+    misses.incrementAndGet();
+    response = solrDao.process(solrQuery, event);
+    if (response != null) {
+      if (isHistorical(to, System.currentTimeMillis())) {
+        historicalCache.put(key, response);
+      } else {
+        liveCache.put(key, response);
+      }
+    }
+    return response;
+  }
+
+  public Map<String, Long> getStatistics() {
+    Map<String, Long> statistics = new LinkedHashMap<>();
+    statistics.put("historicalHits", historicalHits.get());
+    statistics.put("liveHits", liveHits.get());
+    statistics.put("misses", misses.get());
+    statistics.put("historicalSize", historicalCache.size());
+    statistics.put("liveSize", liveCache.size());
+    return statistics;
+  }
+
+  public void invalidateAll() {
+    historicalCache.invalidateAll();
+    liveCache.invalidateAll();
+  }
+
+  boolean isHistorical(String to, long now) {
+    if (StringUtils.isBlank(to)) {
+      return false;
+    }
+    try {
+      SimpleDateFormat formatter = new SimpleDateFormat(LogSearchConstants.SOLR_DATE_FORMAT_PREFIX_Z);
+      formatter.setTimeZone(TimeZone.getTimeZone("GMT"));
+      Date toDate = formatter.parse(to);
+      return toDate.getTime() < now - TimeUnit.SECONDS.toMillis(solrQueryCacheConfig.getLiveWindowSeconds());
+    } catch (ParseException e) {
+      return false;
+    }
+  }
+
+  static String createKey(SolrQuery solrQuery) {
+    Map<String, String> normalizedParams = new TreeMap<>();
+    Iterator<String> paramNames = solrQuery.getParameterNamesIterator();
+    while (paramNames.hasNext()) {
+      String paramName = paramNames.next();
+      if (EVENT_PARAM.equals(paramName)) {
+        continue;
+      }
+      String[] values = solrQuery.getParams(paramName);
+      if (values != null) {
+        values = values.clone();
+        Arrays.sort(values);
+        normalizedParams.put(paramName, StringUtils.join(values, '\u0001'));
+      }
+    }
+    return normalizedParams.toString();
+  }
+}
@@ -90,6 +90,7 @@ public class DocConstants {
     public static final String GET_TREE_EXTENSION_OD = "Get host and compoenets hierarchy with log counts";
     public static final String GET_HISTOGRAM_DATA_OD = "Get data for histogram";
     public static final String EXPORT_TO_TEXT_FILE_OD = "Export the table data in file";
+    public static final String STREAM_EXPORT_TO_FILE_OD = "Export the table data in a gzip compressed file without limiting the number of logs";
     public static final String GET_COMPONENT_LIST_WITH_LEVEL_COUNT_OD = "Get components with log level distribution count";
     public static final String GET_ANY_GRAPH_COUNT_DATA_OD = "Get the data generic enough to use for graph plots (yAzis is always count)";
     public static final String GET_HOST_LIST_BY_COMPONENT_OD = "Get host list of components";
@@ -123,5 +124,6 @@ public class DocConstants {
     public static final String SERVICE_LOGS_STATUS_OD = "Get statuses for service log collection (not health state - show true if something already done)";
     public static final String AUDIT_LOGS_STATUS_OD = "Get statuses for collections (not health state - show true if something already done)";
     public static final String USER_CONFIG_STATUS_OD = "Get statuses for userconfig collection (not health state - show true if something already done)";
+    public static final String QUERY_CACHE_STATUS_OD = "Get hit/miss statistics of the Solr query result cache";
   }
 }
@@ -60,10 +60,12 @@ public class JsonManagerBase {
       return "";
     }
 
-    Gson gson = new GsonBuilder()
+    return createGson().toJson(obj);
+  }
+
+  protected Gson createGson() {
+    return new GsonBuilder()
       .registerTypeAdapter(Date.class, jsonDateSerialiazer)
       .registerTypeAdapter(Date.class, jsonDateDeserialiazer).create();
-
-    return gson.toJson(obj);
   }
 }
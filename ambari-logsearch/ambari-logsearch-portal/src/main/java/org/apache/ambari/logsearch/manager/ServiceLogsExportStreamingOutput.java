@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logsearch.manager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.google.gson.Gson;
+import org.apache.ambari.logsearch.dao.SolrDaoBase;
+import org.apache.ambari.logsearch.util.DownloadUtil;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CursorMarkParams;
+
+import static org.apache.ambari.logsearch.solr.SolrConstants.CommonLogConstants.ID;
+
+/**
+ * Writes the result of a service log query to the response as a gzip compressed text or json file. The documents are
+ * read from Solr page by page with a cursor mark and written out one by one, so the memory usage does not depend on
+ * the number of exported documents.
+ */
+public class ServiceLogsExportStreamingOutput implements StreamingOutput {
+  private static final Logger logger = Logger.getLogger(ServiceLogsExportStreamingOutput.class);
+
+  private final SolrDaoBase solrDao;
+  private final SolrQuery solrQuery;
+  private final int pageSize;
+  private final boolean jsonFormat;
+  private final String header;
+  private final Gson gson;
+
+  public ServiceLogsExportStreamingOutput(SolrDaoBase solrDao, SolrQuery solrQuery, int pageSize, boolean jsonFormat,
+                                          String header, Gson gson) {
+    this.solrDao = solrDao;
+    this.solrQuery = solrQuery;
+    this.pageSize = pageSize;
+    this.jsonFormat = jsonFormat;
+    this.header = header;
+    this.gson = gson;
+  }
+
+  @Override
+  public void write(OutputStream outputStream) throws IOException, WebApplicationException {
+    GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(gzipOutputStream, StandardCharsets.UTF_8));
+
+    prepareCursorQuery();
+    String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+    long exported = 0;
+    boolean first = true;
+    if (jsonFormat) {
+      writer.write("[");
+    } else if (header != null) {
+      writer.write(header);
+    }
+    while (true) {
+      solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+      QueryResponse response = solrDao.process(solrQuery);
+      SolrDocumentList docList = response.getResults();
+      if (docList != null) {
+        for (SolrDocument doc : docList) {
+          if (jsonFormat) {
+            if (!first) {
+              writer.write(",");
+            }
+            writer.write(gson.toJson(doc));
+          } else {
+            writer.write(DownloadUtil.formatLogLine(doc));
+            writer.write("\n");
+          }
+          first = false;
+          exported++;
+        }
+      }
+      String nextCursorMark = response.getNextCursorMark();
+      if (nextCursorMark == null || nextCursorMark.equals(cursorMark)) {
+        break;
+      }
+      cursorMark = nextCursorMark;
+    }
+    if (jsonFormat) {
+      writer.write("]");
+    }
+    writer.flush();
+    gzipOutputStream.finish();
+    logger.info("Exported " + exported + " service log documents");
+  }
+
+  /**
+   * Cursor mark paging needs a sort on the unique key as tie breaker and does not support a start offset.
+   */
+  private void prepareCursorQuery() {
+    solrQuery.setStart(0);
+    solrQuery.setRows(pageSize);
+    boolean sortedById = false;
+    for (SolrQuery.SortClause sortClause : solrQuery.getSorts()) {
+      if (ID.equals(sortClause.getItem())) {
+        sortedById = true;
+      }
+    }
+    if (!sortedById) {
+      solrQuery.addSort(ID, SolrQuery.ORDER.asc);
+    }
+  }
+}
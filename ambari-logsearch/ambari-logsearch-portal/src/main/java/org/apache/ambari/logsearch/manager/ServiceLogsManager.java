@@ -45,7 +45,9 @@ import org.apache.ambari.logsearch.common.LogSearchConstants;
 import org.apache.ambari.logsearch.common.LogType;
 import org.apache.ambari.logsearch.common.MessageEnums;
 import org.apache.ambari.logsearch.common.StatusMessage;
+import org.apache.ambari.logsearch.conf.SolrServiceLogPropsConfig;
 import org.apache.ambari.logsearch.dao.ServiceLogsSolrDao;
+import org.apache.ambari.logsearch.dao.SolrQueryCache;
 import org.apache.ambari.logsearch.dao.SolrSchemaFieldDao;
 import org.apache.ambari.logsearch.model.request.impl.HostLogFilesRequest;
 import org.apache.ambari.logsearch.model.request.impl.ServiceAnyGraphRequest;
@@ -125,6 +127,10 @@ public class ServiceLogsManager extends ManagerBase<SolrServiceLogData, ServiceL
   private Configuration freemarkerConfiguration;
   @Inject
   private SolrSchemaFieldDao solrSchemaFieldDao;
+  @Inject
+  private SolrServiceLogPropsConfig solrServiceLogPropsConfig;
+  @Inject
+  private SolrQueryCache solrQueryCache;
 
   public ServiceLogResponse searchLogs(ServiceLogRequest request) {
     String event = "/service/logs";
@@ -200,7 +206,7 @@ public class ServiceLogsManager extends ManagerBase<SolrServiceLogData, ServiceL
     if (StringUtils.isNotBlank(hostName)){
       solrQuery.addFilterQuery(String.format("%s:*%s*", HOST, hostName));
     }
-    QueryResponse response = serviceLogsSolrDao.process(solrQuery, "/service/logs/tree");
+    QueryResponse response = solrQueryCache.process(serviceLogsSolrDao, solrQuery, "/service/logs/tree", request.getTo());
     String firstHierarchy = String.format("%s,%s,%s", HOST, COMPONENT, LEVEL);
     String secondHierarchy = String.format("%s,%s", HOST, LEVEL);
     return responseDataGenerator.generateServiceNodeTreeFromFacetResponse(response, firstHierarchy, secondHierarchy,
@@ -229,13 +235,14 @@ public class ServiceLogsManager extends ManagerBase<SolrServiceLogData, ServiceL
 
   public NameValueDataListResponse getLogsLevelCount(ServiceLogLevelCountRequest request) {
     SimpleFacetQuery facetQuery = conversionService.convert(request, SimpleFacetQuery.class);
-    QueryResponse response = serviceLogsSolrDao.process(facetQuery, "/service/logs/levels/counts");
+    SolrQuery solrQuery = new DefaultQueryParser().doConstructSolrQuery(facetQuery);
+    QueryResponse response = solrQueryCache.process(serviceLogsSolrDao, solrQuery, "/service/logs/levels/counts", request.getTo());
     return responseDataGenerator.getNameValueDataListResponseWithDefaults(response, LogSearchConstants.SUPPORTED_LOG_LEVELS, false);
   }
 
   public BarGraphDataListResponse getHistogramData(ServiceGraphRequest request) {
     SolrQuery solrQuery = conversionService.convert(request, SolrQuery.class);
-    QueryResponse response = serviceLogsSolrDao.process(solrQuery, "/service/logs/histogram");
+    QueryResponse response = solrQueryCache.process(serviceLogsSolrDao, solrQuery, "/service/logs/histogram", request.getTo());
     return responseDataGenerator.generateBarGraphDataResponseWithRanges(response, LEVEL, true);
   }
 
@@ -371,27 +378,11 @@ public class ServiceLogsManager extends ManagerBase<SolrServiceLogData, ServiceL
   public Response export(ServiceLogExportRequest request) {
     String defaultFormat = "text";
     SimpleQuery solrQuery = conversionService.convert(request, SimpleQuery.class);
-    String from = request.getFrom();
-    String to = request.getTo();
-    String utcOffset = StringUtils.isBlank(request.getUtcOffset()) ? "0" : request.getUtcOffset();
     String format = request.getFormat() != null && defaultFormat.equalsIgnoreCase(request.getFormat()) ? ".txt" : ".json";
     String fileName = "Component_Logs_" + DateUtil.getCurrentDateInString();
 
-    if (!DateUtil.isDateValid(from) || !DateUtil.isDateValid(to)) {
-      logger.error("Not valid date format. Valid format should be" + LogSearchConstants.SOLR_DATE_FORMAT_PREFIX_Z);
-      throw RESTErrorUtil.createRESTException("Not valid date format. Valid format should be"
-          + LogSearchConstants.SOLR_DATE_FORMAT_PREFIX_Z, MessageEnums.INVALID_INPUT_DATA);
-
-    } else {
-      from = from.replace("T", " ");
-      from = from.replace(".", ",");
-
-      to = to.replace("T", " ");
-      to = to.replace(".", ",");
-
-      to = DateUtil.addOffsetToDate(to, Long.parseLong(utcOffset), "yyyy-MM-dd HH:mm:ss,SSS");
-      from = DateUtil.addOffsetToDate(from, Long.parseLong(utcOffset), "yyyy-MM-dd HH:mm:ss,SSS");
-    }
+    String from = toExportDate(request.getFrom(), request.getUtcOffset());
+    String to = toExportDate(request.getTo(), request.getUtcOffset());
 
     String textToSave = "";
     try {
@@ -431,11 +422,49 @@ public class ServiceLogsManager extends ManagerBase<SolrServiceLogData, ServiceL
     }
   }
 
+  public Response streamExport(ServiceLogExportRequest request) {
+    String from = toExportDate(request.getFrom(), request.getUtcOffset());
+    String to = toExportDate(request.getTo(), request.getUtcOffset());
+    SimpleQuery simpleQuery = conversionService.convert(request, SimpleQuery.class);
+    SolrQuery solrQuery = new DefaultQueryParser().doConstructSolrQuery(simpleQuery);
+    boolean jsonFormat = !"text".equalsIgnoreCase(request.getFormat());
+    String format = jsonFormat ? ".json" : ".txt";
+    String fileName = "Component_Logs_" + DateUtil.getCurrentDateInString() + format + ".gz";
+
+    String header = null;
+    if (!jsonFormat) {
+      header = String.format("**********************Summary**********************%nFrom           : %s%nTo             : %s%n" +
+          "Format         : %s%n%n************************Logs***********************%n", from, to, format);
+    }
+
+    ServiceLogsExportStreamingOutput streamingOutput = new ServiceLogsExportStreamingOutput(serviceLogsSolrDao, solrQuery,
+      solrServiceLogPropsConfig.getExportPageSize(), jsonFormat, header, createGson());
+    return Response
+      .ok(streamingOutput, MediaType.APPLICATION_OCTET_STREAM)
+      .header("Content-Disposition", "attachment;filename=" + fileName)
+      .build();
+  }
+
+  /**
+   * Validates a from or to date of an export request and converts it to the log file format in the time zone of the user.
+   */
+  private String toExportDate(String date, String utcOffset) {
+    if (!DateUtil.isDateValid(date)) {
+      logger.error("Not valid date format. Valid format should be" + LogSearchConstants.SOLR_DATE_FORMAT_PREFIX_Z);
+      throw RESTErrorUtil.createRESTException("Not valid date format. Valid format should be"
+          + LogSearchConstants.SOLR_DATE_FORMAT_PREFIX_Z, MessageEnums.INVALID_INPUT_DATA);
+    }
+    String offset = StringUtils.isBlank(utcOffset) ? "0" : utcOffset;
+    String converted = date.replace("T", " ").replace(".", ",");
+    return DateUtil.addOffsetToDate(converted, Long.parseLong(offset), "yyyy-MM-dd HH:mm:ss,SSS");
+  }
+
   public NodeListResponse getComponentListWithLevelCounts(ServiceLogComponentLevelRequest request) {
     SimpleFacetQuery facetQuery = conversionService.convert(request, SimpleFacetQuery.class);
     SolrQuery solrQuery = new DefaultQueryParser().doConstructSolrQuery(facetQuery);
     solrQuery.setFacetSort(StringUtils.isEmpty(request.getSortBy()) ? COMPONENT: request.getSortBy());
-    QueryResponse response = serviceLogsSolrDao.process(facetQuery, "/service/logs/components/levels/counts");
+    QueryResponse response = solrQueryCache.process(serviceLogsSolrDao, solrQuery,
+      "/service/logs/components/levels/counts", request.getTo());
     return responseDataGenerator.generateOneLevelServiceNodeTree(response, String.format("%s,%s", COMPONENT, LEVEL));
   }
 
@@ -157,6 +157,14 @@ public class ServiceLogsResource {
     return serviceLogsManager.export(request);
   }
 
+  @GET
+  @Path("/export/stream")
+  @Produces({"application/octet-stream"})
+  @ApiOperation(STREAM_EXPORT_TO_FILE_OD)
+  public Response streamExportToFile(@BeanParam ServiceLogExportRequest request) {
+    return serviceLogsManager.streamExport(request);
+  }
+
   @GET
   @Path("/hosts/components")
   @Produces({"application/json"})
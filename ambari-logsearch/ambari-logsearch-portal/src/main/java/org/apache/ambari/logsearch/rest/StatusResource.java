@@ -21,6 +21,7 @@ package org.apache.ambari.logsearch.rest;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.apache.ambari.logsearch.conf.global.SolrCollectionState;
+import org.apache.ambari.logsearch.dao.SolrQueryCache;
 import org.springframework.context.annotation.Scope;
 
 import javax.inject.Inject;
@@ -32,6 +33,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.apache.ambari.logsearch.doc.DocConstants.StatusOperationDescriptions.AUDIT_LOGS_STATUS_OD;
+import static org.apache.ambari.logsearch.doc.DocConstants.StatusOperationDescriptions.QUERY_CACHE_STATUS_OD;
 import static org.apache.ambari.logsearch.doc.DocConstants.StatusOperationDescriptions.SERVICE_LOGS_STATUS_OD;
 import static org.apache.ambari.logsearch.doc.DocConstants.StatusOperationDescriptions.STATUS_OD;
 import static org.apache.ambari.logsearch.doc.DocConstants.StatusOperationDescriptions.USER_CONFIG_STATUS_OD;
@@ -54,6 +56,9 @@ public class StatusResource {
   @Named("solrUserConfigState")
   private SolrCollectionState solrUserConfigState;
 
+  @Inject
+  private SolrQueryCache solrQueryCache;
+
   @GET
   @Produces({"application/json"})
   @ApiOperation(STATUS_OD)
@@ -88,4 +93,12 @@ public class StatusResource {
   public SolrCollectionState getSolrUserConfigStatus() {
     return solrUserConfigState;
   }
+
+  @GET
+  @Path("/querycache")
+  @Produces({"application/json"})
+  @ApiOperation(QUERY_CACHE_STATUS_OD)
+  public Map<String, Long> getQueryCacheStatus() {
+    return solrQueryCache.getStatistics();
+  }
 }
@@ -76,32 +76,7 @@ public class DownloadUtil {
           levels.add(level);
         }
 
-        StringBuffer textToWrite = new StringBuffer();
-
-        if (doc.getFieldValue(LOGTIME) != null) {
-          textToWrite.append(doc.getFieldValue(LOGTIME).toString() + " ");
-        }
-        if (doc.getFieldValue(LEVEL) != null) {
-          textToWrite.append(doc.getFieldValue(LEVEL).toString()).append(" ");
-        }
-        if (doc.getFieldValue(THREAD_NAME) != null) {
-          textToWrite.append(doc.getFieldValue(THREAD_NAME).toString().trim()).append(" ");
-        }
-        if (doc.getFieldValue(LOGGER_NAME) != null) {
-          textToWrite.append(doc.getFieldValue(LOGGER_NAME).toString().trim()).append(" ");
-        }
-        if (doc.getFieldValue(FILE) != null && doc.getFieldValue(LINE_NUMBER) != null) {
-          textToWrite
-            .append(doc.getFieldValue(FILE).toString())
-            .append(":")
-            .append(doc.getFieldValue(LINE_NUMBER).toString())
-            .append(" ");
-        }
-        if (doc.getFieldValue(LOG_MESSAGE) != null) {
-          textToWrite.append("- ")
-            .append(doc.getFieldValue(LOG_MESSAGE).toString());
-        }
-        logData.add(new TemplateData((textToWrite.toString())));
+        logData.add(new TemplateData(formatLogLine(doc)));
       }
     }
     models.put("numberOfLogs", numLogs);
@@ -131,6 +106,35 @@ public class DownloadUtil {
     models.put("eString", excludeString);
   }
 
+  public static String formatLogLine(SolrDocument doc) {
+    StringBuilder textToWrite = new StringBuilder();
+
+    if (doc.getFieldValue(LOGTIME) != null) {
+      textToWrite.append(doc.getFieldValue(LOGTIME).toString() + " ");
+    }
+    if (doc.getFieldValue(LEVEL) != null) {
+      textToWrite.append(doc.getFieldValue(LEVEL).toString()).append(" ");
+    }
+    if (doc.getFieldValue(THREAD_NAME) != null) {
+      textToWrite.append(doc.getFieldValue(THREAD_NAME).toString().trim()).append(" ");
+    }
+    if (doc.getFieldValue(LOGGER_NAME) != null) {
+      textToWrite.append(doc.getFieldValue(LOGGER_NAME).toString().trim()).append(" ");
+    }
+    if (doc.getFieldValue(FILE) != null && doc.getFieldValue(LINE_NUMBER) != null) {
+      textToWrite
+        .append(doc.getFieldValue(FILE).toString())
+        .append(":")
+        .append(doc.getFieldValue(LINE_NUMBER).toString())
+        .append(" ");
+    }
+    if (doc.getFieldValue(LOG_MESSAGE) != null) {
+      textToWrite.append("- ")
+        .append(doc.getFieldValue(LOG_MESSAGE).toString());
+    }
+    return textToWrite.toString();
+  }
+
   public static void fillUserResourcesModel(Map<String, Object> models, BarGraphDataListResponse vBarUserDataList, BarGraphDataListResponse vBarResourceDataList) {
     List<TemplateData> usersDataList = new ArrayList<>();
     List<TemplateData> resourceDataList = new ArrayList<>();
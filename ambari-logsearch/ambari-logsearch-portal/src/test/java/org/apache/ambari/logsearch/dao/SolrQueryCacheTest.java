@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logsearch.dao;
+
+import org.apache.ambari.logsearch.conf.SolrQueryCacheConfig;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SolrQueryCacheTest {
+
+  private SolrQueryCache underTest;
+
+  @Before
+  public void setUp() {
+    SolrQueryCacheConfig config = new SolrQueryCacheConfig();
+    config.setEnabled(true);
+    config.setMaxSize(10);
+    config.setHistoricalTtlSeconds(600);
+    config.setLiveTtlSeconds(5);
+    config.setLiveWindowSeconds(300);
+    underTest = new SolrQueryCache(config);
+  }
+
+  @Test
+  public void testCreateKeyIgnoresFilterOrderAndEvent() {
+    // GIVEN
+    SolrQuery query1 = new SolrQuery("*:*");
+    query1.addFilterQuery("level:ERROR", "type:hdfs_namenode");
+    query1.set("event", "/service/logs/histogram");
+    SolrQuery query2 = new SolrQuery("*:*");
+    query2.addFilterQuery("type:hdfs_namenode", "level:ERROR");
+    // WHEN & THEN
+    assertEquals(SolrQueryCache.createKey(query1), SolrQueryCache.createKey(query2));
+  }
+
+  @Test
+  public void testIsHistorical() {
+    long now = 1475000000000L; // 2016-09-27T18:13:20.000Z
+    assertTrue(underTest.isHistorical("2016-09-27T18:00:00.000Z", now));
+    assertFalse(underTest.isHistorical("2016-09-27T18:10:00.000Z", now));
+    assertFalse(underTest.isHistorical(null, now));
+    assertFalse(underTest.isHistorical("not a date", now));
+  }
+
+  @Test
+  public void testProcessReturnsCachedResponse() {
+    // GIVEN
+    SolrDaoBase solrDao = createMock(SolrDaoBase.class);
+    QueryResponse response = new QueryResponse();
+    expect(solrDao.process(anyObject(SolrQuery.class), anyString())).andReturn(response).once();
+    replay(solrDao);
+    // WHEN
+    QueryResponse result1 = underTest.process(solrDao, new SolrQuery("level:ERROR"), "event", "2016-09-27T18:00:00.000Z");
+    QueryResponse result2 = underTest.process(solrDao, new SolrQuery("level:ERROR"), "event", "2016-09-27T18:00:00.000Z");
+    // THEN
+    assertSame(response, result1);
+    assertSame(response, result2);
+    assertEquals(Long.valueOf(1), underTest.getStatistics().get("historicalHits"));
+    assertEquals(Long.valueOf(1), underTest.getStatistics().get("misses"));
+    verify(solrDao);
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logsearch.manager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import com.google.gson.Gson;
+import org.apache.ambari.logsearch.dao.SolrDaoBase;
+import org.apache.commons.io.IOUtils;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ServiceLogsExportStreamingOutputTest {
+
+  private SolrDaoBase solrDao;
+  private Capture<SolrQuery> queryCapture;
+  private List<String> cursorMarks;
+
+  @Before
+  public void setUp() {
+    solrDao = createMock(SolrDaoBase.class);
+    queryCapture = newCapture(CaptureType.ALL);
+    cursorMarks = new ArrayList<>();
+  }
+
+  @Test
+  public void testWriteTextPagesThroughCursor() throws Exception {
+    // GIVEN
+    expectPage("AoE1", createDoc("1", "first"), createDoc("2", "second"));
+    expectPage("AoE2", createDoc("3", "third"));
+    expectPage("AoE2");
+    replay(solrDao);
+    SolrQuery solrQuery = new SolrQuery("*:*");
+    ServiceLogsExportStreamingOutput underTest = new ServiceLogsExportStreamingOutput(solrDao, solrQuery, 2, false, "header\n", new Gson());
+    // WHEN
+    String result = writeAndUnzip(underTest);
+    // THEN
+    assertEquals("header\nERROR - first\nERROR - second\nERROR - third\n", result);
+    assertEquals(3, queryCapture.getValues().size());
+    for (SolrQuery query : queryCapture.getValues()) {
+      assertSame(solrQuery, query);
+    }
+    assertEquals("*:*", solrQuery.getQuery());
+    assertEquals(Integer.valueOf(0), solrQuery.getStart());
+    assertEquals(Integer.valueOf(2), solrQuery.getRows());
+    assertEquals("id asc", solrQuery.get("sort"));
+    assertEquals(Arrays.asList(CursorMarkParams.CURSOR_MARK_START, "AoE1", "AoE2"), cursorMarks);
+    verify(solrDao);
+  }
+
+  @Test
+  public void testWriteJsonArray() throws Exception {
+    // GIVEN
+    expectPage("AoE1", createDoc("1", "first"), createDoc("2", "second"));
+    expectPage("AoE1");
+    replay(solrDao);
+    ServiceLogsExportStreamingOutput underTest = new ServiceLogsExportStreamingOutput(solrDao, new SolrQuery("*:*"), 2, true, null, new Gson());
+    // WHEN
+    String result = writeAndUnzip(underTest);
+    // THEN
+    Object[] docs = new Gson().fromJson(result, Object[].class);
+    assertEquals(2, docs.length);
+    assertEquals(Arrays.asList(CursorMarkParams.CURSOR_MARK_START, "AoE1"), cursorMarks);
+    verify(solrDao);
+  }
+
+  private void expectPage(String nextCursorMark, SolrDocument... docs) {
+    SolrDocumentList docList = new SolrDocumentList();
+    for (SolrDocument doc : docs) {
+      docList.add(doc);
+    }
+    QueryResponse response = createMock(QueryResponse.class);
+    expect(response.getResults()).andReturn(docList);
+    expect(response.getNextCursorMark()).andReturn(nextCursorMark);
+    replay(response);
+    final QueryResponse pageResponse = response;
+    expect(solrDao.process(capture(queryCapture))).andAnswer(new IAnswer<QueryResponse>() {
+      @Override
+      public QueryResponse answer() throws Throwable {
+        // the same query instance is reused for every page, so record the cursor mark it was sent with
+        SolrQuery query = (SolrQuery) EasyMock.getCurrentArguments()[0];
+        cursorMarks.add(query.get(CursorMarkParams.CURSOR_MARK_PARAM));
+        return pageResponse;
+      }
+    });
+  }
+
+  private SolrDocument createDoc(String id, String message) {
+    SolrDocument doc = new SolrDocument();
+    doc.addField("id", id);
+    doc.addField("level", "ERROR");
+    doc.addField("log_message", message);
+    return doc;
+  }
+
+  private String writeAndUnzip(ServiceLogsExportStreamingOutput streamingOutput) throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    streamingOutput.write(outputStream);
+    return IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray())), "UTF-8");
+  }
+}
@@ -178,7 +178,8 @@ class ActionScheduler implements Runnable {
    * we receive awake() request during running a scheduler iteration.
    */
   private boolean activeAwakeRequest = false;
-  //Cache for clusterHostinfo, key - stageId-requestId
+  //Cache for clusterHostinfo, key - clusterHostInfo json, requests created
+  //from the same cluster topology share the parsed value
   private Cache<String, Map<String, Set<String>>> clusterHostInfoCache;
   private Cache<String, Map<String, String>> commandParamsStageCache;
   private Cache<String, Map<String, String>> hostParamsStageCache;
@@ -1072,16 +1073,16 @@ class ActionScheduler implements Runnable {
     s.incrementAttemptCount(hostname, roleStr);
 
 
-    String requestPK = r.getRequestId().toString();
+    String clusterHostInfoJson = r.getClusterHostInfo();
     String stagePk = s.getStageId() + "-" + s.getRequestId();
 
     // Try to get clusterHostInfo from cache
-    Map<String, Set<String>> clusterHostInfo = clusterHostInfoCache.getIfPresent(requestPK);
+    Map<String, Set<String>> clusterHostInfo = clusterHostInfoCache.getIfPresent(clusterHostInfoJson);
 
     if (clusterHostInfo == null) {
       Type type = new TypeToken<Map<String, Set<String>>>() {}.getType();
-      clusterHostInfo = StageUtils.getGson().fromJson(r.getClusterHostInfo(), type);
-      clusterHostInfoCache.put(requestPK, clusterHostInfo);
+      clusterHostInfo = StageUtils.getGson().fromJson(clusterHostInfoJson, type);
+      clusterHostInfoCache.put(clusterHostInfoJson, clusterHostInfo);
     }
 
     cmd.setClusterHostInfo(clusterHostInfo);
@@ -213,6 +213,8 @@ public class HeartbeatMonitor implements Runnable {
     List<StatusCommand> cmds = new ArrayList<StatusCommand>();
 
     for (Cluster cl : clusters.getClustersForHost(hostname)) {
+      // taken before the desired configs, which may change while they are used
+      long staleConfigsGeneration = configHelper.getStaleConfigsGeneration(cl.getClusterId());
       Map<String, DesiredConfig> desiredConfigs = cl.getDesiredConfigs();
       for (ServiceComponentHost sch : cl.getServiceComponentHosts(hostname)) {
         switch (sch.getState()) {
@@ -223,7 +225,8 @@ public class HeartbeatMonitor implements Runnable {
             //don't send commands until component is installed at least
             continue;
           default:
-            StatusCommand statusCmd = createStatusCommand(hostname, cl, sch, desiredConfigs);
+            StatusCommand statusCmd = createStatusCommand(hostname, cl, sch, desiredConfigs,
+                staleConfigsGeneration);
             cmds.add(statusCmd);
         }
 
@@ -237,7 +240,8 @@ public class HeartbeatMonitor implements Runnable {
    * @throws AmbariException
    */
   private StatusCommand createStatusCommand(String hostname, Cluster cluster,
-      ServiceComponentHost sch, Map<String, DesiredConfig> desiredConfigs) throws AmbariException {
+      ServiceComponentHost sch, Map<String, DesiredConfig> desiredConfigs, long staleConfigsGeneration)
+      throws AmbariException {
     String serviceName = sch.getServiceName();
     String componentName = sch.getServiceComponentName();
     StackId stackId = cluster.getDesiredStackVersion();
@@ -313,7 +317,7 @@ public class HeartbeatMonitor implements Runnable {
 
     // If Agent wants the command and the States differ
     statusCmd.setDesiredState(sch.getDesiredState());
-    statusCmd.setHasStaleConfigs(configHelper.isStaleConfigs(sch, desiredConfigs));
+    statusCmd.setHasStaleConfigs(configHelper.isStaleConfigs(sch, desiredConfigs, staleConfigsGeneration));
     if (getAgentRequests().shouldSendExecutionDetails(hostname, componentName)) {
       LOG.info(componentName + " is at " + sch.getState() + " adding more payload per agent ask");
       statusCmd.setPayloadLevel(StatusCommand.StatusCommandPayload.EXECUTION_COMMAND);
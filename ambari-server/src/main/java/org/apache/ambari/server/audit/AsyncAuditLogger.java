@@ -6,53 +6,114 @@
  * to you under the Apache License, Version 2.0 (the
  * "License"); you may not use this file except in compliance
  * with the License.  You may obtain a copy of the License at
- * <p/>
- * http://www.apache.org/licenses/LICENSE-2.0
- * <p/>
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+
 package org.apache.ambari.server.audit;
 
 
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.ambari.server.audit.event.AuditEvent;
 import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.configuration.Configuration.AuditLoggerOverflowBehavior;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.AsyncEventBus;
-import com.google.common.eventbus.EventBus;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 
 /**
- * This is a wrapper for an audit log implementation that uses {@link EventBus} to make audit logging asynchronous
+ * This is a wrapper for an audit log implementation that makes audit logging asynchronous.
+ * Events are put on a bounded, non-blocking queue and a dedicated writer thread hands them
+ * to the wrapped logger in batches, so the formatting and the I/O of the audit log happen
+ * on the writer thread. When the queue is full the event is either written by the calling
+ * thread or dropped, see {@link Configuration#AUDIT_LOGGER_OVERFLOW_BEHAVIOR}.
  */
 @Singleton
 class AsyncAuditLogger implements AuditLogger {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncAuditLogger.class);
+
   /**
    * Name for guice injection
    */
   final static String InnerLogger = "AsyncAuditLogger";
 
   /**
-   * Event bus that holds audit event objects
+   * The maximum number of events the writer takes off the queue at once.
+   */
+  private static final int BATCH_SIZE = 512;
+
+  /**
+   * How long the idle writer parks before checking the queue again.
+   */
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  /**
+   * A warning is logged every time this many events have been dropped.
    */
-  private EventBus eventBus;
+  private static final long DROPPED_EVENT_WARNING_INTERVAL = 1000;
+
+  /**
+   * The logger which writes the events.
+   */
+  private final AuditLogger auditLogger;
 
   /**
    * Indicates if audit log feature is enabled
    */
   private final boolean isEnabled;
 
+  /**
+   * The maximum number of queued events.
+   */
+  private final int capacity;
+
+  /**
+   * What to do with events which don't fit into the queue.
+   */
+  private final AuditLoggerOverflowBehavior overflowBehavior;
+
+  /**
+   * Events waiting to be written.
+   */
+  private final Queue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The number of events in {@link #queue}; the queue itself has no constant time size.
+   */
+  private final AtomicInteger queuedEventCount = new AtomicInteger();
+
+  /**
+   * The number of events which were dropped or written by the calling thread because the
+   * queue was full.
+   */
+  private final AtomicLong droppedEventCount = new AtomicLong();
+  private final AtomicLong callerWrittenEventCount = new AtomicLong();
+
+  /**
+   * Set while the writer thread is about to park, so that a new event unparks it.
+   */
+  private volatile boolean writerIdle = false;
+
+  private Thread writer;
+
   /**
    * Constructor.
    *
@@ -60,19 +121,32 @@ class AsyncAuditLogger implements AuditLogger {
    */
   @Inject
   public AsyncAuditLogger(@Named(InnerLogger) AuditLogger auditLogger, Configuration configuration) {
+    this.auditLogger = auditLogger;
     isEnabled = configuration.isAuditLogEnabled();
-    if(isEnabled) {
-      eventBus = new AsyncEventBus("AuditLoggerEventBus", new ThreadPoolExecutor(0, 1, 5L, TimeUnit.MINUTES,
-        new LinkedBlockingQueue<Runnable>(configuration.getAuditLoggerCapacity()), new AuditLogThreadFactory(),
-        new ThreadPoolExecutor.CallerRunsPolicy()));
-      eventBus.register(auditLogger);
+    capacity = Math.max(1, configuration.getAuditLoggerCapacity());
+    overflowBehavior = configuration.getAuditLoggerOverflowBehavior();
+    if (isEnabled) {
+      writer = new Thread(new AuditLogWriter(), "auditlog-1");
+      writer.setDaemon(true);
+      writer.start();
     }
   }
 
   @Override
   public void log(AuditEvent event) {
-    if(isEnabled) {
-      eventBus.post(event);
+    if (!isEnabled) {
+      return;
+    }
+
+    if (queuedEventCount.incrementAndGet() > capacity) {
+      queuedEventCount.decrementAndGet();
+      onOverflow(event);
+      return;
+    }
+
+    queue.offer(event);
+    if (writerIdle) {
+      LockSupport.unpark(writer);
     }
   }
 
@@ -82,20 +156,77 @@ class AsyncAuditLogger implements AuditLogger {
   }
 
   /**
-   * A custom {@link ThreadFactory} for the threads that logs audit events
+   * @return the number of events waiting to be written
    */
-  private static final class AuditLogThreadFactory implements ThreadFactory {
+  public int getQueuedEventCount() {
+    return queuedEventCount.get();
+  }
 
-    private static final AtomicInteger nextId = new AtomicInteger(1);
+  /**
+   * @return the number of events dropped because the queue was full
+   */
+  public long getDroppedEventCount() {
+    return droppedEventCount.get();
+  }
+
+  /**
+   * @return the number of events written by the calling thread because the queue was full
+   */
+  public long getCallerWrittenEventCount() {
+    return callerWrittenEventCount.get();
+  }
+
+  private void onOverflow(AuditEvent event) {
+    if (overflowBehavior == AuditLoggerOverflowBehavior.DROP) {
+      long dropped = droppedEventCount.incrementAndGet();
+      if (dropped % DROPPED_EVENT_WARNING_INTERVAL == 1) {
+        LOG.warn("The audit log queue is full ({} events), {} audit events have been dropped so far",
+            capacity, dropped);
+      }
+    } else {
+      callerWrittenEventCount.incrementAndGet();
+      write(event);
+    }
+  }
+
+  private void write(AuditEvent event) {
+    try {
+      auditLogger.log(event);
+    } catch (RuntimeException e) {
+      LOG.error("Unable to write audit event", e);
+    }
+  }
+
+  /**
+   * Takes the events off the queue in batches and writes them.
+   */
+  private final class AuditLogWriter implements Runnable {
 
-    /**
-     * {@inheritDoc}
-     */
     @Override
-    public Thread newThread(Runnable runnable) {
-      Thread thread = new Thread(runnable, "auditlog-" + nextId.getAndIncrement());
-      thread.setDaemon(true);
-      return thread;
+    public void run() {
+      List<AuditEvent> batch = new ArrayList<>(BATCH_SIZE);
+      while (!Thread.currentThread().isInterrupted()) {
+        AuditEvent event;
+        while (batch.size() < BATCH_SIZE && (event = queue.poll()) != null) {
+          batch.add(event);
+        }
+
+        if (batch.isEmpty()) {
+          writerIdle = true;
+          // re-check after publishing the idle flag so that an event offered in between is not missed
+          if (queue.isEmpty()) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+          }
+          writerIdle = false;
+          continue;
+        }
+
+        queuedEventCount.addAndGet(-batch.size());
+        for (AuditEvent batchEvent : batch) {
+          write(batchEvent);
+        }
+        batch.clear();
+      }
     }
   }
 }
@@ -19,7 +19,11 @@
 package org.apache.ambari.server.audit.request;
 
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ambari.server.api.services.Request;
 import org.apache.ambari.server.api.services.Result;
@@ -29,6 +33,7 @@ import org.apache.ambari.server.audit.event.AuditEvent;
 import org.apache.ambari.server.audit.request.eventcreator.RequestAuditEventCreator;
 import org.apache.ambari.server.controller.spi.Resource;
 
+import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -55,6 +60,13 @@ public class RequestAuditLoggerImpl implements RequestAuditLogger {
    */
   private AuditLogger auditLogger;
 
+  /**
+   * The selected creator keyed by resource type, result status and request type.  The set of
+   * creators never changes, so the selection is only made once for each combination.
+   */
+  private final ConcurrentMap<List<Object>, Optional<RequestAuditEventCreator>> selectedCreators =
+    new ConcurrentHashMap<>();
+
   /**
    * Injecting dependencies through the constructor
    * @param auditLogger Audit Logger
@@ -81,7 +93,14 @@ public class RequestAuditLoggerImpl implements RequestAuditLogger {
     Request.Type requestType = request.getRequestType();
     ResultStatus resultStatus = result.getStatus();
 
-    RequestAuditEventCreator creator = selectCreator(resourceType, resultStatus, requestType);
+    List<Object> key = Arrays.<Object>asList(resourceType, resultStatus.getStatus(), requestType);
+    Optional<RequestAuditEventCreator> selected = selectedCreators.get(key);
+    if (selected == null) {
+      selected = Optional.fromNullable(selectCreator(resourceType, resultStatus, requestType));
+      selectedCreators.putIfAbsent(key, selected);
+    }
+
+    RequestAuditEventCreator creator = selected.orNull();
     if (creator != null) {
       AuditEvent ae = creator.createAuditEvent(request, result);
       if (ae != null) {
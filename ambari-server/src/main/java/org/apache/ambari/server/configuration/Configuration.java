@@ -54,11 +54,13 @@ import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.CommandExecutionType;
 import org.apache.ambari.server.actionmanager.HostRoleCommand;
 import org.apache.ambari.server.actionmanager.Stage;
+import org.apache.ambari.server.controller.jmx.JMXPropertyProvider;
 import org.apache.ambari.server.controller.spi.PropertyProvider;
 import org.apache.ambari.server.controller.utilities.ScalingThreadPoolExecutor;
 import org.apache.ambari.server.events.listeners.alerts.AlertReceivedListener;
 import org.apache.ambari.server.orm.JPATableGenerationStrategy;
 import org.apache.ambari.server.orm.PersistenceType;
+import org.apache.ambari.server.orm.dao.AlertsDAO;
 import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.entities.StageEntity;
 import org.apache.ambari.server.security.ClientSecurityType;
@@ -1177,6 +1179,22 @@ public class Configuration {
       "authentication.ldap.sync.groupMemberFilter",
       LDAP_SYNC_MEMBER_FILTER_DEFAULT);
 
+  /**
+   * The number of threads which look up the members of a group in LDAP during
+   * an LDAP sync.
+   */
+  @Markdown(description = "The number of threads which look up the members of a group in LDAP while groups are synchronized. A value of `1` looks up the members one at a time.")
+  public static final ConfigurationProperty<Integer> LDAP_SYNC_MEMBER_LOOKUP_THREADS = new ConfigurationProperty<>(
+      "authentication.ldap.sync.memberLookupThreads", 4);
+
+  /**
+   * The number of users, groups or memberships which are written to the
+   * database in a single transaction during an LDAP sync.
+   */
+  @Markdown(description = "The number of users, groups or group memberships which are written to the database in a single transaction when the results of an LDAP sync are stored.")
+  public static final ConfigurationProperty<Integer> LDAP_SYNC_BATCH_SIZE = new ConfigurationProperty<>(
+      "authentication.ldap.sync.batchSize", 1000);
+
 
   /**
    * Enable the profiling of internal locks.
@@ -1222,19 +1240,21 @@ public class Configuration {
    * queries to determine if components need to be restarted will query the
    * database directly.
    */
-  @Markdown(description = "Determines when the stale configuration cache is enabled. If disabled, then queries to determine if components need to be restarted will query the database directly.")
+  @Markdown(description = "Determines when the stale configuration cache is enabled. If disabled, then queries to determine if components need to be restarted will query the database directly. "
+      + "Cached entries are updated when the desired configurations, the configuration groups or the configurations reported by a component change.")
   public static final ConfigurationProperty<Boolean> SERVER_STALE_CONFIG_CACHE_ENABLED = new ConfigurationProperty<>(
       "server.cache.isStale.enabled", Boolean.TRUE);
 
   /**
    * The expiration time, in {@link TimeUnit#MINUTES}, that stale configuration information is
-   * cached.
+   * cached. Cached information is removed as soon as the configurations it was calculated from
+   * change; the expiration only limits how long it is kept otherwise.
    *
    * @see #SERVER_STALE_CONFIG_CACHE_ENABLED
    */
   @Markdown(
       relatedTo = "server.cache.isStale.enabled",
-      description = "The expiration time, in {@link TimeUnit#MINUTES}, that stale configuration information is cached.")
+      description = "The expiration time, in {@link TimeUnit#MINUTES}, that stale configuration information is cached. Cached information is removed as soon as the configurations it was calculated from change; the expiration only limits how long it is kept otherwise.")
   public static final ConfigurationProperty<Integer> SERVER_STALE_CONFIG_CACHE_EXPIRATION = new ConfigurationProperty<>(
       "server.cache.isStale.expiration", 600);
 
@@ -1441,6 +1461,14 @@ public class Configuration {
    * =-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-= */
 
 
+  /**
+   * The number of KDC sessions used in parallel to create principals and keytabs.
+   */
+  @Markdown(description = "The number of KDC sessions which are opened to create principals and keytabs in parallel when Kerberos identities are created. "
+      + "Principals shared by several hosts or components are only created once. A value of `1` processes the identities one at a time.")
+  public static final ConfigurationProperty<Integer> KERBEROS_OPERATION_CONCURRENCY = new ConfigurationProperty<>(
+      "kerberos.operation.concurrency", 1);
+
   @Markdown(description = "The number of times failed Kerberos operations should be retried to execute.")
   public static final ConfigurationProperty<Integer> KERBEROS_OPERATION_RETRIES = new ConfigurationProperty<>(
       "kerberos.operation.retries", 3);
@@ -1921,6 +1949,29 @@ public class Configuration {
   @Markdown(description = "Drives view extraction in case of blueprint deployments; non-system views are deployed when cluster configuration is successful")
   public static final ConfigurationProperty<Boolean> VIEW_EXTRACT_AFTER_CLUSTER_CONFIG =  new ConfigurationProperty<>("view.extract-after-cluster-config", Boolean.FALSE);
 
+  /**
+   * Determines whether non-system views are deployed on demand. The view archives are only indexed at
+   * server startup; a view is extracted, class loaded and registered when one of its instances is first
+   * accessed.
+   *
+   * By default this is FALSE so all views are extracted and deployed at server startup.
+   */
+  @Markdown(description = "Determines whether non-system views are deployed on demand. At startup the view archives are only indexed; "
+      + "a view is extracted and deployed when its instances are first accessed.")
+  public static final ConfigurationProperty<Boolean> VIEW_ACTIVATION_ON_DEMAND = new ConfigurationProperty<>(
+      "view.activation.on-demand", Boolean.FALSE);
+
+  /**
+   * Determines whether views which are deployed on demand are also deployed in the background, in parallel
+   * on the view extraction thread pool, right after server startup.
+   */
+  @Markdown(
+      relatedTo = "view.activation.on-demand",
+      description = "Determines whether views which are deployed on demand are also deployed in the background, "
+          + "in parallel using the view extraction thread pool, right after Ambari Server has started.")
+  public static final ConfigurationProperty<Boolean> VIEW_ACTIVATION_PRELOAD = new ConfigurationProperty<>(
+      "view.activation.preload", Boolean.FALSE);
+
 
   /**
    * In case this is set to DEPENDENCY_ORDERED one stage is created for each request and command dependencies are
@@ -2330,6 +2381,104 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> ALERTS_CACHE_SIZE = new ConfigurationProperty<>(
       "alerts.cache.size", 50000);
 
+  /**
+   * Determines whether received alerts are collected into batches before
+   * being processed.
+   */
+  @ConfigurationMarkdown(
+      group = ConfigurationGrouping.ALERTS,
+      scaleValues = {
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_10, value = "false" ),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_50, value = "false"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_100, value = "true"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_500, value = "true") },
+      markdown = @Markdown(
+          description = "Determines whether alerts received from the Ambari Agents are collected over a short window and processed in batches. "
+              + "Repeated reports of the same alert within a batch are coalesced and all changes of a batch are written in a single transaction."))
+  public static final ConfigurationProperty<Boolean> ALERTS_INGEST_BATCH_ENABLED = new ConfigurationProperty<>(
+      "alerts.ingest.batch.enabled", Boolean.FALSE);
+
+  /**
+   * The time, in {@link TimeUnit#MILLISECONDS}, that received alerts are
+   * collected before a batch is processed.
+   */
+  @Markdown(
+      relatedTo = "alerts.ingest.batch.enabled",
+      description = "The time, in milliseconds, over which received alerts are collected before they are processed as a batch.")
+  public static final ConfigurationProperty<Integer> ALERTS_INGEST_BATCH_WINDOW = new ConfigurationProperty<>(
+      "alerts.ingest.batch.window", 250);
+
+  /**
+   * The maximum number of received alerts processed in a single batch.
+   */
+  @Markdown(
+      relatedTo = "alerts.ingest.batch.enabled",
+      description = "The maximum number of received alerts which are processed in a single batch.")
+  public static final ConfigurationProperty<Integer> ALERTS_INGEST_BATCH_SIZE = new ConfigurationProperty<>(
+      "alerts.ingest.batch.size", 5000);
+
+  /**
+   * Determines whether the current alerts and their summary counts are kept
+   * in memory.
+   */
+  @ConfigurationMarkdown(
+      group = ConfigurationGrouping.ALERTS,
+      scaleValues = {
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_10, value = "false" ),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_50, value = "false"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_100, value = "true"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_500, value = "true") },
+      markdown = @Markdown(
+          relatedTo = "alerts.cache.enabled",
+          description = "Determines whether an in-memory index of the current alerts is kept. The index maintains the alert summary counts "
+              + "by cluster, service, host and definition as alerts change state, so that alert summaries are served without querying the database. "
+              + "The index is rebuilt from the database when Ambari Server starts."))
+  public static final ConfigurationProperty<Boolean> ALERTS_CURRENT_INDEX_ENABLED = new ConfigurationProperty<>(
+      "alerts.current.index.enabled", Boolean.FALSE);
+
+  /**
+   * The number of threads used to dispatch alert notifications for each type
+   * of alert target.
+   */
+  @Markdown(description = "The number of threads used to dispatch alert notifications for each type of alert target, such as EMAIL or SNMP.")
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_DISPATCH_THREADS = new ConfigurationProperty<>(
+      "alerts.notification.dispatch.threads", 2);
+
+  /**
+   * The number of alert notifications which can wait for a dispatch thread
+   * for each type of alert target.
+   */
+  @Markdown(
+      relatedTo = "alerts.notification.dispatch.threads",
+      description = "The number of alert notifications which can wait for a dispatch thread for each type of alert target. "
+          + "Notifications which don't fit are left pending and dispatched again on the next run of the dispatcher.")
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_DISPATCH_QUEUE_SIZE = new ConfigurationProperty<>(
+      "alerts.notification.dispatch.queue.size", 1000);
+
+  /**
+   * Determines whether pending notices of the same alert are coalesced into a
+   * single notification for targets which don't support digests.
+   */
+  @ConfigurationMarkdown(
+      group = ConfigurationGrouping.ALERTS,
+      scaleValues = {
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_10, value = "false" ),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_50, value = "false"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_100, value = "true"),
+          @ClusterScale(clusterSize = ClusterSizeType.HOSTS_500, value = "true") },
+      markdown = @Markdown(
+          description = "Determines whether pending notices of the same alert on the same host are coalesced into a single notification "
+              + "for alert targets which don't support digests, such as SNMP. Only the latest state of the alert is sent."))
+  public static final ConfigurationProperty<Boolean> ALERTS_NOTIFICATION_COALESCE_ENABLED = new ConfigurationProperty<>(
+      "alerts.notification.coalesce.enabled", Boolean.FALSE);
+
+  /**
+   * The number of alert scripts which are run concurrently.
+   */
+  @Markdown(description = "The number of alert notification scripts which are run concurrently by the ALERT_SCRIPT dispatcher.")
+  public static final ConfigurationProperty<Integer> ALERTS_NOTIFICATION_SCRIPT_THREADS = new ConfigurationProperty<>(
+      "alerts.notification.script.threads", 2);
+
   /**
    * When using SSL, this will be used to set the {@code Strict-Transport-Security} response header.
    */
@@ -2471,6 +2620,18 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> AUDIT_LOGGER_CAPACITY = new ConfigurationProperty<>(
       "auditlog.logger.capacity", 10000);
 
+  /**
+   * Determines what happens to an audit event when the audit logger queue is full.
+   */
+  @Markdown(
+      relatedTo = "auditlog.logger.capacity",
+      description = "Determines what happens to an audit event when the audit logger queue is full. "
+          + "With `caller_runs` the thread which created the event writes it, with `drop` the event is "
+          + "discarded and counted so that request threads never wait for audit log I/O.",
+      examples = { "caller_runs", "drop" })
+  public static final ConfigurationProperty<String> AUDIT_LOGGER_OVERFLOW_BEHAVIOR = new ConfigurationProperty<>(
+      "auditlog.logger.overflow.behavior", "caller_runs");
+
   /**
    * The UDP port to use when binding the SNMP dispatcher on Ambari Server startup.
    */
@@ -2558,6 +2719,73 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_REQUEST_TTL = new ConfigurationProperty<>(
       "metrics.retrieval-service.request.ttl", 5);
 
+  /**
+   * {@code true} to have the {@link JMXPropertyProvider} request only the
+   * MBeans and attributes backing the requested metrics with {@code ?qry=} and
+   * {@code ?get=} URLs instead of reading the complete {@code /jmx} dump.
+   */
+  @Markdown(
+      relatedTo = "metrics.retrieval-service.jmx.targeted-queries.max",
+      description = "Determines whether JMX metrics are retrieved by querying only the MBeans and attributes which back the requested metrics instead of reading all MBeans of an endpoint.")
+  public static final ConfigurationProperty<Boolean> METRIC_RETRIEVAL_SERVICE_JMX_TARGETED_QUERIES_ENABLED = new ConfigurationProperty<>(
+      "metrics.retrieval-service.jmx.targeted-queries.enabled", Boolean.FALSE);
+
+  /**
+   * The maximum number of targeted JMX queries the {@link JMXPropertyProvider}
+   * will issue to a single endpoint for one request. If more MBeans are needed,
+   * the complete {@code /jmx} dump is read instead.
+   */
+  @Markdown(
+      relatedTo = "metrics.retrieval-service.jmx.targeted-queries.enabled",
+      description = "The maximum number of targeted JMX queries issued to a single endpoint for one request. Requests needing more MBeans read all MBeans of the endpoint in a single call.")
+  public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_JMX_TARGETED_QUERIES_MAX = new ConfigurationProperty<>(
+      "metrics.retrieval-service.jmx.targeted-queries.max", 10);
+
+  /**
+   * {@code true} to have the {@link MetricsRetrievalService} refresh recently
+   * requested endpoints in the background instead of only when they are
+   * requested.
+   */
+  @Markdown(
+      relatedTo = "metrics.retrieval-service.prefetch.idle.timeout",
+      description = "Determines whether JMX and REST endpoints which were recently requested are refreshed in the background so that requests are answered with current data.")
+  public static final ConfigurationProperty<Boolean> METRIC_RETRIEVAL_SERVICE_PREFETCH_ENABLED = new ConfigurationProperty<>(
+      "metrics.retrieval-service.prefetch.enabled", Boolean.FALSE);
+
+  /**
+   * The minimum amount of time, in {@link TimeUnit#SECONDS}, between
+   * background refreshes of the same endpoint.
+   */
+  @Markdown(description = "The minimum number of seconds between background refreshes of the same JMX or REST endpoint.")
+  public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_PREFETCH_INTERVAL_MIN = new ConfigurationProperty<>(
+      "metrics.retrieval-service.prefetch.interval.min", 15);
+
+  /**
+   * The maximum amount of time, in {@link TimeUnit#SECONDS}, between
+   * background refreshes of the same endpoint.
+   */
+  @Markdown(description = "The maximum number of seconds between background refreshes of the same JMX or REST endpoint.")
+  public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_PREFETCH_INTERVAL_MAX = new ConfigurationProperty<>(
+      "metrics.retrieval-service.prefetch.interval.max", 120);
+
+  /**
+   * The amount of time, in {@link TimeUnit#SECONDS}, after which an endpoint
+   * which has not been requested is no longer refreshed in the background.
+   */
+  @Markdown(
+      relatedTo = "metrics.retrieval-service.prefetch.enabled",
+      description = "The number of seconds after which a JMX or REST endpoint which has not been requested is no longer refreshed in the background.")
+  public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_PREFETCH_IDLE_TIMEOUT = new ConfigurationProperty<>(
+      "metrics.retrieval-service.prefetch.idle.timeout", 600);
+
+  /**
+   * The maximum number of concurrent requests the
+   * {@link MetricsRetrievalService} makes to a single remote host.
+   */
+  @Markdown(description = "The maximum number of concurrent JMX and REST metric requests made to a single host. Further requests to the host wait until one of them completes.")
+  public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_HOST_CONCURRENCY = new ConfigurationProperty<>(
+      "metrics.retrieval-service.host.concurrency", 4);
+
   // Ambari server log4j file name
   public static final String AMBARI_LOG_FILE = "log4j.properties";
 
@@ -2678,6 +2906,24 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> TLS_EPHEMERAL_DH_KEY_SIZE = new ConfigurationProperty<>(
     "security.server.tls.ephemeral_dh_key_size", 2048);
 
+  /**
+   * The number of requests which are purged from the database in a single
+   * transaction by the database cleanup.
+   */
+  @Markdown(description = "The number of requests, together with their stages and tasks, which are purged from the database in a single transaction when old request history is removed. Smaller chunks hold fewer locks and keep transactions short.")
+  public static final ConfigurationProperty<Integer> SERVER_CLEANUP_REQUEST_CHUNK_SIZE = new ConfigurationProperty<>(
+    "server.cleanup.request.chunk.size", 100);
+
+  /**
+   * The time, in milliseconds, that the database cleanup pauses between two
+   * chunks of purged requests.
+   */
+  @Markdown(
+      relatedTo = "server.cleanup.request.chunk.size",
+      description = "The time, in milliseconds, that the removal of old request history pauses after each chunk of purged requests in order to limit the load on the database. A value of `0` disables the pause.")
+  public static final ConfigurationProperty<Long> SERVER_CLEANUP_CHUNK_PAUSE = new ConfigurationProperty<>(
+    "server.cleanup.chunk.pause", 0L);
+
   private static final Logger LOG = LoggerFactory.getLogger(
     Configuration.class);
 
@@ -2856,6 +3102,16 @@ public class Configuration {
     SKIP
   }
 
+  /**
+   * Audit logger queue overflow behavior.
+   * CALLER_RUNS - the thread which logs the event writes it.
+   * DROP - the event is discarded.
+   */
+  public enum AuditLoggerOverflowBehavior {
+    CALLER_RUNS,
+    DROP
+  }
+
   /**
    * The {@link DatabaseType} enum represents the database being used.
    */
@@ -4649,6 +4905,25 @@ public class Configuration {
     return Boolean.parseBoolean(getProperty(VIEW_EXTRACT_AFTER_CLUSTER_CONFIG));
   }
 
+  /**
+   * Determines whether non-system views are deployed on first access instead of at server startup.
+   *
+   * @return {@code true} if views are deployed on demand.
+   */
+  public boolean isViewActivationOnDemand() {
+    return Boolean.parseBoolean(getProperty(VIEW_ACTIVATION_ON_DEMAND));
+  }
+
+  /**
+   * Determines whether views which are deployed on demand are also deployed in the background after
+   * server startup.
+   *
+   * @return {@code true} if on demand views should be preloaded.
+   */
+  public boolean isViewActivationPreloadEnabled() {
+    return Boolean.parseBoolean(getProperty(VIEW_ACTIVATION_PRELOAD));
+  }
+
 
   /**
    * Get the time, in ms, that a request to a view will wait for an available
@@ -4851,6 +5126,21 @@ public class Configuration {
     return Boolean.parseBoolean(getProperty(KERBEROS_CHECK_JAAS_CONFIGURATION));
   }
 
+  /**
+   * @return the number of threads which look up group members during an LDAP sync
+   */
+  public int getLdapSyncMemberLookupThreads() {
+    return NumberUtils.toInt(getProperty(LDAP_SYNC_MEMBER_LOOKUP_THREADS));
+  }
+
+  /**
+   * @return the number of principals or memberships written in a single transaction
+   *         during an LDAP sync
+   */
+  public int getLdapSyncBatchSize() {
+    return NumberUtils.toInt(getProperty(LDAP_SYNC_BATCH_SIZE));
+  }
+
   /**
    * Determines whether an existing local users will be skipped on updated during LDAP sync.
    *
@@ -5239,6 +5529,84 @@ public class Configuration {
     return Integer.parseInt(getProperty(ALERTS_CACHE_SIZE));
   }
 
+  /**
+   * Gets whether alerts received by the {@link AlertReceivedListener} are
+   * collected and processed in batches.
+   *
+   * @return {@code true} if batching is enabled, {@code false} otherwise.
+   */
+  public boolean isAlertIngestBatchingEnabled() {
+    return Boolean.parseBoolean(getProperty(ALERTS_INGEST_BATCH_ENABLED));
+  }
+
+  /**
+   * Gets the time, in milliseconds, over which received alerts are collected
+   * into a batch.
+   *
+   * @return the batch window.
+   */
+  public int getAlertIngestBatchWindow() {
+    return Integer.parseInt(getProperty(ALERTS_INGEST_BATCH_WINDOW));
+  }
+
+  /**
+   * Gets the maximum number of received alerts in a single batch.
+   *
+   * @return the maximum batch size.
+   */
+  public int getAlertIngestBatchSize() {
+    return Integer.parseInt(getProperty(ALERTS_INGEST_BATCH_SIZE));
+  }
+
+  /**
+   * Gets whether the current alerts and their summary counts are kept in an
+   * in-memory index by the {@link AlertsDAO}.
+   *
+   * @return {@code true} if the index is enabled, {@code false} otherwise.
+   */
+  public boolean isAlertCurrentIndexEnabled() {
+    return Boolean.parseBoolean(getProperty(ALERTS_CURRENT_INDEX_ENABLED));
+  }
+
+  /**
+   * Gets the number of threads which dispatch alert notifications for each
+   * type of alert target.
+   *
+   * @return the number of dispatch threads per target type.
+   */
+  public int getAlertNotificationDispatchThreads() {
+    return Integer.parseInt(getProperty(ALERTS_NOTIFICATION_DISPATCH_THREADS));
+  }
+
+  /**
+   * Gets the number of alert notifications which can wait for a dispatch
+   * thread for each type of alert target.
+   *
+   * @return the size of the dispatch queue per target type.
+   */
+  public int getAlertNotificationDispatchQueueSize() {
+    return Integer.parseInt(getProperty(ALERTS_NOTIFICATION_DISPATCH_QUEUE_SIZE));
+  }
+
+  /**
+   * Gets whether pending notices of the same alert are coalesced into a
+   * single notification for targets which don't support digests.
+   *
+   * @return {@code true} if notices are coalesced, {@code false} otherwise.
+   */
+  public boolean isAlertNotificationCoalesceEnabled() {
+    return Boolean.parseBoolean(getProperty(ALERTS_NOTIFICATION_COALESCE_ENABLED));
+  }
+
+  /**
+   * Gets the number of alert notification scripts which are run concurrently.
+   *
+   * @return the number of script threads.
+   */
+  public int getAlertNotificationScriptThreads() {
+    return Integer.parseInt(getProperty(ALERTS_NOTIFICATION_SCRIPT_THREADS));
+  }
+
   /**
    * Get the ambari display URL
    * @return
@@ -5309,6 +5677,16 @@ public class Configuration {
     return NumberUtils.toInt(getProperty(AUDIT_LOGGER_CAPACITY));
   }
 
+  /**
+   * @return what the audit logger does with events which don't fit into its queue
+   */
+  public AuditLoggerOverflowBehavior getAuditLoggerOverflowBehavior() {
+    if (getProperty(AUDIT_LOGGER_OVERFLOW_BEHAVIOR).toLowerCase().equals("drop")) {
+      return AuditLoggerOverflowBehavior.DROP;
+    }
+    return AuditLoggerOverflowBehavior.CALLER_RUNS;
+  }
+
   /**
    * Customized UDP port for SNMP dispatcher
    * @return Integer if property exists else null
@@ -5430,6 +5808,76 @@ public class Configuration {
     return Boolean.parseBoolean(getProperty(METRIC_RETRIEVAL_SERVICE_REQUEST_TTL_ENABLED));
   }
 
+  /**
+   * Gets whether JMX metrics should be retrieved with targeted
+   * {@code ?qry=}/{@code ?get=} requests for the needed MBeans only.
+   *
+   * @return {@code true} if enabled, {@code false} otherwise.
+   */
+  public boolean isMetricsServiceJMXTargetedQueriesEnabled() {
+    return Boolean.parseBoolean(getProperty(METRIC_RETRIEVAL_SERVICE_JMX_TARGETED_QUERIES_ENABLED));
+  }
+
+  /**
+   * Gets the maximum number of targeted JMX queries issued to one endpoint
+   * before falling back to reading the complete {@code /jmx} dump.
+   *
+   * @return the maximum number of targeted queries per endpoint.
+   */
+  public int getMetricsServiceJMXTargetedQueriesMax() {
+    return Integer.parseInt(getProperty(METRIC_RETRIEVAL_SERVICE_JMX_TARGETED_QUERIES_MAX));
+  }
+
+  /**
+   * Gets whether recently requested endpoints are refreshed in the background
+   * by the {@link MetricsRetrievalService}.
+   *
+   * @return {@code true} if enabled, {@code false} otherwise.
+   */
+  public boolean isMetricsServicePrefetchEnabled() {
+    return Boolean.parseBoolean(getProperty(METRIC_RETRIEVAL_SERVICE_PREFETCH_ENABLED));
+  }
+
+  /**
+   * Gets the minimum number of seconds between background refreshes of the
+   * same endpoint.
+   *
+   * @return the minimum refresh interval, in seconds.
+   */
+  public int getMetricsServicePrefetchMinInterval() {
+    return Integer.parseInt(getProperty(METRIC_RETRIEVAL_SERVICE_PREFETCH_INTERVAL_MIN));
+  }
+
+  /**
+   * Gets the maximum number of seconds between background refreshes of the
+   * same endpoint.
+   *
+   * @return the maximum refresh interval, in seconds.
+   */
+  public int getMetricsServicePrefetchMaxInterval() {
+    return Integer.parseInt(getProperty(METRIC_RETRIEVAL_SERVICE_PREFETCH_INTERVAL_MAX));
+  }
+
+  /**
+   * Gets the number of seconds after which an endpoint which has not been
+   * requested is no longer refreshed in the background.
+   *
+   * @return the idle timeout, in seconds.
+   */
+  public int getMetricsServicePrefetchIdleTimeout() {
+    return Integer.parseInt(getProperty(METRIC_RETRIEVAL_SERVICE_PREFETCH_IDLE_TIMEOUT));
+  }
+
+  /**
+   * Gets the maximum number of concurrent requests made by the
+   * {@link MetricsRetrievalService} to a single host.
+   *
+   * @return the maximum number of concurrent requests per host.
+   */
+  public int getMetricsServiceHostConcurrency() {
+    return Integer.parseInt(getProperty(METRIC_RETRIEVAL_SERVICE_HOST_CONCURRENCY));
+  }
+
   /**
    * Returns the number of tasks that can be queried from the database at once
    * In the case of more tasks, multiple queries are issued
@@ -5440,6 +5888,21 @@ public class Configuration {
     return Integer.parseInt(getProperty(TASK_ID_LIST_LIMIT));
   }
 
+  /**
+   * @return the number of requests which are purged in a single transaction
+   */
+  public int getCleanupRequestChunkSize() {
+    return Integer.parseInt(getProperty(SERVER_CLEANUP_REQUEST_CHUNK_SIZE));
+  }
+
+  /**
+   * @return the time, in milliseconds, to pause between two chunks of purged
+   *         requests
+   */
+  public long getCleanupChunkPause() {
+    return Long.parseLong(getProperty(SERVER_CLEANUP_CHUNK_PAUSE));
+  }
+
   /**
    * Get whether the current ambari server instance the active instance
    *
@@ -6014,6 +6477,15 @@ public class Configuration {
     return kerberosAuthProperties;
   }
 
+  /**
+   * Gets the number of KDC sessions used in parallel to create principals and keytabs.
+   *
+   * @return the number of sessions, at least {@code 1}.
+   */
+  public int getKerberosOperationConcurrency() {
+    return Math.max(1, Integer.parseInt(getProperty(KERBEROS_OPERATION_CONCURRENCY)));
+  }
+
   public int getKerberosOperationRetries() {
     return Integer.valueOf(getProperty(KERBEROS_OPERATION_RETRIES));
   }
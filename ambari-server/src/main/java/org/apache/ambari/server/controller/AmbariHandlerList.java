@@ -21,6 +21,7 @@ import org.apache.ambari.server.api.AmbariPersistFilter;
 import org.apache.ambari.server.orm.entities.ViewEntity;
 import org.apache.ambari.server.orm.entities.ViewInstanceEntity;
 import org.apache.ambari.server.security.AmbariViewsSecurityHeaderFilter;
+import org.apache.ambari.server.security.authorization.AmbariAuthorizationFilter;
 import org.apache.ambari.server.view.ViewContextImpl;
 import org.apache.ambari.server.view.ViewInstanceHandlerList;
 import org.apache.ambari.server.view.ViewRegistry;
@@ -64,6 +65,12 @@ public class AmbariHandlerList extends HandlerCollection implements ViewInstance
   private static final Pattern VIEW_RESOURCE_TARGET_PATTERN =
       Pattern.compile("/api/(\\S+)/views/(\\S+)/versions/(\\S+)/instances/(\\S+)/resources/(\\S+)");
 
+  /**
+   * The target pattern for a request to the web application of a view instance.
+   */
+  private static final Pattern VIEW_CONTEXT_TARGET_PATTERN =
+      Pattern.compile(AmbariAuthorizationFilter.VIEWS_CONTEXT_PATH_PREFIX + "([^/]+)/([^/]+)/([^/]+).*");
+
   /**
    * The view registry.
    */
@@ -133,6 +140,9 @@ public class AmbariHandlerList extends HandlerCollection implements ViewInstance
                      HttpServletRequest request, HttpServletResponse response)
       throws IOException, ServletException {
 
+    // a view which is deployed on demand has no instance handlers until it is deployed
+    activateTargetView(target);
+
     ViewEntity viewEntity = getTargetView(target);
 
     if (viewEntity == null) {
@@ -259,6 +269,32 @@ public class AmbariHandlerList extends HandlerCollection implements ViewInstance
   }
 
 
+  /**
+   * Deploy the view that is the target of the request if its deployment has been deferred until
+   * first access, so that the handlers of its instances are registered before the request is
+   * handled.
+   *
+   * @param target  the target of the request
+   */
+  private void activateTargetView(String target) {
+    Matcher matcher = VIEW_RESOURCE_TARGET_PATTERN.matcher(target);
+    ViewEntity viewEntity = null;
+
+    if (matcher.matches()) {
+      viewEntity = viewRegistry.getDefinition(matcher.group(2), matcher.group(3));
+    } else {
+      matcher = VIEW_CONTEXT_TARGET_PATTERN.matcher(target);
+      if (matcher.matches()) {
+        viewEntity = viewRegistry.getDefinition(matcher.group(1), matcher.group(2));
+      }
+    }
+
+    if (viewEntity != null) {
+      viewRegistry.activateView(viewEntity);
+    }
+  }
+
+
   // ----- inner class : SharedSessionHandler --------------------------------
 
   /**
@@ -43,6 +43,7 @@ import org.apache.ambari.server.scheduler.ExecutionScheduleManager;
 import org.apache.ambari.server.security.authorization.AuthorizationException;
 import org.apache.ambari.server.security.encryption.CredentialStoreService;
 import org.apache.ambari.server.security.ldap.LdapBatchDto;
+import org.apache.ambari.server.security.ldap.LdapSyncProgress;
 import org.apache.ambari.server.security.ldap.LdapSyncDto;
 import org.apache.ambari.server.stageplanner.RoleGraphFactory;
 import org.apache.ambari.server.state.Cluster;
@@ -806,6 +807,13 @@ public interface AmbariManagementController {
    */
   boolean isLdapSyncInProgress();
 
+  /**
+   * Gets the progress of storing the data of the running LDAP sync.
+   *
+   * @return the LDAP sync progress
+   */
+  LdapSyncProgress getLdapSyncProgress();
+
   /**
    * Get configurations which are specific for a cluster (!not a service).
    * @param requests
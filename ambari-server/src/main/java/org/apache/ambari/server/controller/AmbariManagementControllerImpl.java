@@ -148,6 +148,7 @@ import org.apache.ambari.server.security.encryption.CredentialStoreService;
 import org.apache.ambari.server.security.encryption.CredentialStoreType;
 import org.apache.ambari.server.security.ldap.AmbariLdapDataPopulator;
 import org.apache.ambari.server.security.ldap.LdapBatchDto;
+import org.apache.ambari.server.security.ldap.LdapSyncProgress;
 import org.apache.ambari.server.security.ldap.LdapSyncDto;
 import org.apache.ambari.server.serveraction.kerberos.KerberosInvalidConfigurationException;
 import org.apache.ambari.server.serveraction.kerberos.KerberosOperationException;
@@ -3660,43 +3661,58 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
     Map<String, Map<String, String>> clusterServiceMasterForDecommissionMap = new HashMap<>();
     Map<String, Map<String, Set<String>>> clusterMasterSlaveHostsMap = new HashMap<>();
 
-    for (Entry<ServiceComponent, Set<ServiceComponentHost>> entry : safeToRemoveSCHs.entrySet()) {
-      for (ServiceComponentHost componentHost : entry.getValue()) {
-        try {
-          //actually delete the component
-          entry.getKey().deleteServiceComponentHosts(componentHost.getHostName());
+    // publish the topology of each cluster once, not after every host component
+    Set<Cluster> changedClusters = new HashSet<>();
+    for (ServiceComponent component : safeToRemoveSCHs.keySet()) {
+      changedClusters.add(clusters.getCluster(component.getClusterName()));
+    }
+    for (Cluster cluster : changedClusters) {
+      cluster.beginTopologyChange();
+    }
 
-          //create cluster-master-service map to update all include/exclude files in one action
-          String componentName = componentHost.getServiceComponentName();
-          if (masterToSlaveMappingForDecom.containsValue(componentName)) {
-            String masterComponentName = null;
-            for (Entry<String, String> entrySet : masterToSlaveMappingForDecom.entrySet()) {
-              if (entrySet.getValue().equals(componentName)) {
-                masterComponentName = entrySet.getKey();
-              }
-            }
-            if (clusterServiceMasterForDecommissionMap.containsKey(componentHost.getClusterName())) {
-              clusterServiceMasterForDecommissionMap.get(componentHost.getClusterName()).put(componentHost.getServiceName(), masterComponentName);
-              Map<String, Set<String>> masterSlaveMap  = clusterMasterSlaveHostsMap.get(componentHost.getClusterName());
-              if (!masterSlaveMap.containsKey(masterComponentName)) {
-                masterSlaveMap.put(masterComponentName, new HashSet<String>());
+    try {
+      for (Entry<ServiceComponent, Set<ServiceComponentHost>> entry : safeToRemoveSCHs.entrySet()) {
+        for (ServiceComponentHost componentHost : entry.getValue()) {
+          try {
+            //actually delete the component
+            entry.getKey().deleteServiceComponentHosts(componentHost.getHostName());
+
+            //create cluster-master-service map to update all include/exclude files in one action
+            String componentName = componentHost.getServiceComponentName();
+            if (masterToSlaveMappingForDecom.containsValue(componentName)) {
+              String masterComponentName = null;
+              for (Entry<String, String> entrySet : masterToSlaveMappingForDecom.entrySet()) {
+                if (entrySet.getValue().equals(componentName)) {
+                  masterComponentName = entrySet.getKey();
+                }
               }
-              masterSlaveMap.get(masterComponentName).add(componentHost.getHostName());
-            } else {
-              Map<String, String> serviceMasterMap = new HashMap<>();
-              serviceMasterMap.put(componentHost.getServiceName(), masterComponentName);
-              clusterServiceMasterForDecommissionMap.put(componentHost.getClusterName(), serviceMasterMap);
+              if (clusterServiceMasterForDecommissionMap.containsKey(componentHost.getClusterName())) {
+                clusterServiceMasterForDecommissionMap.get(componentHost.getClusterName()).put(componentHost.getServiceName(), masterComponentName);
+                Map<String, Set<String>> masterSlaveMap  = clusterMasterSlaveHostsMap.get(componentHost.getClusterName());
+                if (!masterSlaveMap.containsKey(masterComponentName)) {
+                  masterSlaveMap.put(masterComponentName, new HashSet<String>());
+                }
+                masterSlaveMap.get(masterComponentName).add(componentHost.getHostName());
+              } else {
+                Map<String, String> serviceMasterMap = new HashMap<>();
+                serviceMasterMap.put(componentHost.getServiceName(), masterComponentName);
+                clusterServiceMasterForDecommissionMap.put(componentHost.getClusterName(), serviceMasterMap);
 
-              Map<String, Set<String>> masterSlaveHostsMap = new HashMap<>();
-              masterSlaveHostsMap.put(masterComponentName, new HashSet<String>(Collections.singletonList(componentHost.getHostName())));
-              clusterMasterSlaveHostsMap.put(componentHost.getClusterName(), masterSlaveHostsMap);
+                Map<String, Set<String>> masterSlaveHostsMap = new HashMap<>();
+                masterSlaveHostsMap.put(masterComponentName, new HashSet<String>(Collections.singletonList(componentHost.getHostName())));
+                clusterMasterSlaveHostsMap.put(componentHost.getClusterName(), masterSlaveHostsMap);
+              }
             }
+            deleteStatusMetaData.addDeletedKey(componentHost.getHostName() + "/" + componentHost.getServiceComponentName());
+          } catch (Exception ex) {
+            deleteStatusMetaData.addException(componentHost.getHostName() + "/" + componentHost.getServiceComponentName(), ex);
           }
-          deleteStatusMetaData.addDeletedKey(componentHost.getHostName() + "/" + componentHost.getServiceComponentName());
-        } catch (Exception ex) {
-          deleteStatusMetaData.addException(componentHost.getHostName() + "/" + componentHost.getServiceComponentName(), ex);
         }
       }
+    } finally {
+      for (Cluster cluster : changedClusters) {
+        cluster.endTopologyChange();
+      }
     }
 
     for (String cluster : clusterServiceMasterForDecommissionMap.keySet()) {
@@ -5182,6 +5198,11 @@ public class AmbariManagementControllerImpl implements AmbariManagementControlle
     return ldapSyncInProgress;
   }
 
+  @Override
+  public LdapSyncProgress getLdapSyncProgress() {
+    return users.getLdapSyncProgress();
+  }
+
   @Override
   public synchronized LdapBatchDto synchronizeLdapUsersAndGroups(
       LdapSyncRequest userRequest, LdapSyncRequest groupRequest)
@@ -76,6 +76,7 @@ import org.apache.ambari.server.controller.internal.UserPrivilegeResourceProvide
 import org.apache.ambari.server.controller.internal.ViewPermissionResourceProvider;
 import org.apache.ambari.server.controller.metrics.ThreadPoolEnabledPropertyProvider;
 import org.apache.ambari.server.controller.utilities.KerberosChecker;
+import org.apache.ambari.server.events.listeners.alerts.AlertReceivedListener;
 import org.apache.ambari.server.metrics.system.MetricsService;
 import org.apache.ambari.server.orm.GuiceJpaInitializer;
 import org.apache.ambari.server.orm.PersistenceType;
@@ -878,6 +879,13 @@ public class AmbariServer {
       } catch (Exception e) {
         LOG.error("Error stopping the server", e);
       }
+
+      // agents can't report alerts anymore; process the ones still queued
+      try {
+        injector.getInstance(AlertReceivedListener.class).stopBatchProcessor();
+      } catch (Exception e) {
+        LOG.error("Error stopping the processing of received alerts", e);
+      }
     }
   }
 
@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -340,6 +341,13 @@ public class BlueprintConfigurationProcessor {
     // removes a property other than the property it is registered for then we will
     // have an issue as it won't be removed from the clusterProps map as it is a copy.
     Map<String, Map<String, String>> clusterProps = clusterConfig.getFullProperties();
+
+    // the updaters query the component layout for every property of every host group, so
+    // resolve it once per component and keep the merged host group properties up to date
+    // instead of rebuilding them for each updater
+    ClusterTopology indexedTopology = new ComponentIndexedClusterTopology(clusterTopology);
+    HostGroupPropertiesCache hostGroupProperties = new HostGroupPropertiesCache(groupInfoMap.values());
+
     for (Map<String, Map<String, PropertyUpdater>> updaterMap : createCollectionOfUpdaters()) {
       for (Map.Entry<String, Map<String, PropertyUpdater>> entry : updaterMap.entrySet()) {
         String type = entry.getKey();
@@ -352,7 +360,7 @@ public class BlueprintConfigurationProcessor {
           if (typeMap != null && typeMap.containsKey(propertyName) && typeMap.get(propertyName) != null) {
             final String originalValue = typeMap.get(propertyName);
             final String updatedValue =
-              updater.updateForClusterCreate(propertyName, originalValue, clusterProps, clusterTopology);
+              updater.updateForClusterCreate(propertyName, originalValue, clusterProps, indexedTopology);
 
             if(updatedValue == null ) {
               continue;
@@ -362,24 +370,24 @@ public class BlueprintConfigurationProcessor {
               configTypesUpdated.add(type);
             }
 
-            clusterConfig.setProperty(type, propertyName, updatedValue);
+            hostGroupProperties.setProperty(clusterConfig, type, propertyName, updatedValue);
           }
 
           // host group configs
           for (HostGroupInfo groupInfo : groupInfoMap.values()) {
             Configuration hgConfig = groupInfo.getConfiguration();
-            Map<String, Map<String, String>> hgConfigProps = hgConfig.getFullProperties(1);
+            Map<String, Map<String, String>> hgConfigProps = hostGroupProperties.getProperties(hgConfig);
             Map<String, String> hgTypeMap = hgConfigProps.get(type);
             if (hgTypeMap != null && hgTypeMap.containsKey(propertyName)) {
               final String originalValue = hgTypeMap.get(propertyName);
               final String updatedValue =
-                updater.updateForClusterCreate(propertyName, originalValue, hgConfigProps, clusterTopology);
+                updater.updateForClusterCreate(propertyName, originalValue, hgConfigProps, indexedTopology);
 
               if (!updatedValue.equals(originalValue)) {
                 configTypesUpdated.add(type);
               }
 
-              hgConfig.setProperty(type, propertyName, updatedValue);
+              hostGroupProperties.setProperty(hgConfig, type, propertyName, updatedValue);
             }
           }
         }
@@ -1298,6 +1306,74 @@ public class BlueprintConfigurationProcessor {
     }
   }
 
+  /**
+   * Holds the merged properties of each host group configuration and its direct parent, the
+   * same map that {@link Configuration#getFullProperties(int)} returns for a depth of 1.  The
+   * maps are built once and then patched on every property change done through
+   * {@link #setProperty(Configuration, String, String, String)}, rather than merging the whole
+   * configuration again for each property of each host group.
+   */
+  private static class HostGroupPropertiesCache {
+
+    /**
+     * Merged properties keyed by host group configuration.
+     */
+    private final Map<Configuration, Map<String, Map<String, String>>> propertiesByConfiguration =
+        new IdentityHashMap<>();
+
+    private HostGroupPropertiesCache(Collection<HostGroupInfo> groupInfos) {
+      for (HostGroupInfo groupInfo : groupInfos) {
+        Configuration configuration = groupInfo.getConfiguration();
+        if (!propertiesByConfiguration.containsKey(configuration)) {
+          propertiesByConfiguration.put(configuration, configuration.getFullProperties(1));
+        }
+      }
+    }
+
+    /**
+     * Get the merged properties of a host group configuration.
+     *
+     * @param configuration  host group configuration
+     *
+     * @return merged properties keyed by config type
+     */
+    private Map<String, Map<String, String>> getProperties(Configuration configuration) {
+      return propertiesByConfiguration.get(configuration);
+    }
+
+    /**
+     * Set a property on the given configuration and apply the change to all of the cached
+     * host group properties which it is visible in.
+     *
+     * @param configuration  configuration to set the property on
+     * @param type           config type
+     * @param propertyName   property name
+     * @param value          new property value
+     */
+    private void setProperty(Configuration configuration, String type, String propertyName, String value) {
+      configuration.setProperty(type, propertyName, value);
+
+      for (Map.Entry<Configuration, Map<String, Map<String, String>>> entry : propertiesByConfiguration.entrySet()) {
+        Configuration hgConfig = entry.getKey();
+        boolean visible = hgConfig == configuration;
+        if (!visible && hgConfig.getParentConfiguration() == configuration) {
+          // a parent value is only visible if the host group doesn't override it
+          Map<String, String> hgTypeProperties = hgConfig.getProperties().get(type);
+          visible = hgTypeProperties == null || !hgTypeProperties.containsKey(propertyName);
+        }
+
+        if (visible) {
+          Map<String, String> typeProperties = entry.getValue().get(type);
+          if (typeProperties == null) {
+            typeProperties = new HashMap<>();
+            entry.getValue().put(type, typeProperties);
+          }
+          typeProperties.put(propertyName, value);
+        }
+      }
+    }
+  }
+
   /**
    * Provides functionality to update a property value.
    */
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.state.ClientConfigFileDefinition;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.lang.StringEscapeUtils;
+
+/**
+ * Generates the client configuration archive of a component without running
+ * the {@code generate_configs} command of the component's python script. The
+ * xml, properties and env files are written the same way as the
+ * {@code XmlConfig}, {@code PropertiesFile} and {@code File} resources of the
+ * script do. Configurations which contain template markup can only be rendered
+ * by the script, and so can components whose script overrides how the
+ * files are generated, see {@link #canGenerate(File, List, Map)}.
+ */
+class ClientConfigArchiveGenerator {
+
+  private static final String XML_TYPE = "xml";
+  private static final String ENV_TYPE = "env";
+  private static final String PROPERTIES_TYPE = "properties";
+
+  private static final String[] TEMPLATE_MARKUP = {"{{", "{%", "{#"};
+
+  /**
+   * The {@code Script} methods which a command script can override to change
+   * the content of the generated files, like {@code oozie_client.py} does.
+   */
+  private static final Pattern CONFIG_GENERATION_OVERRIDE = Pattern.compile(
+      "^\\s*def\\s+generate_configs(_get_xml_file_content|_get_xml_file_dict|_get_template_file_content)?\\s*\\(",
+      Pattern.MULTILINE);
+
+  private static final int FILE_MODE = 0100644;
+
+  private ClientConfigArchiveGenerator() {
+  }
+
+  /**
+   * Checks if the client config files can be generated in-process: the archive
+   * format is tar.gz, the command script does not override the generation of
+   * the files, every file is of a known type, every config type it is built
+   * from exists and no value contains template markup.
+   *
+   * @param commandScript     the command script of the component
+   * @param clientConfigFiles the client config files of the component
+   * @param configurations    the configurations by config type
+   * @return {@code true} if {@link #createArchive(List, Map, Map)} can be used
+   */
+  static boolean canGenerate(File commandScript, List<ClientConfigFileDefinition> clientConfigFiles,
+                             Map<String, Map<String, String>> configurations) {
+    if (!".tar.gz".equals(Configuration.DEF_ARCHIVE_EXTENSION) || clientConfigFiles.isEmpty()) {
+      return false;
+    }
+
+    if (overridesConfigGeneration(commandScript)) {
+      return false;
+    }
+
+    for (ClientConfigFileDefinition clientConfigFile : clientConfigFiles) {
+      String type = clientConfigFile.getType();
+      if (!XML_TYPE.equals(type) && !ENV_TYPE.equals(type) && !PROPERTIES_TYPE.equals(type)) {
+        return false;
+      }
+
+      for (String configType : getConfigTypes(clientConfigFile)) {
+        Map<String, String> properties = configurations.get(configType);
+        if (properties == null) {
+          return false;
+        }
+        for (String value : properties.values()) {
+          if (containsTemplateMarkup(value)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Creates the gzipped tar archive with the client config files of a component.
+   *
+   * @param clientConfigFiles       the client config files of the component
+   * @param configurations          the configurations by config type
+   * @param configurationAttributes the configuration attributes by config type
+   * @return the archive
+   * @throws IOException if the archive could not be written
+   */
+  static byte[] createArchive(List<ClientConfigFileDefinition> clientConfigFiles,
+                              Map<String, Map<String, String>> configurations,
+                              Map<String, Map<String, Map<String, String>>> configurationAttributes)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(new GzipCompressorOutputStream(out))) {
+      tarOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+      Date now = new Date();
+
+      for (ClientConfigFileDefinition clientConfigFile : clientConfigFiles) {
+        String type = clientConfigFile.getType();
+        String content;
+        if (XML_TYPE.equals(type)) {
+          Map<String, Map<String, String>> attributes = configurationAttributes.get(clientConfigFile.getDictionaryName());
+          content = getXmlContent(configurations.get(clientConfigFile.getDictionaryName()),
+              attributes == null ? Collections.<String, Map<String, String>>emptyMap() : attributes);
+        } else if (PROPERTIES_TYPE.equals(type)) {
+          content = getPropertiesContent(configurations.get(clientConfigFile.getDictionaryName()), now);
+        } else {
+          StringBuilder envContent = new StringBuilder();
+          for (String configType : getConfigTypes(clientConfigFile)) {
+            String typeContent = configurations.get(configType).get("content");
+            if (typeContent != null) {
+              envContent.append(typeContent);
+            }
+          }
+          content = envContent.toString();
+        }
+
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        TarArchiveEntry entry = new TarArchiveEntry("./" + clientConfigFile.getFileName());
+        entry.setSize(data.length);
+        entry.setMode(FILE_MODE);
+        entry.setModTime(now);
+        tarOut.putArchiveEntry(entry);
+        tarOut.write(data);
+        tarOut.closeArchiveEntry();
+      }
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Writes the archive of a component to the file which the python script
+   * would have created.
+   *
+   * @param tmpDir        the server temporary directory
+   * @param componentName the component name
+   * @param archive       the archive
+   * @throws IOException if the file could not be written
+   */
+  static void writeArchive(String tmpDir, String componentName, byte[] archive) throws IOException {
+    File tmpDirectory = new File(tmpDir);
+    if (!tmpDirectory.exists()) {
+      tmpDirectory.mkdirs();
+    }
+
+    // write to a temporary file first so that a concurrent download never reads a partial archive
+    File tmpFile = File.createTempFile(componentName, "-configs.tmp", tmpDirectory);
+    try {
+      // the configurations may contain passwords, so only the server user may read the archive
+      if (!tmpFile.setReadable(false, false) || !tmpFile.setReadable(true, true)
+          || !tmpFile.setWritable(false, false) || !tmpFile.setWritable(true, true)) {
+        throw new IOException(String.format("Failed to set %s accessible only by Ambari", tmpFile.getAbsolutePath()));
+      }
+      Files.write(tmpFile.toPath(), archive);
+      Files.move(tmpFile.toPath(),
+          new File(tmpDirectory, componentName + "-configs" + Configuration.DEF_ARCHIVE_EXTENSION).toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmpFile.toPath());
+    }
+  }
+
+  /**
+   * Same layout as the template of the {@code XmlConfig} resource.
+   */
+  static String getXmlContent(Map<String, String> properties, Map<String, Map<String, String>> attributes) {
+    StringBuilder content = new StringBuilder("  <configuration>\n");
+    for (Map.Entry<String, String> property : new TreeMap<>(properties).entrySet()) {
+      String name = property.getKey();
+      content.append("    \n    <property>\n");
+      content.append("      <name>").append(StringEscapeUtils.escapeXml(name)).append("</name>\n");
+      content.append("      <value>").append(escapeXml(property.getValue())).append("</value>");
+      for (Map.Entry<String, Map<String, String>> attribute : attributes.entrySet()) {
+        if (attribute.getValue() != null && attribute.getValue().containsKey(name)) {
+          String attributeName = StringEscapeUtils.escapeXml(attribute.getKey());
+          content.append("\n      <").append(attributeName).append('>')
+              .append(escapeXml(attribute.getValue().get(name)))
+              .append("</").append(attributeName).append('>');
+        }
+      }
+      content.append("\n    </property>\n");
+    }
+    content.append("    \n  </configuration>");
+    return content.toString();
+  }
+
+  /**
+   * Same layout as the template of the {@code PropertiesFile} resource, the
+   * date is formatted like python's {@code time.asctime()}.
+   */
+  static String getPropertiesContent(Map<String, String> properties, Date generated) {
+    StringBuilder content = new StringBuilder("# Generated by Apache Ambari. ")
+        .append(String.format(Locale.US, "%ta %<tb %<2te %<tT %<tY", generated))
+        .append("\n    \n");
+    for (Map.Entry<String, String> property : new TreeMap<>(properties).entrySet()) {
+      content.append('\n').append(property.getKey()).append('=')
+          .append(property.getValue() == null ? "" : property.getValue());
+    }
+    content.append("\n    ");
+    return content.toString();
+  }
+
+  /**
+   * An env file is built from the content of one or more comma separated
+   * config types.
+   */
+  private static String[] getConfigTypes(ClientConfigFileDefinition clientConfigFile) {
+    String dictionaryName = clientConfigFile.getDictionaryName();
+    if (!ENV_TYPE.equals(clientConfigFile.getType())) {
+      return new String[]{dictionaryName};
+    }
+    String[] configTypes = dictionaryName.split(",");
+    for (int i = 0; i < configTypes.length; i++) {
+      configTypes[i] = configTypes[i].trim();
+    }
+    return configTypes;
+  }
+
+  /**
+   * A script which can't be read is assumed to override the generation.
+   */
+  private static boolean overridesConfigGeneration(File commandScript) {
+    try {
+      String script = new String(Files.readAllBytes(commandScript.toPath()), StandardCharsets.UTF_8);
+      return CONFIG_GENERATION_OVERRIDE.matcher(script).find();
+    } catch (IOException e) {
+      return true;
+    }
+  }
+
+  private static boolean containsTemplateMarkup(String value) {
+    if (value == null) {
+      return false;
+    }
+    for (String markup : TEMPLATE_MARKUP) {
+      if (value.contains(markup)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String escapeXml(String value) {
+    return value == null ? "" : StringEscapeUtils.escapeXml(value);
+  }
+}
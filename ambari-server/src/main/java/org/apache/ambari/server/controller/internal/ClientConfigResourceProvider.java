@@ -104,6 +104,8 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.Gson;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
@@ -134,6 +136,18 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
   private MaintenanceStateHelper maintenanceStateHelper;
   private static final Logger LOG = LoggerFactory.getLogger(ClientConfigResourceProvider.class);
 
+  /**
+   * The maximum number of in-process generated component archives which are kept.
+   */
+  private static final int MAX_CACHED_ARCHIVES = 200;
+
+  /**
+   * Component archives generated by {@link ClientConfigArchiveGenerator}, keyed by
+   * the cluster, stack, component and the effective desired config tags.
+   */
+  private static final Cache<String, byte[]> generatedArchives =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_ARCHIVES).build();
+
   // ----- Constructors ----------------------------------------------------
 
   /**
@@ -266,6 +280,17 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
 
         String commandScriptAbsolute = packageFolderAbsolute + File.separator + commandScript;
 
+        // Apply global properties for this host from all config groups
+        Map<String, Map<String, String>> allConfigTags = configHelper
+          .getEffectiveDesiredTags(cluster, schRequest.getHostname());
+
+        // the archive only depends on the configurations when it was generated in-process
+        String archiveKey = getArchiveKey(cluster, stackId, componentName, allConfigTags);
+        byte[] archive = generatedArchives.getIfPresent(archiveKey);
+        if (archive != null) {
+          ClientConfigArchiveGenerator.writeArchive(TMP_PATH, componentName, archive);
+          continue;
+        }
 
         Map<String, Map<String, String>> configurations = new TreeMap<String, Map<String, String>>();
         Map<String, Long> configVersions = new TreeMap<String, Long>();
@@ -284,11 +309,6 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
           if (clusterConfig != null) {
             Map<String, String> props = new HashMap<String, String>(clusterConfig.getProperties());
 
-            // Apply global properties for this host from all config groups
-            Map<String, Map<String, String>> allConfigTags = null;
-            allConfigTags = configHelper
-              .getEffectiveDesiredTags(cluster, schRequest.getHostname());
-
             Map<String, Map<String, String>> configTags = new HashMap<String,
               Map<String, String>>();
 
@@ -340,6 +360,16 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
           SecretReference.replacePasswordsWithReferences(propertiesTypes, configProperties, configType, configVersion);
         }
 
+        // the python script is only needed for configurations which have to be rendered as templates
+        // and for scripts which customize the generated files
+        if (ClientConfigArchiveGenerator.canGenerate(new File(commandScriptAbsolute), clientConfigFiles,
+            configurations)) {
+          archive = ClientConfigArchiveGenerator.createArchive(clientConfigFiles, configurations, configurationAttributes);
+          generatedArchives.put(archiveKey, archive);
+          ClientConfigArchiveGenerator.writeArchive(TMP_PATH, componentName, archive);
+          continue;
+        }
+
         Map<String, Set<String>> clusterHostInfo = null;
         ServiceInfo serviceInfo = null;
         String osFamily = null;
@@ -493,20 +523,22 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
       throw new SystemException("No configuration files defined for any component" );
     }
 
-    Integer totalCommands = pythonCompressFilesCmds.size() * 2;
-    Integer threadPoolSize = Math.min(totalCommands,configs.getExternalScriptThreadPoolSize());
-    ExecutorService processExecutor = Executors.newFixedThreadPool(threadPoolSize);
+    if (!pythonCompressFilesCmds.isEmpty()) {
+      Integer totalCommands = pythonCompressFilesCmds.size() * 2;
+      Integer threadPoolSize = Math.min(totalCommands,configs.getExternalScriptThreadPoolSize());
+      ExecutorService processExecutor = Executors.newFixedThreadPool(threadPoolSize);
 
-    // put all threads that starts process to compress each component config files in the executor
-    try {
-      List<CommandLineThreadWrapper> pythonCmdThreads = executeCommands(processExecutor, pythonCompressFilesCmds);
-
-      // wait for all threads to finish
-      Integer timeout = configs.getExternalScriptTimeout();
-      waitForAllThreadsToJoin(processExecutor, pythonCmdThreads, timeout);
-    } finally {
-      for (File each : commandFiles) {
-        each.delete();
+      // put all threads that starts process to compress each component config files in the executor
+      try {
+        List<CommandLineThreadWrapper> pythonCmdThreads = executeCommands(processExecutor, pythonCompressFilesCmds);
+
+        // wait for all threads to finish
+        Integer timeout = configs.getExternalScriptTimeout();
+        waitForAllThreadsToJoin(processExecutor, pythonCmdThreads, timeout);
+      } finally {
+        for (File each : commandFiles) {
+          each.delete();
+        }
       }
     }
 
@@ -531,6 +563,26 @@ public class ClientConfigResourceProvider extends AbstractControllerResourceProv
     return resources;
   }
 
+  /**
+   * Creates the key of an in-process generated component archive.
+   *
+   * @param cluster       the cluster
+   * @param stackId       the current stack of the cluster
+   * @param componentName the component name
+   * @param configTags    the effective desired config tags
+   * @return the archive key
+   */
+  private String getArchiveKey(Cluster cluster, StackId stackId, String componentName,
+                               Map<String, Map<String, String>> configTags) {
+    StringBuilder key = new StringBuilder();
+    key.append(cluster.getClusterId()).append('/').append(stackId.getStackName()).append('-')
+      .append(stackId.getStackVersion()).append('/').append(componentName);
+    for (Map.Entry<String, Map<String, String>> entry : new TreeMap<>(configTags).entrySet()) {
+      key.append('/').append(entry.getKey()).append('=').append(new TreeMap<>(entry.getValue()));
+    }
+    return key.toString();
+  }
+
   /**
    *  Execute all external script commands
    * @param processExecutor {@link ExecutorService} executes the process when threads are available in the pool
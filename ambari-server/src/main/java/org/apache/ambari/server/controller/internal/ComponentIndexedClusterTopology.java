@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ambari.server.controller.RequestStatusResponse;
+import org.apache.ambari.server.topology.AdvisedConfiguration;
+import org.apache.ambari.server.topology.AmbariContext;
+import org.apache.ambari.server.topology.Blueprint;
+import org.apache.ambari.server.topology.ClusterTopology;
+import org.apache.ambari.server.topology.ConfigRecommendationStrategy;
+import org.apache.ambari.server.topology.Configuration;
+import org.apache.ambari.server.topology.HostGroupInfo;
+import org.apache.ambari.server.topology.InvalidTopologyException;
+import org.apache.ambari.server.topology.NoSuchHostGroupException;
+import org.apache.ambari.server.topology.TopologyRequest;
+
+/**
+ * A {@link ClusterTopology} view used by the {@link BlueprintConfigurationProcessor} while
+ * it updates the configuration of a cluster.  The component to host group and the component
+ * to host assignments are computed once per component and then served from memory, since
+ * the property updaters ask for them for every property of every host group; for a large
+ * cluster that is many thousands of walks over the blueprint and over all hosts.
+ * <p/>
+ * The view is only valid as long as the topology is not changed, so it must not outlive a
+ * single configuration update.  All other calls are delegated to the wrapped topology.
+ */
+class ComponentIndexedClusterTopology implements ClusterTopology {
+
+  /**
+   * The wrapped topology.
+   */
+  private final ClusterTopology topology;
+
+  /**
+   * Host group names keyed by component name.
+   */
+  private final Map<String, Collection<String>> hostGroupsByComponent = new HashMap<>();
+
+  /**
+   * Host names keyed by component name.
+   */
+  private final Map<String, Collection<String>> hostsByComponent = new HashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param topology  the topology to index
+   */
+  ComponentIndexedClusterTopology(ClusterTopology topology) {
+    this.topology = topology;
+  }
+
+  @Override
+  public Collection<String> getHostGroupsForComponent(String component) {
+    Collection<String> hostGroups = hostGroupsByComponent.get(component);
+    if (hostGroups == null) {
+      hostGroups = Collections.unmodifiableCollection(topology.getHostGroupsForComponent(component));
+      hostGroupsByComponent.put(component, hostGroups);
+    }
+    return hostGroups;
+  }
+
+  @Override
+  public Collection<String> getHostAssignmentsForComponent(String component) {
+    Collection<String> hosts = hostsByComponent.get(component);
+    if (hosts == null) {
+      hosts = Collections.unmodifiableCollection(topology.getHostAssignmentsForComponent(component));
+      hostsByComponent.put(component, hosts);
+    }
+    return hosts;
+  }
+
+  @Override
+  public Long getClusterId() {
+    return topology.getClusterId();
+  }
+
+  @Override
+  public void setClusterId(Long clusterId) {
+    topology.setClusterId(clusterId);
+  }
+
+  @Override
+  public Blueprint getBlueprint() {
+    return topology.getBlueprint();
+  }
+
+  @Override
+  public Configuration getConfiguration() {
+    return topology.getConfiguration();
+  }
+
+  @Override
+  public Map<String, HostGroupInfo> getHostGroupInfo() {
+    return topology.getHostGroupInfo();
+  }
+
+  @Override
+  public String getHostGroupForHost(String hostname) {
+    return topology.getHostGroupForHost(hostname);
+  }
+
+  @Override
+  public void update(TopologyRequest topologyRequest) throws InvalidTopologyException {
+    throw new UnsupportedOperationException("The topology can not be changed during a configuration update");
+  }
+
+  @Override
+  public void addHostToTopology(String hostGroupName, String host)
+      throws InvalidTopologyException, NoSuchHostGroupException {
+    throw new UnsupportedOperationException("The topology can not be changed during a configuration update");
+  }
+
+  @Override
+  public boolean isNameNodeHAEnabled() {
+    return topology.isNameNodeHAEnabled();
+  }
+
+  @Override
+  public boolean isYarnResourceManagerHAEnabled() {
+    return topology.isYarnResourceManagerHAEnabled();
+  }
+
+  @Override
+  public boolean isClusterKerberosEnabled() {
+    return topology.isClusterKerberosEnabled();
+  }
+
+  @Override
+  public RequestStatusResponse installHost(String hostName, boolean skipInstallTaskCreate, boolean skipFailure) {
+    return topology.installHost(hostName, skipInstallTaskCreate, skipFailure);
+  }
+
+  @Override
+  public RequestStatusResponse startHost(String hostName, boolean skipFailure) {
+    return topology.startHost(hostName, skipFailure);
+  }
+
+  @Override
+  public void setConfigRecommendationStrategy(ConfigRecommendationStrategy strategy) {
+    topology.setConfigRecommendationStrategy(strategy);
+  }
+
+  @Override
+  public ConfigRecommendationStrategy getConfigRecommendationStrategy() {
+    return topology.getConfigRecommendationStrategy();
+  }
+
+  @Override
+  public void setProvisionAction(ProvisionAction provisionAction) {
+    topology.setProvisionAction(provisionAction);
+  }
+
+  @Override
+  public ProvisionAction getProvisionAction() {
+    return topology.getProvisionAction();
+  }
+
+  @Override
+  public Map<String, AdvisedConfiguration> getAdvisedConfigurations() {
+    return topology.getAdvisedConfigurations();
+  }
+
+  @Override
+  public AmbariContext getAmbariContext() {
+    return topology.getAmbariContext();
+  }
+
+  @Override
+  public void removeHost(String hostname) {
+    throw new UnsupportedOperationException("The topology can not be changed during a configuration update");
+  }
+
+  @Override
+  public String getDefaultPassword() {
+    return topology.getDefaultPassword();
+  }
+}
@@ -38,6 +38,7 @@ import org.apache.ambari.server.security.authorization.AuthorizationHelper;
 import org.apache.ambari.server.security.authorization.ResourceType;
 import org.apache.ambari.server.security.authorization.RoleAuthorization;
 import org.apache.ambari.server.security.ldap.LdapBatchDto;
+import org.apache.ambari.server.security.ldap.LdapSyncProgress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -92,6 +93,8 @@ public class LdapSyncEventResourceProvider extends AbstractControllerResourcePro
   public static final String MEMBERSHIPS_CREATED_PROPERTY_ID = "Event/summary/memberships/created";
   public static final String MEMBERSHIPS_REMOVED_PROPERTY_ID = "Event/summary/memberships/removed";
   public static final String EVENT_SPECS_PROPERTY_ID         = "Event/specs";
+  public static final String PROGRESS_APPLIED_PROPERTY_ID    = "Event/progress/applied";
+  public static final String PROGRESS_TOTAL_PROPERTY_ID      = "Event/progress/total";
 
   /**
    * The key property ids for a event resource.
@@ -122,6 +125,8 @@ public class LdapSyncEventResourceProvider extends AbstractControllerResourcePro
     propertyIds.add(MEMBERSHIPS_CREATED_PROPERTY_ID);
     propertyIds.add(MEMBERSHIPS_REMOVED_PROPERTY_ID);
     propertyIds.add(EVENT_SPECS_PROPERTY_ID);
+    propertyIds.add(PROGRESS_APPLIED_PROPERTY_ID);
+    propertyIds.add(PROGRESS_TOTAL_PROPERTY_ID);
   }
 
   /**
@@ -304,6 +309,13 @@ public class LdapSyncEventResourceProvider extends AbstractControllerResourcePro
     setResourceProperty(resource, EVENT_START_TIME_PROPERTY_ID, eventEntity.getStartTime(), requestedIds);
     setResourceProperty(resource, EVENT_END_TIME_PROPERTY_ID, eventEntity.getEndTime(), requestedIds);
 
+    // only the running event is being stored
+    if (eventEntity.getStatus() == LdapSyncEventEntity.Status.RUNNING) {
+      LdapSyncProgress progress = getManagementController().getLdapSyncProgress();
+      setResourceProperty(resource, PROGRESS_APPLIED_PROPERTY_ID, progress.getAppliedChanges(), requestedIds);
+      setResourceProperty(resource, PROGRESS_TOTAL_PROPERTY_ID, progress.getTotalChanges(), requestedIds);
+    }
+
     return resource;
   }
 
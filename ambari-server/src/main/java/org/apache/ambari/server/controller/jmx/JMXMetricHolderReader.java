@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.jmx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * The {@link JMXMetricHolderReader} reads the JSON written by the Hadoop
+ * {@code JMXJsonServlet} into a {@link JMXMetricHolder} using a streaming
+ * parser. Only the bean attributes which are part of the supplied attribute
+ * filter are materialized; all other values are skipped without building any
+ * objects for them. The {@code name} and {@code tag.port} attributes are always
+ * kept since they are needed to map a bean to its metric category.
+ */
+public class JMXMetricHolderReader {
+
+  private static final String BEANS_KEY = "beans";
+  private static final String NAME_KEY = "name";
+  private static final String PORT_KEY = "tag.port";
+
+  /**
+   * Used to create parsers and to read the values of the kept attributes.
+   */
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Constructor.
+   *
+   * @param objectMapper
+   *          the mapper used to read attribute values (not {@code null}).
+   */
+  public JMXMetricHolderReader(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Reads the beans from the specified stream.
+   *
+   * @param inputStream
+   *          the JMX JSON to read (not {@code null}).
+   * @param attributes
+   *          the names of the bean attributes to keep, or {@code null} to keep
+   *          all of them.
+   * @return the parsed beans (never {@code null}).
+   * @throws IOException
+   *           if the stream could not be read or is not valid JMX JSON.
+   */
+  public JMXMetricHolder read(InputStream inputStream, Set<String> attributes) throws IOException {
+    JsonParser parser = objectMapper.getJsonFactory().createJsonParser(inputStream);
+    try {
+      List<Map<String, Object>> beans = new ArrayList<>();
+
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Expected a JSON object but found " + parser.getCurrentToken());
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+
+        if (BEANS_KEY.equals(fieldName) && token == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            beans.add(readBean(parser, attributes));
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+
+      JMXMetricHolder metricHolder = new JMXMetricHolder();
+      metricHolder.setBeans(beans);
+      return metricHolder;
+    } finally {
+      parser.close();
+    }
+  }
+
+  /**
+   * Reads a single bean; the parser must be positioned on the bean's
+   * {@link JsonToken#START_OBJECT}.
+   */
+  private Map<String, Object> readBean(JsonParser parser, Set<String> attributes)
+      throws IOException {
+    Map<String, Object> bean = new LinkedHashMap<>();
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String attribute = parser.getCurrentName();
+      parser.nextToken();
+
+      if (null == attributes || NAME_KEY.equals(attribute) || PORT_KEY.equals(attribute)
+          || attributes.contains(attribute)) {
+        bean.put(attribute, objectMapper.readValue(parser, Object.class));
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    return bean;
+  }
+}
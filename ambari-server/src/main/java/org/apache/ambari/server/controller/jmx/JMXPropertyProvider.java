@@ -19,6 +19,7 @@
 package org.apache.ambari.server.controller.jmx;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -32,6 +33,7 @@ import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 import org.apache.ambari.server.AmbariException;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.internal.PropertyInfo;
 import org.apache.ambari.server.controller.metrics.MetricHostProvider;
 import org.apache.ambari.server.controller.metrics.ThreadPoolEnabledPropertyProvider;
@@ -46,6 +48,8 @@ import org.apache.ambari.server.state.services.MetricsRetrievalService.MetricSou
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
@@ -79,6 +83,15 @@ import com.google.inject.assistedinject.AssistedInject;
  * noted that this provider is still an instance of a
  * {@link ThreadPoolEnabledPropertyProvider} due to the nature of how the cached
  * {@link JMXMetricHolder} instances need to be looped over an parsed.
+ * <p/>
+ * When {@link Configuration#isMetricsServiceJMXTargetedQueriesEnabled()} is
+ * set, the MBeans backing the requested properties are derived from the
+ * {@link PropertyInfo} definitions and only those are requested from each
+ * endpoint using {@code ?qry=} and {@code ?get=} URLs. The responses for an
+ * endpoint are combined into a single {@link JMXMetricHolder} and only the
+ * requested attributes are kept when they are parsed. Properties with regular
+ * expression arguments need all MBeans of an endpoint and therefore still read
+ * the complete {@code /jmx} dump.
  */
 public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
 
@@ -101,6 +114,17 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
    */
   private static final Map<String, Map<String, String>> AD_HOC_PROPERTIES = new HashMap<>();
 
+  /**
+   * The MBeans which Hadoop registers once per RPC port, such as
+   * {@code RpcActivityForPort8020}. Their categories do not contain the port,
+   * so targeted queries use a wildcard for them.
+   */
+  private static final Set<String> PORT_TAGGED_BEANS = new HashSet<>();
+
+  private static final String PORT_TAGGED_BEAN_SUFFIX = "ForPort*";
+
+  private static final Escaper QUERY_ESCAPER = UrlEscapers.urlFormParameterEscaper();
+
   static {
     DEFAULT_JMX_PORTS.put("NAMENODE",           "50070");
     DEFAULT_JMX_PORTS.put("DATANODE",           "50075");
@@ -115,6 +139,9 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
     AD_HOC_PROPERTIES.put("NAMENODE",
         Collections.singletonMap("metrics/dfs/FSNamesystem/HAState",
                                  "/jmx?get=Hadoop:service=NameNode,name=FSNamesystem::tag.HAState"));
+
+    PORT_TAGGED_BEANS.add("RpcActivity");
+    PORT_TAGGED_BEANS.add("RpcDetailedActivity");
   }
 
   protected final static Logger LOG =
@@ -144,6 +171,12 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
   @Inject
   private MetricsRetrievalService metricsRetrievalService;
 
+  /**
+   * Used to determine whether targeted JMX queries should be issued.
+   */
+  @Inject
+  private Configuration configuration;
+
   // ----- Constructors ------------------------------------------------------
 
   /**
@@ -251,6 +284,9 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
       return resource;
     }
 
+    // the targeted queries are the same for every host of the component
+    Map<String, Set<String>> jmxQueries = getJMXQueries(componentName, ids);
+
     String spec = null;
     for (String hostName : hostNames) {
       try {
@@ -262,24 +298,13 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
           return resource;
         }
 
-        // build the URL
-        String jmxUrl = getSpec(protocol, hostName, port, "/jmx");
-
-        // always submit a request to cache the latest data
-        metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, jmxUrl);
-
-        // check to see if there is a cached value and use it if there is
-        JMXMetricHolder jmxMetricHolder = metricsRetrievalService.getCachedJMXMetric(jmxUrl);
+        // always submit a request to cache the latest data and use the cached
+        // value if there is one
+        JMXMetricHolder jmxMetricHolder = getCachedJMXMetric(protocol, hostName, port, jmxQueries);
 
         if( jmxMetricHolder == null && !hostName.equalsIgnoreCase(publicHostName)) {
-          // build the URL using public host name
-          String publicJmxUrl = getSpec(protocol, publicHostName, port, "/jmx");
-
-          // always submit a request to cache the latest data
-          metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, publicJmxUrl);
-
-          // check to see if there is a cached value and use it if there is
-          jmxMetricHolder = metricsRetrievalService.getCachedJMXMetric(publicJmxUrl);
+          // try again using the public host name
+          jmxMetricHolder = getCachedJMXMetric(protocol, publicHostName, port, jmxQueries);
         }
 
         // if the ticket becomes invalid (timeout) then bail out
@@ -337,6 +362,136 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
     return resource;
   }
 
+  /**
+   * Submits the requests for the JMX data of an endpoint and returns the data
+   * cached by prior requests. Without targeted queries this is the complete
+   * {@code /jmx} dump; otherwise the cached responses of all targeted queries
+   * are combined into a single holder.
+   *
+   * @param jmxQueries
+   *          the targeted queries and the attributes to keep for each of them,
+   *          or {@code null} to read all MBeans.
+   * @return the cached metrics, or {@code null} if there are none yet.
+   */
+  private JMXMetricHolder getCachedJMXMetric(String protocol, String hostName, String port,
+                                             Map<String, Set<String>> jmxQueries) {
+    if (jmxQueries == null) {
+      String jmxUrl = getSpec(protocol, hostName, port, "/jmx");
+      metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, jmxUrl);
+      return metricsRetrievalService.getCachedJMXMetric(jmxUrl);
+    }
+
+    List<Map<String, Object>> beans = null;
+    for (Map.Entry<String, Set<String>> jmxQuery : jmxQueries.entrySet()) {
+      String jmxUrl = getSpec(protocol, hostName, port, jmxQuery.getKey());
+      metricsRetrievalService.submitJMXRequest(streamProvider, jmxUrl, jmxQuery.getValue());
+
+      JMXMetricHolder jmxMetricHolder = metricsRetrievalService.getCachedJMXMetric(jmxUrl);
+      if (jmxMetricHolder != null && jmxMetricHolder.getBeans() != null) {
+        if (beans == null) {
+          beans = new ArrayList<>();
+        }
+        beans.addAll(jmxMetricHolder.getBeans());
+      }
+    }
+
+    if (beans == null) {
+      return null;
+    }
+
+    JMXMetricHolder combinedMetricHolder = new JMXMetricHolder();
+    combinedMetricHolder.setBeans(beans);
+    return combinedMetricHolder;
+  }
+
+  /**
+   * Derives the targeted JMX queries needed to resolve the given property ids
+   * from their {@link PropertyInfo} definitions. An MBean from which a single
+   * attribute is needed is read with {@code ?get=}, all others with
+   * {@code ?qry=}.
+   *
+   * @return the query part of the URLs mapped to the attributes to keep from
+   *         their responses, or {@code null} if the complete {@code /jmx} dump
+   *         has to be read.
+   */
+  private Map<String, Set<String>> getJMXQueries(String componentName, Set<String> ids) {
+    if (configuration == null || !configuration.isMetricsServiceJMXTargetedQueriesEnabled()) {
+      return null;
+    }
+
+    Map<String, Set<String>> beanAttributes = new HashMap<>();
+    for (String id : ids) {
+      for (Map.Entry<String, PropertyInfo> entry : getPropertyInfoMap(componentName, id).entrySet()) {
+        PropertyInfo propertyInfo = entry.getValue();
+        if (!propertyInfo.isPointInTime()) {
+          continue;
+        }
+
+        // the categories of properties with arguments are regular expressions
+        // which are matched against all MBeans
+        if (containsArguments(entry.getKey())) {
+          return null;
+        }
+
+        String property = propertyInfo.getPropertyId();
+        int keyStartIndex = property.indexOf('[');
+        int dotIndex = property.indexOf('.', property.indexOf('='));
+        if (-1 == dotIndex) {
+          return null;
+        }
+
+        String bean = getBeanQuery(property.substring(0, dotIndex));
+        String attribute = (-1 == keyStartIndex) ?
+                property.substring(dotIndex+1) :
+                property.substring(dotIndex+1, keyStartIndex);
+        attribute = dotReplacementCharPattern.matcher(attribute).replaceAll(".");
+
+        Set<String> attributes = beanAttributes.get(bean);
+        if (attributes == null) {
+          attributes = new HashSet<>();
+          beanAttributes.put(bean, attributes);
+        }
+        attributes.add(attribute);
+      }
+    }
+
+    // many small requests are more expensive than one large one
+    if (beanAttributes.isEmpty() ||
+        beanAttributes.size() > configuration.getMetricsServiceJMXTargetedQueriesMax()) {
+      return null;
+    }
+
+    Map<String, Set<String>> jmxQueries = new HashMap<>();
+    for (Map.Entry<String, Set<String>> entry : beanAttributes.entrySet()) {
+      String bean = entry.getKey();
+      Set<String> attributes = entry.getValue();
+
+      // ?get= does not return tag.port, which is needed for port tagged MBeans
+      String query;
+      if (attributes.size() == 1 && !bean.endsWith(PORT_TAGGED_BEAN_SUFFIX)) {
+        query = "/jmx?get=" + QUERY_ESCAPER.escape(bean + "::" + attributes.iterator().next());
+      } else {
+        query = "/jmx?qry=" + QUERY_ESCAPER.escape(bean);
+      }
+      jmxQueries.put(query, attributes);
+    }
+    return jmxQueries;
+  }
+
+  /**
+   * Gets the MBean name or pattern to query for the given category.
+   */
+  private String getBeanQuery(String category) {
+    for (String portTaggedBean : PORT_TAGGED_BEANS) {
+      int nameIndex = category.indexOf(NAME_KEY + "=" + portTaggedBean);
+      if (-1 != nameIndex) {
+        // the category may contain the RPC tag which replaced the port
+        return category.substring(0, nameIndex) + NAME_KEY + "=" + portTaggedBean + PORT_TAGGED_BEAN_SUFFIX;
+      }
+    }
+    return category;
+  }
+
   /**
    * Hadoop-specific metrics fetching
    */
@@ -18,8 +18,15 @@
 package org.apache.ambari.server.events.listeners.alerts;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
 import org.apache.ambari.server.AmbariException;
@@ -64,6 +71,16 @@ import com.google.inject.persist.Transactional;
  * The {@link AlertReceivedListener} class handles {@link AlertReceivedEvent}
  * and updates the appropriate DAOs. It may also fire new
  * {@link AlertStateChangeEvent} when an {@link AlertState} change is detected.
+ * <p/>
+ * When {@link Configuration#isAlertIngestBatchingEnabled()} is set, received
+ * alerts are not processed on the event bus threads. Instead, they are queued
+ * and a single thread processes them in batches collected over
+ * {@link Configuration#getAlertIngestBatchWindow()} milliseconds. Repeated
+ * reports of the same alert in the same state within a batch are coalesced
+ * into the latest one, which still counts every report towards the
+ * occurrences of the alert, and all changes of a batch are saved in one
+ * transaction, which lets the JDBC batch writing of the persistence unit
+ * group the statements.
  */
 @Singleton
 @EagerSingleton
@@ -73,6 +90,12 @@ public class AlertReceivedListener {
    */
   private static final Logger LOG = LoggerFactory.getLogger(AlertReceivedListener.class);
 
+  /**
+   * The time to wait for the batch processor to finish its current batch when
+   * it is stopped.
+   */
+  private static final long BATCH_PROCESSOR_STOP_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+
   @Inject
   Configuration m_configuration;
 
@@ -109,6 +132,31 @@ public class AlertReceivedListener {
    */
   private Striped<Lock> creationLocks = Striped.lazyWeakLock(100);
 
+  /**
+   * Maps the cluster ID and name of alert definitions to their IDs. This
+   * allows the definitions of received alerts to be found by primary key,
+   * which is served from the JPA cache, instead of querying them by name for
+   * every alert.
+   */
+  private final ConcurrentMap<String, Long> m_definitionIds = new ConcurrentHashMap<>();
+
+  /**
+   * The received alerts waiting to be processed in a batch.
+   */
+  private final BlockingQueue<ReceivedAlert> m_batchQueue = new LinkedBlockingQueue<>();
+
+  /**
+   * The thread processing batches of received alerts, or {@code null} if it has
+   * not been started.
+   */
+  private Thread m_batchProcessor;
+
+  /**
+   * Set once {@link #stopBatchProcessor()} was called; alerts received
+   * afterwards are processed right away.
+   */
+  private boolean m_batchProcessorStopped = false;
+
   /**
    * Constructor.
    *
@@ -134,17 +182,92 @@ public class AlertReceivedListener {
       LOG.debug(event.toString());
     }
 
-    // process the list of alerts inside of a single transaction to prevent too
-    // many transactions/commits
     List<Alert> alerts = event.getAlerts();
+    List<ReceivedAlert> receivedAlerts = new ArrayList<>(alerts.size());
+    for (Alert alert : alerts) {
+      receivedAlerts.add(new ReceivedAlert(event.getClusterId(), alert));
+    }
+
+    // let the batching stage pick the alerts up if it is enabled
+    if (m_configuration.isAlertIngestBatchingEnabled() && enqueueForBatch(receivedAlerts)) {
+      return;
+    }
+
+    processAlerts(receivedAlerts);
+  }
+
+  /**
+   * Processes a batch of received alerts after coalescing repeated reports.
+   *
+   * @param batch
+   *          the alerts in the order they were received.
+   */
+  @RequiresSession
+  void processBatch(List<ReceivedAlert> batch) {
+    List<ReceivedAlert> coalesced = coalesce(batch);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Processing a batch of {} received alerts coalesced into {}", batch.size(),
+          coalesced.size());
+    }
+
+    processAlerts(coalesced);
+  }
 
+  /**
+   * Coalesces repeated reports of the same alert. A report replaces the
+   * previous report for the same cluster, definition and host if both have the
+   * same state, since the earlier one carries no information which is not in
+   * the later one other than being another occurrence of the alert, which is
+   * added to {@link ReceivedAlert#getReports()} of the later one. State
+   * changes are always kept so that every transition is recorded in the
+   * history. {@link AlertState#SKIPPED} reports are never coalesced since a
+   * blank text in them has a special meaning.
+   *
+   * @param batch
+   *          the alerts in the order they were received.
+   * @return the coalesced alerts; reports for the same alert stay in the order
+   *         they were received.
+   */
+  static List<ReceivedAlert> coalesce(List<ReceivedAlert> batch) {
+    List<ReceivedAlert> coalesced = new ArrayList<>(batch.size());
+    Map<String, Integer> lastReportIndex = new HashMap<>();
+
+    for (ReceivedAlert receivedAlert : batch) {
+      String key = receivedAlert.getKey();
+      AlertState state = receivedAlert.getAlert().getState();
+
+      Integer index = lastReportIndex.get(key);
+      if (null != index && state != AlertState.SKIPPED
+          && coalesced.get(index).getAlert().getState() == state) {
+        receivedAlert.addReports(coalesced.get(index).getReports());
+        coalesced.set(index, receivedAlert);
+        continue;
+      }
+
+      lastReportIndex.put(key, coalesced.size());
+      coalesced.add(receivedAlert);
+    }
+
+    return coalesced;
+  }
+
+  /**
+   * Processes the received alerts, saving all changes in a single transaction
+   * and publishing the resulting events afterwards.
+   *
+   * @param receivedAlerts
+   *          the alerts to process.
+   */
+  private void processAlerts(List<ReceivedAlert> receivedAlerts) {
     // these can be wrapped in their own transaction
     List<AlertCurrentEntity> toMerge = new ArrayList<>();
     List<AlertCurrentEntity> toCreateHistoryAndMerge = new ArrayList<>();
 
     List<AlertEvent> alertEvents = new ArrayList<>(20);
 
-    for (Alert alert : alerts) {
+    for (ReceivedAlert receivedAlert : receivedAlerts) {
+      Alert alert = receivedAlert.getAlert();
+
       // jobs that were running when a service/component/host was changed
       // which invalidate the alert should not be reported
       if (!isValid(alert)) {
@@ -155,11 +278,10 @@ public class AlertReceivedListener {
       Long clusterId = getClusterIdByName(clusterName);
       if (clusterId == null) {
         // check event
-        clusterId = event.getClusterId();
+        clusterId = receivedAlert.getEventClusterId();
       }
 
-      AlertDefinitionEntity definition = m_definitionDao.findByName(clusterId,
-        alert.getName());
+      AlertDefinitionEntity definition = getDefinition(clusterId, alert.getName());
 
       if (null == definition) {
         LOG.warn(
@@ -227,6 +349,7 @@ public class AlertReceivedListener {
           current.setAlertHistory(history);
           current.setLatestTimestamp(alert.getTimestamp());
           current.setOriginalTimestamp(alert.getTimestamp());
+          current.setOccurrences(receivedAlert.getReports());
 
           // brand new alert instances being received are always HARD
           current.setFirmness(AlertFirmness.HARD);
@@ -251,7 +374,7 @@ public class AlertReceivedListener {
 
           // ++ the occurrences (should be safe enough since we should ever only
           // be handling unique alert events concurrently
-          long occurrences = current.getOccurrences() + 1;
+          long occurrences = current.getOccurrences() + receivedAlert.getReports();
           current.setOccurrences(occurrences);
 
           // ensure that if we've met the repeat tolerance and the alert is
@@ -327,6 +450,9 @@ public class AlertReceivedListener {
             break;
         }
 
+        // coalesced reports after the state change are continuations
+        current.setOccurrences(current.getOccurrences() + receivedAlert.getReports() - 1);
+
         // set the firmness of the new alert state based on the state, type,
         // occurrences, and repeat tolerance
         AlertFirmness firmness = calculateFirmnessForStateChange(clusterName, definition,
@@ -352,6 +478,147 @@ public class AlertReceivedListener {
     }
   }
 
+  /**
+   * Queues received alerts for the thread which processes batches of them,
+   * starting it if it is not running yet.
+   *
+   * @param receivedAlerts
+   *          the alerts to queue.
+   * @return {@code true} if the alerts were queued, {@code false} if the thread
+   *         has been stopped and the alerts must be processed by the caller.
+   */
+  private synchronized boolean enqueueForBatch(List<ReceivedAlert> receivedAlerts) {
+    if (m_batchProcessorStopped) {
+      return false;
+    }
+
+    m_batchQueue.addAll(receivedAlerts);
+    if (null != m_batchProcessor) {
+      return true;
+    }
+
+    m_batchProcessor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        processBatches();
+      }
+    }, "alert-ingest-batch-processor");
+
+    m_batchProcessor.setDaemon(true);
+    m_batchProcessor.start();
+
+    LOG.info("Processing received alerts in batches of up to {} collected over {}ms",
+        m_configuration.getAlertIngestBatchSize(), m_configuration.getAlertIngestBatchWindow());
+
+    return true;
+  }
+
+  /**
+   * Stops the thread which processes batches of received alerts and processes
+   * the alerts which are still queued. Alerts received afterwards are processed
+   * as they arrive.
+   *
+   * @throws InterruptedException
+   *           if interrupted while waiting for the thread to finish.
+   */
+  public void stopBatchProcessor() throws InterruptedException {
+    Thread batchProcessor;
+    synchronized (this) {
+      m_batchProcessorStopped = true;
+      batchProcessor = m_batchProcessor;
+      m_batchProcessor = null;
+    }
+
+    if (null == batchProcessor) {
+      return;
+    }
+
+    batchProcessor.interrupt();
+    batchProcessor.join(BATCH_PROCESSOR_STOP_TIMEOUT_MS);
+
+    List<ReceivedAlert> remaining = new ArrayList<>();
+    m_batchQueue.drainTo(remaining);
+    if (!remaining.isEmpty()) {
+      processBatch(remaining);
+    }
+  }
+
+  /**
+   * Collects received alerts into batches and processes them until the thread
+   * is interrupted. A batch is started by the first alert to arrive and is
+   * processed when the batch window has passed or the batch is full.
+   */
+  private void processBatches() {
+    int batchSize = Math.max(1, m_configuration.getAlertIngestBatchSize());
+    long batchWindow = m_configuration.getAlertIngestBatchWindow();
+    List<ReceivedAlert> batch = new ArrayList<>();
+
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        batch.add(m_batchQueue.take());
+
+        long deadline = System.currentTimeMillis() + batchWindow;
+        while (batch.size() < batchSize) {
+          m_batchQueue.drainTo(batch, batchSize - batch.size());
+
+          long remaining = deadline - System.currentTimeMillis();
+          if (batch.size() >= batchSize || remaining <= 0) {
+            break;
+          }
+
+          ReceivedAlert receivedAlert = m_batchQueue.poll(remaining, TimeUnit.MILLISECONDS);
+          if (null == receivedAlert) {
+            break;
+          }
+
+          batch.add(receivedAlert);
+        }
+
+        processBatch(batch);
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+      } catch (Exception exception) {
+        LOG.error("Unable to process a batch of {} received alerts", batch.size(), exception);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Gets the definition of a received alert. Definitions are looked up by name
+   * only the first time; afterwards they are found by their ID. The ID is
+   * verified against the definition it returns, so a definition which was
+   * removed or recreated is looked up by name again.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param definitionName
+   *          the name of the definition.
+   * @return the definition, or {@code null} if it does not exist.
+   */
+  private AlertDefinitionEntity getDefinition(long clusterId, String definitionName) {
+    String key = clusterId + "/" + definitionName;
+
+    Long definitionId = m_definitionIds.get(key);
+    if (null != definitionId) {
+      AlertDefinitionEntity definition = m_definitionDao.findById(definitionId);
+      if (null != definition && Objects.equals(definition.getClusterId(), clusterId)
+          && definitionName.equals(definition.getDefinitionName())) {
+        return definition;
+      }
+
+      m_definitionIds.remove(key, definitionId);
+    }
+
+    AlertDefinitionEntity definition = m_definitionDao.findByName(clusterId, definitionName);
+    if (null != definition) {
+      m_definitionIds.put(key, definition.getDefinitionId());
+    }
+
+    return definition;
+  }
+
   /**
    * Gets the cluster ID given a name.
    *
@@ -649,4 +916,59 @@ public class AlertReceivedListener {
 
     return repeatTolerance;
   }
+
+  /**
+   * An {@link Alert} along with the cluster ID of the event it was received in.
+   */
+  static final class ReceivedAlert {
+
+    private final long m_eventClusterId;
+    private final Alert m_alert;
+
+    /**
+     * The number of reports of the alert this one stands for, including the
+     * reports which were coalesced into it.
+     */
+    private int m_reports = 1;
+
+    /**
+     * Constructor.
+     *
+     * @param eventClusterId
+     *          the cluster ID of the event, used if the alert does not name a
+     *          cluster.
+     * @param alert
+     *          the received alert (not {@code null}).
+     */
+    ReceivedAlert(long eventClusterId, Alert alert) {
+      m_eventClusterId = eventClusterId;
+      m_alert = alert;
+    }
+
+    long getEventClusterId() {
+      return m_eventClusterId;
+    }
+
+    Alert getAlert() {
+      return m_alert;
+    }
+
+    int getReports() {
+      return m_reports;
+    }
+
+    void addReports(int reports) {
+      m_reports += reports;
+    }
+
+    /**
+     * Gets a key which is the same for all reports of the same alert.
+     *
+     * @return the key made of the cluster, definition name and host.
+     */
+    String getKey() {
+      return m_alert.getCluster() + "/" + m_eventClusterId + "/" + m_alert.getName() + "/"
+          + m_alert.getHostName();
+    }
+  }
 }
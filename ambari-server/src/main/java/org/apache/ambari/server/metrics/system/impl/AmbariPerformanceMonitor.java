@@ -42,6 +42,9 @@ public class AmbariPerformanceMonitor extends PerformanceMonitor {
   private boolean isInitialized = false;
   private DatabaseMetricsSource metricsSource;
   private static String entityPackagePrefix = "org.apache"; //Can be made into a set later if needed.
+  private static final String COUNTER_PREFIX = "Counter";
+  private static final String CACHE_HITS = "CacheHits";
+  private static final String CACHE_MISSES = "CacheMisses";
 
   public AmbariPerformanceMonitor() {
     super();
@@ -104,6 +107,7 @@ public class AmbariPerformanceMonitor extends PerformanceMonitor {
         }
         //Joining metric name portions by "." delimiter.
         metrics.put(StringUtils.join(list, "."), (Long)value);
+        addEntityCacheMetric(metrics, splits, (Long) value);
       }
     }
     if (!metrics.isEmpty()) {
@@ -117,6 +121,34 @@ public class AmbariPerformanceMonitor extends PerformanceMonitor {
     }
   }
 
+  /**
+   * Rolls the shared cache and query results cache hits and misses of the
+   * individual queries of an entity up into one counter per entity, from which
+   * the cache hit ratio of the DAO of the entity can be derived.
+   * Example
+   * Counter:ReadObjectQuery:org.apache.ambari.server.orm.entities.HostEntity:HostEntity.findByHostName:CacheHits
+   * is added to Counter.HostEntity.CacheHits
+   *
+   * @param metrics the metrics to publish
+   * @param splits  the parts of the operation name
+   * @param value   the counter value
+   */
+  static void addEntityCacheMetric(Map<String, Long> metrics, String[] splits, Long value) {
+    if (splits.length < 4 || !COUNTER_PREFIX.equals(splits[0]) || !splits[2].startsWith(entityPackagePrefix)) {
+      return;
+    }
+
+    String keyword = splits[splits.length - 1];
+    if (!CACHE_HITS.equals(keyword) && !CACHE_MISSES.equals(keyword)) {
+      return;
+    }
+
+    String entityName = splits[2].substring(splits[2].lastIndexOf('.') + 1);
+    String metricName = COUNTER_PREFIX + "." + entityName + "." + keyword;
+    Long total = metrics.get(metricName);
+    metrics.put(metricName, total == null ? value : total + value);
+  }
+
   /**
    * Utlity method to get Profiling weight in Integer from String.
    * @param value NONE/HEAVY/ALL/NORMAL
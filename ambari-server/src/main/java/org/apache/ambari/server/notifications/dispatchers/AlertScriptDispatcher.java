@@ -102,11 +102,12 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
   protected Configuration m_configuration;
 
   /**
-   * The executor responsible for dispatching.
+   * The executor responsible for dispatching; scripts run concurrently on up
+   * to {@link Configuration#ALERTS_NOTIFICATION_SCRIPT_THREADS} threads. The
+   * executor is created on the first dispatch since the configuration is not
+   * yet injected when this dispatcher is constructed.
    */
-  private final Executor m_executor = new ThreadPoolExecutor(0, 1, 5L, TimeUnit.MINUTES,
-      new LinkedBlockingQueue<Runnable>(), new ScriptDispatchThreadFactory(),
-      new ThreadPoolExecutor.CallerRunsPolicy());
+  private volatile Executor m_executor;
 
   /**
    * Gets the key that will be used to lookup the script to execute from
@@ -204,7 +205,30 @@ public class AlertScriptDispatcher implements NotificationDispatcher {
         processBuilder,
         timeout, timeUnit);
 
-    m_executor.execute(runnable);
+    getExecutor().execute(runnable);
+  }
+
+  /**
+   * Gets the executor which runs the scripts, creating it if needed.
+   *
+   * @return the executor (never {@code null}).
+   */
+  private Executor getExecutor() {
+    if (null == m_executor) {
+      synchronized (this) {
+        if (null == m_executor) {
+          int threads = Math.max(1, m_configuration.getAlertNotificationScriptThreads());
+          ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 5L,
+              TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+              new ScriptDispatchThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+
+          executor.allowCoreThreadTimeOut(true);
+          m_executor = executor;
+        }
+      }
+    }
+
+    return m_executor;
   }
 
   /**
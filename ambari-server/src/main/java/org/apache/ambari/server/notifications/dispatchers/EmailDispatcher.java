@@ -21,7 +21,10 @@ import java.util.Date;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
-import java.util.Timer;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.mail.AuthenticationFailedException;
 import javax.mail.Authenticator;
@@ -44,18 +47,19 @@ import org.apache.ambari.server.state.services.AlertNoticeDispatchService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.inject.Singleton;
 
 /**
  * The {@link EmailDispatcher} class is used to dispatch {@link Notification}
- * via JavaMail. This class currently does not attempt to reuse an existing
- * {@link Session} or {@link Transport} since each {@link Notification} could
- * have a different target server with different properties.
- * <p/>
- * In the future, this class could keep various {@link Transport} instances open
- * on a {@link Timer}, but those instances would need to be hashed so that the
- * proper instance is retrieved from the properties of the incoming
- * {@link Notification}.
+ * via JavaMail. Since each {@link Notification} could have a different target
+ * server with different properties, connected {@link Transport} instances are
+ * kept by the SMTP properties and credentials of the notification and reused
+ * by later notifications to the same server. Transports which have not been
+ * used for {@link #TRANSPORT_IDLE_MINUTES} are closed.
  */
 @Singleton
 public class EmailDispatcher implements NotificationDispatcher {
@@ -70,6 +74,25 @@ public class EmailDispatcher implements NotificationDispatcher {
    */
   public static final String JAVAMAIL_FROM_PROPERTY = "mail.smtp.from";
 
+  /**
+   * The number of minutes after which an unused SMTP connection is closed.
+   */
+  static final int TRANSPORT_IDLE_MINUTES = 5;
+
+  /**
+   * Connected transports by the SMTP properties and credentials they were
+   * created with.
+   */
+  private final Cache<String, Transport> m_transports = CacheBuilder.newBuilder()
+      .expireAfterAccess(TRANSPORT_IDLE_MINUTES, TimeUnit.MINUTES)
+      .removalListener(new RemovalListener<String, Transport>() {
+        @Override
+        public void onRemoval(RemovalNotification<String, Transport> notification) {
+          closeTransport(notification.getValue());
+        }
+      })
+      .build();
+
   /**
    * {@inheritDoc}
    */
@@ -157,7 +180,8 @@ public class EmailDispatcher implements NotificationDispatcher {
         message.setFrom(fromAddress);
       }
 
-      Transport.send(message);
+      message.saveChanges();
+      send(getTransportKey(properties, notification.Credentials), session, message);
 
       if (LOG.isDebugEnabled()) {
         LOG.debug("Successfully dispatched email to {}",
@@ -175,12 +199,82 @@ public class EmailDispatcher implements NotificationDispatcher {
       if (null != notification.Callback) {
         notification.Callback.onFailure(notification.CallbackIds);
       }
-    } finally {
-      try {
-        session.getTransport().close();
-      } catch (MessagingException me) {
-        LOG.warn("Dispatcher unable to close SMTP transport", me);
+    }
+  }
+
+  /**
+   * Sends the message over a pooled transport. A pooled connection which the
+   * server has closed in the meantime is replaced by a new one before sending,
+   * see {@link #getTransport(String, Session)}. The message is not sent again
+   * if sending fails, since the server may already have accepted it before the
+   * connection was lost.
+   *
+   * @param key
+   *          the key of the transport, see
+   *          {@link #getTransportKey(Properties, DispatchCredentials)}
+   * @param session
+   *          the session to create a new transport from
+   * @param message
+   *          the message to send
+   * @throws Exception
+   *           if the message could not be sent
+   */
+  private void send(String key, Session session, MimeMessage message) throws Exception {
+    Transport transport = getTransport(key, session);
+    try {
+      transport.sendMessage(message, message.getAllRecipients());
+    } catch (MessagingException exception) {
+      if (!transport.isConnected()) {
+        // the next notification connects again
+        m_transports.invalidate(key);
       }
+      throw exception;
+    }
+  }
+
+  /**
+   * Gets the connected transport for the given key, connecting a new transport
+   * if there is none or if the pooled one is no longer connected. For SMTP,
+   * {@link Transport#isConnected()} checks the connection with the server.
+   */
+  private Transport getTransport(String key, final Session session) throws Exception {
+    Transport transport = m_transports.getIfPresent(key);
+    if (null != transport && !transport.isConnected()) {
+      m_transports.invalidate(key);
+    }
+
+    try {
+      return m_transports.get(key, new Callable<Transport>() {
+        @Override
+        public Transport call() throws Exception {
+          Transport connected = session.getTransport();
+          connected.connect();
+          return connected;
+        }
+      });
+    } catch (ExecutionException exception) {
+      Throwable cause = exception.getCause();
+      throw cause instanceof Exception ? (Exception) cause : exception;
+    }
+  }
+
+  /**
+   * Notifications with the same SMTP properties and credentials share a
+   * transport.
+   */
+  private String getTransportKey(Properties properties, DispatchCredentials credentials) {
+    StringBuilder key = new StringBuilder(new TreeMap<>(properties).toString());
+    if (null != credentials) {
+      key.append('\n').append(credentials.UserName).append('\n').append(credentials.Password);
+    }
+    return key.toString();
+  }
+
+  private void closeTransport(Transport transport) {
+    try {
+      transport.close();
+    } catch (MessagingException me) {
+      LOG.warn("Dispatcher unable to close SMTP transport", me);
     }
   }
 
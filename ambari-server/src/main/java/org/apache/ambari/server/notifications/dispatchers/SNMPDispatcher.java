@@ -85,7 +85,11 @@ public class SNMPDispatcher implements NotificationDispatcher {
   public static final String SECURITY_PRIV_PASSPHRASE_PROPERTY = "ambari.dispatch.snmp.security.priv.passphrase";
   public static final String SECURITY_LEVEL_PROPERTY = "ambari.dispatch.snmp.security.level";
 
-  private Snmp snmp;
+  /**
+   * The SNMP session, created together with its transport mapping on the
+   * first dispatch and reused by all following dispatches.
+   */
+  private volatile Snmp snmp;
 
   private final Integer port;
   private volatile UdpTransportMapping transportMapping;
@@ -113,19 +117,42 @@ public class SNMPDispatcher implements NotificationDispatcher {
     }
   }
 
-  private void createTransportMapping() throws IOException {
-    if (transportMapping == null) {
+  private Snmp getSnmp() throws IOException {
+    if (snmp == null) {
       synchronized (this) {
-        if (transportMapping == null) {
+        if (snmp == null) {
           if (port != null) {
             LOG.info("Setting SNMP dispatch port: " + port);
             transportMapping = new DefaultUdpTransportMapping(new UdpAddress(port), true);
           } else {
             transportMapping = new DefaultUdpTransportMapping();
           }
+          snmp = new Snmp(transportMapping);
         }
       }
     }
+    return snmp;
+  }
+
+  /**
+   * Closes the SNMP session after a failed dispatch so that the next dispatch
+   * starts with a new session. Nothing is done if another dispatch already
+   * replaced the failed session, which may still be in use.
+   *
+   * @param failedSnmp the session the dispatch failed with, or {@code null}
+   */
+  private synchronized void resetSnmp(Snmp failedSnmp) {
+    if (failedSnmp == null || failedSnmp != snmp || transportMapping == null) {
+      // the session was already reset or not created by this dispatcher
+      return;
+    }
+    try {
+      snmp.close();
+    } catch (IOException e) {
+      LOG.debug("Unable to close the SNMP session", e);
+    }
+    snmp = null;
+    transportMapping = null;
   }
 
   /**
@@ -150,11 +177,11 @@ public class SNMPDispatcher implements NotificationDispatcher {
   @Override
   public void dispatch(Notification notification) {
     LOG.info("Sending SNMP trap: {}", notification.Subject);
+    Snmp snmp = null;
     try {
-      createTransportMapping();
-      snmp = new Snmp(transportMapping);
+      snmp = getSnmp();
       SnmpVersion snmpVersion = getSnmpVersion(notification.DispatchProperties);
-      sendTraps(notification, snmpVersion);
+      sendTraps(snmp, notification, snmpVersion);
       successCallback(notification);
     } catch (InvalidSnmpConfigurationException ex) {
       LOG.error("Unable to dispatch SNMP trap with invalid configuration. " + ex.getMessage());
@@ -162,7 +189,7 @@ public class SNMPDispatcher implements NotificationDispatcher {
     } catch (Exception ex) {
       LOG.error("Error occurred during SNMP trap dispatching.", ex);
       failureCallback(notification);
-      transportMapping = null;
+      resetSnmp(snmp);
     }
   }
 
@@ -235,17 +262,19 @@ public class SNMPDispatcher implements NotificationDispatcher {
 
   /**
    * Creates trap based on alerts notification and sends it to hosts specified in recipients list.
+   * @param snmp SNMP session to send the trap with
    * @param notification alert notification to dispatch
    * @param snmpVersion SNMP version
    * @throws InvalidSnmpConfigurationException if notification's dispatch properties don't contain any of required properties or recipient list is empty.
    * @throws IOException if the SNMP trap could not be sent
    */
-  protected void sendTraps(Notification notification, SnmpVersion snmpVersion) throws InvalidSnmpConfigurationException, IOException {
+  protected void sendTraps(Snmp snmp, Notification notification, SnmpVersion snmpVersion)
+      throws InvalidSnmpConfigurationException, IOException {
     PDU trap = prepareTrap(notification, snmpVersion);
     String udpPort = getDispatchProperty(notification.DispatchProperties, PORT_PROPERTY);
     for (Recipient recipient : getNotificationRecipients(notification)) {
       String address = recipient.Identifier;
-      Target target = createTrapTarget(notification, snmpVersion);
+      Target target = createTrapTarget(snmp, notification, snmpVersion);
       target.setAddress(new UdpAddress(address + "/" + udpPort));
       snmp.send(trap, target);
     }
@@ -253,12 +282,14 @@ public class SNMPDispatcher implements NotificationDispatcher {
 
   /**
    * Creates snmp target with security model corresponding to snmp version.
+   * @param snmp SNMP session the target is used with
    * @param notification alerts notification
    * @param snmpVersion SNMP version
    * @return target with corresponding security model
    * @throws InvalidSnmpConfigurationException if notification's dispatch properties don't contain any of required properties
    */
-  protected Target createTrapTarget(Notification notification, SnmpVersion snmpVersion) throws InvalidSnmpConfigurationException {
+  protected Target createTrapTarget(Snmp snmp, Notification notification, SnmpVersion snmpVersion)
+      throws InvalidSnmpConfigurationException {
     if (snmpVersion.isCommunityTargetRequired()) {
       OctetString community = new OctetString(getDispatchProperty(notification.DispatchProperties, COMMUNITY_PROPERTY));
       CommunityTarget communityTarget = new CommunityTarget();
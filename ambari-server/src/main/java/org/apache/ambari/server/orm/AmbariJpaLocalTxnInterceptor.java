@@ -56,6 +56,12 @@ import com.google.inject.persist.jpa.AmbariJpaPersistService;
  * back. This ensures that transactional methods invoke from an already running
  * transaction can have their lock invoked for the lifespan of the outer
  * "parent" transaction.
+ * <p/>
+ * Work which must only be done once the changes of a transaction are visible
+ * to other threads, such as updating in-memory state which mirrors the
+ * database, can be deferred with {@link #runAfterCommit(Runnable)}. It is run
+ * by the outer-most interceptor after the transaction was committed and is
+ * dropped if the transaction is rolled back.
  */
 public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
 
@@ -77,6 +83,13 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
     }
   };
 
+  /**
+   * The work to run once the transaction of the current thread has been
+   * committed, or {@code null} if no transaction was started by this
+   * interceptor.
+   */
+  private static final ThreadLocal<LinkedList<Runnable>> s_afterCommit = new ThreadLocal<>();
+
   /**
    * Used to ensure that methods which rely on the completion of
    * {@link Transactional} can detect when they are able to run.
@@ -118,10 +131,12 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       return methodInvocation.proceed();
     }
 
+    boolean committed = false;
     try {
       // this is the outer-most transactional, begin a transaction
       final EntityTransaction txn = em.getTransaction();
       txn.begin();
+      s_afterCommit.set(new LinkedList<Runnable>());
 
       Object result;
       try {
@@ -131,6 +146,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
         // commit transaction only if rollback didn't occur
         if (rollbackIfNecessary(transactional, e, txn)) {
           txn.commit();
+          committed = true;
         }
 
         detailedLogForPersistenceError(e);
@@ -151,6 +167,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       // interferes with the advised method's throwing semantics)
       try {
         txn.commit();
+        committed = true;
       } catch (Exception e) {
         detailedLogForPersistenceError(e);
         throw e;
@@ -165,8 +182,56 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       // or return result
       return result;
     } finally {
-      // unlock all lock areas for this transaction
-      unlockTransaction();
+      try {
+        // run the deferred work while the lock areas are still held
+        completeTransaction(committed);
+      } finally {
+        // unlock all lock areas for this transaction
+        unlockTransaction();
+      }
+    }
+  }
+
+  /**
+   * Defers the specified work until the transaction of the current thread has
+   * been committed. If the transaction is rolled back, the work is dropped. If
+   * there is no transaction which was started by this interceptor, the work is
+   * run right away.
+   *
+   * @param runnable
+   *          the work to run after the commit (not {@code null}).
+   */
+  public static void runAfterCommit(Runnable runnable) {
+    LinkedList<Runnable> afterCommit = s_afterCommit.get();
+    if (null == afterCommit) {
+      runnable.run();
+      return;
+    }
+
+    afterCommit.add(runnable);
+  }
+
+  /**
+   * Runs the work deferred by {@link #runAfterCommit(Runnable)} if the
+   * transaction was committed and discards it otherwise.
+   *
+   * @param committed
+   *          whether the transaction was committed.
+   */
+  private void completeTransaction(boolean committed) {
+    LinkedList<Runnable> afterCommit = s_afterCommit.get();
+    s_afterCommit.remove();
+
+    if (null == afterCommit || !committed) {
+      return;
+    }
+
+    for (Runnable runnable : afterCommit) {
+      try {
+        runnable.run();
+      } catch (RuntimeException exception) {
+        LOG.error("Unable to complete work after the transaction was committed", exception);
+      }
     }
   }
 
@@ -17,9 +17,16 @@
  */
 package org.apache.ambari.server.orm;
 
+import java.util.Arrays;
+import java.util.List;
+
 import javax.activation.DataSource;
 
+import org.apache.ambari.server.orm.entities.AlertDefinitionEntity;
+import org.apache.ambari.server.orm.entities.RepositoryVersionEntity;
+import org.apache.ambari.server.orm.entities.StackEntity;
 import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
 import org.eclipse.persistence.sessions.DatabaseLogin;
 import org.eclipse.persistence.sessions.JNDIConnector;
 import org.eclipse.persistence.sessions.Session;
@@ -47,6 +54,13 @@ import org.eclipse.persistence.sessions.Session;
  */
 public class EclipseLinkSessionCustomizer implements SessionCustomizer {
 
+  /**
+   * Entities of which there are only a few instances which are read all the
+   * time but rarely change. They are never evicted from the shared cache.
+   */
+  private static final List<Class<?>> READ_MOSTLY_ENTITIES = Arrays.<Class<?>>asList(
+      StackEntity.class, RepositoryVersionEntity.class, AlertDefinitionEntity.class);
+
   /**
    * {@inheritDoc}
    * <p/>
@@ -57,5 +71,13 @@ public class EclipseLinkSessionCustomizer implements SessionCustomizer {
     // ensure db behavior is same as shared cache
     DatabaseLogin databaseLogin = (DatabaseLogin) session.getDatasourceLogin();
     databaseLogin.setTransactionIsolation(DatabaseLogin.TRANSACTION_READ_COMMITTED);
+
+    // read-mostly entities are never evicted from the shared cache
+    for (Class<?> entityClass : READ_MOSTLY_ENTITIES) {
+      ClassDescriptor descriptor = session.getDescriptor(entityClass);
+      if (null != descriptor) {
+        descriptor.useFullIdentityMap();
+      }
+    }
   }
 }
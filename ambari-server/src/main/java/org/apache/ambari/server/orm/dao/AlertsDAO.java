@@ -18,6 +18,7 @@
 package org.apache.ambari.server.orm.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
@@ -48,6 +49,7 @@ import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.utilities.PredicateHelper;
 import org.apache.ambari.server.events.AggregateAlertRecalculateEvent;
 import org.apache.ambari.server.events.publishers.AlertEventPublisher;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
 import org.apache.ambari.server.orm.RequiresSession;
 import org.apache.ambari.server.orm.entities.AlertCurrentEntity;
 import org.apache.ambari.server.orm.entities.AlertCurrentEntity_;
@@ -81,6 +83,10 @@ import com.google.inject.persist.Transactional;
  * periodically flushed. This means that many queries will need to swap in the
  * cached {@link AlertCurrentEntity} with that returned from the EclipseLink JPA
  * entity manager.
+ * <p/>
+ * If the current alert index is enabled, then the alert summary counts are
+ * kept in memory and maintained as current alerts are created, merged and
+ * removed through this DAO.
  */
 @Singleton
 @Experimental(feature = ExperimentalFeature.ALERT_CACHING)
@@ -150,6 +156,20 @@ public class AlertsDAO implements Cleanable {
    */
   private LoadingCache<AlertCacheKey, AlertCurrentEntity> m_currentAlertCache = null;
 
+  /**
+   * An in-memory index of the state of the current alerts which maintains the
+   * summary counts. It is only used if
+   * {@link Configuration#isAlertCurrentIndexEnabled()} is {@code true}. Changes
+   * are applied to it once the transaction making them has been committed.
+   */
+  private final CurrentAlertIndex m_currentAlertIndex = new CurrentAlertIndex();
+
+  /**
+   * Ensures that the {@link #m_currentAlertIndex} is loaded by a single thread
+   * at a time.
+   */
+  private final Object m_currentAlertIndexLoadLock = new Object();
+
   /**
    * Batch size to query the DB and use the results in an IN clause.
    */
@@ -530,6 +550,14 @@ public class AlertsDAO implements Cleanable {
    */
   @RequiresSession
   public AlertSummaryDTO findCurrentCounts(long clusterId, String serviceName, String hostName) {
+    // the index can answer everything but the combination of service and host
+    if (null == serviceName || null == hostName) {
+      CurrentAlertIndex index = getCurrentAlertIndex();
+      if (null != index) {
+        return index.getCounts(clusterId, serviceName, hostName);
+      }
+    }
+
     String sql = String.format(ALERT_COUNT_SQL_TEMPLATE,
       AlertSummaryDTO.class.getName());
 
@@ -574,6 +602,11 @@ public class AlertsDAO implements Cleanable {
    */
   @RequiresSession
   public Map<String, AlertSummaryDTO> findCurrentPerHostCounts(long clusterId) {
+    CurrentAlertIndex index = getCurrentAlertIndex();
+    if (null != index) {
+      return new HashMap<String, AlertSummaryDTO>(index.getPerHostCounts(clusterId));
+    }
+
     String sql = String.format(ALERT_COUNT_PER_HOST_SQL_TEMPLATE, HostAlertSummaryDTO.class.getName());
 
     StringBuilder sb = new StringBuilder(sql);
@@ -607,25 +640,33 @@ public class AlertsDAO implements Cleanable {
    */
   @RequiresSession
   public AlertHostSummaryDTO findCurrentHostCounts(long clusterId) {
-    String sql = String.format(ALERT_COUNT_PER_HOST_SQL_TEMPLATE, HostAlertSummaryDTO.class.getName());
+    Collection<HostAlertSummaryDTO> resultList;
 
-    StringBuilder sb = new StringBuilder(sql);
+    CurrentAlertIndex index = getCurrentAlertIndex();
+    if (null != index) {
+      resultList = index.getPerHostCounts(clusterId).values();
+    } else {
+      String sql = String.format(ALERT_COUNT_PER_HOST_SQL_TEMPLATE, HostAlertSummaryDTO.class.getName());
 
-    TypedQuery<HostAlertSummaryDTO> query = m_entityManagerProvider.get().createQuery(sb.toString(), HostAlertSummaryDTO.class);
+      StringBuilder sb = new StringBuilder(sql);
 
-    query.setParameter("clusterId", Long.valueOf(clusterId));
-    query.setParameter("okState", AlertState.OK);
-    query.setParameter("criticalState", AlertState.CRITICAL);
-    query.setParameter("warningState", AlertState.WARNING);
-    query.setParameter("unknownState", AlertState.UNKNOWN);
-    query.setParameter("maintenanceStateOff", MaintenanceState.OFF);
+      TypedQuery<HostAlertSummaryDTO> query = m_entityManagerProvider.get().createQuery(sb.toString(), HostAlertSummaryDTO.class);
+
+      query.setParameter("clusterId", Long.valueOf(clusterId));
+      query.setParameter("okState", AlertState.OK);
+      query.setParameter("criticalState", AlertState.CRITICAL);
+      query.setParameter("warningState", AlertState.WARNING);
+      query.setParameter("unknownState", AlertState.UNKNOWN);
+      query.setParameter("maintenanceStateOff", MaintenanceState.OFF);
+
+      resultList = m_daoUtils.selectList(query);
+    }
 
     int okCount = 0;
     int warningCount = 0;
     int criticalCount = 0;
     int unknownCount = 0;
 
-    List<HostAlertSummaryDTO> resultList = m_daoUtils.selectList(query);
     for (HostAlertSummaryDTO result : resultList) {
       if (result.getHostName() == null) {
         continue;
@@ -762,6 +803,9 @@ public class AlertsDAO implements Cleanable {
     if (m_configuration.isAlertCacheEnabled()) {
       m_currentAlertCache.invalidateAll();
     }
+
+    // the removed alerts are not known, so the index must be loaded again
+    invalidateIndexAfterCommit();
   }
 
   /**
@@ -784,6 +828,11 @@ public class AlertsDAO implements Cleanable {
       m_currentAlertCache.invalidateAll();
     }
 
+    // the removed alert is not known, so the index must be loaded again
+    if (rowsRemoved > 0) {
+      invalidateIndexAfterCommit();
+    }
+
     return rowsRemoved;
   }
 
@@ -806,12 +855,6 @@ public class AlertsDAO implements Cleanable {
       }
     }
 
-    // if caching is enabled, invalidate the cache to force the latest values
-    // back from the DB
-    if (m_configuration.isAlertCacheEnabled()) {
-      m_currentAlertCache.invalidateAll();
-    }
-
     return rowsRemoved;
   }
 
@@ -845,12 +888,6 @@ public class AlertsDAO implements Cleanable {
       }
     }
 
-    // if caching is enabled, invalidate the cache to force the latest values
-    // back from the DB
-    if (m_configuration.isAlertCacheEnabled()) {
-      m_currentAlertCache.invalidateAll();
-    }
-
     // publish the event to recalculate aggregates
     m_alertEventPublisher.publish(new AggregateAlertRecalculateEvent(clusterId));
     return removedItems;
@@ -883,12 +920,6 @@ public class AlertsDAO implements Cleanable {
       }
     }
 
-    // if caching is enabled, invalidate the cache to force the latest values
-    // back from the DB
-    if (m_configuration.isAlertCacheEnabled()) {
-      m_currentAlertCache.invalidateAll();
-    }
-
     // publish the event to recalculate aggregates for every cluster since a host could potentially have several clusters
     try {
       Map<String, Cluster> clusters = m_clusters.get().getClusters();
@@ -944,12 +975,6 @@ public class AlertsDAO implements Cleanable {
       }
     }
 
-    // if caching is enabled, invalidate the cache to force the latest values
-    // back from the DB
-    if (m_configuration.isAlertCacheEnabled()) {
-      m_currentAlertCache.invalidateAll();
-    }
-
     // publish the event to recalculate aggregates
     m_alertEventPublisher.publish(new AggregateAlertRecalculateEvent(clusterId));
 
@@ -987,7 +1012,11 @@ public class AlertsDAO implements Cleanable {
    */
   @Transactional
   public AlertHistoryEntity merge(AlertHistoryEntity alert) {
-    return m_entityManagerProvider.get().merge(alert);
+    alert = m_entityManagerProvider.get().merge(alert);
+
+    // the state of a current alert is that of its history entry
+    indexAfterCommit(alert);
+    return alert;
   }
 
   /**
@@ -1013,6 +1042,7 @@ public class AlertsDAO implements Cleanable {
   @Transactional
   public void create(AlertCurrentEntity alert) {
     m_entityManagerProvider.get().persist(alert);
+    indexAfterCommit(alert);
   }
 
   /**
@@ -1044,6 +1074,7 @@ public class AlertsDAO implements Cleanable {
       m_currentAlertCache.put(key, alert);
     }
 
+    indexAfterCommit(alert);
     return alert;
   }
 
@@ -1074,6 +1105,7 @@ public class AlertsDAO implements Cleanable {
       } else {
         // update cache and return alert; no database work
         m_currentAlertCache.put(key, alert);
+        indexAfterCommit(alert);
         return alert;
       }
     }
@@ -1082,14 +1114,22 @@ public class AlertsDAO implements Cleanable {
   }
 
   /**
-   * Removes the specified current alert from the database.
+   * Removes the specified current alert from the database. If caching is
+   * enabled, the alert is also removed from the cache.
    *
    * @param alert
    *          the current alert to remove.
    */
   @Transactional
   public void remove(AlertCurrentEntity alert) {
-    m_entityManagerProvider.get().remove(merge(alert));
+    alert = merge(alert);
+    m_entityManagerProvider.get().remove(alert);
+
+    if (m_configuration.isAlertCacheEnabled()) {
+      m_currentAlertCache.invalidate(AlertCacheKey.build(alert));
+    }
+
+    unindexAfterCommit(alert);
   }
 
   /**
@@ -1100,6 +1140,11 @@ public class AlertsDAO implements Cleanable {
    */
   @RequiresSession
   public AlertSummaryDTO findAggregateCounts(long clusterId, String alertName) {
+    CurrentAlertIndex index = getCurrentAlertIndex();
+    if (null != index) {
+      return index.getDefinitionCounts(clusterId, alertName);
+    }
+
     String sql = String.format(ALERT_COUNT_SQL_TEMPLATE,
         AlertSummaryDTO.class.getName());
 
@@ -1195,6 +1240,111 @@ public class AlertsDAO implements Cleanable {
     LOG.info("Flushed {} cached alerts to the database", cachedEntityCount);
   }
 
+  /**
+   * Loads the in-memory index of current alerts from the database, replacing
+   * anything which it contains. This is done when Ambari Server starts and
+   * whenever the index was invalidated by a bulk removal.
+   */
+  @RequiresSession
+  public void rebuildCurrentAlertIndex() {
+    synchronized (m_currentAlertIndexLoadLock) {
+      m_currentAlertIndex.beginLoad();
+
+      List<AlertCurrentEntity> alerts = findCurrent();
+      if (m_currentAlertIndex.load(alerts)) {
+        LOG.info("Loaded {} current alerts into the alert index", alerts.size());
+      } else {
+        LOG.info("The alert index was invalidated while it was being loaded");
+      }
+    }
+  }
+
+  /**
+   * Gets the in-memory index of current alerts, loading it first if
+   * necessary.
+   *
+   * @return the index, or {@code null} if it is not enabled or could not be
+   *         loaded, in which case the database must be queried instead.
+   */
+  private CurrentAlertIndex getCurrentAlertIndex() {
+    if (!m_configuration.isAlertCurrentIndexEnabled()) {
+      return null;
+    }
+
+    if (!m_currentAlertIndex.isLoaded()) {
+      synchronized (m_currentAlertIndexLoadLock) {
+        if (!m_currentAlertIndex.isLoaded()) {
+          rebuildCurrentAlertIndex();
+        }
+      }
+    }
+
+    return m_currentAlertIndex.isLoaded() ? m_currentAlertIndex : null;
+  }
+
+  /**
+   * Adds or updates the specified current alert in the index once the
+   * transaction has been committed, so that the index never contains changes
+   * which are rolled back.
+   *
+   * @param alert
+   *          the current alert (not {@code null}).
+   */
+  private void indexAfterCommit(final AlertCurrentEntity alert) {
+    AmbariJpaLocalTxnInterceptor.runAfterCommit(new Runnable() {
+      @Override
+      public void run() {
+        m_currentAlertIndex.put(alert);
+      }
+    });
+  }
+
+  /**
+   * Updates the state of the current alert which references the specified
+   * history entry in the index once the transaction has been committed.
+   *
+   * @param history
+   *          the history entry (not {@code null}).
+   */
+  private void indexAfterCommit(final AlertHistoryEntity history) {
+    AmbariJpaLocalTxnInterceptor.runAfterCommit(new Runnable() {
+      @Override
+      public void run() {
+        m_currentAlertIndex.put(history);
+      }
+    });
+  }
+
+  /**
+   * Removes the specified current alert from the index once the transaction
+   * has been committed.
+   *
+   * @param alert
+   *          the current alert (not {@code null}).
+   */
+  private void unindexAfterCommit(final AlertCurrentEntity alert) {
+    AmbariJpaLocalTxnInterceptor.runAfterCommit(new Runnable() {
+      @Override
+      public void run() {
+        m_currentAlertIndex.remove(alert);
+      }
+    });
+  }
+
+  /**
+   * Invalidates the index once the transaction has been committed. Doing it
+   * any earlier would allow the index to be loaded again from the alerts as
+   * they were before the transaction.
+   */
+  private void invalidateIndexAfterCommit() {
+    AmbariJpaLocalTxnInterceptor.runAfterCommit(new Runnable() {
+      @Override
+      public void run() {
+        m_currentAlertIndex.invalidate();
+      }
+    });
+  }
+
   /**
    * Gets a list that is comprised of the original values replaced by any cached
    * values from {@link #m_currentAlertCache}. This method should only be
@@ -1231,6 +1381,9 @@ public class AlertsDAO implements Cleanable {
       affectedRows += cleanAlertNoticesForClusterBeforeDate(clusterId, policy.getToDateInMillis());
       affectedRows += cleanAlertCurrentsForClusterBeforeDate(clusterId, policy.getToDateInMillis());
       affectedRows += cleanAlertHistoriesForClusterBeforeDate(clusterId, policy.getToDateInMillis());
+
+      // the removed alerts are not known, so the index must be loaded again
+      invalidateIndexAfterCommit();
     } catch (AmbariException e) {
       LOG.error("Error while looking up cluster with name: {}", policy.getClusterName(), e);
       throw new IllegalStateException(e);
@@ -0,0 +1,483 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.orm.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.ambari.server.orm.entities.AlertCurrentEntity;
+import org.apache.ambari.server.orm.entities.AlertHistoryEntity;
+import org.apache.ambari.server.state.AlertState;
+import org.apache.ambari.server.state.MaintenanceState;
+
+/**
+ * The {@link CurrentAlertIndex} is an in-memory index of the state of every
+ * {@link AlertCurrentEntity}. It keeps the alert summary counts per cluster,
+ * service, host and definition and updates them incrementally whenever a
+ * current alert is created, changes state or is removed. This allows the
+ * {@link AlertsDAO} to answer summary queries without aggregating the
+ * {@code alert_current} and {@code alert_history} tables.
+ * <p/>
+ * The index is empty until it is loaded from the database. Changes made while
+ * the current alerts are being queried for a load are recorded and applied on
+ * top of the loaded alerts; other changes made before the index is loaded are
+ * ignored. Removals which bypass the entity manager, such as bulk JPQL
+ * deletes, must {@link #invalidate()} the index so that it is loaded again on
+ * its next use.
+ */
+final class CurrentAlertIndex {
+
+  /**
+   * The indexed state of each current alert by cluster, definition and host.
+   */
+  private final Map<IndexKey, IndexEntry> m_entries = new HashMap<>();
+
+  /**
+   * Counts by cluster ID.
+   */
+  private final Map<Long, Counts> m_clusterCounts = new HashMap<>();
+
+  /**
+   * Counts by cluster ID and service name.
+   */
+  private final Map<Long, Map<String, Counts>> m_serviceCounts = new HashMap<>();
+
+  /**
+   * Counts by cluster ID and host name; alerts without a host are counted
+   * under {@code null}.
+   */
+  private final Map<Long, Map<String, Counts>> m_hostCounts = new HashMap<>();
+
+  /**
+   * Counts by cluster ID and definition name.
+   */
+  private final Map<Long, Map<String, Counts>> m_definitionCounts = new HashMap<>();
+
+  /**
+   * Whether the index has been loaded and is being maintained.
+   */
+  private boolean m_loaded = false;
+
+  /**
+   * The changes made since {@link #beginLoad()}, or {@code null} if the index
+   * is not being loaded.
+   */
+  private List<PendingChange> m_pendingChanges = null;
+
+  /**
+   * Whether the index was invalidated since {@link #beginLoad()}.
+   */
+  private boolean m_invalidatedDuringLoad = false;
+
+  /**
+   * Gets whether the index has been loaded.
+   *
+   * @return {@code true} if the index is loaded and up to date.
+   */
+  synchronized boolean isLoaded() {
+    return m_loaded;
+  }
+
+  /**
+   * Starts recording changes. This must be invoked before the current alerts
+   * are queried for {@link #load(Collection)}.
+   */
+  synchronized void beginLoad() {
+    m_pendingChanges = new ArrayList<>();
+    m_invalidatedDuringLoad = false;
+  }
+
+  /**
+   * Replaces the contents of the index with the specified current alerts and
+   * then applies the changes recorded since {@link #beginLoad()}.
+   *
+   * @param alerts
+   *          all of the current alerts.
+   * @return {@code true} if the index was loaded, {@code false} if it was
+   *         invalidated while the alerts were queried and they may be stale.
+   */
+  synchronized boolean load(Collection<AlertCurrentEntity> alerts) {
+    List<PendingChange> pendingChanges = m_pendingChanges;
+    m_pendingChanges = null;
+
+    clear();
+    if (null == pendingChanges || m_invalidatedDuringLoad) {
+      return false;
+    }
+
+    for (AlertCurrentEntity alert : alerts) {
+      index(alert);
+    }
+
+    m_loaded = true;
+
+    for (PendingChange pendingChange : pendingChanges) {
+      if (null != pendingChange.m_history) {
+        put(pendingChange.m_history);
+      } else if (pendingChange.m_removal) {
+        remove(pendingChange.m_alert);
+      } else {
+        put(pendingChange.m_alert);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Clears the index so that it is loaded again on its next use.
+   */
+  synchronized void invalidate() {
+    m_loaded = false;
+    m_invalidatedDuringLoad = true;
+    clear();
+  }
+
+  /**
+   * Adds or updates the specified current alert.
+   *
+   * @param alert
+   *          the current alert (not {@code null}).
+   */
+  synchronized void put(AlertCurrentEntity alert) {
+    if (!m_loaded) {
+      record(new PendingChange(alert, null, false));
+      return;
+    }
+
+    index(alert);
+  }
+
+  /**
+   * Updates the state of the current alert which references the specified
+   * history entry, if any.
+   *
+   * @param history
+   *          the history entry (not {@code null}).
+   */
+  synchronized void put(AlertHistoryEntity history) {
+    if (!m_loaded) {
+      record(new PendingChange(null, history, false));
+      return;
+    }
+
+    IndexKey key = new IndexKey(history);
+    IndexEntry previous = m_entries.get(key);
+    if (null == previous || !Objects.equals(previous.m_historyId, history.getAlertId())) {
+      return;
+    }
+
+    IndexEntry entry = new IndexEntry(key, history, previous.m_maintenanceState);
+    m_entries.put(key, entry);
+    count(previous, -1);
+    count(entry, 1);
+  }
+
+  /**
+   * Removes the specified current alert.
+   *
+   * @param alert
+   *          the current alert (not {@code null}).
+   */
+  synchronized void remove(AlertCurrentEntity alert) {
+    if (!m_loaded) {
+      record(new PendingChange(alert, null, true));
+      return;
+    }
+
+    IndexEntry previous = m_entries.remove(new IndexKey(alert.getAlertHistory()));
+    if (null != previous) {
+      count(previous, -1);
+    }
+  }
+
+  /**
+   * Gets the summary counts of a cluster, optionally restricted to a service
+   * or a host.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param serviceName
+   *          the name of the service, or {@code null} for all.
+   * @param hostName
+   *          the name of the host, or {@code null} for all.
+   * @return the summary (never {@code null}).
+   * @throws IllegalArgumentException
+   *           if both a service and a host are specified.
+   */
+  synchronized AlertSummaryDTO getCounts(long clusterId, String serviceName, String hostName) {
+    if (null != serviceName && null != hostName) {
+      throw new IllegalArgumentException(
+          "Counts are not indexed by both service and host");
+    }
+
+    Counts counts;
+    if (null != serviceName) {
+      counts = get(m_serviceCounts, clusterId, serviceName);
+    } else if (null != hostName) {
+      counts = get(m_hostCounts, clusterId, hostName);
+    } else {
+      counts = m_clusterCounts.get(clusterId);
+    }
+
+    return toSummary(counts);
+  }
+
+  /**
+   * Gets the summary counts of a definition across all hosts.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @param definitionName
+   *          the name of the definition.
+   * @return the summary (never {@code null}).
+   */
+  synchronized AlertSummaryDTO getDefinitionCounts(long clusterId, String definitionName) {
+    return toSummary(get(m_definitionCounts, clusterId, definitionName));
+  }
+
+  /**
+   * Gets the summary counts of every host of a cluster which has current
+   * alerts. Alerts without a host are returned under the {@code null} key.
+   *
+   * @param clusterId
+   *          the ID of the cluster.
+   * @return the summaries by host name (never {@code null}).
+   */
+  synchronized Map<String, HostAlertSummaryDTO> getPerHostCounts(long clusterId) {
+    Map<String, HostAlertSummaryDTO> summaries = new HashMap<>();
+
+    Map<String, Counts> hostCounts = m_hostCounts.get(clusterId);
+    if (null != hostCounts) {
+      for (Map.Entry<String, Counts> entry : hostCounts.entrySet()) {
+        Counts counts = entry.getValue();
+        summaries.put(entry.getKey(), new HostAlertSummaryDTO(entry.getKey(), counts.m_ok,
+            counts.m_warning, counts.m_critical, counts.m_unknown, counts.m_maintenance));
+      }
+    }
+
+    return summaries;
+  }
+
+  private void index(AlertCurrentEntity alert) {
+    IndexEntry entry = new IndexEntry(alert);
+    IndexEntry previous = m_entries.put(entry.m_key, entry);
+    if (null != previous) {
+      count(previous, -1);
+    }
+
+    count(entry, 1);
+  }
+
+  private void record(PendingChange pendingChange) {
+    if (null != m_pendingChanges) {
+      m_pendingChanges.add(pendingChange);
+    }
+  }
+
+  private void clear() {
+    m_entries.clear();
+    m_clusterCounts.clear();
+    m_serviceCounts.clear();
+    m_hostCounts.clear();
+    m_definitionCounts.clear();
+  }
+
+  /**
+   * Adds the entry to, or subtracts it from, every count it is part of.
+   */
+  private void count(IndexEntry entry, int delta) {
+    IndexKey key = entry.m_key;
+
+    Counts clusterCounts = m_clusterCounts.get(key.m_clusterId);
+    if (null == clusterCounts) {
+      clusterCounts = new Counts();
+      m_clusterCounts.put(key.m_clusterId, clusterCounts);
+    }
+
+    if (clusterCounts.add(entry, delta)) {
+      m_clusterCounts.remove(key.m_clusterId);
+    }
+
+    count(m_serviceCounts, key.m_clusterId, entry.m_serviceName, entry, delta);
+    count(m_hostCounts, key.m_clusterId, key.m_hostName, entry, delta);
+    count(m_definitionCounts, key.m_clusterId, key.m_definitionName, entry, delta);
+  }
+
+  private void count(Map<Long, Map<String, Counts>> countsByCluster, long clusterId,
+      String name, IndexEntry entry, int delta) {
+    Map<String, Counts> countsByName = countsByCluster.get(clusterId);
+    if (null == countsByName) {
+      countsByName = new HashMap<>();
+      countsByCluster.put(clusterId, countsByName);
+    }
+
+    Counts counts = countsByName.get(name);
+    if (null == counts) {
+      counts = new Counts();
+      countsByName.put(name, counts);
+    }
+
+    if (counts.add(entry, delta)) {
+      countsByName.remove(name);
+      if (countsByName.isEmpty()) {
+        countsByCluster.remove(clusterId);
+      }
+    }
+  }
+
+  private static Counts get(Map<Long, Map<String, Counts>> countsByCluster, long clusterId,
+      String name) {
+    Map<String, Counts> countsByName = countsByCluster.get(clusterId);
+    return null == countsByName ? null : countsByName.get(name);
+  }
+
+  private static AlertSummaryDTO toSummary(Counts counts) {
+    if (null == counts) {
+      return new AlertSummaryDTO(0, 0, 0, 0, 0);
+    }
+
+    return new AlertSummaryDTO(counts.m_ok, counts.m_warning, counts.m_critical,
+        counts.m_unknown, counts.m_maintenance);
+  }
+
+  /**
+   * The summary counts of a group of current alerts. Alerts in maintenance
+   * mode are only counted as such, mirroring the summary queries of the
+   * {@link AlertsDAO}.
+   */
+  private static final class Counts {
+    private int m_ok;
+    private int m_warning;
+    private int m_critical;
+    private int m_unknown;
+    private int m_maintenance;
+    private int m_total;
+
+    /**
+     * @return {@code true} if no alerts are counted anymore.
+     */
+    private boolean add(IndexEntry entry, int delta) {
+      m_total += delta;
+
+      if (entry.m_maintenanceState != MaintenanceState.OFF) {
+        m_maintenance += delta;
+      } else if (null != entry.m_alertState) {
+        switch (entry.m_alertState) {
+          case OK:
+            m_ok += delta;
+            break;
+          case WARNING:
+            m_warning += delta;
+            break;
+          case CRITICAL:
+            m_critical += delta;
+            break;
+          case UNKNOWN:
+            m_unknown += delta;
+            break;
+          default:
+            break;
+        }
+      }
+
+      return m_total <= 0;
+    }
+  }
+
+  /**
+   * A change made while the index was being loaded.
+   */
+  private static final class PendingChange {
+    private final AlertCurrentEntity m_alert;
+    private final AlertHistoryEntity m_history;
+    private final boolean m_removal;
+
+    private PendingChange(AlertCurrentEntity alert, AlertHistoryEntity history,
+        boolean removal) {
+      m_alert = alert;
+      m_history = history;
+      m_removal = removal;
+    }
+  }
+
+  /**
+   * The indexed state of a single current alert.
+   */
+  private static final class IndexEntry {
+    private final IndexKey m_key;
+    private final String m_serviceName;
+    private final Long m_historyId;
+    private final AlertState m_alertState;
+    private final MaintenanceState m_maintenanceState;
+
+    private IndexEntry(AlertCurrentEntity alert) {
+      this(new IndexKey(alert.getAlertHistory()), alert.getAlertHistory(),
+          alert.getMaintenanceState());
+    }
+
+    private IndexEntry(IndexKey key, AlertHistoryEntity history,
+        MaintenanceState maintenanceState) {
+      m_key = key;
+      m_serviceName = history.getServiceName();
+      m_historyId = history.getAlertId();
+      m_alertState = history.getAlertState();
+      m_maintenanceState = null == maintenanceState ? MaintenanceState.OFF : maintenanceState;
+    }
+  }
+
+  /**
+   * Identifies a current alert by its cluster, definition and host.
+   */
+  private static final class IndexKey {
+    private final long m_clusterId;
+    private final String m_definitionName;
+    private final String m_hostName;
+
+    private IndexKey(AlertHistoryEntity history) {
+      m_clusterId = history.getClusterId();
+      m_definitionName = history.getAlertDefinition().getDefinitionName();
+      m_hostName = history.getHostName();
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(m_clusterId, m_definitionName, m_hostName);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+
+      if (!(obj instanceof IndexKey)) {
+        return false;
+      }
+
+      IndexKey other = (IndexKey) obj;
+      return m_clusterId == other.m_clusterId
+          && Objects.equals(m_definitionName, other.m_definitionName)
+          && Objects.equals(m_hostName, other.m_hostName);
+    }
+  }
+}
@@ -23,7 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -50,6 +50,7 @@ import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.controller.spi.Request;
 import org.apache.ambari.server.controller.spi.SortRequest;
 import org.apache.ambari.server.controller.utilities.PredicateHelper;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
 import org.apache.ambari.server.orm.RequiresSession;
 import org.apache.ambari.server.orm.TransactionalLocks;
 import org.apache.ambari.server.orm.entities.HostEntity;
@@ -63,7 +64,6 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -96,6 +96,14 @@ public class HostRoleCommandDAO {
       " GROUP BY hrc.requestId, hrc.stageId HAVING hrc.requestId = :requestId",
       HostRoleCommandStatusSummaryDTO.class.getName());
 
+  /**
+   * JPQL to get the status and times of every task of the given stages of a
+   * request, which are tracked by the {@link HostRoleCommandStatusRollup} of
+   * the request while the stages have open tasks.
+   */
+  private static final String STATUS_ROLLUP_SQL = "SELECT hrc.taskId, hrc.stageId, hrc.status, hrc.startTime, hrc.endTime, hrc.stage.skippable "
+      + "FROM HostRoleCommandEntity hrc WHERE hrc.requestId = :requestId AND hrc.stageId IN :stageIds";
+
   /**
    * SQL template to get requests that have at least one task in any of the
    * specified statuses.
@@ -109,17 +117,22 @@ public class HostRoleCommandDAO {
   private static final String COMPLETED_REQUESTS_SQL = "SELECT DISTINCT task.requestId FROM HostRoleCommandEntity task WHERE task.requestId NOT IN (SELECT task.requestId FROM HostRoleCommandEntity task WHERE task.status IN :notCompletedStatuses) ORDER BY task.requestId {0}";
 
   /**
-   * A cache that holds {@link HostRoleCommandStatusSummaryDTO} grouped by stage
-   * id for requests by request id. The JPQL computing the host role command
-   * status summary for a request is rather expensive thus this cache helps
-   * reducing the load on the database.
+   * A cache that holds the {@link HostRoleCommandStatusRollup} of requests by
+   * request id, from which the {@link HostRoleCommandStatusSummaryDTO}s grouped
+   * by stage id are built. A rollup is aggregated from the tasks of the request
+   * once and is then updated in place whenever the status of one of its tasks
+   * is merged, so polling the status of a request in progress does not hit the
+   * database. Rollups are not persisted; after a restart they are recomputed
+   * from the tasks the first time the request is read.
    * <p/>
-   * Methods which interact with this cache, including invalidation and
+   * Methods which interact with this cache, including updates, invalidation and
    * population, should use the {@link TransactionalLock} annotation along with
    * the {@link LockArea#HRC_STATUS_CACHE}. This will prevent stale data from
    * being read during a transaction which has updated a
    * {@link HostRoleCommandEntity}'s {@link HostRoleStatus} but has not
-   * committed yet.
+   * committed yet. Rollups are only updated once the transaction which merged
+   * the task has been committed, so a rollback never leaves them ahead of the
+   * database.
    * <p/>
    * This cache cannot be a {@link LoadingCache} since there is an inherent
    * problem with concurrency of reloads. Namely, if the entry has been read
@@ -128,7 +141,7 @@ public class HostRoleCommandDAO {
    * last invalidation would not invalidate anything since the cache was empty
    * at the time.
    */
-  private final Cache<Long, Map<Long, HostRoleCommandStatusSummaryDTO>> hrcStatusSummaryCache;
+  private final Cache<Long, HostRoleCommandStatusRollup> hrcStatusSummaryCache;
 
   /**
    * Specifies whether caching for {@link HostRoleCommandStatusSummaryDTO} grouped by stage id for requests
@@ -187,6 +200,46 @@ public class HostRoleCommandDAO {
     }
   }
 
+  /**
+   * Applies the status of the given task to the cached rollup of its request
+   * once the transaction which merged the task has been committed. If the
+   * rollup does not know the task, the entry is invalidated so that it is
+   * recomputed from the database on the next read.
+   *
+   * @param hostRoleCommandEntity
+   *          the task which was merged
+   */
+  protected void updateHostRoleCommandStatusSummaryCache(HostRoleCommandEntity hostRoleCommandEntity) {
+    if (!hostRoleCommandStatusSummaryCacheEnabled || null == hostRoleCommandEntity) {
+      return;
+    }
+
+    final Long requestId = getRequestId(hostRoleCommandEntity);
+    if (null == requestId) {
+      return;
+    }
+
+    // the entity may change again before the commit, so capture what was merged
+    final Long taskId = hostRoleCommandEntity.getTaskId();
+    final HostRoleStatus status = hostRoleCommandEntity.getStatus();
+    final Long startTime = hostRoleCommandEntity.getStartTime();
+    final Long endTime = hostRoleCommandEntity.getEndTime();
+
+    AmbariJpaLocalTxnInterceptor.runAfterCommit(new Runnable() {
+      @Override
+      public void run() {
+        HostRoleCommandStatusRollup rollup = hrcStatusSummaryCache.getIfPresent(requestId);
+        if (null == rollup) {
+          return;
+        }
+
+        if (null == taskId || !rollup.update(taskId, status, startTime, endTime)) {
+          invalidateHostRoleCommandStatusSummaryCache(requestId);
+        }
+      }
+    });
+  }
+
   /**
    * Invalidates those entries in host role command status cache which are
    * dependent on the passed
@@ -201,24 +254,30 @@ public class HostRoleCommandDAO {
     }
 
     if (hostRoleCommandEntity != null) {
-      Long requestId = hostRoleCommandEntity.getRequestId();
-      if (requestId == null) {
-        StageEntity stageEntity = hostRoleCommandEntity.getStage();
-        if (stageEntity != null) {
-          requestId = stageEntity.getRequestId();
-        }
-      }
-
+      Long requestId = getRequestId(hostRoleCommandEntity);
       if (requestId != null) {
         invalidateHostRoleCommandStatusSummaryCache(requestId.longValue());
       }
     }
   }
 
+  /**
+   * @return the request id of the task, taken from its stage if it is not set
+   */
+  private Long getRequestId(HostRoleCommandEntity hostRoleCommandEntity) {
+    Long requestId = hostRoleCommandEntity.getRequestId();
+    if (requestId == null) {
+      StageEntity stageEntity = hostRoleCommandEntity.getStage();
+      if (stageEntity != null) {
+        requestId = stageEntity.getRequestId();
+      }
+    }
+    return requestId;
+  }
+
   /**
    * Loads the counts of tasks for a request and groups them by stage id.
-   * This allows for very efficient loading when there are a huge number of stages
-   * and tasks to iterate (for example, during a Stack Upgrade).
+   * This is used when caching is disabled, since only the counts are read.
    * @param requestId the request id
    * @return the map of stage-to-summary objects
    */
@@ -250,6 +309,46 @@ public class HostRoleCommandDAO {
     return map;
   }
 
+  /**
+   * Loads the counts of tasks for a request grouped by stage id and the status
+   * of every task of those stages which still have open tasks, from which the
+   * rollup of the request is built. Afterwards the rollup is kept current as
+   * the tasks change (for example, during a Stack Upgrade with a huge number of
+   * stages and tasks). A completed request is built from the counts alone.
+   * @param requestId the request id
+   * @return the rollup of the request
+   */
+  @RequiresSession
+  private HostRoleCommandStatusRollup loadStatusRollup(Long requestId) {
+    Map<Long, HostRoleCommandStatusSummaryDTO> summaries = loadAggregateCounts(requestId);
+
+    List<Long> openStageIds = new ArrayList<Long>();
+    for (HostRoleCommandStatusSummaryDTO summary : summaries.values()) {
+      if (HostRoleCommandStatusRollup.hasOpenTasks(summary)) {
+        openStageIds.add(summary.getStageId());
+      }
+    }
+
+    List<Object[]> rows = new ArrayList<Object[]>();
+    if (!openStageIds.isEmpty()) {
+      EntityManager entityManager = entityManagerProvider.get();
+      TypedQuery<Object[]> query = entityManager.createQuery(STATUS_ROLLUP_SQL, Object[].class);
+      query.setParameter("requestId", requestId);
+
+      List<List<Long>> lists = Collections.singletonList(openStageIds);
+      if (openStageIds.size() > configuration.getTaskIdListLimit()) {
+        lists = Lists.partition(openStageIds, configuration.getTaskIdListLimit());
+      }
+
+      for (List<Long> stageIds : lists) {
+        query.setParameter("stageIds", stageIds);
+        rows.addAll(daoUtils.selectList(query));
+      }
+    }
+
+    return HostRoleCommandStatusRollup.create(summaries, rows);
+  }
+
   @Inject
   public HostRoleCommandDAO(
       @Named(HRC_STATUS_SUMMARY_CACHE_ENABLED) boolean hostRoleCommandStatusSummaryCacheEnabled,
@@ -634,7 +733,7 @@ public class HostRoleCommandDAO {
     EntityManager entityManager = entityManagerProvider.get();
     entity = entityManager.merge(entity);
 
-    invalidateHostRoleCommandStatusSummaryCache(entity);
+    updateHostRoleCommandStatusSummaryCache(entity);
 
     return entity;
   }
@@ -650,26 +749,15 @@ public class HostRoleCommandDAO {
   @Transactional
   @TransactionalLock(lockArea = LockArea.HRC_STATUS_CACHE, lockType = LockType.WRITE)
   public List<HostRoleCommandEntity> mergeAll(Collection<HostRoleCommandEntity> entities) {
-    Set<Long> requestsToInvalidate = new LinkedHashSet<>();
     List<HostRoleCommandEntity> managedList = new ArrayList<HostRoleCommandEntity>(entities.size());
     for (HostRoleCommandEntity entity : entities) {
       EntityManager entityManager = entityManagerProvider.get();
       entity = entityManager.merge(entity);
       managedList.add(entity);
 
-      Long requestId = entity.getRequestId();
-      if (requestId == null) {
-        StageEntity stageEntity = entity.getStage();
-        if (stageEntity != null) {
-          requestId = stageEntity.getRequestId();
-        }
-      }
-
-      requestsToInvalidate.add(requestId);
+      updateHostRoleCommandStatusSummaryCache(entity);
     }
 
-    invalidateHostRoleCommandStatusSummaryCache(requestsToInvalidate);
-
     return managedList;
   }
 
@@ -690,8 +778,9 @@ public class HostRoleCommandDAO {
   /**
    * Finds the counts of tasks for a request and groups them by stage id. If
    * caching is enabled, this will first consult the cache. Cache misses will
-   * then defer to loading the data from the database and then caching the
-   * result.
+   * then defer to loading the counts from the database and then caching the
+   * rollup, which is kept current by {@link #merge(HostRoleCommandEntity)} and
+   * {@link #mergeAll(Collection)} once their transaction has been committed.
    *
    * @param requestId
    *          the request id
@@ -703,21 +792,19 @@ public class HostRoleCommandDAO {
       return loadAggregateCounts(requestId);
     }
 
-    Map<Long, HostRoleCommandStatusSummaryDTO> map = hrcStatusSummaryCache.getIfPresent(requestId);
-    if (null != map) {
-      return map;
-    }
-
     // ensure that we wait for any running transactions working on this cache to
-    // complete
+    // complete, since they update cached rollups in place
     ReadWriteLock lock = transactionLocks.getLock(LockArea.HRC_STATUS_CACHE);
     lock.readLock().lock();
 
     try {
-      map = loadAggregateCounts(requestId);
-      hrcStatusSummaryCache.put(requestId, map);
+      HostRoleCommandStatusRollup rollup = hrcStatusSummaryCache.getIfPresent(requestId);
+      if (null == rollup) {
+        rollup = loadStatusRollup(requestId);
+        hrcStatusSummaryCache.put(requestId, rollup);
+      }
 
-      return map;
+      return rollup.getSummaries();
     } finally {
       lock.readLock().unlock();
     }
@@ -934,19 +1021,30 @@ public class HostRoleCommandDAO {
     }
   }
 
-  public Set<Long> findTaskIdsByRequestStageIds(List<RequestDAO.StageEntityPK> requestStageIds) {
-    EntityManager entityManager = entityManagerProvider.get();
-    List<Long> taskIds = new ArrayList<>();
-    for (RequestDAO.StageEntityPK requestIds : requestStageIds) {
-      TypedQuery<Long> hostRoleCommandQuery =
-              entityManager.createNamedQuery("HostRoleCommandEntity.findTaskIdsByRequestStageIds", Long.class);
+  /**
+   * Gets the ids of all tasks of the specified requests.
+   *
+   * @param requestIds
+   *          the request ids
+   * @return the task ids
+   */
+  @RequiresSession
+  public Set<Long> findTaskIdsByRequestIds(Collection<Long> requestIds) {
+    Set<Long> taskIds = new HashSet<>();
+    if (requestIds == null || requestIds.isEmpty()) {
+      return taskIds;
+    }
 
-      hostRoleCommandQuery.setParameter("requestId", requestIds.getRequestId());
-      hostRoleCommandQuery.setParameter("stageId", requestIds.getStageId());
+    EntityManager entityManager = entityManagerProvider.get();
+    TypedQuery<Long> query = entityManager.createNamedQuery(
+        "HostRoleCommandEntity.findTaskIdsByRequestIds", Long.class);
 
-      taskIds.addAll(daoUtils.selectList(hostRoleCommandQuery));
+    // split the request ids up so that the IN clause stays within the database limits
+    for (List<Long> list : Lists.partition(new ArrayList<>(requestIds), configuration.getTaskIdListLimit())) {
+      query.setParameter("requestIds", list);
+      taskIds.addAll(daoUtils.selectList(query));
     }
 
-    return Sets.newHashSet(taskIds);
+    return taskIds;
   }
 }
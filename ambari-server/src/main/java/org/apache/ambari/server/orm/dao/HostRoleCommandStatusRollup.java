@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.orm.dao;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ambari.server.actionmanager.HostRoleStatus;
+
+/**
+ * The task counts of a single request by stage, from which the
+ * {@link HostRoleCommandStatusSummaryDTO}s of the request are built. The counts
+ * are aggregated by the database once and then updated as the status of each
+ * task changes, so the summary of a request which is in progress does not have
+ * to be aggregated by the database on every poll.
+ * <p/>
+ * The status and times of the tasks of a stage are only kept while the stage
+ * has tasks which are not in a completed state; the summary of a completed
+ * stage is kept as it was aggregated. Once all tasks have completed, only the
+ * per-stage summaries are kept. {@link #update(long, HostRoleStatus, Long, Long)}
+ * returns {@code false} for a change to a task which is not tracked, which
+ * means that the rollup has to be recomputed.
+ */
+final class HostRoleCommandStatusRollup {
+
+  /**
+   * [ StageId -> StageRollup ]
+   */
+  private final Map<Long, StageRollup> m_stages = new HashMap<>();
+
+  /**
+   * [ TaskId -> TaskState ], or {@code null} once every task has completed.
+   */
+  private Map<Long, TaskState> m_tasks = new HashMap<>();
+
+  /**
+   * The number of tasks which are not in a completed state.
+   */
+  private int m_openTasks = 0;
+
+  /**
+   * The summaries built from the stages, or {@code null} if a stage has changed
+   * since they were built.
+   */
+  private Map<Long, HostRoleCommandStatusSummaryDTO> m_summaries;
+
+  /**
+   * Creates the rollup of a request from the status of every task.
+   *
+   * @param rows
+   *          the task id, stage id, status, start time, end time and stage
+   *          skippable flag of every task of the request
+   * @return the rollup
+   */
+  static HostRoleCommandStatusRollup create(List<Object[]> rows) {
+    return create(Collections.<Long, HostRoleCommandStatusSummaryDTO>emptyMap(), rows);
+  }
+
+  /**
+   * Creates the rollup of a request from the aggregated summaries of its
+   * stages and the status of the tasks of those stages which are not
+   * completed yet.
+   *
+   * @param summaries
+   *          the summaries of all stages of the request by stage id
+   * @param rows
+   *          the task id, stage id, status, start time, end time and stage
+   *          skippable flag of every task of the stages which still have open
+   *          tasks
+   * @return the rollup
+   */
+  static HostRoleCommandStatusRollup create(Map<Long, HostRoleCommandStatusSummaryDTO> summaries,
+      List<Object[]> rows) {
+    HostRoleCommandStatusRollup rollup = new HostRoleCommandStatusRollup();
+    for (Object[] row : rows) {
+      Long taskId = toLong(row[0]);
+      Long stageId = toLong(row[1]);
+      HostRoleStatus status = (HostRoleStatus) row[2];
+
+      StageRollup stage = rollup.m_stages.get(stageId);
+      if (null == stage) {
+        stage = new StageRollup(stageId, null != row[5] && 1 == ((Number) row[5]).intValue());
+        rollup.m_stages.put(stageId, stage);
+      }
+
+      TaskState task = new TaskState(stage, status, toLong(row[3]), toLong(row[4]));
+      stage.add(taskId, task);
+      rollup.m_tasks.put(taskId, task);
+
+      if (!status.isCompletedState()) {
+        rollup.m_openTasks++;
+      }
+    }
+
+    for (Map.Entry<Long, HostRoleCommandStatusSummaryDTO> entry : summaries.entrySet()) {
+      if (!rollup.m_stages.containsKey(entry.getKey())) {
+        rollup.m_stages.put(entry.getKey(), new StageRollup(entry.getKey(), entry.getValue()));
+      }
+    }
+
+    rollup.releaseTasksIfCompleted();
+    return rollup;
+  }
+
+  /**
+   * @param summary
+   *          the summary of a stage
+   * @return {@code true} if any task of the stage is not in a completed state
+   */
+  static boolean hasOpenTasks(HostRoleCommandStatusSummaryDTO summary) {
+    for (Map.Entry<HostRoleStatus, Integer> entry : summary.getCounts().entrySet()) {
+      if (!entry.getKey().isCompletedState() && null != entry.getValue() && entry.getValue() > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Applies the current status and times of a task.
+   *
+   * @param taskId
+   *          the task id
+   * @param status
+   *          the status of the task
+   * @param startTime
+   *          the start time of the task
+   * @param endTime
+   *          the end time of the task
+   * @return {@code true} if the change was applied, {@code false} if the task
+   *         is not known to this rollup and it must be recomputed
+   */
+  synchronized boolean update(long taskId, HostRoleStatus status, Long startTime, Long endTime) {
+    if (null == m_tasks) {
+      return false;
+    }
+
+    TaskState task = m_tasks.get(taskId);
+    if (null == task || null == status) {
+      return false;
+    }
+
+    if (task.m_status == status && equal(task.m_startTime, startTime)
+        && equal(task.m_endTime, endTime)) {
+      return true;
+    }
+
+    if (task.m_status != status) {
+      task.m_stage.decrement(task.m_status);
+      task.m_stage.increment(status);
+
+      if (task.m_status.isCompletedState() && !status.isCompletedState()) {
+        m_openTasks++;
+      } else if (!task.m_status.isCompletedState() && status.isCompletedState()) {
+        m_openTasks--;
+      }
+    }
+
+    task.m_status = status;
+    task.m_startTime = startTime;
+    task.m_endTime = endTime;
+    task.m_stage.m_summary = null;
+    m_summaries = null;
+
+    releaseTasksIfCompleted();
+    return true;
+  }
+
+  /**
+   * @return the summaries of the stages of the request by stage id
+   */
+  synchronized Map<Long, HostRoleCommandStatusSummaryDTO> getSummaries() {
+    if (null == m_summaries) {
+      Map<Long, HostRoleCommandStatusSummaryDTO> summaries = new HashMap<>();
+      for (StageRollup stage : m_stages.values()) {
+        summaries.put(stage.m_stageId, stage.getSummary());
+      }
+      m_summaries = Collections.unmodifiableMap(summaries);
+    }
+    return m_summaries;
+  }
+
+  /**
+   * Builds the summaries of all stages and drops the per-task state once no
+   * task can change anymore without being reopened.
+   */
+  private void releaseTasksIfCompleted() {
+    if (0 != m_openTasks) {
+      return;
+    }
+
+    for (StageRollup stage : m_stages.values()) {
+      stage.getSummary();
+      stage.m_tasks = null;
+    }
+    m_tasks = null;
+  }
+
+  private static Long toLong(Object value) {
+    return null == value ? null : Long.valueOf(((Number) value).longValue());
+  }
+
+  private static boolean equal(Long a, Long b) {
+    return null == a ? null == b : a.equals(b);
+  }
+
+  /**
+   * The counts of the tasks of a stage by status.
+   */
+  private static final class StageRollup {
+    private final Long m_stageId;
+    private final boolean m_skippable;
+    private final Map<HostRoleStatus, Integer> m_counts = new EnumMap<>(HostRoleStatus.class);
+    private Map<Long, TaskState> m_tasks = new HashMap<>();
+    private HostRoleCommandStatusSummaryDTO m_summary;
+
+    private StageRollup(Long stageId, boolean skippable) {
+      m_stageId = stageId;
+      m_skippable = skippable;
+    }
+
+    /**
+     * A completed stage, of which only the aggregated summary is kept.
+     */
+    private StageRollup(Long stageId, HostRoleCommandStatusSummaryDTO summary) {
+      m_stageId = stageId;
+      m_skippable = summary.isStageSkippable();
+      m_tasks = null;
+      m_summary = summary;
+    }
+
+    private void add(Long taskId, TaskState task) {
+      m_tasks.put(taskId, task);
+      increment(task.m_status);
+    }
+
+    private void increment(HostRoleStatus status) {
+      Integer count = m_counts.get(status);
+      m_counts.put(status, null == count ? 1 : count + 1);
+    }
+
+    private void decrement(HostRoleStatus status) {
+      Integer count = m_counts.get(status);
+      m_counts.put(status, null == count ? 0 : count - 1);
+    }
+
+    /**
+     * The start and end times are the minimum and maximum over the tasks of
+     * the stage, the same as the aggregate query computes them.
+     */
+    private HostRoleCommandStatusSummaryDTO getSummary() {
+      if (null != m_summary) {
+        return m_summary;
+      }
+
+      Long minStartTime = null;
+      Long maxEndTime = null;
+      for (TaskState task : m_tasks.values()) {
+        if (null != task.m_startTime && (null == minStartTime || task.m_startTime < minStartTime)) {
+          minStartTime = task.m_startTime;
+        }
+        if (null != task.m_endTime && (null == maxEndTime || task.m_endTime > maxEndTime)) {
+          maxEndTime = task.m_endTime;
+        }
+      }
+
+      m_summary = new HostRoleCommandStatusSummaryDTO(
+          m_skippable ? 1 : 0,
+          minStartTime,
+          maxEndTime,
+          m_stageId,
+          getCount(HostRoleStatus.ABORTED),
+          getCount(HostRoleStatus.COMPLETED),
+          getCount(HostRoleStatus.FAILED),
+          getCount(HostRoleStatus.HOLDING),
+          getCount(HostRoleStatus.HOLDING_FAILED),
+          getCount(HostRoleStatus.HOLDING_TIMEDOUT),
+          getCount(HostRoleStatus.IN_PROGRESS),
+          getCount(HostRoleStatus.PENDING),
+          getCount(HostRoleStatus.QUEUED),
+          getCount(HostRoleStatus.TIMEDOUT),
+          getCount(HostRoleStatus.SKIPPED_FAILED));
+
+      return m_summary;
+    }
+
+    private Integer getCount(HostRoleStatus status) {
+      Integer count = m_counts.get(status);
+      return null == count ? Integer.valueOf(0) : count;
+    }
+  }
+
+  /**
+   * The status and times of a single task.
+   */
+  private static final class TaskState {
+    private final StageRollup m_stage;
+    private HostRoleStatus m_status;
+    private Long m_startTime;
+    private Long m_endTime;
+
+    private TaskState(StageRollup stage, HostRoleStatus status, Long startTime, Long endTime) {
+      m_stage = stage;
+      m_status = status;
+      m_startTime = startTime;
+      m_endTime = endTime;
+    }
+  }
+}
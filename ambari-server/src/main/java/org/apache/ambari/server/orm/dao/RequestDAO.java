@@ -24,8 +24,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -35,6 +34,7 @@ import javax.persistence.TypedQuery;
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.cleanup.TimeBasedCleanupPolicy;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.orm.RequiresSession;
 import org.apache.ambari.server.orm.entities.ExecutionCommandEntity;
 import org.apache.ambari.server.orm.entities.HostRoleCommandEntity;
@@ -94,6 +94,9 @@ public class RequestDAO implements Cleanable {
   @Inject
   private Provider<Clusters> m_clusters;
 
+  @Inject
+  private Configuration configuration;
+
   @Inject
   private HostRoleCommandDAO hostRoleCommandDAO;
 
@@ -238,32 +241,6 @@ public class RequestDAO implements Cleanable {
     return daoUtils.selectList(query);
   }
 
-  public static final class StageEntityPK {
-    private Long requestId;
-    private Long stageId;
-
-    public StageEntityPK(Long requestId, Long stageId) {
-      this.requestId = requestId;
-      this.stageId = stageId;
-    }
-
-    public Long getStageId() {
-      return stageId;
-    }
-
-    public void setStageId(Long stageId) {
-      this.stageId = stageId;
-    }
-
-    public Long getRequestId() {
-      return requestId;
-    }
-
-    public void setRequestId(Long requestId) {
-      this.requestId = requestId;
-    }
-  }
-
   /**
    * Search for all request ids in Upgrade table
    * @return the list of request ids
@@ -276,21 +253,6 @@ public class RequestDAO implements Cleanable {
     return Sets.newHashSet(daoUtils.selectList(upgradeQuery));
   }
 
-  /**
-   * Search for all request and stage ids in Request and Stage tables
-   * @return the list of request/stage ids
-   */
-  public List<StageEntityPK> findRequestAndStageIdsInClusterBeforeDate(Long clusterId, long  beforeDateMillis) {
-    EntityManager entityManager = entityManagerProvider.get();
-    TypedQuery<StageEntityPK> requestQuery =
-            entityManager.createNamedQuery("RequestEntity.findRequestStageIdsInClusterBeforeDate", StageEntityPK.class);
-
-    requestQuery.setParameter("clusterId", clusterId);
-    requestQuery.setParameter("beforeDate", beforeDateMillis);
-
-    return daoUtils.selectList(requestQuery);
-  }
-
   /**
    * In this method we are removing entities using passed ids,
    * To prevent issues we are using batch request to remove limited
@@ -307,17 +269,18 @@ public class RequestDAO implements Cleanable {
   @Transactional
   protected <T> int cleanTableByIds(Set<Long> ids, String paramName, String entityName, Long beforeDateMillis,
                                   String entityQuery, Class<T> type) {
-    LOG.info(String.format("Deleting %s entities before date %s", entityName, new Date(beforeDateMillis)));
+    LOG.debug("Deleting {} entities before date {}", entityName, new Date(beforeDateMillis));
     EntityManager entityManager = entityManagerProvider.get();
     int affectedRows = 0;
     // Batch delete
     TypedQuery<T> query = entityManager.createNamedQuery(entityQuery, type);
     if (ids != null && !ids.isEmpty()) {
-      for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
-        int endRow = (i + BATCH_SIZE) > ids.size() ? ids.size() : (i + BATCH_SIZE);
-        List<Long> idsSubList = new ArrayList<>(ids).subList(i, endRow);
-        LOG.info("Deleting " + entityName + " entity batch with task ids: " +
-                idsSubList.get(0) + " - " + idsSubList.get(idsSubList.size() - 1));
+      List<Long> idList = new ArrayList<>(ids);
+      for (int i = 0; i < idList.size(); i += BATCH_SIZE) {
+        int endRow = (i + BATCH_SIZE) > idList.size() ? idList.size() : (i + BATCH_SIZE);
+        List<Long> idsSubList = idList.subList(i, endRow);
+        LOG.debug("Deleting {} entity batch with ids: {} - {}", entityName,
+                idsSubList.get(0), idsSubList.get(idsSubList.size() - 1));
         query.setParameter(paramName, idsSubList);
         affectedRows += query.executeUpdate();
       }
@@ -327,123 +290,174 @@ public class RequestDAO implements Cleanable {
   }
 
   /**
-   * In this method we are removing entities using passed few ids,
-   * To prevent issues we are using batch request to remove limited
-   * count of entities.
-   * @param ids              list of ids pairs that we are using to remove rows from table
-   * @param paramNames       list of two names of parameters that we are using in sql query (taskIds, stageIds)
-   * @param entityName       name of entity which we will remove
-   * @param beforeDateMillis timestamp which was set by user (remove all entities that were created before),
-   *                         we are using it only for logging
-   * @param entityQuery      name of NamedQuery which we will use to remove needed entities
-   * @param type             type of entity class which we will use for casting query result
-   * @return                 rows count that were removed
+   * Purges the requests of the cluster which were created before the date of
+   * the policy together with their stages, tasks and topology tasks. The
+   * requests are walked in ascending id order and purged in chunks of
+   * {@link Configuration#getCleanupRequestChunkSize()} requests, each chunk in
+   * its own transaction, so that a long purge neither holds locks on the whole
+   * request history nor loses the work already done when it fails.
    */
-  @Transactional
-  protected <T> int cleanTableByStageEntityPK(List<StageEntityPK> ids, LinkedList<String> paramNames, String entityName, Long beforeDateMillis,
-                                  String entityQuery, Class<T> type) {
-    LOG.info(String.format("Deleting %s entities before date %s", entityName, new Date(beforeDateMillis)));
-    EntityManager entityManager = entityManagerProvider.get();
-    int affectedRows = 0;
-    // Batch delete
-    TypedQuery<T> query = entityManager.createNamedQuery(entityQuery, type);
-    if (ids != null && !ids.isEmpty()) {
-      for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
-        int endRow = (i + BATCH_SIZE) > ids.size() ? ids.size() : (i + BATCH_SIZE);
-        List<StageEntityPK> idsSubList = new ArrayList<>(ids).subList(i, endRow);
-        LOG.info("Deleting " + entityName + " entity batch with task ids: " +
-                idsSubList.get(0) + " - " + idsSubList.get(idsSubList.size() - 1));
-        for (StageEntityPK requestIds : idsSubList) {
-          query.setParameter(paramNames.get(0), requestIds.getStageId());
-          query.setParameter(paramNames.get(1), requestIds.getRequestId());
-          affectedRows += query.executeUpdate();
-        }
-      }
-    }
-
-    return affectedRows;
-  }
-
-  @Transactional
   @Override
   public long cleanup(TimeBasedCleanupPolicy policy) {
-    long affectedRows = 0;
     Long clusterId = null;
     try {
       clusterId = m_clusters.get().getCluster(policy.getClusterName()).getClusterId();
-      // find request and stage ids that were created before date populated by user.
-      List<StageEntityPK> requestStageIds = findRequestAndStageIdsInClusterBeforeDate(clusterId, policy.getToDateInMillis());
-
-      // find request ids from Upgrade table and exclude these ids from
-      // request ids set that we already have. We don't want to make any changes for upgrade
-      Set<Long> requestIdsFromUpgrade = findAllRequestIdsFromUpgrade();
-      Iterator<StageEntityPK> requestStageIdsIterator =  requestStageIds.iterator();
-      while (requestStageIdsIterator.hasNext()) {
-        StageEntityPK nextRequestStageIds = requestStageIdsIterator.next();
-        if (requestIdsFromUpgrade.contains(nextRequestStageIds.getRequestId())) {
-          requestStageIdsIterator.remove();
-        }
-      }
+    } catch (AmbariException e) {
+      LOG.error("Error while looking up cluster with name: {}", policy.getClusterName(), e);
+      throw new IllegalStateException(e);
+    }
+
+    int chunkSize = Math.max(1, configuration.getCleanupRequestChunkSize());
+    long chunkPause = configuration.getCleanupChunkPause();
+    Long beforeDateMillis = policy.getToDateInMillis();
 
+    // find request ids from Upgrade table, these requests are skipped as we
+    // don't want to make any changes for upgrade
+    Set<Long> requestIdsFromUpgrade = findAllRequestIdsFromUpgrade();
 
-      Set<Long> requestIds = new HashSet<>();
-      for (StageEntityPK ids : requestStageIds) {
-        requestIds.add(ids.getRequestId());
+    long requestCount = countRequestsInClusterBeforeDate(clusterId, beforeDateMillis);
+    LOG.info("Purging at most {} requests created before {} in chunks of {} requests", requestCount,
+        new Date(beforeDateMillis), chunkSize);
+
+    long affectedRows = 0;
+    long purgedRequests = 0;
+    long purgeMillis = 0;
+    Long lastRequestId = Long.MIN_VALUE;
+    while (true) {
+      List<Long> chunk = findRequestIdsInClusterBeforeDate(clusterId, beforeDateMillis, lastRequestId, chunkSize);
+      if (chunk.isEmpty()) {
+        break;
       }
 
-      // find task ids using request stage ids
-      Set<Long> taskIds = hostRoleCommandDAO.findTaskIdsByRequestStageIds(requestStageIds);
-      LinkedList<String> params = new LinkedList<>();
-      params.add("stageId");
-      params.add("requestId");
+      lastRequestId = chunk.get(chunk.size() - 1);
+      Set<Long> requestIds = new LinkedHashSet<>(chunk);
+      requestIds.removeAll(requestIdsFromUpgrade);
 
-      // find host task ids, to find related host requests and also to remove needed host tasks
-      Set<Long> hostTaskIds = new HashSet<>();
-      if (taskIds != null && !taskIds.isEmpty()) {
-        hostTaskIds = topologyLogicalTaskDAO.findHostTaskIdsByPhysicalTaskIds(taskIds);
+      long chunkStart = System.currentTimeMillis();
+      if (!requestIds.isEmpty()) {
+        affectedRows += cleanupRequests(requestIds, beforeDateMillis);
       }
+      purgeMillis += System.currentTimeMillis() - chunkStart;
+      purgedRequests += chunk.size();
+
+      LOG.info("Purged {} of at most {} requests up to request id {}, {} rows deleted ({} rows/s), about {} chunks remaining",
+          purgedRequests, requestCount, lastRequestId, affectedRows, affectedRows * 1000 / Math.max(1, purgeMillis),
+          (Math.max(0, requestCount - purgedRequests) + chunkSize - 1) / chunkSize);
 
-      // find host request ids by host task ids to remove later needed host requests
-      Set<Long> hostRequestIds = new HashSet<>();
-      if (!hostTaskIds.isEmpty()) {
-        hostRequestIds = topologyHostTaskDAO.findHostRequestIdsByHostTaskIds(hostTaskIds);
+      if (chunk.size() < chunkSize) {
+        break;
       }
 
-      Set<Long> topologyRequestIds = new HashSet<>();
-      if (!hostRequestIds.isEmpty()) {
-        topologyRequestIds = topologyLogicalRequestDAO.findRequestIdsByIds(hostRequestIds);
+      if (chunkPause > 0) {
+        try {
+          Thread.sleep(chunkPause);
+        } catch (InterruptedException e) {
+          LOG.warn("The purge was interrupted after request id {}", lastRequestId);
+          Thread.currentThread().interrupt();
+          break;
+        }
       }
+    }
 
+    return affectedRows;
+  }
 
-      //removing all entities one by one according to their relations using stage, task and request ids
-      affectedRows += cleanTableByIds(taskIds, "taskIds", "ExecutionCommand", policy.getToDateInMillis(),
-              "ExecutionCommandEntity.removeByTaskIds", ExecutionCommandEntity.class);
-      affectedRows += cleanTableByIds(taskIds, "taskIds", "TopologyLogicalTask", policy.getToDateInMillis(),
-              "TopologyLogicalTaskEntity.removeByPhysicalTaskIds", TopologyLogicalTaskEntity.class);
-      affectedRows += cleanTableByIds(hostTaskIds, "hostTaskIds", "TopologyHostTask", policy.getToDateInMillis(),
-              "TopologyHostTaskEntity.removeByTaskIds", TopologyHostTaskEntity.class);
-      affectedRows += cleanTableByIds(hostRequestIds, "hostRequestIds", "TopologyHostRequest", policy.getToDateInMillis(),
-              "TopologyHostRequestEntity.removeByIds", TopologyHostRequestEntity.class);
-      for (Long topologyRequestId : topologyRequestIds) {
-        topologyRequestDAO.removeByPK(topologyRequestId);
-      }
-      affectedRows += cleanTableByIds(taskIds, "taskIds", "HostRoleCommand", policy.getToDateInMillis(),
-              "HostRoleCommandEntity.removeByTaskIds", HostRoleCommandEntity.class);
-      affectedRows += cleanTableByStageEntityPK(requestStageIds, params, "RoleSuccessCriteria", policy.getToDateInMillis(),
-              "RoleSuccessCriteriaEntity.removeByRequestStageIds", RoleSuccessCriteriaEntity.class);
-      affectedRows += cleanTableByStageEntityPK(requestStageIds, params, "Stage", policy.getToDateInMillis(),
-              "StageEntity.removeByRequestStageIds", StageEntity.class);
-      affectedRows += cleanTableByIds(requestIds, "requestIds", "RequestResourceFilter", policy.getToDateInMillis(),
-              "RequestResourceFilterEntity.removeByRequestIds", RequestResourceFilterEntity.class);
-      affectedRows += cleanTableByIds(requestIds, "requestIds", "RequestOperationLevel", policy.getToDateInMillis(),
-              "RequestOperationLevelEntity.removeByRequestIds", RequestOperationLevelEntity.class);
-      affectedRows += cleanTableByIds(requestIds, "requestIds", "Request", policy.getToDateInMillis(),
-              "RequestEntity.removeByRequestIds", RequestEntity.class);
+  /**
+   * Gets the next chunk of ids of requests with stages which were created
+   * before the specified date.
+   *
+   * @param clusterId        the cluster id
+   * @param beforeDateMillis the date before which the requests were created
+   * @param lastRequestId    only request ids greater than this id are returned
+   * @param maxResults       the maximum number of ids to return
+   * @return the request ids in ascending order
+   */
+  @RequiresSession
+  public List<Long> findRequestIdsInClusterBeforeDate(Long clusterId, long beforeDateMillis, Long lastRequestId,
+                                                      int maxResults) {
+    EntityManager entityManager = entityManagerProvider.get();
+    TypedQuery<Long> query = entityManager.createNamedQuery("RequestEntity.findRequestIdsInClusterBeforeDate", Long.class);
 
-    } catch (AmbariException e) {
-      LOG.error("Error while looking up cluster with name: {}", policy.getClusterName(), e);
-      throw new IllegalStateException(e);
+    query.setParameter("clusterId", clusterId);
+    query.setParameter("beforeDate", beforeDateMillis);
+    query.setParameter("lastRequestId", lastRequestId);
+    query.setMaxResults(maxResults);
+
+    return daoUtils.selectList(query);
+  }
+
+  /**
+   * Counts the requests which were created before the specified date; this is
+   * an upper bound for the number of requests which are purged.
+   */
+  private long countRequestsInClusterBeforeDate(Long clusterId, long beforeDateMillis) {
+    EntityManager entityManager = entityManagerProvider.get();
+    TypedQuery<Long> query = entityManager.createNamedQuery("RequestEntity.countRequestsInClusterBeforeDate", Long.class);
+
+    query.setParameter("clusterId", clusterId);
+    query.setParameter("beforeDate", beforeDateMillis);
+
+    Long count = daoUtils.selectSingle(query);
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * Removes the specified requests and all the entities referencing them in a
+   * single transaction. The entities are removed using their ids in batches,
+   * children before their parents.
+   *
+   * @param requestIds       the ids of the requests to remove
+   * @param beforeDateMillis the date of the purge, used only for logging
+   * @return rows count that were removed
+   */
+  @Transactional
+  protected long cleanupRequests(Set<Long> requestIds, Long beforeDateMillis) {
+    long affectedRows = 0;
+
+    // find task ids using request ids
+    Set<Long> taskIds = hostRoleCommandDAO.findTaskIdsByRequestIds(requestIds);
+
+    // find host task ids, to find related host requests and also to remove needed host tasks
+    Set<Long> hostTaskIds = new HashSet<>();
+    if (taskIds != null && !taskIds.isEmpty()) {
+      hostTaskIds = topologyLogicalTaskDAO.findHostTaskIdsByPhysicalTaskIds(taskIds);
+    }
+
+    // find host request ids by host task ids to remove later needed host requests
+    Set<Long> hostRequestIds = new HashSet<>();
+    if (!hostTaskIds.isEmpty()) {
+      hostRequestIds = topologyHostTaskDAO.findHostRequestIdsByHostTaskIds(hostTaskIds);
+    }
+
+    Set<Long> topologyRequestIds = new HashSet<>();
+    if (!hostRequestIds.isEmpty()) {
+      topologyRequestIds = topologyLogicalRequestDAO.findRequestIdsByIds(hostRequestIds);
+    }
+
+    //removing all entities one by one according to their relations using task and request ids
+    affectedRows += cleanTableByIds(taskIds, "taskIds", "ExecutionCommand", beforeDateMillis,
+            "ExecutionCommandEntity.removeByTaskIds", ExecutionCommandEntity.class);
+    affectedRows += cleanTableByIds(taskIds, "taskIds", "TopologyLogicalTask", beforeDateMillis,
+            "TopologyLogicalTaskEntity.removeByPhysicalTaskIds", TopologyLogicalTaskEntity.class);
+    affectedRows += cleanTableByIds(hostTaskIds, "hostTaskIds", "TopologyHostTask", beforeDateMillis,
+            "TopologyHostTaskEntity.removeByTaskIds", TopologyHostTaskEntity.class);
+    affectedRows += cleanTableByIds(hostRequestIds, "hostRequestIds", "TopologyHostRequest", beforeDateMillis,
+            "TopologyHostRequestEntity.removeByIds", TopologyHostRequestEntity.class);
+    for (Long topologyRequestId : topologyRequestIds) {
+      topologyRequestDAO.removeByPK(topologyRequestId);
     }
+    affectedRows += cleanTableByIds(taskIds, "taskIds", "HostRoleCommand", beforeDateMillis,
+            "HostRoleCommandEntity.removeByTaskIds", HostRoleCommandEntity.class);
+    affectedRows += cleanTableByIds(requestIds, "requestIds", "RoleSuccessCriteria", beforeDateMillis,
+            "RoleSuccessCriteriaEntity.removeByRequestIds", RoleSuccessCriteriaEntity.class);
+    affectedRows += cleanTableByIds(requestIds, "requestIds", "Stage", beforeDateMillis,
+            "StageEntity.removeByRequestIds", StageEntity.class);
+    affectedRows += cleanTableByIds(requestIds, "requestIds", "RequestResourceFilter", beforeDateMillis,
+            "RequestResourceFilterEntity.removeByRequestIds", RequestResourceFilterEntity.class);
+    affectedRows += cleanTableByIds(requestIds, "requestIds", "RequestOperationLevel", beforeDateMillis,
+            "RequestOperationLevelEntity.removeByRequestIds", RequestOperationLevelEntity.class);
+    affectedRows += cleanTableByIds(requestIds, "requestIds", "Request", beforeDateMillis,
+            "RequestEntity.removeByRequestIds", RequestEntity.class);
 
     return affectedRows;
   }
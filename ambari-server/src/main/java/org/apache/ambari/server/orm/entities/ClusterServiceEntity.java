@@ -28,7 +28,12 @@ import java.util.Collection;
                 "SELECT clusterService " +
                         "FROM ClusterServiceEntity clusterService " +
                         "JOIN clusterService.clusterEntity cluster " +
-                        "WHERE clusterService.serviceName=:serviceName AND cluster.clusterName=:clusterName")
+                        "WHERE clusterService.serviceName=:serviceName AND cluster.clusterName=:clusterName",
+                hints = {
+                        @QueryHint(name = "eclipselink.query-results-cache", value = "true"),
+                        @QueryHint(name = "eclipselink.query-results-cache.ignore-null", value = "true"),
+                        @QueryHint(name = "eclipselink.query-results-cache.size", value = "500")
+                })
 })
 @Entity
 public class ClusterServiceEntity {
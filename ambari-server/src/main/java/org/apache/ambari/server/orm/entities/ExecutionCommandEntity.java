@@ -31,6 +31,8 @@ import javax.persistence.NamedQuery;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 
+import org.apache.ambari.server.utils.CompressionUtils;
+
 @Table(name = "execution_command")
 @Entity
 @NamedQueries({
@@ -60,11 +62,11 @@ public class ExecutionCommandEntity {
   }
 
   public byte[] getCommand() {
-    return command;
+    return CompressionUtils.decompress(command);
   }
 
   public void setCommand(byte[] command) {
-    this.command = command;
+    this.command = CompressionUtils.compress(command);
   }
 
   @Override
@@ -39,6 +39,7 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.TableGenerator;
 
@@ -50,7 +51,12 @@ import javax.persistence.TableGenerator;
     , initialValue = 0
 )
 @NamedQueries({
-    @NamedQuery(name = "HostEntity.findByHostName", query = "SELECT host FROM HostEntity host WHERE host.hostName = :hostName"),
+    @NamedQuery(name = "HostEntity.findByHostName", query = "SELECT host FROM HostEntity host WHERE host.hostName = :hostName",
+        hints = {
+          @QueryHint(name = "eclipselink.query-results-cache", value = "true"),
+          @QueryHint(name = "eclipselink.query-results-cache.ignore-null", value = "true"),
+          @QueryHint(name = "eclipselink.query-results-cache.size", value = "5000")
+        }),
 })
 public class HostEntity implements Comparable<HostEntity> {
 
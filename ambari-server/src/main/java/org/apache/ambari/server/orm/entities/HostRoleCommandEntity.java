@@ -46,6 +46,7 @@ import javax.persistence.TableGenerator;
 import org.apache.ambari.server.Role;
 import org.apache.ambari.server.RoleCommand;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.apache.ambari.server.utils.CompressionUtils;
 import org.apache.commons.lang.ArrayUtils;
 
 @Entity
@@ -60,7 +61,7 @@ import org.apache.commons.lang.ArrayUtils;
     , initialValue = 1
 )
 @NamedQueries({
-    @NamedQuery(name = "HostRoleCommandEntity.findTaskIdsByRequestStageIds", query = "SELECT command.taskId FROM HostRoleCommandEntity command WHERE command.stageId = :stageId AND command.requestId = :requestId"),
+    @NamedQuery(name = "HostRoleCommandEntity.findTaskIdsByRequestIds", query = "SELECT command.taskId FROM HostRoleCommandEntity command WHERE command.requestId IN :requestIds"),
     @NamedQuery(name = "HostRoleCommandEntity.findCountByCommandStatuses", query = "SELECT COUNT(command.taskId) FROM HostRoleCommandEntity command WHERE command.status IN :statuses"),
     @NamedQuery(name = "HostRoleCommandEntity.findByRequestIdAndStatuses", query="SELECT task FROM HostRoleCommandEntity task WHERE task.requestId=:requestId AND task.status IN :statuses ORDER BY task.taskId ASC"),
     @NamedQuery(name = "HostRoleCommandEntity.findTasksByStatusesOrderByIdDesc", query = "SELECT task FROM HostRoleCommandEntity task WHERE task.requestId = :requestId AND task.status IN :statuses ORDER BY task.taskId DESC"),
@@ -114,6 +115,10 @@ public class HostRoleCommandEntity {
   @Enumerated(EnumType.STRING)
   private HostRoleStatus status;
 
+  /**
+   * The std_error, std_out and structured_out values are stored compressed
+   * when they are large, see {@link CompressionUtils}.
+   */
   @Column(name = "std_error")
   @Lob
   @Basic
@@ -269,19 +274,19 @@ public class HostRoleCommandEntity {
   }
 
   public byte[] getStdError() {
-    return ArrayUtils.nullToEmpty(stdError);
+    return ArrayUtils.nullToEmpty(CompressionUtils.decompress(stdError));
   }
 
   public void setStdError(byte[] stdError) {
-    this.stdError = stdError;
+    this.stdError = CompressionUtils.compress(stdError);
   }
 
   public byte[] getStdOut() {
-    return ArrayUtils.nullToEmpty(stdOut);
+    return ArrayUtils.nullToEmpty(CompressionUtils.decompress(stdOut));
   }
 
   public void setStdOut(byte[] stdOut) {
-    this.stdOut = stdOut;
+    this.stdOut = CompressionUtils.compress(stdOut);
   }
 
   public String getOutputLog() { return outputLog; }
@@ -341,11 +346,11 @@ public class HostRoleCommandEntity {
   }
 
   public byte[] getStructuredOut() {
-    return structuredOut;
+    return CompressionUtils.decompress(structuredOut);
   }
 
   public void setStructuredOut(byte[] structuredOut) {
-    this.structuredOut = structuredOut;
+    this.structuredOut = CompressionUtils.compress(structuredOut);
   }
 
   public Long getEndTime() {
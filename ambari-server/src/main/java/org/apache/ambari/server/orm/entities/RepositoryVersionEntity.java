@@ -40,6 +40,7 @@ import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.TableGenerator;
 import javax.persistence.Transient;
@@ -73,19 +74,35 @@ import com.google.inject.Provider;
 @NamedQueries({
     @NamedQuery(
         name = "repositoryVersionByDisplayName",
-        query = "SELECT repoversion FROM RepositoryVersionEntity repoversion WHERE repoversion.displayName=:displayname"),
+        query = "SELECT repoversion FROM RepositoryVersionEntity repoversion WHERE repoversion.displayName=:displayname",
+        hints = {
+          @QueryHint(name = "eclipselink.query-results-cache", value = "true"),
+          @QueryHint(name = "eclipselink.query-results-cache.size", value = "100")
+        }),
     @NamedQuery(
         name = "repositoryVersionByStack",
-        query = "SELECT repoversion FROM RepositoryVersionEntity repoversion WHERE repoversion.stack.stackName=:stackName AND repoversion.stack.stackVersion=:stackVersion"),
+        query = "SELECT repoversion FROM RepositoryVersionEntity repoversion WHERE repoversion.stack.stackName=:stackName AND repoversion.stack.stackVersion=:stackVersion",
+        hints = {
+          @QueryHint(name = "eclipselink.query-results-cache", value = "true"),
+          @QueryHint(name = "eclipselink.query-results-cache.size", value = "100")
+        }),
     @NamedQuery(
         name = "repositoryVersionByStackNameAndVersion",
-        query = "SELECT repoversion FROM RepositoryVersionEntity repoversion WHERE repoversion.stack.stackName=:stackName AND repoversion.version=:version"),
+        query = "SELECT repoversion FROM RepositoryVersionEntity repoversion WHERE repoversion.stack.stackName=:stackName AND repoversion.version=:version",
+        hints = {
+          @QueryHint(name = "eclipselink.query-results-cache", value = "true"),
+          @QueryHint(name = "eclipselink.query-results-cache.size", value = "100")
+        }),
     @NamedQuery(
         name = "repositoryVersionsFromDefinition",
         query = "SELECT repoversion FROM RepositoryVersionEntity repoversion WHERE repoversion.versionXsd IS NOT NULL"),
     @NamedQuery(
         name = "findRepositoryByVersion",
-        query = "SELECT repositoryVersion FROM RepositoryVersionEntity repositoryVersion WHERE repositoryVersion.version = :version ORDER BY repositoryVersion.id DESC") })
+        query = "SELECT repositoryVersion FROM RepositoryVersionEntity repositoryVersion WHERE repositoryVersion.version = :version ORDER BY repositoryVersion.id DESC",
+        hints = {
+          @QueryHint(name = "eclipselink.query-results-cache", value = "true"),
+          @QueryHint(name = "eclipselink.query-results-cache.size", value = "100")
+        }) })
 @StaticallyInject
 public class RepositoryVersionEntity {
   private static Logger LOG = LoggerFactory.getLogger(RepositoryVersionEntity.class);
@@ -42,7 +42,8 @@ import java.util.Collection;
 @Table(name = "request")
 @Entity
 @NamedQueries({
-  @NamedQuery(name = "RequestEntity.findRequestStageIdsInClusterBeforeDate", query = "SELECT NEW org.apache.ambari.server.orm.dao.RequestDAO.StageEntityPK(request.requestId, stage.stageId) FROM RequestEntity request JOIN StageEntity stage ON request.requestId = stage.requestId WHERE request.clusterId = :clusterId AND request.createTime <= :beforeDate"),
+  @NamedQuery(name = "RequestEntity.findRequestIdsInClusterBeforeDate", query = "SELECT DISTINCT request.requestId FROM RequestEntity request JOIN StageEntity stage ON request.requestId = stage.requestId WHERE request.clusterId = :clusterId AND request.createTime <= :beforeDate AND request.requestId > :lastRequestId ORDER BY request.requestId"),
+  @NamedQuery(name = "RequestEntity.countRequestsInClusterBeforeDate", query = "SELECT COUNT(request.requestId) FROM RequestEntity request WHERE request.clusterId = :clusterId AND request.createTime <= :beforeDate"),
   @NamedQuery(name = "RequestEntity.removeByRequestIds", query = "DELETE FROM RequestEntity request WHERE request.requestId IN :requestIds")
 })
 public class RequestEntity {
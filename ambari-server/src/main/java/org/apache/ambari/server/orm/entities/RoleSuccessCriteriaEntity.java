@@ -36,7 +36,7 @@ import org.apache.ambari.server.Role;
 @Table(name = "role_success_criteria")
 @Entity
 @NamedQueries({
-  @NamedQuery(name = "RoleSuccessCriteriaEntity.removeByRequestStageIds", query = "DELETE FROM RoleSuccessCriteriaEntity criteria WHERE criteria.stageId = :stageId AND criteria.requestId = :requestId")
+  @NamedQuery(name = "RoleSuccessCriteriaEntity.removeByRequestIds", query = "DELETE FROM RoleSuccessCriteriaEntity criteria WHERE criteria.requestId IN :requestIds")
 })
 public class RoleSuccessCriteriaEntity {
 
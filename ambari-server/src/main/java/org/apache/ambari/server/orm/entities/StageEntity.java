@@ -51,8 +51,8 @@ import org.apache.ambari.server.actionmanager.CommandExecutionType;
         name = "StageEntity.findByRequestIdAndCommandStatuses",
         query = "SELECT stage from StageEntity stage WHERE stage.stageId IN (SELECT roleCommand.stageId from HostRoleCommandEntity roleCommand WHERE roleCommand.requestId = :requestId AND roleCommand.status IN :statuses AND roleCommand.stageId = stage.stageId AND roleCommand.requestId = stage.requestId ) ORDER BY stage.stageId"),
     @NamedQuery(
-        name = "StageEntity.removeByRequestStageIds",
-        query = "DELETE FROM StageEntity stage WHERE stage.stageId = :stageId AND stage.requestId = :requestId")
+        name = "StageEntity.removeByRequestIds",
+        query = "DELETE FROM StageEntity stage WHERE stage.requestId IN :requestIds")
 })
 public class StageEntity {
 
@@ -52,7 +52,9 @@ import org.apache.ambari.server.orm.entities.PrivilegeEntity;
 import org.apache.ambari.server.orm.entities.ResourceTypeEntity;
 import org.apache.ambari.server.orm.entities.UserEntity;
 import org.apache.ambari.server.security.ldap.LdapBatchDto;
+import org.apache.ambari.server.security.ldap.LdapSyncProgress;
 import org.apache.ambari.server.security.ldap.LdapUserGroupMemberDto;
+import org.apache.ambari.server.utils.SetUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -106,6 +108,11 @@ public class Users {
   @Inject
   private HookContextFactory hookContextFactory;
 
+  /**
+   * The progress of storing the results of an LDAP sync.
+   */
+  private final LdapSyncProgress ldapSyncProgress = new LdapSyncProgress();
+
   public List<User> getAllUsers() {
     List<UserEntity> userEntities = userDAO.findAll();
     List<User> users = new ArrayList<User>(userEntities.size());
@@ -633,21 +640,46 @@ public class Users {
 
   /**
    * Executes batch queries to database to insert large amounts of LDAP data.
+   * The changes are computed against a snapshot of the existing users, groups
+   * and memberships and written in transactions of at most
+   * {@link Configuration#getLdapSyncBatchSize()} entities; the progress can be
+   * followed with {@link #getLdapSyncProgress()}.
    *
    * @param batchInfo DTO with batch information
    */
   public void processLdapSync(LdapBatchDto batchInfo) {
+    ldapSyncProgress.start(batchInfo.getUsersToBeRemoved().size() + batchInfo.getGroupsToBeRemoved().size()
+        + batchInfo.getUsersToBecomeLdap().size() + batchInfo.getGroupsToBecomeLdap().size()
+        + batchInfo.getUsersToBeCreated().size() + batchInfo.getGroupsToBeCreated().size()
+        + batchInfo.getMembershipToAdd().size() + batchInfo.getMembershipToRemove().size());
+
+    int configuredBatchSize = configuration.getLdapSyncBatchSize();
+    final int batchSize = configuredBatchSize > 0 ? configuredBatchSize
+        : Configuration.LDAP_SYNC_BATCH_SIZE.getDefaultValue();
     final Map<String, UserEntity> allUsers = new HashMap<String, UserEntity>();
     final Map<String, GroupEntity> allGroups = new HashMap<String, GroupEntity>();
 
+    // lookups by lower case name, names are compared case insensitive
+    final Map<String, UserEntity> localUsersByName = new HashMap<String, UserEntity>();
+    final Map<String, UserEntity> ldapUsersByName = new HashMap<String, UserEntity>();
+    final Map<String, GroupEntity> groupsByName = new HashMap<String, GroupEntity>();
+
     // prefetch all user and group data to avoid heavy queries in membership creation
 
     for (UserEntity userEntity : userDAO.findAll()) {
       allUsers.put(userEntity.getUserName(), userEntity);
+
+      String userName = userEntity.getUserName().toLowerCase();
+      if (userEntity.getUserType() == UserType.LOCAL) {
+        localUsersByName.put(userName, userEntity);
+      } else if (userEntity.getUserType() == UserType.LDAP) {
+        ldapUsersByName.put(userName, userEntity);
+      }
     }
 
     for (GroupEntity groupEntity : groupDAO.findAll()) {
       allGroups.put(groupEntity.getGroupName(), groupEntity);
+      groupsByName.put(groupEntity.getGroupName().toLowerCase(), groupEntity);
     }
 
     final PrincipalTypeEntity userPrincipalType = principalTypeDAO
@@ -655,34 +687,46 @@ public class Users {
     final PrincipalTypeEntity groupPrincipalType = principalTypeDAO
         .ensurePrincipalTypeCreated(PrincipalTypeEntity.GROUP_PRINCIPAL_TYPE);
 
-    // remove users
+    // remove users; only LDAP users are removed, never a local user of the same name
     final Set<UserEntity> usersToRemove = new HashSet<UserEntity>();
     for (String userName : batchInfo.getUsersToBeRemoved()) {
-      UserEntity userEntity = userDAO.findUserByName(userName);
+      UserEntity userEntity = ldapUsersByName.get(userName.toLowerCase());
       if (userEntity == null) {
+        ldapSyncProgress.applied(1);
         continue;
       }
       allUsers.remove(userEntity.getUserName());
       usersToRemove.add(userEntity);
     }
-    userDAO.remove(usersToRemove);
+    for (Set<UserEntity> batch : SetUtils.split(usersToRemove, batchSize)) {
+      userDAO.remove(batch);
+      ldapSyncProgress.applied(batch.size());
+    }
 
     // remove groups
     final Set<GroupEntity> groupsToRemove = new HashSet<GroupEntity>();
     for (String groupName : batchInfo.getGroupsToBeRemoved()) {
-      final GroupEntity groupEntity = groupDAO.findGroupByName(groupName);
+      final GroupEntity groupEntity = groupsByName.get(groupName.toLowerCase());
+      if (groupEntity == null) {
+        ldapSyncProgress.applied(1);
+        continue;
+      }
       allGroups.remove(groupEntity.getGroupName());
       groupsToRemove.add(groupEntity);
     }
-    groupDAO.remove(groupsToRemove);
+    for (Set<GroupEntity> batch : SetUtils.split(groupsToRemove, batchSize)) {
+      groupDAO.remove(batch);
+      ldapSyncProgress.applied(batch.size());
+    }
 
     // update users
     final Set<UserEntity> usersToBecomeLdap = new HashSet<UserEntity>();
     for (String userName : batchInfo.getUsersToBecomeLdap()) {
-      UserEntity userEntity = userDAO.findLocalUserByName(userName);
+      UserEntity userEntity = localUsersByName.get(userName.toLowerCase());
       if (userEntity == null) {
-        userEntity = userDAO.findLdapUserByName(userName);
+        userEntity = ldapUsersByName.get(userName.toLowerCase());
         if (userEntity == null) {
+          ldapSyncProgress.applied(1);
           continue;
         }
       }
@@ -690,27 +734,33 @@ public class Users {
       allUsers.put(userEntity.getUserName(), userEntity);
       usersToBecomeLdap.add(userEntity);
     }
-    userDAO.merge(usersToBecomeLdap);
+    for (Set<UserEntity> batch : SetUtils.split(usersToBecomeLdap, batchSize)) {
+      userDAO.merge(batch);
+      ldapSyncProgress.applied(batch.size());
+    }
 
     // update groups
     final Set<GroupEntity> groupsToBecomeLdap = new HashSet<GroupEntity>();
     for (String groupName : batchInfo.getGroupsToBecomeLdap()) {
-      final GroupEntity groupEntity = groupDAO.findGroupByName(groupName);
+      final GroupEntity groupEntity = groupsByName.get(groupName.toLowerCase());
+      if (groupEntity == null) {
+        ldapSyncProgress.applied(1);
+        continue;
+      }
       groupEntity.setGroupType(GroupType.LDAP);
       allGroups.put(groupEntity.getGroupName(), groupEntity);
       groupsToBecomeLdap.add(groupEntity);
     }
-    groupDAO.merge(groupsToBecomeLdap);
-
-    // prepare create principals
-    final List<PrincipalEntity> principalsToCreate = new ArrayList<PrincipalEntity>();
+    for (Set<GroupEntity> batch : SetUtils.split(groupsToBecomeLdap, batchSize)) {
+      groupDAO.merge(batch);
+      ldapSyncProgress.applied(batch.size());
+    }
 
     // prepare create users
     final Set<UserEntity> usersToCreate = new HashSet<UserEntity>();
     for (String userName : batchInfo.getUsersToBeCreated()) {
       final PrincipalEntity principalEntity = new PrincipalEntity();
       principalEntity.setPrincipalType(userPrincipalType);
-      principalsToCreate.add(principalEntity);
 
       final UserEntity userEntity = new UserEntity();
       userEntity.setUserName(UserName.fromString(userName));
@@ -727,7 +777,6 @@ public class Users {
     for (String groupName : batchInfo.getGroupsToBeCreated()) {
       final PrincipalEntity principalEntity = new PrincipalEntity();
       principalEntity.setPrincipalType(groupPrincipalType);
-      principalsToCreate.add(principalEntity);
 
       final GroupEntity groupEntity = new GroupEntity();
       groupEntity.setGroupName(groupName);
@@ -738,10 +787,25 @@ public class Users {
       groupsToCreate.add(groupEntity);
     }
 
-    // create users and groups
-    principalDAO.create(principalsToCreate);
-    userDAO.create(usersToCreate);
-    groupDAO.create(groupsToCreate);
+    // create users and groups, together with their principals
+    for (Set<UserEntity> batch : SetUtils.split(usersToCreate, batchSize)) {
+      final List<PrincipalEntity> principalsToCreate = new ArrayList<PrincipalEntity>(batch.size());
+      for (UserEntity userEntity : batch) {
+        principalsToCreate.add(userEntity.getPrincipal());
+      }
+      principalDAO.create(principalsToCreate);
+      userDAO.create(batch);
+      ldapSyncProgress.applied(batch.size());
+    }
+    for (Set<GroupEntity> batch : SetUtils.split(groupsToCreate, batchSize)) {
+      final List<PrincipalEntity> principalsToCreate = new ArrayList<PrincipalEntity>(batch.size());
+      for (GroupEntity groupEntity : batch) {
+        principalsToCreate.add(groupEntity.getPrincipal());
+      }
+      principalDAO.create(principalsToCreate);
+      groupDAO.create(batch);
+      ldapSyncProgress.applied(batch.size());
+    }
 
     // create membership
     final Set<MemberEntity> membersToCreate = new HashSet<MemberEntity>();
@@ -755,18 +819,39 @@ public class Users {
       groupsToUpdate.add(groupEntity);
       membersToCreate.add(memberEntity);
     }
-    memberDAO.create(membersToCreate);
-    groupDAO.merge(groupsToUpdate); // needed for Derby DB as it doesn't fetch newly added members automatically
+    for (Set<MemberEntity> batch : SetUtils.split(membersToCreate, batchSize)) {
+      memberDAO.create(batch);
+      ldapSyncProgress.applied(batch.size());
+    }
+    for (Set<GroupEntity> batch : SetUtils.split(groupsToUpdate, batchSize)) {
+      groupDAO.merge(batch); // needed for Derby DB as it doesn't fetch newly added members automatically
+    }
 
     // remove membership
-    final Set<MemberEntity> membersToRemove = new HashSet<MemberEntity>();
-    for (LdapUserGroupMemberDto member : batchInfo.getMembershipToRemove()) {
-      MemberEntity memberEntity = memberDAO.findByUserAndGroup(member.getUserName(), member.getGroupName());
-      if (memberEntity != null) {
-        membersToRemove.add(memberEntity);
+    if (!batchInfo.getMembershipToRemove().isEmpty()) {
+      // a single query for all memberships instead of one query per removed membership
+      final Map<String, MemberEntity> membersByUserAndGroup = new HashMap<String, MemberEntity>();
+      for (MemberEntity memberEntity : memberDAO.findAll()) {
+        if (memberEntity.getUser() != null && memberEntity.getGroup() != null) {
+          membersByUserAndGroup.put(getMembershipKey(memberEntity.getUser().getUserName(),
+              memberEntity.getGroup().getGroupName()), memberEntity);
+        }
+      }
+
+      final Set<MemberEntity> membersToRemove = new HashSet<MemberEntity>();
+      for (LdapUserGroupMemberDto member : batchInfo.getMembershipToRemove()) {
+        MemberEntity memberEntity = membersByUserAndGroup.get(getMembershipKey(member.getUserName(), member.getGroupName()));
+        if (memberEntity != null) {
+          membersToRemove.add(memberEntity);
+        } else {
+          ldapSyncProgress.applied(1);
+        }
+      }
+      for (Set<MemberEntity> batch : SetUtils.split(membersToRemove, batchSize)) {
+        memberDAO.remove(batch);
+        ldapSyncProgress.applied(batch.size());
       }
     }
-    memberDAO.remove(membersToRemove);
 
     // clear cached entities
     entityManagerProvider.get().getEntityManagerFactory().getCache().evictAll();
@@ -778,6 +863,22 @@ public class Users {
 
   }
 
+  /**
+   * Gets the progress of the LDAP sync data which is being stored.
+   *
+   * @return the progress of the last or currently running LDAP sync
+   */
+  public LdapSyncProgress getLdapSyncProgress() {
+    return ldapSyncProgress;
+  }
+
+  /**
+   * @return the case insensitive key of a membership
+   */
+  private static String getMembershipKey(String userName, String groupName) {
+    return userName.toLowerCase() + '\n' + groupName.toLowerCase();
+  }
+
   /**
    * Assembles a map where the keys are usernames and values are Lists with groups associated with users.
    *
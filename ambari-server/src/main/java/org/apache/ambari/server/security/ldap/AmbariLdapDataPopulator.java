@@ -17,6 +17,7 @@
  */
 package org.apache.ambari.server.security.ldap;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -25,6 +26,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -43,7 +49,9 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.springframework.ldap.control.PagedResultsDirContextProcessor;
 import org.springframework.ldap.core.AttributesMapper;
@@ -91,6 +99,17 @@ public class AmbariLdapDataPopulator {
    */
   private LdapTemplate ldapTemplate;
 
+  /**
+   * The users found by member attribute value during the running group sync, so
+   * that a member of several groups is looked up only once.
+   */
+  private Map<String, Optional<LdapUserDto>> memberLookups;
+
+  /**
+   * Looks up the members of large groups in parallel during the running group sync.
+   */
+  private ExecutorService memberLookupExecutor;
+
   // Constants
   private static final String UID_ATTRIBUTE = "uid";
   private static final String OBJECT_CLASS_ATTRIBUTE = "objectClass";
@@ -102,6 +121,9 @@ public class AmbariLdapDataPopulator {
   private static final String MEMBER_ATTRIBUTE_REPLACE_STRING = "${member}";
   private static final String MEMBER_ATTRIBUTE_VALUE_PLACEHOLDER = "{member}";
 
+  // groups with fewer members to look up are not worth the parallel lookup
+  private static final int MIN_PARALLEL_MEMBER_LOOKUPS = 16;
+
   /**
    * Construct an AmbariLdapDataPopulator.
    *
@@ -183,23 +205,28 @@ public class AmbariLdapDataPopulator {
    */
   public LdapBatchDto synchronizeAllLdapGroups(LdapBatchDto batchInfo) throws AmbariException {
     LOG.trace("Synchronize All LDAP groups...");
-    Set<LdapGroupDto> externalLdapGroupInfo = getExternalLdapGroupInfo();
+    startMemberLookups();
+    try {
+      Set<LdapGroupDto> externalLdapGroupInfo = getExternalLdapGroupInfo();
 
-    final Map<String, Group> internalGroupsMap = getInternalGroups();
-    final Map<String, User> internalUsersMap = getInternalUsers();
+      final Map<String, Group> internalGroupsMap = getInternalGroups();
+      final Map<String, User> internalUsersMap = getInternalUsers();
 
-    for (LdapGroupDto groupDto : externalLdapGroupInfo) {
-      String groupName = groupDto.getGroupName();
-      addLdapGroup(batchInfo, internalGroupsMap, groupName);
-      refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, false);
-    }
-    for (Entry<String, Group> internalGroup : internalGroupsMap.entrySet()) {
-      if (internalGroup.getValue().isLdapGroup()) {
-        batchInfo.getGroupsToBeRemoved().add(internalGroup.getValue().getGroupName());
+      for (LdapGroupDto groupDto : externalLdapGroupInfo) {
+        String groupName = groupDto.getGroupName();
+        addLdapGroup(batchInfo, internalGroupsMap, groupName);
+        refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, false);
+      }
+      for (Entry<String, Group> internalGroup : internalGroupsMap.entrySet()) {
+        if (internalGroup.getValue().isLdapGroup()) {
+          batchInfo.getGroupsToBeRemoved().add(internalGroup.getValue().getGroupName());
+        }
       }
-    }
 
-    return batchInfo;
+      return batchInfo;
+    } finally {
+      finishMemberLookups();
+    }
   }
 
   /**
@@ -247,26 +274,31 @@ public class AmbariLdapDataPopulator {
    */
   public LdapBatchDto synchronizeLdapGroups(Set<String> groups, LdapBatchDto batchInfo) throws AmbariException {
     LOG.trace("Synchronize LDAP groups...");
-    final Set<LdapGroupDto> specifiedGroups = new HashSet<LdapGroupDto>();
-    for (String group : groups) {
-      Set<LdapGroupDto> groupDtos = getLdapGroups(group);
-      if (groupDtos.isEmpty()) {
-        throw new AmbariException("Couldn't sync LDAP group " + group
-            + ", it doesn't exist");
+    startMemberLookups();
+    try {
+      final Set<LdapGroupDto> specifiedGroups = new HashSet<LdapGroupDto>();
+      for (String group : groups) {
+        Set<LdapGroupDto> groupDtos = getLdapGroups(group);
+        if (groupDtos.isEmpty()) {
+          throw new AmbariException("Couldn't sync LDAP group " + group
+              + ", it doesn't exist");
+        }
+        specifiedGroups.addAll(groupDtos);
       }
-      specifiedGroups.addAll(groupDtos);
-    }
 
-    final Map<String, Group> internalGroupsMap = getInternalGroups();
-    final Map<String, User> internalUsersMap = getInternalUsers();
+      final Map<String, Group> internalGroupsMap = getInternalGroups();
+      final Map<String, User> internalUsersMap = getInternalUsers();
 
-    for (LdapGroupDto groupDto : specifiedGroups) {
-      String groupName = groupDto.getGroupName();
-      addLdapGroup(batchInfo, internalGroupsMap, groupName);
-      refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, true);
-    }
+      for (LdapGroupDto groupDto : specifiedGroups) {
+        String groupName = groupDto.getGroupName();
+        addLdapGroup(batchInfo, internalGroupsMap, groupName);
+        refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, true);
+      }
 
-    return batchInfo;
+      return batchInfo;
+    } finally {
+      finishMemberLookups();
+    }
   }
 
   /**
@@ -317,24 +349,29 @@ public class AmbariLdapDataPopulator {
    */
   public LdapBatchDto synchronizeExistingLdapGroups(LdapBatchDto batchInfo) throws AmbariException {
     LOG.trace("Synchronize Existing LDAP groups...");
-    final Map<String, Group> internalGroupsMap = getInternalGroups();
-    final Map<String, User> internalUsersMap = getInternalUsers();
+    startMemberLookups();
+    try {
+      final Map<String, Group> internalGroupsMap = getInternalGroups();
+      final Map<String, User> internalUsersMap = getInternalUsers();
 
-    final Set<Group> internalGroupSet = Sets.newHashSet(internalGroupsMap.values());
+      final Set<Group> internalGroupSet = Sets.newHashSet(internalGroupsMap.values());
 
-    for (Group group : internalGroupSet) {
-      if (group.isLdapGroup()) {
-        Set<LdapGroupDto> groupDtos = getLdapGroups(group.getGroupName());
-        if (groupDtos.isEmpty()) {
-          batchInfo.getGroupsToBeRemoved().add(group.getGroupName());
-        } else {
-          LdapGroupDto groupDto = groupDtos.iterator().next();
-          refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, true);
+      for (Group group : internalGroupSet) {
+        if (group.isLdapGroup()) {
+          Set<LdapGroupDto> groupDtos = getLdapGroups(group.getGroupName());
+          if (groupDtos.isEmpty()) {
+            batchInfo.getGroupsToBeRemoved().add(group.getGroupName());
+          } else {
+            LdapGroupDto groupDto = groupDtos.iterator().next();
+            refreshGroupMembers(batchInfo, groupDto, internalUsersMap, internalGroupsMap, null, true);
+          }
         }
       }
-    }
 
-    return batchInfo;
+      return batchInfo;
+    } finally {
+      finishMemberLookups();
+    }
   }
 
   /**
@@ -377,8 +414,9 @@ public class AmbariLdapDataPopulator {
       groupMemberAttributes = new HashSet<String>();
     }
 
+    final Map<String, LdapUserDto> groupMembers = getLdapUsersByMemberAttrs(group.getMemberAttributes());
     for (String memberAttributeValue : group.getMemberAttributes()) {
-      LdapUserDto groupMember = getLdapUserByMemberAttr(memberAttributeValue);
+      LdapUserDto groupMember = groupMembers.get(memberAttributeValue);
       if (groupMember != null) {
         externalMembers.add(groupMember.getUserName());
       } else {
@@ -431,6 +469,91 @@ public class AmbariLdapDataPopulator {
     }
   }
 
+  /**
+   * Get the LDAP user members for the given member attributes. During a group
+   * sync the results are kept for the other groups and the members of a large
+   * group are looked up in parallel.
+   *
+   * @param memberAttributeValues the member attribute values
+   * @return the users by member attribute value; the value is null if the user was not found
+   * @throws AmbariException if a parallel lookup failed
+   */
+  protected Map<String, LdapUserDto> getLdapUsersByMemberAttrs(Set<String> memberAttributeValues)
+      throws AmbariException {
+    final Map<String, LdapUserDto> groupMembers = new HashMap<String, LdapUserDto>();
+    final List<String> toLookup = new ArrayList<String>();
+    for (String memberAttributeValue : memberAttributeValues) {
+      Optional<LdapUserDto> cached = memberLookups == null ? null : memberLookups.get(memberAttributeValue);
+      if (cached != null) {
+        groupMembers.put(memberAttributeValue, cached.orNull());
+      } else {
+        toLookup.add(memberAttributeValue);
+      }
+    }
+
+    if (memberLookupExecutor != null && toLookup.size() >= MIN_PARALLEL_MEMBER_LOOKUPS) {
+      // make sure the template is (re)loaded before it is shared by the lookup threads
+      loadLdapTemplate();
+
+      final List<Future<LdapUserDto>> futures = new ArrayList<Future<LdapUserDto>>(toLookup.size());
+      for (final String memberAttributeValue : toLookup) {
+        futures.add(memberLookupExecutor.submit(new Callable<LdapUserDto>() {
+          @Override
+          public LdapUserDto call() throws Exception {
+            return getLdapUserByMemberAttr(memberAttributeValue);
+          }
+        }));
+      }
+      try {
+        for (int i = 0; i < toLookup.size(); i++) {
+          groupMembers.put(toLookup.get(i), futures.get(i).get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AmbariException("Interrupted while looking up LDAP group members", e);
+      } catch (ExecutionException e) {
+        for (Future<LdapUserDto> future : futures) {
+          future.cancel(true);
+        }
+        throw new AmbariException("Couldn't look up LDAP group members", e.getCause());
+      }
+    } else {
+      for (String memberAttributeValue : toLookup) {
+        groupMembers.put(memberAttributeValue, getLdapUserByMemberAttr(memberAttributeValue));
+      }
+    }
+
+    if (memberLookups != null) {
+      for (String memberAttributeValue : toLookup) {
+        memberLookups.put(memberAttributeValue, Optional.fromNullable(groupMembers.get(memberAttributeValue)));
+      }
+    }
+    return groupMembers;
+  }
+
+  /**
+   * Starts keeping the member lookups of a group sync.
+   */
+  private void startMemberLookups() {
+    memberLookups = new HashMap<String, Optional<LdapUserDto>>();
+    int threads = configuration.getLdapSyncMemberLookupThreads();
+    if (threads > 1) {
+      memberLookupExecutor = Executors.newFixedThreadPool(threads,
+          new ThreadFactoryBuilder().setNameFormat("ldap-sync-member-lookup-%d").setDaemon(true).build());
+    }
+  }
+
+  /**
+   * Releases the member lookups of a group sync.
+   */
+  private void finishMemberLookups() {
+    memberLookups = null;
+    if (memberLookupExecutor != null) {
+      memberLookupExecutor.shutdownNow();
+      memberLookupExecutor = null;
+    }
+  }
+
   /**
    * Get the set of LDAP groups for the given group name.
    *
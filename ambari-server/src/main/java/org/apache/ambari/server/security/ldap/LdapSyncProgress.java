@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.security.ldap;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how many of the user, group and membership changes found by an LDAP
+ * synchronization have been written to the database. The total is known once
+ * the directory has been read and the changes are being stored.
+ */
+public class LdapSyncProgress {
+  private volatile long totalChanges = 0;
+  private final AtomicLong appliedChanges = new AtomicLong();
+
+  /**
+   * Start tracking the changes of a new synchronization.
+   *
+   * @param totalChanges the number of changes to be written
+   */
+  public void start(long totalChanges) {
+    appliedChanges.set(0);
+    this.totalChanges = totalChanges;
+  }
+
+  /**
+   * Record written changes.
+   *
+   * @param count the number of changes which have been written
+   */
+  public void applied(long count) {
+    appliedChanges.addAndGet(count);
+  }
+
+  public long getTotalChanges() {
+    return totalChanges;
+  }
+
+  public long getAppliedChanges() {
+    return appliedChanges.get();
+  }
+}
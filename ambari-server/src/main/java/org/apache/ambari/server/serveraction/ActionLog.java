@@ -82,6 +82,9 @@ public class ActionLog {
 
   /**
    * Appends a message to the specified buffer
+   * <p/>
+   * The message is appended atomically so that lines written by concurrent threads are not
+   * interleaved.
    *
    * @param buffer  the StringBuffer to use to append the formatted message
    * @param message a String containing the message to log
@@ -89,10 +92,12 @@ public class ActionLog {
   private void write(StringBuffer buffer, String message) {
     if (message != null) {
       Date date = new Date();
-      buffer.append(dateFormat.format(date));
-      buffer.append(" - ");
-      buffer.append(message);
-      buffer.append("\n");
+      synchronized (buffer) {
+        buffer.append(dateFormat.format(date));
+        buffer.append(" - ");
+        buffer.append(message);
+        buffer.append("\n");
+      }
     }
   }
 
@@ -18,6 +18,7 @@
 
 package org.apache.ambari.server.serveraction.kerberos;
 
+import com.google.common.util.concurrent.Striped;
 import com.google.inject.Inject;
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
@@ -38,11 +39,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
 
 /**
  * CreateKeytabFilesServerAction is a ServerAction implementation that creates keytab files as
@@ -84,8 +86,21 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
   /**
    * A map of data used to track what has been processed in order to optimize the creation of keytabs
    * such as knowing when to create a cached keytab file or use a cached keytab file.
+   * <p/>
+   * The map is concurrent since identities may be processed in parallel; the set of a single
+   * principal is only ever accessed by the thread processing that principal.
+   */
+  Map<String, Set<String>> visitedIdentities = new ConcurrentHashMap<String, Set<String>>();
+
+  /**
+   * Locks on the destination keytab files by absolute path.
+   * <p/>
+   * Several principals may share a keytab file on a host (for example, <code>HTTP/_HOST</code> and
+   * <code>hbase/_HOST</code> in <code>hbase.service.keytab</code>) and those principals may be
+   * processed in parallel.  Adding the entries of a principal reads, merges and rewrites the whole
+   * file, so the principals of one file must be added one at a time.
    */
-  Map<String, Set<String>> visitedIdentities = new HashMap<String, Set<String>>();
+  private final Striped<Lock> keytabFileLocks = Striped.lazyWeakLock(64);
 
   /**
    * Called to execute this action.  Upon invocation, calls
@@ -106,6 +121,17 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
     return processIdentities(requestSharedDataContext);
   }
 
+  /**
+   * Principals may be processed concurrently; the keytab files which are shared by several
+   * principals are guarded by {@link #keytabFileLocks}.
+   *
+   * @return true
+   */
+  @Override
+  protected boolean isConcurrentProcessingSupported() {
+    return true;
+  }
+
 
   /**
    * For each identity, create a keytab and append to a new or existing keytab file.
@@ -234,7 +260,8 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
                       commandReport = createCommandReport(1, HostRoleStatus.FAILED, "{}", actionLog.getStdOut(), actionLog.getStdErr());
                     } else {
                       try {
-                        operationHandler.createKeytabFile(new File(cachedKeytabPath), destinationKeytabFile);
+                        createKeytabFile(operationHandler, operationHandler.readKeytabFile(new File(cachedKeytabPath)),
+                            destinationKeytabFile);
                       } catch (KerberosOperationException e) {
                         message = String.format("Failed to create keytab file for %s - %s", evaluatedPrincipal, e.getMessage());
                         actionLog.writeStdErr(message);
@@ -250,9 +277,7 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
 
                   if (keytab != null) {
                     try {
-                      if (operationHandler.createKeytabFile(keytab, destinationKeytabFile)) {
-                        ensureAmbariOnlyAccess(destinationKeytabFile);
-
+                      if (createKeytabFile(operationHandler, keytab, destinationKeytabFile)) {
                         message = String.format("Successfully created keytab file for %s at %s", evaluatedPrincipal, destinationKeytabFile.getAbsolutePath());
                         LOG.debug(message);
                         auditEventBuilder.withPrincipal(evaluatedPrincipal).withHostName(hostName).withKeyTabFilePath(destinationKeytabFile.getAbsolutePath());
@@ -303,6 +328,37 @@ public class CreateKeytabFilesServerAction extends KerberosServerAction {
     return commandReport;
   }
 
+  /**
+   * Adds the entries of a keytab to the destination keytab file and ensures that only Ambari has
+   * access to the file.
+   * <p/>
+   * The destination file is locked while its existing entries are read, merged with the new
+   * entries and written back so that the entries of another principal sharing the file are not
+   * lost.
+   *
+   * @param operationHandler      the KerberosOperationHandler used to write the keytab file
+   * @param keytab                the Keytab containing the entries to add
+   * @param destinationKeytabFile the keytab file to create or add to
+   * @return true if the keytab file was successfully created; false otherwise
+   * @throws KerberosOperationException if the keytab file could not be written
+   * @throws AmbariException if the access to the keytab file could not be restricted
+   */
+  boolean createKeytabFile(KerberosOperationHandler operationHandler, Keytab keytab, File destinationKeytabFile)
+      throws KerberosOperationException, AmbariException {
+    Lock lock = keytabFileLocks.get(destinationKeytabFile.getAbsolutePath());
+    lock.lock();
+    try {
+      if (!operationHandler.createKeytabFile(keytab, destinationKeytabFile)) {
+        return false;
+      }
+
+      ensureAmbariOnlyAccess(destinationKeytabFile);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
   /**
    * Creates the keytab or gets one from the cache for a principal.
    *
@@ -32,9 +32,10 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 /**
@@ -69,8 +70,11 @@ public class CreatePrincipalsServerAction extends KerberosServerAction {
   /**
    * A set of visited principal names used to prevent unnecessary processing on already processed
    * principal names
+   * <p/>
+   * The set is concurrent since identities may be processed in parallel, see
+   * {@link #isConcurrentProcessingSupported()}.
    */
-  private Set<String> seenPrincipals = new HashSet<String>();
+  private Set<String> seenPrincipals = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
   /**
    * Called to execute this action.  Upon invocation, calls
@@ -91,6 +95,16 @@ public class CreatePrincipalsServerAction extends KerberosServerAction {
     return processIdentities(requestSharedDataContext);
   }
 
+  /**
+   * Principals are independent of each other, so they may be processed concurrently.
+   *
+   * @return true
+   */
+  @Override
+  protected boolean isConcurrentProcessingSupported() {
+    return true;
+  }
+
 
   /**
    * For each identity, generate a unique password create a new or update an existing principal in
@@ -123,8 +137,7 @@ public class CreatePrincipalsServerAction extends KerberosServerAction {
     CommandReport commandReport = null;
 
     //  Only process this principal name if we haven't already processed it
-    if (!seenPrincipals.contains(evaluatedPrincipal)) {
-      seenPrincipals.add(evaluatedPrincipal);
+    if (seenPrincipals.add(evaluatedPrincipal)) {
 
       boolean processPrincipal;
       boolean regenerateKeytabs = "true".equalsIgnoreCase(getCommandParameterValue(getCommandParameters(), REGENERATE_ALL));
@@ -163,8 +176,13 @@ public class CreatePrincipalsServerAction extends KerberosServerAction {
           } else {
             Map<String, Integer> principalKeyNumberMap = getPrincipalKeyNumberMap(requestSharedDataContext);
 
-            principalPasswordMap.put(evaluatedPrincipal, result.getPassword());
-            principalKeyNumberMap.put(evaluatedPrincipal, result.getKeyNumber());
+            // the shared maps may be concurrent ones which do not accept null values
+            if (result.getPassword() != null) {
+              principalPasswordMap.put(evaluatedPrincipal, result.getPassword());
+            }
+            if (result.getKeyNumber() != null) {
+              principalKeyNumberMap.put(evaluatedPrincipal, result.getKeyNumber());
+            }
           }
         }
       }
@@ -18,11 +18,13 @@
 
 package org.apache.ambari.server.serveraction.kerberos;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.agent.CommandReport;
 import org.apache.ambari.server.agent.ExecutionCommand;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.KerberosHelper;
 import org.apache.ambari.server.security.credential.PrincipalKeyCredential;
 import org.apache.ambari.server.serveraction.AbstractServerAction;
@@ -36,8 +38,22 @@ import static org.apache.ambari.server.serveraction.kerberos.KerberosIdentityDat
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * KerberosServerAction is an abstract class to be implemented by Kerberos-related
@@ -159,6 +175,12 @@ public abstract class KerberosServerAction extends AbstractServerAction {
   @Inject
   private KerberosHelper kerberosHelper;
 
+  /**
+   * The Ambari configuration, used to determine how many KDC sessions may be used in parallel
+   */
+  @Inject
+  private Configuration configuration;
+
   /**
    * Given a (command parameter) Map and a property name, attempts to safely retrieve the requested
    * data.
@@ -405,18 +427,28 @@ public abstract class KerberosServerAction extends AbstractServerAction {
               throw new AmbariException(message, e);
             }
 
+            int concurrency = isConcurrentProcessingSupported()
+                ? configuration.getKerberosOperationConcurrency()
+                : 1;
+
             // Create the data file reader to parse and iterate through the records
             KerberosIdentityDataFileReader reader = null;
             try {
               reader = kerberosIdentityDataFileReaderFactory.createKerberosIdentityDataFileReader(identityDataFile);
-              for (Map<String, String> record : reader) {
-                // Process the current record
-                commandReport = processRecord(record, defaultRealm, handler, kerberosConfiguration, requestSharedDataContext);
 
-                // If the principal processor returns a CommandReport, than it is time to stop since
-                // an error condition has probably occurred, else all is assumed to be well.
-                if (commandReport != null) {
-                  break;
+              if (concurrency > 1) {
+                commandReport = processRecordsConcurrently(reader, concurrency, handler, kdcType,
+                    administratorCredential, defaultRealm, kerberosConfiguration, requestSharedDataContext);
+              } else {
+                for (Map<String, String> record : reader) {
+                  // Process the current record
+                  commandReport = processRecord(record, defaultRealm, handler, kerberosConfiguration, requestSharedDataContext);
+
+                  // If the principal processor returns a CommandReport, than it is time to stop since
+                  // an error condition has probably occurred, else all is assumed to be well.
+                  if (commandReport != null) {
+                    break;
+                  }
                 }
               }
             } catch (AmbariException e) {
@@ -488,6 +520,243 @@ public abstract class KerberosServerAction extends AbstractServerAction {
                                                    Map<String, Object> requestSharedDataContext)
       throws AmbariException;
 
+  /**
+   * Indicates whether the identity records may be processed by several threads at the same time,
+   * each using its own KDC session (see {@link Configuration#getKerberosOperationConcurrency()}).
+   * <p/>
+   * If concurrent processing is supported, the records of a single (evaluated) principal are still
+   * processed in the order they appear in the identity data file by a single thread, but the records
+   * of different principals may be processed in parallel.  Implementations returning true must
+   * therefore guard any state shared between principals.
+   *
+   * @return true if identities may be processed concurrently; false otherwise
+   */
+  protected boolean isConcurrentProcessingSupported() {
+    return false;
+  }
+
+  /**
+   * Processes the identity records using a bounded pool of KDC sessions.
+   * <p/>
+   * The records are grouped by their evaluated principal so that a principal shared by several
+   * hosts or components is handled by a single task, in which the implementing class may skip
+   * the duplicates.  Each task borrows one of the opened {@link KerberosOperationHandler}s for the
+   * duration of its records.  Once a record fails, no further tasks are started.
+   *
+   * @param reader                   the reader of the identity data file
+   * @param concurrency              the maximum number of KDC sessions to use
+   * @param handler                  an opened KerberosOperationHandler which is part of the pool
+   * @param kdcType                  the type of the KDC, used to open additional handlers
+   * @param administratorCredential  the KDC administrator credential
+   * @param defaultRealm             a String declaring the default Kerberos realm
+   * @param kerberosConfiguration    a Map of configuration properties from kerberos-env
+   * @param requestSharedDataContext a Map to be used a shared data among all ServerActions related
+   *                                 to a given request
+   * @return a CommandReport, indicating an error condition; or null, indicating a success condition
+   * @throws AmbariException if an error occurs while processing the identity records
+   */
+  private CommandReport processRecordsConcurrently(KerberosIdentityDataFileReader reader, int concurrency,
+                                                   KerberosOperationHandler handler, KDCType kdcType,
+                                                   PrincipalKeyCredential administratorCredential,
+                                                   final String defaultRealm,
+                                                   final Map<String, String> kerberosConfiguration,
+                                                   final Map<String, Object> requestSharedDataContext)
+      throws AmbariException {
+    // Group the records by principal, keeping the order of the identity data file
+    Map<String, List<Map<String, String>>> recordsByPrincipal = new LinkedHashMap<String, List<Map<String, String>>>();
+    int recordCount = 0;
+    for (Map<String, String> record : reader) {
+      String evaluatedPrincipal = evaluatePrincipal(record, defaultRealm);
+
+      if (evaluatedPrincipal != null) {
+        List<Map<String, String>> records = recordsByPrincipal.get(evaluatedPrincipal);
+        if (records == null) {
+          records = new ArrayList<Map<String, String>>();
+          recordsByPrincipal.put(evaluatedPrincipal, records);
+        }
+        records.add(record);
+        recordCount++;
+      }
+    }
+
+    if (recordsByPrincipal.isEmpty()) {
+      return null;
+    }
+
+    // The shared maps are written to by several threads from now on
+    makeSharedDataConcurrent(requestSharedDataContext);
+
+    int sessionCount = Math.min(concurrency, recordsByPrincipal.size());
+    final BlockingQueue<KerberosOperationHandler> handlers = new LinkedBlockingQueue<KerberosOperationHandler>();
+    List<KerberosOperationHandler> openedHandlers = new ArrayList<KerberosOperationHandler>();
+    handlers.add(handler);
+
+    ExecutorService executorService = null;
+    try {
+      for (int i = 1; i < sessionCount; i++) {
+        KerberosOperationHandler additionalHandler = kerberosOperationHandlerFactory.getKerberosOperationHandler(kdcType);
+        try {
+          additionalHandler.open(administratorCredential, defaultRealm, kerberosConfiguration);
+        } catch (KerberosOperationException e) {
+          String message = String.format("Failed to process the identities, could not open KDC session %d of %d: %s",
+              i + 1, sessionCount, e.getMessage());
+          actionLog.writeStdErr(message);
+          LOG.error(message);
+          throw new AmbariException(message, e);
+        }
+        openedHandlers.add(additionalHandler);
+        handlers.add(additionalHandler);
+      }
+
+      String message = String.format("Processing %d identities for %d principals using %d %s sessions",
+          recordCount, recordsByPrincipal.size(), sessionCount, kdcType);
+      actionLog.writeStdOut(message);
+      LOG.info(message);
+
+      executorService = Executors.newFixedThreadPool(sessionCount, new ThreadFactoryBuilder()
+          .setNameFormat("kerberos-identity-processor-%d")
+          .setDaemon(true)
+          .build());
+
+      final AtomicReference<CommandReport> failure = new AtomicReference<CommandReport>();
+      final AtomicInteger processedPrincipals = new AtomicInteger();
+      long startTime = System.currentTimeMillis();
+
+      List<Future<Void>> futures = new ArrayList<Future<Void>>(recordsByPrincipal.size());
+      for (final Map.Entry<String, List<Map<String, String>>> entry : recordsByPrincipal.entrySet()) {
+        futures.add(executorService.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            // do not start any more work once a record failed
+            if (failure.get() != null) {
+              return null;
+            }
+
+            KerberosOperationHandler operationHandler = handlers.take();
+            try {
+              for (Map<String, String> record : entry.getValue()) {
+                CommandReport report = processIdentity(record, entry.getKey(), operationHandler,
+                    kerberosConfiguration, requestSharedDataContext);
+
+                if (report != null) {
+                  failure.compareAndSet(null, report);
+                  break;
+                }
+              }
+
+              processedPrincipals.incrementAndGet();
+            } finally {
+              handlers.put(operationHandler);
+            }
+
+            return null;
+          }
+        }));
+      }
+
+      AmbariException exception = null;
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (exception == null) {
+            Throwable cause = e.getCause();
+            exception = (cause instanceof AmbariException)
+                ? (AmbariException) cause
+                : new AmbariException(String.format("Failed to process the identities: %s", cause.getMessage()), cause);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new AmbariException("Interrupted while processing the identities", e);
+        }
+      }
+
+      long elapsedTime = System.currentTimeMillis() - startTime;
+      message = String.format("Processed %d of %d principals in %d ms using %d %s sessions (%.1f principals/s)",
+          processedPrincipals.get(), recordsByPrincipal.size(), elapsedTime, sessionCount, kdcType,
+          (elapsedTime == 0) ? 0.0 : processedPrincipals.get() * 1000.0 / elapsedTime);
+      actionLog.writeStdOut(message);
+      LOG.info(message);
+
+      if (exception != null) {
+        throw new AmbariException(exception.getMessage(), exception);
+      }
+
+      return failure.get();
+    } finally {
+      if (executorService != null) {
+        executorService.shutdownNow();
+      }
+
+      // The additional KerberosOperationHandlers need to be closed, if one fails to close ignore
+      // the exception since there is little we can or care to do about it now.
+      for (KerberosOperationHandler openedHandler : openedHandlers) {
+        try {
+          openedHandler.close();
+        } catch (KerberosOperationException e) {
+          // Ignore this...
+        }
+      }
+    }
+  }
+
+  /**
+   * Replaces the shared principal-to-password and principal-to-key_number maps with concurrent
+   * versions so that they may be updated by several threads.
+   *
+   * @param requestSharedDataContext a Map to be used a shared data among all ServerActions related
+   *                                 to a given request
+   */
+  private static void makeSharedDataConcurrent(Map<String, Object> requestSharedDataContext) {
+    if (requestSharedDataContext != null) {
+      for (String key : new String[]{PRINCIPAL_PASSWORD_MAP, PRINCIPAL_KEY_NUMBER_MAP}) {
+        Object map = requestSharedDataContext.get(key);
+
+        if (!(map instanceof ConcurrentMap)) {
+          ConcurrentMap<Object, Object> concurrentMap = new ConcurrentHashMap<Object, Object>();
+
+          if (map != null) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) map).entrySet()) {
+              if ((entry.getKey() != null) && (entry.getValue() != null)) {
+                concurrentMap.put(entry.getKey(), entry.getValue());
+              }
+            }
+          }
+
+          requestSharedDataContext.put(key, concurrentMap);
+        }
+      }
+    }
+  }
+
+  /**
+   * Evaluates the principal of an identity record by replacing the _HOST and _REALM variables in
+   * its principal pattern.
+   *
+   * @param record       a Map containing the data for the current identity record
+   * @param defaultRealm a String declaring the default Kerberos realm
+   * @return the evaluated principal, or null if the record does not declare a principal
+   */
+  private String evaluatePrincipal(Map<String, String> record, String defaultRealm) {
+    String principal = (record == null) ? null : record.get(KerberosIdentityDataFileReader.PRINCIPAL);
+
+    if (principal == null) {
+      return null;
+    }
+
+    String hostname = record.get(KerberosIdentityDataFileReader.HOSTNAME);
+
+    if(KerberosHelper.AMBARI_SERVER_HOST_NAME.equals(hostname)) {
+      // Replace KerberosHelper.AMBARI_SERVER_HOST_NAME with the actual hostname where the Ambari
+      // server is... this host
+      hostname = StageUtils.getHostName();
+    }
+
+    // Evaluate the principal "pattern" found in the record to generate the "evaluated principal"
+    // by replacing the _HOST and _REALM variables.
+    return principal.replace("_HOST", hostname).replace("_REALM", defaultRealm);
+  }
+
   /**
    * Process and prepares an identity record to be handled by the implementing class.
    * <p/>
@@ -512,25 +781,10 @@ public abstract class KerberosServerAction extends AbstractServerAction {
                                       Map<String, String> kerberosConfiguration, Map<String, Object> requestSharedDataContext)
       throws AmbariException {
     CommandReport commandReport = null;
+    String evaluatedPrincipal = evaluatePrincipal(record, defaultRealm);
 
-    if (record != null) {
-      String principal = record.get(KerberosIdentityDataFileReader.PRINCIPAL);
-
-      if (principal != null) {
-        String hostname = record.get(KerberosIdentityDataFileReader.HOSTNAME);
-
-        if(KerberosHelper.AMBARI_SERVER_HOST_NAME.equals(hostname)) {
-          // Replace KerberosHelper.AMBARI_SERVER_HOST_NAME with the actual hostname where the Ambari
-          // server is... this host
-          hostname = StageUtils.getHostName();
-        }
-
-        // Evaluate the principal "pattern" found in the record to generate the "evaluated principal"
-        // by replacing the _HOST and _REALM variables.
-        String evaluatedPrincipal = principal.replace("_HOST", hostname).replace("_REALM", defaultRealm);
-
-        commandReport = processIdentity(record, evaluatedPrincipal, operationHandler, kerberosConfiguration, requestSharedDataContext);
-      }
+    if (evaluatedPrincipal != null) {
+      commandReport = processIdentity(record, evaluatedPrincipal, operationHandler, kerberosConfiguration, requestSharedDataContext);
     }
 
     return commandReport;
@@ -158,21 +158,7 @@ public class ExtensionDirectory extends StackDefinitionDirectory {
     if (subDirs.contains(ServiceDirectory.SERVICES_FOLDER_NAME)) {
       String servicesDir = getAbsolutePath() + File.separator + ServiceDirectory.SERVICES_FOLDER_NAME;
       File baseServiceDir = new File(servicesDir);
-      File[] serviceFolders = baseServiceDir.listFiles(AmbariMetaInfo.FILENAME_FILTER);
-      if (serviceFolders != null) {
-        for (File d : serviceFolders) {
-          if (d.isDirectory()) {
-            try {
-              dirs.add(new StackServiceDirectory(d.getAbsolutePath()));
-            } catch (AmbariException e) {
-              //todo: this seems as though we should propagate this exception
-              //todo: eating it now to keep backwards compatibility
-              LOG.warn(String.format("Unable to parse extension definition service at '%s'.  Ignoring service. : %s",
-                  d.getAbsolutePath(), e.toString()));
-            }
-          }
-        }
-      }
+      dirs = parseServiceFolders(baseServiceDir.listFiles(AmbariMetaInfo.FILENAME_FILTER), "extension");
     }
 
     if (dirs.isEmpty()) {
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBContext;
@@ -53,6 +54,9 @@ import org.xml.sax.SAXException;
 /**
  * Provides functionality to unmarshal stack definition files to their
  * corresponding object representations.
+ * <p/>
+ * Instances may be used by several threads at the same time, the stack
+ * definitions are parsed in parallel by the {@link StackManager}.
  */
 public class ModuleFileUnmarshaller {
 
@@ -62,7 +66,18 @@ public class ModuleFileUnmarshaller {
    * Map of class to JAXB context
    */
   private static final Map<Class<?>, JAXBContext> jaxbContexts = new HashMap<>();
-  private static final Map<String, Schema> jaxbSchemas = new HashMap<>();
+  private static final Map<String, Schema> jaxbSchemas = new ConcurrentHashMap<>();
+
+  /**
+   * Looking up the StAX implementation is expensive and the factories are not
+   * guaranteed to be thread-safe, so each thread keeps its own factory.
+   */
+  private static final ThreadLocal<XMLInputFactory> xmlInputFactories = new ThreadLocal<XMLInputFactory>() {
+    @Override
+    protected XMLInputFactory initialValue() {
+      return XMLInputFactory.newInstance();
+    }
+  };
 
 
   /**
@@ -97,13 +112,19 @@ public class ModuleFileUnmarshaller {
   public <T> T unmarshal(Class<T> clz, File file, boolean logXsd) throws JAXBException, IOException, XMLStreamException, SAXException {
     Unmarshaller u = jaxbContexts.get(clz).createUnmarshaller();
 
-    XMLInputFactory xmlFactory = XMLInputFactory.newInstance();
+    XMLInputFactory xmlFactory = xmlInputFactories.get();
 
+    String xsdName;
     FileReader reader = new FileReader(file);
-    XMLStreamReader xmlReader = xmlFactory.createXMLStreamReader(reader);
+    try {
+      XMLStreamReader xmlReader = xmlFactory.createXMLStreamReader(reader);
 
-    xmlReader.nextTag();
-    String xsdName = xmlReader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "noNamespaceSchemaLocation");
+      xmlReader.nextTag();
+      xsdName = xmlReader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "noNamespaceSchemaLocation");
+      xmlReader.close();
+    } finally {
+      IOUtils.closeQuietly(reader);
+    }
 
     InputStream xsdStream = null;
 
@@ -21,12 +21,27 @@ package org.apache.ambari.server.stack;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.ambari.server.AmbariException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Base stack definition directory.
  * Contains functionality common across directory types.
  */
 public abstract class StackDefinitionDirectory {
+  /**
+   * logger instance
+   */
+  private final static Logger LOG = LoggerFactory.getLogger(StackDefinitionDirectory.class);
+
   /**
    * xml filename filter
    */
@@ -55,6 +70,60 @@ public abstract class StackDefinitionDirectory {
     this.directory = new File(directory);
   }
 
+  /**
+   * Parse the specified service folders.
+   * <p/>
+   * The service folders are independent of each other.  If called from within a fork-join pool,
+   * as it is while the {@link StackManager} parses the stack definitions, they are parsed in
+   * parallel; otherwise they are parsed one after another by the calling thread.  Service
+   * folders which can not be parsed are logged and ignored.
+   *
+   * @param serviceFolders  the service folders to parse, may be null
+   * @param definitionType  the type of the definition containing the services, used for logging
+   * @return the parsed service directories
+   */
+  protected static Collection<ServiceDirectory> parseServiceFolders(File[] serviceFolders, final String definitionType) {
+    Collection<ServiceDirectory> dirs = new HashSet<ServiceDirectory>();
+
+    if (serviceFolders != null) {
+      List<ForkJoinTask<ServiceDirectory>> tasks = new ArrayList<ForkJoinTask<ServiceDirectory>>();
+      for (final File d : serviceFolders) {
+        if (d.isDirectory()) {
+          tasks.add(new RecursiveTask<ServiceDirectory>() {
+            @Override
+            protected ServiceDirectory compute() {
+              try {
+                return new StackServiceDirectory(d.getAbsolutePath());
+              } catch (AmbariException e) {
+                //todo: this seems as though we should propagate this exception
+                //todo: eating it now to keep backwards compatibility
+                LOG.warn(String.format("Unable to parse %s definition service at '%s'.  Ignoring service. : %s",
+                    definitionType, d.getAbsolutePath(), e.toString()));
+                return null;
+              }
+            }
+          });
+        }
+      }
+
+      if (ForkJoinTask.inForkJoinPool()) {
+        ForkJoinTask.invokeAll(tasks);
+      } else {
+        for (ForkJoinTask<ServiceDirectory> task : tasks) {
+          task.invoke();
+        }
+      }
+
+      for (ForkJoinTask<ServiceDirectory> task : tasks) {
+        ServiceDirectory serviceDirectory = task.join();
+        if (serviceDirectory != null) {
+          dirs.add(serviceDirectory);
+        }
+      }
+    }
+    return dirs;
+  }
+
   /**
    * Obtain the configuration sub-directory instance for the specified path.
    *
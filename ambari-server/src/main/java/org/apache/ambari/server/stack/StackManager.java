@@ -20,11 +20,16 @@ package org.apache.ambari.server.stack;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 import javax.xml.XMLConstants;
@@ -111,6 +116,12 @@ public class StackManager {
    */
   private Map<String, ExtensionInfo> extensionMap = new HashMap<String, ExtensionInfo>();
 
+  /**
+   * Pool used to parse the stack definition directories in parallel; only
+   * available while the directories are parsed
+   */
+  private ForkJoinPool parsePool;
+
   /**
    * Constructor. Initialize stack manager.
    *
@@ -184,12 +195,62 @@ public class StackManager {
     populateDB(stackDao, extensionDao);
   }
 
+  /**
+   * Parse the common services, stack and extension directories.
+   * <p/>
+   * The definitions do not depend on each other until they are resolved, so every
+   * common service version, stack version and extension version, as well as the
+   * services within a stack or extension version, are parsed in parallel using a
+   * fork-join pool sized to the number of available processors.
+   *
+   * @param stackRoot           the stack root directory
+   * @param commonServicesRoot  the common services root directory, may be null
+   * @param extensionRoot       the extensions root directory, may be null
+   * @throws AmbariException if unable to parse the directories
+   */
   protected void parseDirectories(File stackRoot, File commonServicesRoot, File extensionRoot) throws AmbariException {
-    commonServiceModules = parseCommonServicesDirectory(commonServicesRoot);
-    stackModules = parseStackDirectory(stackRoot);
-    LOG.info("About to parse extension directories");
-    extensionModules = parseExtensionDirectory(extensionRoot);
+    long startTime = System.currentTimeMillis();
+    parsePool = new ForkJoinPool();
+    try {
+      commonServiceModules = parseCommonServicesDirectory(commonServicesRoot);
+      stackModules = parseStackDirectory(stackRoot);
+      LOG.info("About to parse extension directories");
+      extensionModules = parseExtensionDirectory(extensionRoot);
+    } finally {
+      parsePool.shutdown();
+      parsePool = null;
+    }
+
+    LOG.info("Parsed {} common services, {} stacks and {} extensions in {} ms", commonServiceModules.size(),
+        stackModules.size(), extensionModules.size(), System.currentTimeMillis() - startTime);
   }
+
+  /**
+   * Run the specified parse tasks in the parse pool and wait for them to complete.
+   *
+   * @param tasks  the tasks to run
+   * @return the results of the tasks, in the order of the tasks
+   * @throws AmbariException if a task failed or the wait was interrupted
+   */
+  private <T> List<T> invokeAll(List<Callable<T>> tasks) throws AmbariException {
+    List<T> results = new ArrayList<T>(tasks.size());
+    for (Future<T> future : parsePool.invokeAll(tasks)) {
+      try {
+        results.add(future.get());
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof AmbariException) {
+          throw (AmbariException) cause;
+        }
+        throw new AmbariException("Unable to parse the stack definitions: " + cause.getMessage(), cause);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AmbariException("Interrupted while parsing the stack definitions", e);
+      }
+    }
+    return results;
+  }
+
   private void populateDB(StackDAO stackDao, ExtensionDAO extensionDao) throws AmbariException {
     // for every stack read in, ensure that we have a database entry for it;
     // don't put try/catch logic around this since a failure here will
@@ -510,34 +571,56 @@ public class StackManager {
     Map<String, ServiceModule> commonServiceModules = new HashMap<String, ServiceModule>();
 
     if(commonServicesRoot != null) {
+      List<Callable<Map<String, ServiceModule>>> tasks = new ArrayList<Callable<Map<String, ServiceModule>>>();
       File[] commonServiceFiles = commonServicesRoot.listFiles(AmbariMetaInfo.FILENAME_FILTER);
       for (File commonService : commonServiceFiles) {
         if (commonService.isFile()) {
           continue;
         }
-        for (File serviceFolder : commonService.listFiles(AmbariMetaInfo.FILENAME_FILTER)) {
-          String serviceName = serviceFolder.getParentFile().getName();
-          String serviceVersion = serviceFolder.getName();
-          ServiceDirectory serviceDirectory = new CommonServiceDirectory(serviceFolder.getPath());
-          ServiceMetainfoXml metaInfoXml = serviceDirectory.getMetaInfoFile();
-          if (metaInfoXml != null) {
-            if (metaInfoXml.isValid()) {
-              for (ServiceInfo serviceInfo : metaInfoXml.getServices()) {
-                ServiceModule serviceModule = new ServiceModule(stackContext, serviceInfo, serviceDirectory, true);
-
-                String commonServiceKey = serviceInfo.getName() + StackManager.PATH_DELIMITER + serviceInfo.getVersion();
-                commonServiceModules.put(commonServiceKey, serviceModule);
-              }
-            } else {
-              ServiceModule serviceModule = new ServiceModule(stackContext, new ServiceInfo(), serviceDirectory, true);
-              serviceModule.setValid(false);
-              serviceModule.addErrors(metaInfoXml.getErrors());
-              commonServiceModules.put(metaInfoXml.getSchemaVersion(), serviceModule);
-              metaInfoXml.setSchemaVersion(null);
+        for (final File serviceFolder : commonService.listFiles(AmbariMetaInfo.FILENAME_FILTER)) {
+          tasks.add(new Callable<Map<String, ServiceModule>>() {
+            @Override
+            public Map<String, ServiceModule> call() throws Exception {
+              return parseCommonServiceFolder(serviceFolder);
             }
-          }
+          });
         }
       }
+
+      for (Map<String, ServiceModule> serviceModules : invokeAll(tasks)) {
+        commonServiceModules.putAll(serviceModules);
+      }
+    }
+    return commonServiceModules;
+  }
+
+  /**
+   * Parse the specified common service version folder.
+   *
+   * @param serviceFolder  the common service version folder to parse
+   * @return map of common service id which contains name and version to common service module.
+   * @throws AmbariException if unable to parse the common service
+   */
+  private Map<String, ServiceModule> parseCommonServiceFolder(File serviceFolder) throws AmbariException {
+    Map<String, ServiceModule> commonServiceModules = new HashMap<String, ServiceModule>();
+
+    ServiceDirectory serviceDirectory = new CommonServiceDirectory(serviceFolder.getPath());
+    ServiceMetainfoXml metaInfoXml = serviceDirectory.getMetaInfoFile();
+    if (metaInfoXml != null) {
+      if (metaInfoXml.isValid()) {
+        for (ServiceInfo serviceInfo : metaInfoXml.getServices()) {
+          ServiceModule serviceModule = new ServiceModule(stackContext, serviceInfo, serviceDirectory, true);
+
+          String commonServiceKey = serviceInfo.getName() + StackManager.PATH_DELIMITER + serviceInfo.getVersion();
+          commonServiceModules.put(commonServiceKey, serviceModule);
+        }
+      } else {
+        ServiceModule serviceModule = new ServiceModule(stackContext, new ServiceInfo(), serviceDirectory, true);
+        serviceModule.setValid(false);
+        serviceModule.addErrors(metaInfoXml.getErrors());
+        commonServiceModules.put(metaInfoXml.getSchemaVersion(), serviceModule);
+        metaInfoXml.setSchemaVersion(null);
+      }
     }
     return commonServiceModules;
   }
@@ -552,25 +635,38 @@ public class StackManager {
   private Map<String, StackModule> parseStackDirectory(File stackRoot) throws AmbariException {
     Map<String, StackModule> stackModules = new HashMap<String, StackModule>();
 
+    List<String> stackKeys = new ArrayList<String>();
+    List<Callable<StackModule>> tasks = new ArrayList<Callable<StackModule>>();
     File[] stackFiles = stackRoot.listFiles(AmbariMetaInfo.FILENAME_FILTER);
     for (File stack : stackFiles) {
       if (stack.isFile()) {
         continue;
       }
-      for (File stackFolder : stack.listFiles(AmbariMetaInfo.FILENAME_FILTER)) {
+      for (final File stackFolder : stack.listFiles(AmbariMetaInfo.FILENAME_FILTER)) {
         if (stackFolder.isFile()) {
           continue;
         }
         String stackName = stackFolder.getParentFile().getName();
         String stackVersion = stackFolder.getName();
 
-        StackModule stackModule = new StackModule(new StackDirectory(stackFolder.getPath()), stackContext);
-        String stackKey = stackName + StackManager.PATH_DELIMITER + stackVersion;
-        stackModules.put(stackKey, stackModule);
-        stackMap.put(stackKey, stackModule.getModuleInfo());
+        stackKeys.add(stackName + StackManager.PATH_DELIMITER + stackVersion);
+        tasks.add(new Callable<StackModule>() {
+          @Override
+          public StackModule call() throws Exception {
+            return new StackModule(new StackDirectory(stackFolder.getPath()), stackContext);
+          }
+        });
       }
     }
 
+    List<StackModule> parsedModules = invokeAll(tasks);
+    for (int i = 0; i < parsedModules.size(); i++) {
+      StackModule stackModule = parsedModules.get(i);
+      String stackKey = stackKeys.get(i);
+      stackModules.put(stackKey, stackModule);
+      stackMap.put(stackKey, stackModule.getModuleInfo());
+    }
+
     if (stackMap.isEmpty()) {
       throw new AmbariException("Unable to find stack definitions under " +
           "stackRoot = " + stackRoot.getAbsolutePath());
@@ -596,25 +692,38 @@ public class StackManager {
     if (extensionRoot == null || !extensionRoot.exists())
       return extensionModules;
 
+    List<String> extensionKeys = new ArrayList<String>();
+    List<Callable<ExtensionModule>> tasks = new ArrayList<Callable<ExtensionModule>>();
     File[] extensionFiles = extensionRoot.listFiles(AmbariMetaInfo.FILENAME_FILTER);
     for (File extensionNameFolder : extensionFiles) {
       if (extensionNameFolder.isFile()) {
         continue;
       }
-      for (File extensionVersionFolder : extensionNameFolder.listFiles(AmbariMetaInfo.FILENAME_FILTER)) {
+      for (final File extensionVersionFolder : extensionNameFolder.listFiles(AmbariMetaInfo.FILENAME_FILTER)) {
         if (extensionVersionFolder.isFile()) {
           continue;
         }
         String extensionName = extensionNameFolder.getName();
         String extensionVersion = extensionVersionFolder.getName();
 
-        ExtensionModule extensionModule = new ExtensionModule(new ExtensionDirectory(extensionVersionFolder.getPath()), stackContext);
-        String extensionKey = extensionName + StackManager.PATH_DELIMITER + extensionVersion;
-        extensionModules.put(extensionKey, extensionModule);
-        extensionMap.put(extensionKey, extensionModule.getModuleInfo());
+        extensionKeys.add(extensionName + StackManager.PATH_DELIMITER + extensionVersion);
+        tasks.add(new Callable<ExtensionModule>() {
+          @Override
+          public ExtensionModule call() throws Exception {
+            return new ExtensionModule(new ExtensionDirectory(extensionVersionFolder.getPath()), stackContext);
+          }
+        });
       }
     }
 
+    List<ExtensionModule> parsedModules = invokeAll(tasks);
+    for (int i = 0; i < parsedModules.size(); i++) {
+      ExtensionModule extensionModule = parsedModules.get(i);
+      String extensionKey = extensionKeys.get(i);
+      extensionModules.put(extensionKey, extensionModule);
+      extensionMap.put(extensionKey, extensionModule.getModuleInfo());
+    }
+
     if (stackMap.isEmpty()) {
       throw new AmbariException("Unable to find extension definitions under " +
           "extensionRoot = " + extensionRoot.getAbsolutePath());
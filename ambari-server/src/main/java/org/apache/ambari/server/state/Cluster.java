@@ -35,6 +35,7 @@ import org.apache.ambari.server.orm.entities.PrivilegeEntity;
 import org.apache.ambari.server.orm.entities.RepositoryVersionEntity;
 import org.apache.ambari.server.orm.entities.UpgradeEntity;
 import org.apache.ambari.server.security.authorization.AuthorizationException;
+import org.apache.ambari.server.state.cluster.ClusterTopologySnapshot;
 import org.apache.ambari.server.state.configgroup.ConfigGroup;
 import org.apache.ambari.server.state.scheduler.RequestExecution;
 
@@ -81,6 +82,29 @@ public interface Cluster {
    */
   Map<String, Service> getServices();
 
+  /**
+   * Get the latest immutable snapshot of the services and host components of
+   * the cluster. It can be traversed without locking and is replaced, not
+   * changed, when services or host components are added or removed.
+   * @return the topology snapshot, never {@code null}
+   */
+  ClusterTopologySnapshot getTopologySnapshot();
+
+  /**
+   * Starts a bulk change of the services or host components of the cluster by
+   * the current thread, such as adding or deleting many host components. Until
+   * the matching {@link #endTopologyChange()}, the topology snapshot is only
+   * published when the current thread reads it, instead of after every single
+   * change. Calls can be nested.
+   */
+  void beginTopologyChange();
+
+  /**
+   * Ends a bulk change started with {@link #beginTopologyChange()} and
+   * publishes the topology snapshot if the topology changed.
+   */
+  void endTopologyChange();
+
   /**
    * Get all ServiceComponentHosts on a given host
    * @param hostname
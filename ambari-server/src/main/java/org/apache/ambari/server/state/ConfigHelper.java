@@ -29,7 +29,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
@@ -45,9 +48,6 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Objects;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -65,13 +65,17 @@ public class ConfigHelper {
   private static final String DELETED = "DELETED_";
   public static final String CLUSTER_DEFAULT_TAG = "tag";
   private final boolean STALE_CONFIGS_CACHE_ENABLED;
-  private final int STALE_CONFIGS_CACHE_EXPIRATION_TIME;
+  private final long STALE_CONFIGS_CACHE_EXPIRATION_TIME;
 
   /**
-   * Cache for storing stale config flags. Key for cache is hash of [actualConfigs, desiredConfigs, hostName, serviceName,
-   * componentName].
+   * Index of the stale config flags of the host components by cluster ID. An
+   * entry is removed by one of the {@code invalidateStaleConfigsCache} methods
+   * when the desired configs, config groups or actual configs it was
+   * calculated from change, and is calculated again on the next read. Entries
+   * older than {@link Configuration#staleConfigCacheExpiration()} are
+   * calculated again as well.
    */
-  private final Cache<Integer, Boolean> staleConfigsCache;
+  private final ConcurrentMap<Long, StaleConfigsIndex> staleConfigsIndex = new ConcurrentHashMap<>();
 
   private static final Logger LOG =
       LoggerFactory.getLogger(ConfigHelper.class);
@@ -108,9 +112,7 @@ public class ConfigHelper {
     ambariMetaInfo = metaInfo;
     this.clusterDAO = clusterDAO;
     STALE_CONFIGS_CACHE_ENABLED = configuration.isStaleConfigCacheEnabled();
-    STALE_CONFIGS_CACHE_EXPIRATION_TIME = configuration.staleConfigCacheExpiration();
-    staleConfigsCache = CacheBuilder.newBuilder().
-        expireAfterWrite(STALE_CONFIGS_CACHE_EXPIRATION_TIME, TimeUnit.SECONDS).build();
+    STALE_CONFIGS_CACHE_EXPIRATION_TIME = TimeUnit.SECONDS.toMillis(configuration.staleConfigCacheExpiration());
   }
 
   /**
@@ -449,7 +451,10 @@ public class ConfigHelper {
    *          called 10,000's of times when generating cluster/host responses.
    *          Therefore, the caller should build these once and pass them in. If
    *          {@code null}, then this method will retrieve them at runtime,
-   *          incurring a performance penality.
+   *          incurring a performance penality. A flag calculated from desired
+   *          configurations which are passed in is not cached, since they may
+   *          have changed since they were built; see
+   *          {@link #isStaleConfigs(ServiceComponentHost, Map, long)}.
    *
    * @return <code>true</code> if the actual configs are stale
    */
@@ -459,10 +464,38 @@ public class ConfigHelper {
     return isStaleConfigs(sch, requestDesiredConfigs, hostComponentDesiredStateEntity);
   }
 
+  /**
+   * Gets whether the actual configs of a host component are stale, caching
+   * the result.
+   *
+   * @param sch
+   *          the SCH to calcualte config staleness for (not {@code null}).
+   * @param requestDesiredConfigs
+   *          the desired configurations for the cluster (not {@code null}).
+   * @param staleConfigsGeneration
+   *          the value of {@link #getStaleConfigsGeneration(long)} taken
+   *          before the desired configurations were built, so that a flag
+   *          calculated from desired configurations which changed in the
+   *          meantime is not cached.
+   * @return <code>true</code> if the actual configs are stale
+   */
+  public boolean isStaleConfigs(ServiceComponentHost sch, Map<String, DesiredConfig> requestDesiredConfigs,
+      long staleConfigsGeneration) throws AmbariException {
+    return isStaleConfigs(sch, requestDesiredConfigs, sch.getDesiredStateEntity(),
+        Long.valueOf(staleConfigsGeneration));
+  }
+
   public boolean isStaleConfigs(ServiceComponentHost sch, Map<String, DesiredConfig> requestDesiredConfigs,
                                 HostComponentDesiredStateEntity hostComponentDesiredStateEntity)
           throws AmbariException {
-    boolean stale = calculateIsStaleConfigs(sch, requestDesiredConfigs, hostComponentDesiredStateEntity);
+    return isStaleConfigs(sch, requestDesiredConfigs, hostComponentDesiredStateEntity, null);
+  }
+
+  private boolean isStaleConfigs(ServiceComponentHost sch, Map<String, DesiredConfig> requestDesiredConfigs,
+      HostComponentDesiredStateEntity hostComponentDesiredStateEntity, Long staleConfigsGeneration)
+      throws AmbariException {
+    boolean stale = calculateIsStaleConfigs(sch, requestDesiredConfigs, hostComponentDesiredStateEntity,
+        staleConfigsGeneration);
     if (LOG.isDebugEnabled()) {
       LOG.debug("Cache configuration staleness for host {} and component {} as {}",
               sch.getHostName(), sch.getServiceComponentName(), stale);
@@ -470,6 +503,157 @@ public class ConfigHelper {
     return stale;
   }
 
+  /**
+   * Gets the generation of the stale config flags of a cluster, which changes
+   * whenever a flag is invalidated. Callers which build the desired
+   * configurations once for many host components take it before doing so and
+   * pass it to {@link #isStaleConfigs(ServiceComponentHost, Map, long)}.
+   *
+   * @param clusterId
+   *          the ID of the cluster
+   * @return the generation
+   */
+  public long getStaleConfigsGeneration(long clusterId) {
+    if (!STALE_CONFIGS_CACHE_ENABLED) {
+      return 0L;
+    }
+    return getStaleConfigsIndex(clusterId).generation.get();
+  }
+
+  /**
+   * Removes the stale config flag of a host component from the index, for
+   * instance because the component reported different actual configs or was
+   * removed.
+   *
+   * @param sch
+   *          the host component (not {@code null}).
+   */
+  public void invalidateStaleConfigsCache(ServiceComponentHost sch) {
+    StaleConfigsIndex index = staleConfigsIndex.get(sch.getClusterId());
+    if (null != index) {
+      index.invalidate(getStaleConfigsIndexKey(sch.getHostName(), sch.getServiceName(),
+          sch.getServiceComponentName()));
+    }
+  }
+
+  /**
+   * Removes the stale config flags of all components of a host from the index,
+   * for instance because the config groups of the host changed.
+   *
+   * @param clusterId
+   *          the ID of the cluster
+   * @param hostName
+   *          the host name
+   */
+  public void invalidateStaleConfigsCache(long clusterId, String hostName) {
+    StaleConfigsIndex index = staleConfigsIndex.get(clusterId);
+    if (null == index) {
+      return;
+    }
+
+    index.generation.incrementAndGet();
+    Iterator<StaleConfigsEntry> iterator = index.entries.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().hostName.equals(hostName)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes the stale config flags of the components which depend on any of
+   * the given config types from the index, since the desired configs of these
+   * types changed.
+   *
+   * @param cluster
+   *          the cluster (not {@code null}).
+   * @param configTypes
+   *          the config types whose desired configs changed, or {@code null}
+   *          to remove the flags of all components of the cluster.
+   */
+  public void invalidateStaleConfigsCache(Cluster cluster, Collection<String> configTypes) {
+    StaleConfigsIndex index = staleConfigsIndex.get(cluster.getClusterId());
+    if (null == index) {
+      return;
+    }
+
+    index.generation.incrementAndGet();
+    if (null == configTypes) {
+      index.entries.clear();
+      return;
+    }
+
+    if (configTypes.isEmpty()) {
+      return;
+    }
+
+    StackId stackId = cluster.getDesiredStackVersion();
+    Map<String, ServiceInfo> services = new HashMap<>();
+    Iterator<StaleConfigsEntry> iterator = index.entries.values().iterator();
+    while (iterator.hasNext()) {
+      if (dependsOnConfigTypes(stackId, iterator.next(), configTypes, services)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes the stale config flags of a cluster which was deleted.
+   *
+   * @param clusterId
+   *          the ID of the cluster
+   */
+  public void removeStaleConfigsIndex(long clusterId) {
+    StaleConfigsIndex index = staleConfigsIndex.remove(clusterId);
+    if (null != index) {
+      index.generation.incrementAndGet();
+    }
+  }
+
+  /**
+   * Same conditions as in {@link #calculateIsStaleConfigs(ServiceComponentHost, Map, HostComponentDesiredStateEntity, Long)}:
+   * the desired configs of a type can only make a component stale if its
+   * service depends on the type or the component has the type.
+   */
+  private boolean dependsOnConfigTypes(StackId stackId, StaleConfigsEntry entry,
+      Collection<String> configTypes, Map<String, ServiceInfo> services) {
+    ServiceInfo serviceInfo = services.get(entry.serviceName);
+    if (null == serviceInfo) {
+      try {
+        serviceInfo = ambariMetaInfo.getService(stackId.getStackName(), stackId.getStackVersion(),
+            entry.serviceName);
+      } catch (AmbariException e) {
+        return true;
+      }
+      services.put(entry.serviceName, serviceInfo);
+    }
+
+    ComponentInfo componentInfo = serviceInfo.getComponentByName(entry.componentName);
+    for (String type : configTypes) {
+      if (serviceInfo.hasConfigDependency(type)
+          || (null != componentInfo && componentInfo.hasConfigType(type))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private StaleConfigsIndex getStaleConfigsIndex(long clusterId) {
+    StaleConfigsIndex index = staleConfigsIndex.get(clusterId);
+    if (null == index) {
+      index = new StaleConfigsIndex();
+      StaleConfigsIndex existing = staleConfigsIndex.putIfAbsent(clusterId, index);
+      if (null != existing) {
+        index = existing;
+      }
+    }
+    return index;
+  }
+
+  private static String getStaleConfigsIndexKey(String hostName, String serviceName, String componentName) {
+    return hostName + '/' + serviceName + '/' + componentName;
+  }
+
   /**
    * Remove configs by type
    *
@@ -1271,23 +1455,41 @@ public class ConfigHelper {
    *          Therefore, the caller should build these once and pass them in. If
    *          {@code null}, then this method will retrieve them at runtime,
    *          incurring a performance penality.
+   * @param hostComponentDesiredStateEntity
+   *          the desired state entity of the SCH
+   * @param staleConfigsGeneration
+   *          the generation taken before the passed desired configurations
+   *          were built, or {@code null} if the result may not be cached
    * @return
    * @throws AmbariException
    */
-  private boolean calculateIsStaleConfigs(ServiceComponentHost sch,
-      Map<String, DesiredConfig> desiredConfigs) throws AmbariException {
-
-    HostComponentDesiredStateEntity hostComponentDesiredStateEntity = sch.getDesiredStateEntity();
-    return calculateIsStaleConfigs(sch, desiredConfigs, hostComponentDesiredStateEntity);
-  }
-
   private boolean calculateIsStaleConfigs(ServiceComponentHost sch, Map<String, DesiredConfig> desiredConfigs,
-                                          HostComponentDesiredStateEntity hostComponentDesiredStateEntity) throws AmbariException {
+      HostComponentDesiredStateEntity hostComponentDesiredStateEntity, Long staleConfigsGeneration)
+      throws AmbariException {
 
     if (sch.isRestartRequired(hostComponentDesiredStateEntity)) {
       return true;
     }
 
+    // the generation is read before any of the inputs, so that a flag
+    // calculated from inputs which change in the meantime is not kept; the
+    // generation of desired configs built by the caller must have been read
+    // by the caller, otherwise the flag is not kept at all
+    StaleConfigsIndex index = null;
+    String indexKey = null;
+    Long generation = null;
+    if (STALE_CONFIGS_CACHE_ENABLED) {
+      index = getStaleConfigsIndex(sch.getClusterId());
+      indexKey = getStaleConfigsIndexKey(sch.getHostName(), sch.getServiceName(),
+          sch.getServiceComponentName());
+
+      StaleConfigsEntry entry = index.get(indexKey);
+      if (null != entry) {
+        return entry.stale;
+      }
+      generation = null == desiredConfigs ? Long.valueOf(index.generation.get()) : staleConfigsGeneration;
+    }
+
     Map<String, HostConfig> actual = sch.getActualConfigs();
     if (null == actual || actual.isEmpty()) {
       return false;
@@ -1298,21 +1500,7 @@ public class ConfigHelper {
     Map<String, Map<String, String>> desired = getEffectiveDesiredTags(cluster, sch.getHostName(),
             desiredConfigs);
 
-    Boolean stale = null;
-    int staleHash = 0;
-    if (STALE_CONFIGS_CACHE_ENABLED){
-      staleHash = Objects.hashCode(actual.hashCode(),
-              desired.hashCode(),
-              sch.getHostName(),
-              sch.getServiceComponentName(),
-              sch.getServiceName());
-      stale = staleConfigsCache.getIfPresent(staleHash);
-      if(stale != null) {
-        return stale;
-      }
-    }
-
-    stale = false;
+    boolean stale = false;
 
     StackId stackId = cluster.getDesiredStackVersion();
 
@@ -1356,8 +1544,10 @@ public class ConfigHelper {
         }
       }
     }
-    if (STALE_CONFIGS_CACHE_ENABLED) {
-      staleConfigsCache.put(staleHash, stale);
+    if (null != generation) {
+      index.put(indexKey, new StaleConfigsEntry(sch.getHostName(), sch.getServiceName(),
+          sch.getServiceComponentName(), stale,
+          System.currentTimeMillis() + STALE_CONFIGS_CACHE_EXPIRATION_TIME), generation);
     }
     return stale;
   }
@@ -1556,4 +1746,59 @@ public class ConfigHelper {
     }
   }
 
+
+  /**
+   * The stale config flags of the host components of a cluster.
+   */
+  private static final class StaleConfigsIndex {
+
+    /**
+     * Incremented by every invalidation. A flag is only kept if no
+     * invalidation happened while it was calculated.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ConcurrentMap<String, StaleConfigsEntry> entries = new ConcurrentHashMap<>();
+
+    private StaleConfigsEntry get(String key) {
+      StaleConfigsEntry entry = entries.get(key);
+      if (null != entry && entry.expirationTime < System.currentTimeMillis()) {
+        entries.remove(key, entry);
+        return null;
+      }
+      return entry;
+    }
+
+    private void put(String key, StaleConfigsEntry entry, long calculatedGeneration) {
+      entries.put(key, entry);
+      if (generation.get() != calculatedGeneration) {
+        entries.remove(key, entry);
+      }
+    }
+
+    private void invalidate(String key) {
+      generation.incrementAndGet();
+      entries.remove(key);
+    }
+  }
+
+  /**
+   * The stale config flag of a host component.
+   */
+  private static final class StaleConfigsEntry {
+    private final String hostName;
+    private final String serviceName;
+    private final String componentName;
+    private final boolean stale;
+    private final long expirationTime;
+
+    private StaleConfigsEntry(String hostName, String serviceName, String componentName, boolean stale,
+        long expirationTime) {
+      this.hostName = hostName;
+      this.serviceName = serviceName;
+      this.componentName = componentName;
+      this.stale = stale;
+      this.expirationTime = expirationTime;
+    }
+  }
 }
@@ -57,6 +57,21 @@ public class HostConfig {
     return Objects.hashCode(defaultVersionTag.hashCode(), configGroupOverrides.hashCode());
   }
 
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+
+    if (object == null || getClass() != object.getClass()) {
+      return false;
+    }
+
+    HostConfig that = (HostConfig) object;
+    return Objects.equal(defaultVersionTag, that.defaultVersionTag)
+        && configGroupOverrides.equals(that.configGroupOverrides);
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
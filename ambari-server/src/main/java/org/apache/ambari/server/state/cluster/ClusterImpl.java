@@ -35,6 +35,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
@@ -204,6 +205,30 @@ public class ClusterImpl implements Cluster {
    */
   private final ConcurrentMap<String, List<ServiceComponentHost>> serviceComponentHostsByHost = new ConcurrentHashMap<>();
 
+  /**
+   * An immutable copy of {@link #services} and {@link #serviceComponentHosts}
+   * which is republished on every change to them, so that readers don't need
+   * {@link #clusterGlobalLock}.
+   */
+  private volatile ClusterTopologySnapshot topologySnapshot = ClusterTopologySnapshot.EMPTY;
+
+  /**
+   * Serializes building and publishing {@link #topologySnapshot}.
+   */
+  private final Object topologySnapshotLock = new Object();
+
+  /**
+   * The bulk topology changes of the current thread, see
+   * {@link #beginTopologyChange()}.
+   */
+  private final ThreadLocal<TopologyChange> topologyChange = new ThreadLocal<>();
+
+  /**
+   * The number of threads in a bulk topology change, so that readers only
+   * look at {@link #topologyChange} while there is one.
+   */
+  private final AtomicInteger topologyChanges = new AtomicInteger();
+
   /**
    * Map of existing config groups
    */
@@ -360,6 +385,7 @@ public class ClusterImpl implements Cluster {
     loadStackVersion();
     loadServices();
     loadServiceHostComponents();
+    publishTopologySnapshot();
 
     // cache configurations before loading configuration groups
     cacheConfigurations();
@@ -522,6 +548,19 @@ public class ClusterImpl implements Cluster {
           + configGroup.getTag());
     } else {
       clusterConfigGroups.put(configGroup.getId(), configGroup);
+      invalidateStaleConfigs(configGroup);
+    }
+  }
+
+  /**
+   * Removes the stale config flags of the hosts of a config group which was
+   * added or removed.
+   */
+  private void invalidateStaleConfigs(ConfigGroup configGroup) {
+    if (null != configGroup.getHosts()) {
+      for (Host host : configGroup.getHosts().values()) {
+        configHelper.invalidateStaleConfigsCache(getClusterId(), host.getHostName());
+      }
     }
   }
 
@@ -593,20 +632,18 @@ public class ClusterImpl implements Cluster {
 
     configGroup.delete();
     clusterConfigGroups.remove(id);
+    invalidateStaleConfigs(configGroup);
   }
 
   public ServiceComponentHost getServiceComponentHost(String serviceName,
       String serviceComponentName, String hostname) throws AmbariException {
-    if (!serviceComponentHosts.containsKey(serviceName)
-        || !serviceComponentHosts.get(serviceName).containsKey(
-            serviceComponentName)
-        || !serviceComponentHosts.get(serviceName).get(serviceComponentName).containsKey(
-            hostname)) {
+    ServiceComponentHost serviceComponentHost = getTopologySnapshot().getServiceComponentHosts(
+        serviceName, serviceComponentName).get(hostname);
+    if (null == serviceComponentHost) {
       throw new ServiceComponentHostNotFoundException(getClusterName(),
           serviceName, serviceComponentName, hostname);
     }
-    return serviceComponentHosts.get(serviceName).get(serviceComponentName).get(
-      hostname);
+    return serviceComponentHost;
   }
 
   @Override
@@ -651,10 +688,15 @@ public class ClusterImpl implements Cluster {
   @Override
   @Transactional
   public void addServiceComponentHosts(Collection<ServiceComponentHost> serviceComponentHosts) throws AmbariException {
-    for (ServiceComponentHost serviceComponentHost : serviceComponentHosts) {
-      Service service = getService(serviceComponentHost.getServiceName());
-      ServiceComponent serviceComponent = service.getServiceComponent(serviceComponentHost.getServiceComponentName());
-      serviceComponent.addServiceComponentHost(serviceComponentHost);
+    beginTopologyChange();
+    try {
+      for (ServiceComponentHost serviceComponentHost : serviceComponentHosts) {
+        Service service = getService(serviceComponentHost.getServiceName());
+        ServiceComponent serviceComponent = service.getServiceComponent(serviceComponentHost.getServiceComponentName());
+        serviceComponent.addServiceComponentHost(serviceComponentHost);
+      }
+    } finally {
+      endTopologyChange();
     }
   }
 
@@ -721,6 +763,7 @@ public class ClusterImpl implements Cluster {
       svcCompHost);
 
     serviceComponentHostsByHost.get(hostname).add(svcCompHost);
+    topologyChanged();
   }
 
   @Override
@@ -797,6 +840,75 @@ public class ClusterImpl implements Cluster {
     if (schToRemove != null) {
       serviceComponentHostsByHost.get(hostname).remove(schToRemove);
     }
+    topologyChanged();
+  }
+
+  /**
+   * Publishes a new {@link ClusterTopologySnapshot} built from the current
+   * services and host components. The snapshot is built after the change was
+   * made, so the last published snapshot always includes every change which
+   * completed before it.
+   */
+  private void publishTopologySnapshot() {
+    synchronized (topologySnapshotLock) {
+      topologySnapshot = ClusterTopologySnapshot.create(topologySnapshot.getVersion() + 1,
+          services, serviceComponentHosts);
+    }
+  }
+
+  /**
+   * Must be called after every change to {@link #services} or
+   * {@link #serviceComponentHosts}. Publishes the snapshot right away, unless
+   * the current thread is in a bulk topology change.
+   */
+  private void topologyChanged() {
+    TopologyChange change = topologyChange.get();
+    if (null != change) {
+      change.pending = true;
+    } else {
+      publishTopologySnapshot();
+    }
+  }
+
+  @Override
+  public void beginTopologyChange() {
+    TopologyChange change = topologyChange.get();
+    if (null == change) {
+      change = new TopologyChange();
+      topologyChange.set(change);
+      topologyChanges.incrementAndGet();
+    }
+    change.depth++;
+  }
+
+  @Override
+  public void endTopologyChange() {
+    TopologyChange change = topologyChange.get();
+    if (null == change || --change.depth > 0) {
+      return;
+    }
+
+    topologyChange.remove();
+    topologyChanges.decrementAndGet();
+    if (change.pending) {
+      publishTopologySnapshot();
+    }
+  }
+
+  /**
+   * A thread in a bulk topology change still reads its own changes, the
+   * snapshot is published before it is returned to that thread.
+   */
+  @Override
+  public ClusterTopologySnapshot getTopologySnapshot() {
+    if (topologyChanges.get() > 0) {
+      TopologyChange change = topologyChange.get();
+      if (null != change && change.pending) {
+        change.pending = false;
+        publishTopologySnapshot();
+      }
+    }
+    return topologySnapshot;
   }
 
   @Override
@@ -808,12 +920,7 @@ public class ClusterImpl implements Cluster {
 
   @Override
   public List<ServiceComponentHost> getServiceComponentHosts(String hostname) {
-    List<ServiceComponentHost> serviceComponentHosts = serviceComponentHostsByHost.get(hostname);
-    if (null != serviceComponentHosts) {
-      return new CopyOnWriteArrayList<>(serviceComponentHosts);
-    }
-
-    return new ArrayList<>();
+    return new ArrayList<>(getTopologySnapshot().getServiceComponentHostsByHost(hostname));
   }
 
   @Override
@@ -821,6 +928,7 @@ public class ClusterImpl implements Cluster {
     Map<String, Set<String>> componentHostMap = new HashMap<>();
 
     Collection<Host> hosts = getHosts();
+    ClusterTopologySnapshot snapshot = getTopologySnapshot();
 
     if(hosts != null) {
       for (Host host : hosts) {
@@ -828,7 +936,7 @@ public class ClusterImpl implements Cluster {
 
         // If this host is not filtered out, continue processing
         if ((hostNames == null) || hostNames.contains(hostname)) {
-          List<ServiceComponentHost> serviceComponentHosts = getServiceComponentHosts(hostname);
+          List<ServiceComponentHost> serviceComponentHosts = snapshot.getServiceComponentHostsByHost(hostname);
 
           if (serviceComponentHosts != null) {
             for (ServiceComponentHost sch : serviceComponentHosts) {
@@ -857,16 +965,13 @@ public class ClusterImpl implements Cluster {
   public List<ServiceComponentHost> getServiceComponentHosts(String serviceName, String componentName) {
     ArrayList<ServiceComponentHost> foundItems = new ArrayList<>();
 
-    ConcurrentMap<String, ConcurrentMap<String, ServiceComponentHost>> foundByService = serviceComponentHosts.get(
-        serviceName);
-    if (foundByService != null) {
-      if (componentName == null) {
-        for (Map<String, ServiceComponentHost> foundByComponent : foundByService.values()) {
-          foundItems.addAll(foundByComponent.values());
-        }
-      } else if (foundByService.containsKey(componentName)) {
-        foundItems.addAll(foundByService.get(componentName).values());
+    ClusterTopologySnapshot snapshot = getTopologySnapshot();
+    if (componentName == null) {
+      for (Map<String, ServiceComponentHost> foundByComponent : snapshot.getServiceComponentHosts(serviceName).values()) {
+        foundItems.addAll(foundByComponent.values());
       }
+    } else {
+      foundItems.addAll(snapshot.getServiceComponentHosts(serviceName, componentName).values());
     }
 
     return foundItems;
@@ -879,6 +984,7 @@ public class ClusterImpl implements Cluster {
           + getClusterId() + ", serviceName=" + service.getName());
     }
     services.put(service.getName(), service);
+    topologyChanged();
   }
 
   @Override
@@ -896,7 +1002,7 @@ public class ClusterImpl implements Cluster {
 
   @Override
   public Service getService(String serviceName) throws AmbariException {
-    Service service = services.get(serviceName);
+    Service service = getTopologySnapshot().getService(serviceName);
     if (null == service) {
       throw new ServiceNotFoundException(getClusterName(), serviceName);
     }
@@ -906,7 +1012,7 @@ public class ClusterImpl implements Cluster {
 
   @Override
   public Map<String, Service> getServices() {
-    return new HashMap<>(services);
+    return new HashMap<>(getTopologySnapshot().getServices());
   }
 
   @Override
@@ -952,6 +1058,7 @@ public class ClusterImpl implements Cluster {
         }
       }
       loadServiceConfigTypes();
+      configHelper.invalidateStaleConfigsCache(this, null);
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
@@ -2031,6 +2138,7 @@ public class ClusterImpl implements Cluster {
   @Transactional
   public void deleteAllServices() throws AmbariException {
     clusterGlobalLock.writeLock().lock();
+    beginTopologyChange();
     try {
       LOG.info("Deleting all services for cluster" + ", clusterName="
         + getClusterName());
@@ -2047,7 +2155,9 @@ public class ClusterImpl implements Cluster {
         deleteService(service);
       }
       services.clear();
+      topologyChanged();
     } finally {
+      endTopologyChange();
       clusterGlobalLock.writeLock().unlock();
     }
   }
@@ -2056,6 +2166,7 @@ public class ClusterImpl implements Cluster {
   public void deleteService(String serviceName)
     throws AmbariException {
     clusterGlobalLock.writeLock().lock();
+    beginTopologyChange();
     try {
       Service service = getService(serviceName);
       LOG.info("Deleting service for cluster" + ", clusterName="
@@ -2068,8 +2179,10 @@ public class ClusterImpl implements Cluster {
       }
       deleteService(service);
       services.remove(serviceName);
+      topologyChanged();
 
     } finally {
+      endTopologyChange();
       clusterGlobalLock.writeLock().unlock();
     }
   }
@@ -2130,6 +2243,7 @@ public class ClusterImpl implements Cluster {
       refresh(); // update one-to-many clusterServiceEntities
       removeEntities();
       allConfigs.clear();
+      configHelper.removeStaleConfigsIndex(getClusterId());
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
@@ -2182,6 +2296,12 @@ public class ClusterImpl implements Cluster {
       ServiceConfigVersionResponse serviceConfigVersionResponse = applyConfigs(
           configs, user, serviceConfigVersionNote);
 
+      Set<String> configTypes = new HashSet<>();
+      for (Config config : configs) {
+        configTypes.add(config.getType());
+      }
+      configHelper.invalidateStaleConfigsCache(this, configTypes);
+
       return serviceConfigVersionResponse;
     } finally {
       clusterGlobalLock.writeLock().unlock();
@@ -2399,6 +2519,9 @@ public class ClusterImpl implements Cluster {
     try {
       ServiceConfigVersionResponse serviceConfigVersionResponse = applyServiceConfigVersion(
           serviceName, version, user, note);
+
+      // config group versions are handled by the config group itself
+      configHelper.invalidateStaleConfigsCache(this, serviceConfigTypes.get(serviceName));
       return serviceConfigVersionResponse;
     } finally {
       clusterGlobalLock.writeLock().unlock();
@@ -2990,7 +3113,9 @@ public class ClusterImpl implements Cluster {
     int alertStatusHosts = 0;
     int heartbeatLostStateHosts = 0;
 
-    // look this up once so it can be reused in the loop for every SCH
+    // look this up once so it can be reused in the loop for every SCH; the
+    // generation is taken first since the desired configs may change meanwhile
+    long staleConfigsGeneration = configHelper.getStaleConfigsGeneration(getClusterId());
     Map<String, DesiredConfig> desiredConfigs = getDesiredConfigs();
 
     Collection<Host> hosts = clusterHosts.values();
@@ -3034,7 +3159,7 @@ public class ClusterImpl implements Cluster {
 
       if (serviceComponentHostsByHost.containsKey(hostName)) {
         for (ServiceComponentHost sch : serviceComponentHostsByHost.get(hostName)) {
-          staleConfig = staleConfig || configHelper.isStaleConfigs(sch, desiredConfigs);
+          staleConfig = staleConfig || configHelper.isStaleConfigs(sch, desiredConfigs, staleConfigsGeneration);
           maintenanceState = maintenanceState ||
             maintenanceStateHelper.getEffectiveState(sch) != MaintenanceState.OFF;
         }
@@ -3189,6 +3314,7 @@ public class ClusterImpl implements Cluster {
       clusterDAO.mergeConfigMappings(configMappingEntities);
 
       cacheConfigurations();
+      configHelper.invalidateStaleConfigsCache(this, null);
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
@@ -3365,6 +3491,7 @@ public class ClusterImpl implements Cluster {
     try {
       removeAllConfigsForStack(stackId);
       cacheConfigurations();
+      configHelper.invalidateStaleConfigsCache(this, null);
     } finally {
       clusterGlobalLock.writeLock().unlock();
     }
@@ -3576,4 +3703,20 @@ public class ClusterImpl implements Cluster {
     // suspended goes in role params
     roleParams.put(KeyNames.UPGRADE_SUSPENDED, Boolean.TRUE.toString().toLowerCase());
   }
+
+  /**
+   * A bulk topology change of a single thread.
+   */
+  private static final class TopologyChange {
+
+    /**
+     * The number of nested {@link ClusterImpl#beginTopologyChange()} calls.
+     */
+    private int depth;
+
+    /**
+     * Whether the topology changed since the snapshot was last published.
+     */
+    private boolean pending;
+  }
 }
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.state.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ambari.server.state.Service;
+import org.apache.ambari.server.state.ServiceComponentHost;
+
+/**
+ * An immutable view of the services and host components of a cluster. A new
+ * snapshot with a higher version is published by {@link ClusterImpl} every time
+ * a service or host component is added or removed, so readers can traverse the
+ * topology without taking any lock and without copying the live maps. The
+ * {@link Service} and {@link ServiceComponentHost} instances themselves are
+ * shared with the cluster, only the structure is frozen.
+ */
+public final class ClusterTopologySnapshot {
+
+  /**
+   * The snapshot of a cluster without services.
+   */
+  static final ClusterTopologySnapshot EMPTY = new ClusterTopologySnapshot(0,
+      Collections.<String, Service>emptyMap(),
+      Collections.<String, Map<String, Map<String, ServiceComponentHost>>>emptyMap(),
+      Collections.<String, List<ServiceComponentHost>>emptyMap());
+
+  private final long version;
+
+  /**
+   * [ ServiceName -> Service ], sorted by name
+   */
+  private final Map<String, Service> services;
+
+  /**
+   * [ ServiceName -> [ ServiceComponentName -> [ HostName -> SCH ] ] ]
+   */
+  private final Map<String, Map<String, Map<String, ServiceComponentHost>>> serviceComponentHosts;
+
+  /**
+   * [ HostName -> [ SCH ] ]
+   */
+  private final Map<String, List<ServiceComponentHost>> serviceComponentHostsByHost;
+
+  private ClusterTopologySnapshot(long version, Map<String, Service> services,
+      Map<String, Map<String, Map<String, ServiceComponentHost>>> serviceComponentHosts,
+      Map<String, List<ServiceComponentHost>> serviceComponentHostsByHost) {
+    this.version = version;
+    this.services = services;
+    this.serviceComponentHosts = serviceComponentHosts;
+    this.serviceComponentHostsByHost = serviceComponentHostsByHost;
+  }
+
+  /**
+   * Creates a snapshot by deep copying the given maps.
+   *
+   * @param version               the version of the snapshot
+   * @param services              the services of the cluster
+   * @param serviceComponentHosts the host components by service, component and host
+   * @return the snapshot
+   */
+  public static ClusterTopologySnapshot create(long version, Map<String, Service> services,
+      Map<String, ? extends Map<String, ? extends Map<String, ServiceComponentHost>>> serviceComponentHosts) {
+    Map<String, Map<String, Map<String, ServiceComponentHost>>> byService = new HashMap<>();
+    Map<String, List<ServiceComponentHost>> byHost = new HashMap<>();
+
+    for (Map.Entry<String, ? extends Map<String, ? extends Map<String, ServiceComponentHost>>> serviceEntry
+        : serviceComponentHosts.entrySet()) {
+      Map<String, Map<String, ServiceComponentHost>> byComponent = new HashMap<>();
+      for (Map.Entry<String, ? extends Map<String, ServiceComponentHost>> componentEntry
+          : serviceEntry.getValue().entrySet()) {
+        Map<String, ServiceComponentHost> hostComponents = new HashMap<>(componentEntry.getValue());
+        for (Map.Entry<String, ServiceComponentHost> hostEntry : hostComponents.entrySet()) {
+          List<ServiceComponentHost> onHost = byHost.get(hostEntry.getKey());
+          if (onHost == null) {
+            onHost = new ArrayList<>();
+            byHost.put(hostEntry.getKey(), onHost);
+          }
+          onHost.add(hostEntry.getValue());
+        }
+        byComponent.put(componentEntry.getKey(), Collections.unmodifiableMap(hostComponents));
+      }
+      byService.put(serviceEntry.getKey(), Collections.unmodifiableMap(byComponent));
+    }
+
+    for (Map.Entry<String, List<ServiceComponentHost>> hostEntry : byHost.entrySet()) {
+      hostEntry.setValue(Collections.unmodifiableList(hostEntry.getValue()));
+    }
+
+    return new ClusterTopologySnapshot(version,
+        Collections.unmodifiableMap(new TreeMap<>(services)),
+        Collections.unmodifiableMap(byService),
+        Collections.unmodifiableMap(byHost));
+  }
+
+  /**
+   * @return the version of the snapshot, higher versions were published later
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return the services by name
+   */
+  public Map<String, Service> getServices() {
+    return services;
+  }
+
+  /**
+   * @param serviceName the service name
+   * @return the service or {@code null} if the cluster has no such service
+   */
+  public Service getService(String serviceName) {
+    return services.get(serviceName);
+  }
+
+  /**
+   * @param serviceName the service name
+   * @return the host components of the service by component and host name,
+   *         never {@code null}
+   */
+  public Map<String, Map<String, ServiceComponentHost>> getServiceComponentHosts(String serviceName) {
+    Map<String, Map<String, ServiceComponentHost>> byComponent = serviceComponentHosts.get(serviceName);
+    if (byComponent == null) {
+      return Collections.emptyMap();
+    }
+    return byComponent;
+  }
+
+  /**
+   * @param serviceName   the service name
+   * @param componentName the component name
+   * @return the host components of the component by host name, never
+   *         {@code null}
+   */
+  public Map<String, ServiceComponentHost> getServiceComponentHosts(String serviceName, String componentName) {
+    Map<String, ServiceComponentHost> byHost = getServiceComponentHosts(serviceName).get(componentName);
+    if (byHost == null) {
+      return Collections.emptyMap();
+    }
+    return byHost;
+  }
+
+  /**
+   * @param hostName the host name
+   * @return the host components on the host, never {@code null}
+   */
+  public List<ServiceComponentHost> getServiceComponentHostsByHost(String hostName) {
+    List<ServiceComponentHost> onHost = serviceComponentHostsByHost.get(hostName);
+    if (onHost == null) {
+      return Collections.emptyList();
+    }
+    return onHost;
+  }
+}
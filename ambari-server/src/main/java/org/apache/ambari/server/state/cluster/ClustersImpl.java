@@ -83,6 +83,7 @@ import org.apache.ambari.server.state.configgroup.ConfigGroup;
 import org.apache.ambari.server.state.host.HostFactory;
 import org.apache.ambari.server.topology.TopologyManager;
 import org.apache.ambari.server.utils.RetryHelper;
+import org.apache.ambari.server.utils.StageUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.GrantedAuthority;
@@ -637,6 +638,7 @@ public class ClustersImpl implements Clusters {
 
     LOG.info("Deleting cluster " + cluster.getClusterName());
     cluster.delete();
+    StageUtils.removeComponentHostIndex(cluster.getClusterId());
 
     // clear maps
     for (Set<Cluster> clusterSet : hostClusterMap.values()) {
@@ -50,6 +50,7 @@ import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.Config;
 import org.apache.ambari.server.state.ConfigFactory;
+import org.apache.ambari.server.state.ConfigHelper;
 import org.apache.ambari.server.state.Host;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -90,6 +91,8 @@ public class ConfigGroupImpl implements ConfigGroup {
 
   private final ConfigFactory configFactory;
 
+  private final ConfigHelper configHelper;
+
   @AssistedInject
   public ConfigGroupImpl(@Assisted("cluster") Cluster cluster, @Assisted("name") String name,
       @Assisted("tag") String tag, @Assisted("description") String description,
@@ -97,9 +100,11 @@ public class ConfigGroupImpl implements ConfigGroup {
       @Assisted("hosts") Map<Long, Host> hosts, Clusters clusters, ConfigFactory configFactory,
       ClusterDAO clusterDAO, HostDAO hostDAO, ConfigGroupDAO configGroupDAO,
       ConfigGroupConfigMappingDAO configGroupConfigMappingDAO,
-      ConfigGroupHostMappingDAO configGroupHostMappingDAO, LockFactory lockFactory) {
+      ConfigGroupHostMappingDAO configGroupHostMappingDAO, LockFactory lockFactory,
+      ConfigHelper configHelper) {
 
     this.configFactory = configFactory;
+    this.configHelper = configHelper;
     this.clusterDAO = clusterDAO;
     this.hostDAO = hostDAO;
     this.configGroupDAO = configGroupDAO;
@@ -133,9 +138,11 @@ public class ConfigGroupImpl implements ConfigGroup {
       Clusters clusters, ConfigFactory configFactory,
       ClusterDAO clusterDAO, HostDAO hostDAO, ConfigGroupDAO configGroupDAO,
       ConfigGroupConfigMappingDAO configGroupConfigMappingDAO,
-      ConfigGroupHostMappingDAO configGroupHostMappingDAO, LockFactory lockFactory) {
+      ConfigGroupHostMappingDAO configGroupHostMappingDAO, LockFactory lockFactory,
+      ConfigHelper configHelper) {
 
     this.configFactory = configFactory;
+    this.configHelper = configHelper;
     this.clusterDAO = clusterDAO;
     this.hostDAO = hostDAO;
     this.configGroupDAO = configGroupDAO;
@@ -254,7 +261,11 @@ public class ConfigGroupImpl implements ConfigGroup {
     try {
       // persist enitites in a transaction first, then update internal state
       replaceHostMappings(hosts);
+      Map<Long, Host> previousHosts = m_hosts;
       m_hosts = new ConcurrentHashMap<>(hosts);
+
+      invalidateStaleConfigs(previousHosts.values());
+      invalidateStaleConfigs(hosts.values());
     } finally {
       hostLock.writeLock().unlock();
     }
@@ -273,6 +284,17 @@ public class ConfigGroupImpl implements ConfigGroup {
     // persisted
     persistConfigMapping(clusterEntity, configGroupEntity, configurations);
     m_configurations = new ConcurrentHashMap<>(configurations);
+    invalidateStaleConfigs(m_hosts.values());
+  }
+
+  /**
+   * Removes the stale config flags of the given hosts, since the configs
+   * which apply to them changed.
+   */
+  private void invalidateStaleConfigs(Collection<Host> hosts) {
+    for (Host host : hosts) {
+      configHelper.invalidateStaleConfigsCache(cluster.getClusterId(), host.getHostName());
+    }
   }
 
   @Override
@@ -291,6 +313,7 @@ public class ConfigGroupImpl implements ConfigGroup {
         // remove the entities first, then update internal state
         removeConfigGroupHostEntity(host);
         m_hosts.remove(hostId);
+        configHelper.invalidateStaleConfigsCache(cluster.getClusterId(), hostName);
       } catch (Exception e) {
         LOG.error("Failed to delete config group host mapping for cluster {} and host {}",
             cluster.getClusterName(), hostName, e);
@@ -475,6 +498,7 @@ public class ConfigGroupImpl implements ConfigGroup {
       ConfigGroupEntity configGroupEntity = getConfigGroupEntity();
       persistHostMapping(Collections.singletonList(host), configGroupEntity);
       m_hosts.putIfAbsent(host.getHostId(), host);
+      configHelper.invalidateStaleConfigsCache(cluster.getClusterId(), host.getHostName());
     } finally {
       hostLock.writeLock().unlock();
     }
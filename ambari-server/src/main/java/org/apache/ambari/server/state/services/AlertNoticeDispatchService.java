@@ -28,16 +28,21 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
@@ -188,18 +193,33 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
   private Provider<AmbariMetaInfo> m_metaInfo;
 
   /**
-   * The executor responsible for dispatching.
+   * The executor responsible for dispatching, if one was set by
+   * {@link #setExecutor(Executor)}; it is then used for every target type
+   * instead of {@link #m_executors}.
    */
   private Executor m_executor;
 
+  /**
+   * The executors responsible for dispatching, by target type, so that a slow
+   * SMTP server does not hold up SNMP traps. Each executor has a bounded
+   * queue; notifications which don't fit are left pending for the next
+   * iteration instead of being dispatched on the scheduler thread.
+   */
+  private final ConcurrentMap<String, ThreadPoolExecutor> m_executors = new ConcurrentHashMap<>();
+
+  /**
+   * Dispatch metrics, counted in notices.
+   */
+  private final AtomicLong m_dispatchedCount = new AtomicLong();
+  private final AtomicLong m_deliveredCount = new AtomicLong();
+  private final AtomicLong m_failedCount = new AtomicLong();
+  private final AtomicLong m_deferredCount = new AtomicLong();
+  private final AtomicLong m_coalescedCount = new AtomicLong();
+
   /**
    * Constructor.
    */
   public AlertNoticeDispatchService() {
-    m_executor = new ThreadPoolExecutor(0, 2, 5L, TimeUnit.MINUTES,
-        new LinkedBlockingQueue<Runnable>(), new AlertDispatchThreadFactory(),
-        new ThreadPoolExecutor.CallerRunsPolicy());
-
     GsonBuilder gsonBuilder = new GsonBuilder();
     gsonBuilder.registerTypeAdapter(AlertTargetProperties.class,
         new AlertTargetPropertyDeserializer());
@@ -266,6 +286,21 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
     m_executor = executor;
   }
 
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Stops the dispatch threads once the notifications which were already
+   * handed to them have been dispatched.
+   */
+  @Override
+  protected void shutDown() throws Exception {
+    for (ThreadPoolExecutor executor : m_executors.values()) {
+      executor.shutdown();
+    }
+
+    super.shutDown();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -299,6 +334,10 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
       notices.add(notice);
     }
 
+    long dispatchedCount = m_dispatchedCount.get();
+    long deferredCount = m_deferredCount.get();
+    long coalescedCount = m_coalescedCount.get();
+
     // now that all of the notices are grouped by target, dispatch them
     Set<AlertTargetEntity> targets = aggregateMap.keySet();
     for (AlertTargetEntity target : targets) {
@@ -332,8 +371,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
             renderDigestNotificationContent(dispatcher, notification, histories, target);
 
             // dispatch
-            DispatchRunnable runnable = new DispatchRunnable(dispatcher, notification);
-            m_executor.execute(runnable);
+            dispatch(targetType, dispatcher, notification);
           } catch (Exception exception) {
             LOG.error("Unable to create notification for alerts", exception);
 
@@ -344,11 +382,20 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
           }
         } else {
           // the dispatcher does not support digest, each notice must have a 1:1
-          // notification created for it
+          // notification created for it; when coalescing, notices superseded
+          // by a later notice of the same alert are only marked with it
+          Map<AlertNoticeEntity, List<String>> coalesced = null;
+          if (m_configuration.isAlertNotificationCoalesceEnabled()) {
+            coalesced = coalesce(notices);
+            notices = new ArrayList<>(coalesced.keySet());
+          }
+
           for (AlertNoticeEntity notice : notices) {
             AlertNotification notification = buildNotificationFromTarget(target);
             AlertHistoryEntity history = notice.getAlertHistory();
-            notification.CallbackIds = Collections.singletonList(notice.getUuid());
+            notification.CallbackIds = null == coalesced
+                ? Collections.singletonList(notice.getUuid())
+                : coalesced.get(notice);
 
             // populate the subject and body fields; if there is a problem
             // generating the content, then mark the notices as FAILED
@@ -356,8 +403,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
               renderNotificationContent(dispatcher, notification, history, target);
 
               // dispatch
-              DispatchRunnable runnable = new DispatchRunnable(dispatcher, notification);
-              m_executor.execute(runnable);
+              dispatch(targetType, dispatcher, notification);
             } catch (Exception exception) {
               LOG.error("Unable to create notification for alert", exception);
 
@@ -370,6 +416,196 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
         LOG.error("Caught exception during Alert Notice dispatching.", e);
       }
     }
+
+    LOG.info(
+        "Dispatched {} alert notices ({} coalesced), {} deferred to the next iteration; {} notifications are waiting for a dispatch thread",
+        m_dispatchedCount.get() - dispatchedCount, m_coalescedCount.get() - coalescedCount,
+        m_deferredCount.get() - deferredCount, getDispatchBacklog());
+  }
+
+  /**
+   * Hands the notification to the executor of its target type. If the queue
+   * of that executor is full, the notices of the notification are set back to
+   * {@link NotificationState#PENDING} so that they are dispatched by the next
+   * iteration.
+   *
+   * @param targetType
+   *          the type of the target
+   * @param dispatcher
+   *          the dispatcher for the target type
+   * @param notification
+   *          the notification to dispatch
+   */
+  private void dispatch(String targetType, NotificationDispatcher dispatcher,
+      Notification notification) {
+    try {
+      getExecutor(targetType).execute(new DispatchRunnable(dispatcher, notification));
+      m_dispatchedCount.addAndGet(notification.CallbackIds.size());
+    } catch (RejectedExecutionException exception) {
+      LOG.warn("The {} dispatch queue is full, {} alert notices will be dispatched later",
+          targetType, notification.CallbackIds.size());
+
+      m_deferredCount.addAndGet(notification.CallbackIds.size());
+      for (String callbackId : notification.CallbackIds) {
+        updateAlertNotice(callbackId, NotificationState.PENDING);
+      }
+    }
+  }
+
+  /**
+   * Gets the executor for the given target type, creating it if needed.
+   *
+   * @param targetType
+   *          the type of the target
+   * @return the executor (never {@code null}).
+   */
+  private Executor getExecutor(String targetType) {
+    if (null != m_executor) {
+      return m_executor;
+    }
+
+    ThreadPoolExecutor executor = m_executors.get(targetType);
+    if (null == executor) {
+      int threads = Math.max(1, m_configuration.getAlertNotificationDispatchThreads());
+      int queueSize = Math.max(1, m_configuration.getAlertNotificationDispatchQueueSize());
+
+      executor = new ThreadPoolExecutor(threads, threads, 5L, TimeUnit.MINUTES,
+          new ArrayBlockingQueue<Runnable>(queueSize),
+          new AlertDispatchThreadFactory(targetType),
+          new ThreadPoolExecutor.AbortPolicy());
+
+      executor.allowCoreThreadTimeOut(true);
+
+      ThreadPoolExecutor existing = m_executors.putIfAbsent(targetType, executor);
+      if (null != existing) {
+        executor.shutdown();
+        executor = existing;
+      }
+    }
+
+    return executor;
+  }
+
+  /**
+   * Coalesces the notices of a target by alert definition, host and instance.
+   * Only the latest notice of each alert is kept; the UUIDs of the notices it
+   * supersedes are added to its callback IDs so that they are marked along
+   * with it.
+   *
+   * @param notices
+   *          the pending notices of a target
+   * @return the callback IDs by the notices to dispatch, in the order of the
+   *         given notices
+   */
+  private Map<AlertNoticeEntity, List<String>> coalesce(List<AlertNoticeEntity> notices) {
+    Map<String, AlertNoticeEntity> latestNotices = new LinkedHashMap<>();
+    Map<String, List<String>> callbackIds = new HashMap<>();
+
+    for (AlertNoticeEntity notice : notices) {
+      AlertHistoryEntity history = notice.getAlertHistory();
+      String key = history.getAlertDefinitionId() + "/" + history.getHostName() + "/"
+          + history.getAlertInstance();
+
+      List<String> ids = callbackIds.get(key);
+      if (null == ids) {
+        ids = new ArrayList<>();
+        callbackIds.put(key, ids);
+      }
+      ids.add(notice.getUuid());
+
+      AlertNoticeEntity latest = latestNotices.get(key);
+      if (null == latest || getAlertTimestamp(latest) <= getAlertTimestamp(notice)) {
+        latestNotices.put(key, notice);
+      }
+    }
+
+    Map<AlertNoticeEntity, List<String>> coalesced = new LinkedHashMap<>();
+    for (Entry<String, AlertNoticeEntity> entry : latestNotices.entrySet()) {
+      List<String> ids = callbackIds.get(entry.getKey());
+      m_coalescedCount.addAndGet(ids.size() - 1);
+      coalesced.put(entry.getValue(), ids);
+    }
+
+    return coalesced;
+  }
+
+  private static long getAlertTimestamp(AlertNoticeEntity notice) {
+    Long timestamp = notice.getAlertHistory().getAlertTimestamp();
+    return null == timestamp ? 0L : timestamp;
+  }
+
+  /**
+   * Gets the number of notifications which are waiting for a dispatch thread.
+   *
+   * @return the number of queued notifications.
+   */
+  public int getDispatchBacklog() {
+    int backlog = 0;
+    for (ThreadPoolExecutor executor : m_executors.values()) {
+      backlog += executor.getQueue().size();
+    }
+    return backlog;
+  }
+
+  /**
+   * @return the number of notices handed to a dispatch thread
+   */
+  public long getDispatchedCount() {
+    return m_dispatchedCount.get();
+  }
+
+  /**
+   * @return the number of notices which were delivered
+   */
+  public long getDeliveredCount() {
+    return m_deliveredCount.get();
+  }
+
+  /**
+   * @return the number of notices which failed to be delivered
+   */
+  public long getFailedCount() {
+    return m_failedCount.get();
+  }
+
+  /**
+   * @return the number of notices left pending because a dispatch queue was
+   *         full
+   */
+  public long getDeferredCount() {
+    return m_deferredCount.get();
+  }
+
+  /**
+   * @return the number of notices which were superseded by a later notice of
+   *         the same alert
+   */
+  public long getCoalescedCount() {
+    return m_coalescedCount.get();
+  }
+
+  /**
+   * Updates the {@link AlertNoticeEntity} matching the given UUID with the
+   * specified state.
+   *
+   * @param uuid
+   * @param state
+   */
+  private void updateAlertNotice(String uuid, NotificationState state) {
+    try {
+      AlertNoticeEntity entity = m_dao.findNoticeByUuid(uuid);
+      if (null == entity) {
+        LOG.warn("Unable to find an alert notice with UUID {}", uuid);
+        return;
+      }
+
+      entity.setNotifyState(state);
+      m_dao.merge(entity);
+    } catch (Exception exception) {
+      LOG.error(
+          "Unable to update the alert notice with UUID {} to {}, notifications will continue to be sent",
+          uuid, state, exception);
+    }
   }
 
   /**
@@ -631,22 +867,28 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
 
   /**
    * A custom {@link ThreadFactory} for the threads that will handle dispatching
-   * {@link AlertNoticeEntity} instances. Threads created will have slightly
-   * reduced priority since {@link AlertEvent} instances are not critical to the
-   * system.
+   * {@link AlertNoticeEntity} instances of a target type. Threads created will
+   * have slightly reduced priority since {@link AlertEvent} instances are not
+   * critical to the system.
    */
   private static final class AlertDispatchThreadFactory implements
       ThreadFactory {
 
     private static final AtomicInteger s_threadIdPool = new AtomicInteger(1);
 
+    private final String m_targetType;
+
+    private AlertDispatchThreadFactory(String targetType) {
+      m_targetType = targetType;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Thread newThread(Runnable r) {
       Thread thread = new Thread(r, "alert-dispatch-"
-          + s_threadIdPool.getAndIncrement());
+          + m_targetType.toLowerCase() + "-" + s_threadIdPool.getAndIncrement());
 
       thread.setDaemon(false);
       thread.setPriority(Thread.NORM_PRIORITY - 1);
@@ -667,6 +909,7 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
      */
     @Override
     public void onSuccess(List<String> callbackIds) {
+      m_deliveredCount.addAndGet(callbackIds.size());
       for (String callbackId : callbackIds) {
         updateAlertNotice(callbackId, NotificationState.DELIVERED);
       }
@@ -677,34 +920,11 @@ public class AlertNoticeDispatchService extends AbstractScheduledService {
      */
     @Override
     public void onFailure(List<String> callbackIds) {
+      m_failedCount.addAndGet(callbackIds.size());
       for (String callbackId : callbackIds) {
         updateAlertNotice(callbackId, NotificationState.FAILED);
       }
     }
-
-    /**
-     * Updates the {@link AlertNoticeEntity} matching the given UUID with the
-     * specified state.
-     *
-     * @param uuid
-     * @param state
-     */
-    private void updateAlertNotice(String uuid, NotificationState state) {
-      try {
-        AlertNoticeEntity entity = m_dao.findNoticeByUuid(uuid);
-        if (null == entity) {
-          LOG.warn("Unable to find an alert notice with UUID {}", uuid);
-          return;
-        }
-
-        entity.setNotifyState(state);
-        m_dao.merge(entity);
-      } catch (Exception exception) {
-        LOG.error(
-            "Unable to update the alert notice with UUID {} to {}, notifications will continue to be sent",
-            uuid, state, exception);
-      }
-    }
   }
 
   /**
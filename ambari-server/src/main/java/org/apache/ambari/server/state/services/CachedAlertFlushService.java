@@ -70,10 +70,21 @@ public class CachedAlertFlushService extends AbstractScheduledService {
   /**
    * {@inheritDoc}
    * <p/>
-   * Invokes {@link #stop()} if not enabled.
+   * Loads the index of current alerts if
+   * {@link Configuration#isAlertCurrentIndexEnabled()} is {@code true} and
+   * invokes {@link #stop()} if caching is not enabled.
    */
   @Override
   protected void startUp() throws Exception {
+    if (m_configuration.isAlertCurrentIndexEnabled()) {
+      try {
+        m_alertsDAO.rebuildCurrentAlertIndex();
+      } catch (Exception exception) {
+        LOG.error("Unable to load the index of current alerts; it will be loaded on its first use",
+            exception);
+      }
+    }
+
     boolean enabled = m_configuration.isAlertCacheEnabled();
     if (!enabled) {
       stopAsync();
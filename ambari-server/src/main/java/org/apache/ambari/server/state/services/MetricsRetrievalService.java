@@ -23,25 +23,36 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.AmbariService;
 import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.jmx.JMXMetricHolder;
+import org.apache.ambari.server.controller.jmx.JMXMetricHolderReader;
 import org.apache.ambari.server.controller.utilities.ScalingThreadPoolExecutor;
 import org.apache.ambari.server.controller.utilities.StreamProvider;
 import org.apache.commons.io.IOUtils;
 import org.codehaus.jackson.map.DeserializationConfig;
 import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.map.ObjectReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,6 +90,18 @@ import com.google.inject.Inject;
  * In order to control throttling requests to the same endpoint,
  * {@link Configuration#isMetricsServiceRequestTTLCacheEnabled()} can be enabled
  * to allow for a fixed interval of time to pass between requests.
+ * <p/>
+ * When {@link Configuration#isMetricsServicePrefetchEnabled()} is set, every
+ * submitted endpoint is also subscribed to. Subscribed endpoints are refreshed in the background on a jittered schedule which
+ * follows the rate at which they are requested, so that callers find current
+ * data in the cache. Endpoints which have not been requested for
+ * {@link Configuration#getMetricsServicePrefetchIdleTimeout()} seconds are no
+ * longer refreshed.
+ * <p/>
+ * Regardless of how requests are made, no more than
+ * {@link Configuration#getMetricsServiceHostConcurrency()} requests are made to
+ * a single remote host at the same time. Further requests for the host are
+ * deferred until a running request completes.
  */
 @AmbariService
 public class MetricsRetrievalService extends AbstractService {
@@ -111,6 +134,18 @@ public class MetricsRetrievalService extends AbstractService {
    */
   private static final int EXCEPTION_CACHE_TIMEOUT_MINUTES = 20;
 
+  /**
+   * The fraction by which background refresh intervals are randomly varied to
+   * keep refreshes of endpoints requested together from firing together.
+   */
+  private static final double PREFETCH_JITTER = 0.2;
+
+  /**
+   * How often, in {@link TimeUnit#SECONDS}, subscriptions are checked for
+   * endpoints which are due for a refresh.
+   */
+  private static final int PREFETCH_CHECK_INTERVAL_SECONDS = 1;
+
   /**
    * Exceptions from this service should not SPAM the logs; so cache exceptions
    * and log once every {@vale #EXCEPTION_CACHE_TIMEOUT_MINUTES} minutes.
@@ -147,9 +182,17 @@ public class MetricsRetrievalService extends AbstractService {
   private ThreadPoolExecutor m_threadPoolExecutor;
 
   /**
-   * Used to parse remote JMX JSON into a {@link Map}.
+   * Used to parse remote JMX JSON into a {@link JMXMetricHolder}.
+   */
+  private final JMXMetricHolderReader m_jmxMetricHolderReader;
+
+  /**
+   * The JMX bean attributes to keep for URLs which were submitted with an
+   * attribute filter. Filters only ever grow so that callers requesting
+   * different attributes from the same URL do not evict each other's values.
+   * URLs without a filter are parsed completely.
    */
-  private final ObjectReader m_jmxObjectReader;
+  private final ConcurrentMap<String, Set<String>> m_jmxAttributeFilters = new ConcurrentHashMap<>();
 
   /**
    * A thread-safe collection of all of the URL endpoints queued for processing.
@@ -175,6 +218,35 @@ public class MetricsRetrievalService extends AbstractService {
    */
   private int m_queueMaximumSize;
 
+  /**
+   * The endpoints which have been requested, keyed by URL. These are only
+   * tracked and refreshed in the background if prefetching is enabled.
+   */
+  private final ConcurrentMap<String, MetricSubscription> m_subscriptions = new ConcurrentHashMap<>();
+
+  /**
+   * Periodically refreshes subscribed endpoints, or {@code null} if
+   * prefetching is disabled.
+   */
+  private ScheduledExecutorService m_prefetchExecutor;
+
+  /**
+   * The bounds, in milliseconds, of the background refresh interval.
+   */
+  private long m_prefetchMinIntervalMs;
+  private long m_prefetchMaxIntervalMs;
+
+  /**
+   * The time, in milliseconds, after which an unrequested endpoint is no
+   * longer refreshed.
+   */
+  private long m_prefetchIdleTimeoutMs;
+
+  /**
+   * Limits the number of concurrent requests made to a single remote host.
+   */
+  private HostRequestLimiter m_hostRequestLimiter;
+
   /**
    * Constructor.
    *
@@ -182,7 +254,7 @@ public class MetricsRetrievalService extends AbstractService {
   public MetricsRetrievalService() {
     ObjectMapper jmxObjectMapper = new ObjectMapper();
     jmxObjectMapper.configure(DeserializationConfig.Feature.USE_ANNOTATIONS, false);
-    m_jmxObjectReader = jmxObjectMapper.reader(JMXMetricHolder.class);
+    m_jmxMetricHolderReader = new JMXMetricHolderReader(jmxObjectMapper);
   }
 
   /**
@@ -215,7 +287,7 @@ public class MetricsRetrievalService extends AbstractService {
         TimeUnit.SECONDS, m_queueMaximumSize);
 
     m_threadPoolExecutor.allowCoreThreadTimeOut(true);
-    m_threadPoolExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardOldestPolicy());
+    m_threadPoolExecutor.setRejectedExecutionHandler(new DiscardOldestRequestPolicy());
 
     ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat(
         "ambari-metrics-retrieval-service-thread-%d").setPriority(
@@ -224,14 +296,45 @@ public class MetricsRetrievalService extends AbstractService {
 
     m_threadPoolExecutor.setThreadFactory(threadFactory);
 
+    int hostConcurrency = m_configuration.getMetricsServiceHostConcurrency();
+    m_hostRequestLimiter = new HostRequestLimiter(hostConcurrency);
+
     LOG.info(
-        "Initializing the Metrics Retrieval Service with core={}, max={}, workerQueue={}, threadPriority={}",
-        corePoolSize, maxPoolSize, m_queueMaximumSize, threadPriority);
+        "Initializing the Metrics Retrieval Service with core={}, max={}, workerQueue={}, threadPriority={}, hostConcurrency={}",
+        corePoolSize, maxPoolSize, m_queueMaximumSize, threadPriority, hostConcurrency);
 
     if (ttlCacheEnabled) {
       LOG.info("Metrics Retrieval Service request TTL cache is enabled and set to {} seconds",
           ttlSeconds);
     }
+
+    // start refreshing requested endpoints in the background if configured
+    m_prefetchMinIntervalMs = TimeUnit.SECONDS.toMillis(
+        m_configuration.getMetricsServicePrefetchMinInterval());
+    m_prefetchMaxIntervalMs = Math.max(m_prefetchMinIntervalMs,
+        TimeUnit.SECONDS.toMillis(m_configuration.getMetricsServicePrefetchMaxInterval()));
+    m_prefetchIdleTimeoutMs = TimeUnit.SECONDS.toMillis(
+        m_configuration.getMetricsServicePrefetchIdleTimeout());
+
+    if (m_configuration.isMetricsServicePrefetchEnabled()) {
+      ThreadFactory prefetchThreadFactory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat(
+          "ambari-metrics-retrieval-service-prefetch-%d").setUncaughtExceptionHandler(
+              new MetricRunnableExceptionHandler()).build();
+
+      m_prefetchExecutor = Executors.newSingleThreadScheduledExecutor(prefetchThreadFactory);
+      m_prefetchExecutor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          refreshSubscriptions(System.currentTimeMillis());
+        }
+      }, PREFETCH_CHECK_INTERVAL_SECONDS, PREFETCH_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+      LOG.info(
+          "Metrics Retrieval Service prefetching is enabled with an interval of {} to {} seconds and an idle timeout of {} seconds",
+          TimeUnit.MILLISECONDS.toSeconds(m_prefetchMinIntervalMs),
+          TimeUnit.MILLISECONDS.toSeconds(m_prefetchMaxIntervalMs),
+          TimeUnit.MILLISECONDS.toSeconds(m_prefetchIdleTimeoutMs));
+    }
   }
 
   /**
@@ -248,6 +351,11 @@ public class MetricsRetrievalService extends AbstractService {
    */
   @Override
   protected void doStop() {
+    if (null != m_prefetchExecutor) {
+      m_prefetchExecutor.shutdownNow();
+    }
+
+    m_subscriptions.clear();
     m_jmxCache.invalidateAll();
     m_restCache.invalidateAll();
 
@@ -256,6 +364,7 @@ public class MetricsRetrievalService extends AbstractService {
     }
 
     m_queuedUrls.clear();
+    m_jmxAttributeFilters.clear();
     m_threadPoolExecutor.shutdownNow();
   }
 
@@ -287,6 +396,133 @@ public class MetricsRetrievalService extends AbstractService {
    * @see #getCachedJMXMetric(String)
    */
   public void submitRequest(MetricSourceType type, StreamProvider streamProvider, String url) {
+    if (null != m_prefetchExecutor) {
+      subscribe(type, streamProvider, url, null);
+    }
+
+    submitRequest(type, streamProvider, url, null);
+  }
+
+  /**
+   * Submits a JMX request which only keeps the specified bean attributes when
+   * the response is parsed. This is intended for targeted {@code ?qry=} and
+   * {@code ?get=} URLs where the caller knows exactly which attributes it will
+   * read from the cached {@link JMXMetricHolder}.
+   * <p/>
+   * If the same URL is submitted with different attributes, the union of all
+   * attributes is kept. Attributes which were not part of the filter when the
+   * URL was last retrieved will be available after the next retrieval.
+   *
+   * @param streamProvider
+   *          the {@link StreamProvider} to use to read from the remote
+   *          endpoint.
+   * @param jmxUrl
+   *          the URL to read from
+   * @param attributes
+   *          the bean attributes to keep (not {@code null}).
+   *
+   * @see #submitRequest(MetricSourceType, StreamProvider, String)
+   */
+  public void submitJMXRequest(StreamProvider streamProvider, String jmxUrl,
+      Set<String> attributes) {
+    Set<String> attributeFilter = m_jmxAttributeFilters.get(jmxUrl);
+    if (null == attributeFilter) {
+      m_jmxAttributeFilters.putIfAbsent(jmxUrl, Sets.<String>newConcurrentHashSet());
+      attributeFilter = m_jmxAttributeFilters.get(jmxUrl);
+    }
+
+    attributeFilter.addAll(attributes);
+    if (null != m_prefetchExecutor) {
+      subscribe(MetricSourceType.JMX, streamProvider, jmxUrl, attributeFilter);
+    }
+
+    submitRequest(MetricSourceType.JMX, streamProvider, jmxUrl, attributeFilter);
+  }
+
+  /**
+   * Records a request for the URL, creating a subscription for it if there is
+   * none yet.
+   */
+  private void subscribe(MetricSourceType type, StreamProvider streamProvider, String url,
+      Set<String> attributeFilter) {
+    long now = System.currentTimeMillis();
+
+    MetricSubscription subscription = m_subscriptions.get(url);
+    if (null == subscription) {
+      subscription = new MetricSubscription(type, streamProvider, attributeFilter, now);
+      MetricSubscription existing = m_subscriptions.putIfAbsent(url, subscription);
+      if (null == existing) {
+        subscription.setNextRefreshTime(now + getJitteredRefreshInterval(subscription));
+        return;
+      }
+
+      subscription = existing;
+    }
+
+    subscription.recordAccess(now);
+  }
+
+  /**
+   * Refreshes the subscribed endpoints which are due and removes the ones
+   * which have not been requested within the idle timeout. This is invoked
+   * periodically when prefetching is enabled.
+   *
+   * @param now
+   *          the current time, in milliseconds.
+   */
+  void refreshSubscriptions(long now) {
+    Iterator<Map.Entry<String, MetricSubscription>> iterator = m_subscriptions.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, MetricSubscription> entry = iterator.next();
+      String url = entry.getKey();
+      MetricSubscription subscription = entry.getValue();
+
+      if (now - subscription.getLastAccessTime() > m_prefetchIdleTimeoutMs) {
+        LOG.debug("No longer refreshing {} since it has not been requested recently", url);
+        iterator.remove();
+        continue;
+      }
+
+      if (now >= subscription.getNextRefreshTime()) {
+        subscription.setNextRefreshTime(now + getJitteredRefreshInterval(subscription));
+        submitRequest(subscription.getType(), subscription.getStreamProvider(), url,
+            subscription.getAttributeFilter());
+      }
+    }
+  }
+
+  /**
+   * Gets the number of endpoints currently subscribed to.
+   *
+   * @return the number of subscriptions.
+   */
+  int getSubscriptionCount() {
+    return m_subscriptions.size();
+  }
+
+  /**
+   * Gets the time until the next background refresh of a subscription. This
+   * follows the rate at which the endpoint is requested within the configured
+   * bounds and is randomly varied by {@value #PREFETCH_JITTER}.
+   */
+  private long getJitteredRefreshInterval(MetricSubscription subscription) {
+    long accessInterval = subscription.getAccessInterval();
+    long interval = accessInterval < 0 ? m_prefetchMaxIntervalMs
+        : Math.min(m_prefetchMaxIntervalMs, Math.max(m_prefetchMinIntervalMs, accessInterval));
+
+    double jitter = 1 + PREFETCH_JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+    return (long) (interval * jitter);
+  }
+
+  /**
+   * Enqueues the request for the URL unless it is already queued or was
+   * retrieved too recently.
+   *
+   * @param attributeFilter
+   *          the JMX bean attributes to keep, or {@code null} for all of them.
+   */
+  private void submitRequest(MetricSourceType type, StreamProvider streamProvider, String url,
+      Set<String> attributeFilter) {
     // check to ensure that the request isn't already queued
     if (m_queuedUrls.contains(url)) {
       return;
@@ -311,12 +547,12 @@ public class MetricsRetrievalService extends AbstractService {
     Runnable runnable = null;
     switch (type) {
       case JMX:
-        runnable = new JMXRunnable(m_jmxCache, m_queuedUrls, m_ttlUrlCache, m_jmxObjectReader,
-            streamProvider, url);
+        runnable = new JMXRunnable(m_jmxCache, m_queuedUrls, m_ttlUrlCache,
+            m_hostRequestLimiter, m_jmxMetricHolderReader, attributeFilter, streamProvider, url);
         break;
       case REST:
-        runnable = new RESTRunnable(m_restCache, m_queuedUrls, m_ttlUrlCache, m_gson,
-            streamProvider, url);
+        runnable = new RESTRunnable(m_restCache, m_queuedUrls, m_ttlUrlCache,
+            m_hostRequestLimiter, m_gson, streamProvider, url);
         break;
       default:
         LOG.warn("Unable to retrieve metrics for the unknown type {}", type);
@@ -388,6 +624,16 @@ public class MetricsRetrievalService extends AbstractService {
      */
     private final Cache<String, String> m_ttlUrlCache;
 
+    /**
+     * Limits the number of concurrent requests to the host of the URL.
+     */
+    private final HostRequestLimiter m_hostRequestLimiter;
+
+    /**
+     * The host of the URL.
+     */
+    private final String m_host;
+
     /**
      * Constructor.
      *
@@ -403,13 +649,17 @@ public class MetricsRetrievalService extends AbstractService {
      *          an evicting cache which is used to determine if a request for a
      *          metric is too soon after the last request, or {@code null} if
      *          requests can be made sequentially without any separation.
+     * @param hostRequestLimiter
+     *          limits the concurrent requests to the host of the URL.
      */
     private MetricRunnable(StreamProvider streamProvider, String url, Set<String> queuedUrls,
-        Cache<String, String> ttlUrlCache) {
+        Cache<String, String> ttlUrlCache, HostRequestLimiter hostRequestLimiter) {
       m_streamProvider = streamProvider;
       m_url = url;
       m_queuedUrls = queuedUrls;
       m_ttlUrlCache = ttlUrlCache;
+      m_hostRequestLimiter = hostRequestLimiter;
+      m_host = getHost(url);
     }
 
     /**
@@ -417,6 +667,23 @@ public class MetricsRetrievalService extends AbstractService {
      */
     @Override
     public final void run() {
+      // too many requests to this host are running; this request is run again
+      // when one of them completes
+      if (!m_hostRequestLimiter.tryAcquire(m_host, this)) {
+        return;
+      }
+
+      try {
+        retrieve();
+      } finally {
+        m_hostRequestLimiter.release(m_host);
+      }
+    }
+
+    /**
+     * Reads the URL and caches the result.
+     */
+    private void retrieve() {
 
       // provide some profiling
       long startTime = 0;
@@ -522,7 +789,8 @@ public class MetricsRetrievalService extends AbstractService {
    */
   private static final class JMXRunnable extends MetricRunnable {
 
-    private final ObjectReader m_jmxObjectReader;
+    private final JMXMetricHolderReader m_jmxMetricHolderReader;
+    private final Set<String> m_attributeFilter;
     private final Cache<String, JMXMetricHolder> m_cache;
 
     /**
@@ -531,16 +799,21 @@ public class MetricsRetrievalService extends AbstractService {
      * @param cache
      * @param queuedUrls
      * @param ttlUrlCache
-     * @param jmxObjectReader
+     * @param hostRequestLimiter
+     * @param jmxMetricHolderReader
+     * @param attributeFilter
+     *          the bean attributes to keep, or {@code null} for all of them.
      * @param streamProvider
      * @param jmxUrl
      */
     private JMXRunnable(Cache<String, JMXMetricHolder> cache, Set<String> queuedUrls,
-        Cache<String, String> ttlUrlCache, ObjectReader jmxObjectReader,
+        Cache<String, String> ttlUrlCache, HostRequestLimiter hostRequestLimiter,
+        JMXMetricHolderReader jmxMetricHolderReader, Set<String> attributeFilter,
         StreamProvider streamProvider, String jmxUrl) {
-      super(streamProvider, jmxUrl, queuedUrls, ttlUrlCache);
+      super(streamProvider, jmxUrl, queuedUrls, ttlUrlCache, hostRequestLimiter);
       m_cache = cache;
-      m_jmxObjectReader = jmxObjectReader;
+      m_jmxMetricHolderReader = jmxMetricHolderReader;
+      m_attributeFilter = attributeFilter;
     }
 
     /**
@@ -556,7 +829,8 @@ public class MetricsRetrievalService extends AbstractService {
      */
     @Override
     protected void processInputStreamAndCacheResult(InputStream inputStream) throws Exception {
-      JMXMetricHolder jmxMetricHolder = m_jmxObjectReader.readValue(inputStream);
+      JMXMetricHolder jmxMetricHolder = m_jmxMetricHolderReader.read(inputStream,
+          m_attributeFilter);
       m_cache.put(m_url, jmxMetricHolder);
     }
   }
@@ -578,14 +852,15 @@ public class MetricsRetrievalService extends AbstractService {
      * @param cache
      * @param queuedUrls
      * @param ttlUrlCache
+     * @param hostRequestLimiter
      * @param gson
      * @param streamProvider
      * @param restUrl
      */
     private RESTRunnable(Cache<String, Map<String, String>> cache, Set<String> queuedUrls,
-        Cache<String, String> ttlUrlCache, Gson gson, StreamProvider streamProvider,
-        String restUrl) {
-      super(streamProvider, restUrl, queuedUrls, ttlUrlCache);
+        Cache<String, String> ttlUrlCache, HostRequestLimiter hostRequestLimiter, Gson gson,
+        StreamProvider streamProvider, String restUrl) {
+      super(streamProvider, restUrl, queuedUrls, ttlUrlCache, hostRequestLimiter);
       m_cache = cache;
       m_gson = gson;
     }
@@ -613,6 +888,233 @@ public class MetricsRetrievalService extends AbstractService {
     }
   }
 
+  /**
+   * Gets the host of a URL, which is used to limit concurrent requests.
+   *
+   * @param url
+   *          the URL (not {@code null}).
+   * @return the host, or the URL itself if it has no host.
+   */
+  private static String getHost(String url) {
+    try {
+      String host = URI.create(url).getHost();
+      if (null != host) {
+        return host;
+      }
+    } catch (IllegalArgumentException exception) {
+      LOG.debug("Unable to determine the host of {}", url, exception);
+    }
+
+    return url;
+  }
+
+  /**
+   * An endpoint which has been requested and is refreshed in the background
+   * until it has not been requested for a while.
+   */
+  private static final class MetricSubscription {
+
+    /**
+     * Requests closer together than this are considered to be part of the same
+     * burst (such as one REST request reading many resources) and do not
+     * affect the access interval.
+     */
+    private static final long MIN_ACCESS_INTERVAL_MS = 1000;
+
+    private final MetricSourceType m_type;
+    private final StreamProvider m_streamProvider;
+    private final Set<String> m_attributeFilter;
+
+    private volatile long m_lastAccessTime;
+    private volatile long m_nextRefreshTime;
+
+    /**
+     * A moving average of the time between requests, or {@code -1} if the
+     * endpoint has only been requested once.
+     */
+    private volatile long m_accessInterval = -1;
+
+    /**
+     * Constructor.
+     *
+     * @param type
+     * @param streamProvider
+     * @param attributeFilter
+     *          the JMX bean attributes to keep, or {@code null} for all of them.
+     * @param now
+     *          the time of the first request.
+     */
+    private MetricSubscription(MetricSourceType type, StreamProvider streamProvider,
+        Set<String> attributeFilter, long now) {
+      m_type = type;
+      m_streamProvider = streamProvider;
+      m_attributeFilter = attributeFilter;
+      m_lastAccessTime = now;
+    }
+
+    /**
+     * Records a request for the endpoint.
+     *
+     * @param now
+     *          the time of the request.
+     */
+    private synchronized void recordAccess(long now) {
+      long interval = now - m_lastAccessTime;
+      if (interval < MIN_ACCESS_INTERVAL_MS) {
+        return;
+      }
+
+      m_accessInterval = m_accessInterval < 0 ? interval : (3 * m_accessInterval + interval) / 4;
+      m_lastAccessTime = now;
+    }
+
+    private MetricSourceType getType() {
+      return m_type;
+    }
+
+    private StreamProvider getStreamProvider() {
+      return m_streamProvider;
+    }
+
+    private Set<String> getAttributeFilter() {
+      return m_attributeFilter;
+    }
+
+    private long getLastAccessTime() {
+      return m_lastAccessTime;
+    }
+
+    private long getAccessInterval() {
+      return m_accessInterval;
+    }
+
+    private long getNextRefreshTime() {
+      return m_nextRefreshTime;
+    }
+
+    private void setNextRefreshTime(long nextRefreshTime) {
+      m_nextRefreshTime = nextRefreshTime;
+    }
+  }
+
+  /**
+   * Limits the number of concurrent requests made to a single host. Requests
+   * which exceed the limit are parked and handed back to the executor when a
+   * request to the same host completes.
+   */
+  private final class HostRequestLimiter {
+
+    private final int m_maxConcurrentRequests;
+
+    /**
+     * The number of running requests per host.
+     */
+    private final Map<String, Integer> m_runningRequests = new HashMap<>();
+
+    /**
+     * The requests waiting for a running request to the same host to complete.
+     */
+    private final Map<String, Queue<Runnable>> m_deferredRequests = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxConcurrentRequests
+     *          the maximum number of concurrent requests to a single host.
+     */
+    private HostRequestLimiter(int maxConcurrentRequests) {
+      m_maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+    }
+
+    /**
+     * Attempts to start a request to the host. If the host is already at its
+     * limit, the request is deferred.
+     *
+     * @param host
+     *          the host of the request.
+     * @param request
+     *          the request to run later if the limit has been reached.
+     * @return {@code true} if the request may run now, {@code false} if it was
+     *         deferred.
+     */
+    private synchronized boolean tryAcquire(String host, Runnable request) {
+      Integer running = m_runningRequests.get(host);
+      int runningRequests = null == running ? 0 : running;
+      if (runningRequests >= m_maxConcurrentRequests) {
+        Queue<Runnable> deferred = m_deferredRequests.get(host);
+        if (null == deferred) {
+          deferred = new LinkedList<>();
+          m_deferredRequests.put(host, deferred);
+        }
+
+        deferred.add(request);
+        return false;
+      }
+
+      m_runningRequests.put(host, runningRequests + 1);
+      return true;
+    }
+
+    /**
+     * Completes a request to the host and resubmits the next deferred request
+     * for it, if any.
+     *
+     * @param host
+     *          the host of the completed request.
+     */
+    private void release(String host) {
+      Runnable next = null;
+      synchronized (this) {
+        Integer running = m_runningRequests.get(host);
+        if (null == running || running <= 1) {
+          m_runningRequests.remove(host);
+        } else {
+          m_runningRequests.put(host, running - 1);
+        }
+
+        Queue<Runnable> deferred = m_deferredRequests.get(host);
+        if (null != deferred) {
+          next = deferred.poll();
+          if (deferred.isEmpty()) {
+            m_deferredRequests.remove(host);
+          }
+        }
+      }
+
+      if (null != next) {
+        m_threadPoolExecutor.execute(next);
+      }
+    }
+  }
+
+  /**
+   * Discards the oldest request in the worker queue to make room for a new one,
+   * the same as {@link ThreadPoolExecutor.DiscardOldestPolicy}. The URL of the
+   * discarded request is removed from the queued URLs so that it is not
+   * considered to be queued forever and can be requested again.
+   */
+  private final class DiscardOldestRequestPolicy implements RejectedExecutionHandler {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+      if (executor.isShutdown()) {
+        return;
+      }
+
+      Runnable discarded = executor.getQueue().poll();
+      if (discarded instanceof MetricRunnable) {
+        String url = ((MetricRunnable) discarded).m_url;
+        LOG.debug("Discarding the queued request for {} since the worker queue is full", url);
+        m_queuedUrls.remove(url);
+      }
+
+      executor.execute(runnable);
+    }
+  }
+
   /**
    * A default exception handler.
    */
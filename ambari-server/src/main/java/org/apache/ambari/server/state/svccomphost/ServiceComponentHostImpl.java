@@ -1381,6 +1381,8 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     // publish event for the removal of the SCH after the removal is
     // completed, but only if it was persisted
     if (fireRemovalEvent) {
+      helper.invalidateStaleConfigsCache(this);
+
       long clusterId = getClusterId();
       StackId stackId = getStackVersion();
       String stackVersion = stackId.getStackVersion();
@@ -1454,7 +1456,13 @@ public class ServiceComponentHostImpl implements ServiceComponentHost {
     }
 
     // update internal stateful collection in an "atomic" manner
+    boolean changed = !newActualConfigs.equals(actualConfigs);
     actualConfigs = newActualConfigs;
+
+    // heartbeats report the same tags until the component is restarted
+    if (changed) {
+      helper.invalidateStaleConfigsCache(this);
+    }
   }
 
   @Override
@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.topology;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ExecutorService} which runs the tasks of a cluster one at a time and in the
+ * order they were submitted, while the tasks of different clusters run in parallel on a
+ * shared pool.  Tasks are associated with a cluster by wrapping them with one of the
+ * {@code forCluster} methods; all other tasks are run one at a time in their own queue,
+ * the same way a single threaded executor would run them.
+ * <p/>
+ * The {@link TopologyManager} relies on this ordering: the configure cluster task of a
+ * cluster is submitted before any of the host tasks of that cluster and the host tasks
+ * must not start before the cluster configuration has been set.
+ */
+public class ClusterSerialExecutorService extends AbstractExecutorService {
+
+  private final static Logger LOG = LoggerFactory.getLogger(ClusterSerialExecutorService.class);
+
+  /**
+   * The pool which runs the queues.
+   */
+  private final ExecutorService pool;
+
+  /**
+   * Queues with pending tasks keyed by cluster id; tasks which are not associated with a
+   * cluster are queued with a {@code null} key.  A queue is removed once it is drained.
+   */
+  private final Map<Long, SerialQueue> queues = new HashMap<>();
+
+  private boolean shutdown = false;
+
+  /**
+   * Constructor.
+   *
+   * @param pool  the pool which runs the tasks; it needs as many threads as there are
+   *              clusters with pending tasks for the clusters to progress in parallel
+   */
+  public ClusterSerialExecutorService(ExecutorService pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Associate a task with a cluster.
+   *
+   * @param clusterId  cluster id
+   * @param task       the task to run
+   *
+   * @return a task which will be run after all previously submitted tasks of the cluster
+   */
+  public static Runnable forCluster(final Long clusterId, final Runnable task) {
+    return new ClusterRunnable(clusterId, task);
+  }
+
+  /**
+   * Associate a task with a cluster.
+   *
+   * @param clusterId  cluster id
+   * @param task       the task to run
+   *
+   * @return a task which will be run after all previously submitted tasks of the cluster
+   */
+  public static <T> Callable<T> forCluster(final Long clusterId, final Callable<T> task) {
+    return new ClusterCallable<>(clusterId, task);
+  }
+
+  /**
+   * Get an executor which associates each task it is given with a cluster before handing
+   * it to the specified executor.
+   *
+   * @param clusterId  cluster id
+   * @param executor   executor to run the tasks
+   *
+   * @return an executor for the tasks of the cluster
+   */
+  public static Executor forCluster(final Long clusterId, final Executor executor) {
+    return new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        executor.execute(forCluster(clusterId, command));
+      }
+    };
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+
+    Long clusterId = command instanceof ClusterTask ? ((ClusterTask) command).getClusterId() : null;
+    synchronized (queues) {
+      if (shutdown) {
+        throw new RejectedExecutionException("The executor has been shut down");
+      }
+
+      SerialQueue queue = queues.get(clusterId);
+      if (queue == null) {
+        queue = new SerialQueue(clusterId);
+        queues.put(clusterId, queue);
+        queue.tasks.add(command);
+        pool.execute(queue);
+      } else {
+        queue.tasks.add(command);
+      }
+    }
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+    Long clusterId = callable instanceof ClusterTask ? ((ClusterTask) callable).getClusterId() : null;
+    return new ClusterFutureTask<>(clusterId, callable);
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+    Long clusterId = runnable instanceof ClusterTask ? ((ClusterTask) runnable).getClusterId() : null;
+    return new ClusterFutureTask<>(clusterId, runnable, value);
+  }
+
+  @Override
+  public void shutdown() {
+    synchronized (queues) {
+      shutdown = true;
+    }
+    pool.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> pending = new ArrayList<>();
+    synchronized (queues) {
+      shutdown = true;
+      for (SerialQueue queue : queues.values()) {
+        pending.addAll(queue.tasks);
+        queue.tasks.clear();
+      }
+    }
+    pool.shutdownNow();
+    return pending;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    synchronized (queues) {
+      return shutdown;
+    }
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return pool.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return pool.awaitTermination(timeout, unit);
+  }
+
+  /**
+   * Implemented by the tasks which are associated with a cluster.
+   */
+  private interface ClusterTask {
+    Long getClusterId();
+  }
+
+  /**
+   * Runs the tasks of a single cluster on a pool thread until there are no more tasks.
+   */
+  private class SerialQueue implements Runnable {
+    private final Long clusterId;
+    private final Queue<Runnable> tasks = new LinkedList<>();
+
+    private SerialQueue(Long clusterId) {
+      this.clusterId = clusterId;
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        Runnable task;
+        synchronized (queues) {
+          task = tasks.poll();
+          if (task == null) {
+            queues.remove(clusterId);
+            return;
+          }
+        }
+
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          // keep running the remaining tasks of the cluster
+          LOG.error("Unexpected exception running a task for cluster id {}", clusterId, e);
+        }
+      }
+    }
+  }
+
+  private static class ClusterRunnable implements Runnable, ClusterTask {
+    private final Long clusterId;
+    private final Runnable task;
+
+    private ClusterRunnable(Long clusterId, Runnable task) {
+      this.clusterId = clusterId;
+      this.task = task;
+    }
+
+    @Override
+    public Long getClusterId() {
+      return clusterId;
+    }
+
+    @Override
+    public void run() {
+      task.run();
+    }
+  }
+
+  private static class ClusterCallable<T> implements Callable<T>, ClusterTask {
+    private final Long clusterId;
+    private final Callable<T> task;
+
+    private ClusterCallable(Long clusterId, Callable<T> task) {
+      this.clusterId = clusterId;
+      this.task = task;
+    }
+
+    @Override
+    public Long getClusterId() {
+      return clusterId;
+    }
+
+    @Override
+    public T call() throws Exception {
+      return task.call();
+    }
+  }
+
+  private static class ClusterFutureTask<T> extends FutureTask<T> implements ClusterTask {
+    private final Long clusterId;
+
+    private ClusterFutureTask(Long clusterId, Callable<T> callable) {
+      super(callable);
+      this.clusterId = clusterId;
+    }
+
+    private ClusterFutureTask(Long clusterId, Runnable runnable, T value) {
+      super(runnable, value);
+      this.clusterId = clusterId;
+    }
+
+    @Override
+    public Long getClusterId() {
+      return clusterId;
+    }
+  }
+}
@@ -71,6 +71,13 @@ final class HostOfferResponse {
     return hostGroupName;
   }
 
+  /**
+   * @return the number of tasks to run for an accepted host, 0 for a declined offer
+   */
+  int getTaskCount() {
+    return tasks == null ? 0 : tasks.size();
+  }
+
   void executeTasks(Executor executor, final String hostName, final ClusterTopology topology, final AmbariContext ambariContext) {
     if (answer != Answer.ACCEPTED) {
       LOG.warn("Attempted to execute tasks for declined host offer", answer);
@@ -20,8 +20,10 @@ package org.apache.ambari.server.topology;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +40,7 @@ import org.apache.ambari.server.controller.AmbariManagementController;
 import org.apache.ambari.server.controller.AmbariServer;
 import org.apache.ambari.server.controller.RequestStatusResponse;
 import org.apache.ambari.server.controller.ShortTaskStatus;
+import org.apache.ambari.server.controller.spi.Predicate;
 import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.entities.StageEntity;
 import org.apache.ambari.server.orm.entities.TopologyHostGroupEntity;
@@ -118,12 +121,21 @@ public class LogicalRequest extends Request {
 
     // not explicitly reserved, at least not in this request, so attempt to match to outstanding host requests
     boolean predicateRejected = false;
+    // host requests of the same host group share the predicate, so once a predicate declined
+    // the host the remaining requests with that predicate are skipped instead of evaluated again
+    Set<Predicate> declinedPredicates = Collections.newSetFromMap(new IdentityHashMap<Predicate, Boolean>());
     synchronized (outstandingHostRequests) {
       //todo: prioritization of master host requests
       Iterator<HostRequest> hostRequestIterator = outstandingHostRequests.iterator();
       while (hostRequestIterator.hasNext()) {
+        HostRequest hostRequest = hostRequestIterator.next();
+        if (!hostRequest.isCompleted() && hostRequest.getHostName() == null &&
+            declinedPredicates.contains(hostRequest.getPredicate())) {
+          continue;
+        }
+
         LOG.info("LogicalRequest.offer: attempting to match a request to a request for a non-reserved host to hostname = {}", host.getHostName());
-        HostOfferResponse response = hostRequestIterator.next().offer(host);
+        HostOfferResponse response = hostRequest.offer(host);
         switch (response.getAnswer()) {
           case ACCEPTED:
             hostRequestIterator.remove();
@@ -137,6 +149,9 @@ public class LogicalRequest extends Request {
           case DECLINED_PREDICATE:
             LOG.info("LogicalRequest.offer: host request returned DECLINED_PREDICATE for hostname = {}", host.getHostName());
             predicateRejected = true;
+            if (hostRequest.getHostName() == null && hostRequest.getPredicate() != null) {
+              declinedPredicates.add(hostRequest.getPredicate());
+            }
             break;
         }
       }
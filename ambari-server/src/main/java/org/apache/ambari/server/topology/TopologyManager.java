@@ -24,7 +24,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +32,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 
@@ -80,6 +81,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Singleton;
 import com.google.inject.persist.Transactional;
 
@@ -101,13 +103,18 @@ public class TopologyManager {
 
   private static final String CLUSTER_ENV_CONFIG_TYPE_NAME = "cluster-env";
   private static final String CLUSTER_CONFIG_TASK_MAX_TIME_IN_MILLIS_PROPERTY_NAME = "cluster_configure_task_timeout";
+  // number of host offers between two throughput log messages
+  private static final int THROUGHPUT_LOG_INTERVAL = 100;
 
   private PersistedState persistedState;
-  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  // runs the tasks of a cluster in order, the tasks of different clusters in parallel
+  private final ExecutorService executor = new ClusterSerialExecutorService(Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("topology-manager-%d").build()));
   private final Executor taskExecutor; // executes TopologyTasks
   private final boolean parallelTaskCreationEnabled;
   private Collection<String> hostsToIgnore = new HashSet<String>();
-  private final List<HostImpl> availableHosts = new LinkedList<HostImpl>();
+  // hosts which are not matched to any request yet, keyed by host name in registration order
+  private final Map<String, HostImpl> availableHosts = new LinkedHashMap<String, HostImpl>();
   private final Map<String, LogicalRequest> reservedHosts = new HashMap<String, LogicalRequest>();
   private final Map<Long, LogicalRequest> allRequests = new HashMap<Long, LogicalRequest>();
   // priority is given to oldest outstanding requests
@@ -158,6 +165,15 @@ public class TopologyManager {
    */
   private Map<Long, Boolean> clusterProvisionWithBlueprintCreationFinished = new HashMap<>();
 
+  /**
+   * Number of hosts offered to logical requests and number of topology tasks queued for
+   * accepted hosts, along with the time the current throughput interval started.
+   */
+  private final AtomicLong offeredHostCount = new AtomicLong();
+  private final AtomicLong queuedTaskCount = new AtomicLong();
+  private final AtomicLong throughputIntervalStart = new AtomicLong(System.currentTimeMillis());
+  private final AtomicLong throughputIntervalTaskCount = new AtomicLong();
+
   public TopologyManager() {
     parallelTaskCreationEnabled = false;
     taskExecutor = executor;
@@ -326,13 +342,13 @@ public class TopologyManager {
 
 
     // Notify listeners that cluster configuration finished
-    executor.submit(new Callable<Boolean>() {
+    executor.submit(ClusterSerialExecutorService.forCluster(clusterId, new Callable<Boolean>() {
       @Override
       public Boolean call() throws Exception {
         ambariEventPublisher.publish(new ClusterConfigFinishedEvent(clusterName));
         return Boolean.TRUE;
       }
-    });
+    }));
 
     // Process the logical request
     processRequest(request, topology, logicalRequest);
@@ -632,6 +648,7 @@ public class TopologyManager {
         if (reservedHosts.containsKey(hostName)) {
           LogicalRequest request = reservedHosts.remove(hostName);
           HostOfferResponse response = request.offer(host);
+          recordHostOffer();
           if (response.getAnswer() != HostOfferResponse.Answer.ACCEPTED) {
             throw new RuntimeException("LogicalRequest declined host offer of explicitly requested host: " + hostName);
           }
@@ -649,6 +666,7 @@ public class TopologyManager {
           while (!matchedToRequest && outstandingRequestIterator.hasNext()) {
             LogicalRequest request = outstandingRequestIterator.next();
             HostOfferResponse hostOfferResponse = request.offer(host);
+            recordHostOffer();
             switch (hostOfferResponse.getAnswer()) {
               case ACCEPTED:
                 matchedToRequest = true;
@@ -668,18 +686,11 @@ public class TopologyManager {
       }
 
       if (!matchedToRequest) {
-        boolean addToAvailableList = true;
-        for (HostImpl registered : availableHosts) {
-          if (registered.getHostId() == host.getHostId()) {
-            LOG.info("Host {} re-registered, will not be added to the available hosts list", hostName);
-            addToAvailableList = false;
-            break;
-          }
-        }
-
-        if (addToAvailableList) {
+        if (availableHosts.containsKey(hostName)) {
+          LOG.info("Host {} re-registered, will not be added to the available hosts list", hostName);
+        } else {
           LOG.info("TopologyManager: Queueing available host {}", hostName);
-          availableHosts.add(host);
+          availableHosts.put(hostName, host);
         }
       }
     }
@@ -697,7 +708,7 @@ public class TopologyManager {
     ensureInitialized();
     synchronized (availableHosts) {
       LOG.info("Hearbeat for host {} lost thus removing it from available hosts.", host.getHostName());
-      availableHosts.remove(host);
+      availableHosts.remove(host.getHostName());
     }
   }
 
@@ -835,7 +846,7 @@ public class TopologyManager {
     // The lock ordering in this method must always be the same ordering as TopologyManager.onHostRegistered
     // TODO: Locking strategies for TopologyManager should be reviewed and possibly rewritten in a future release
     synchronized (availableHosts) {
-      Iterator<HostImpl> hostIterator = availableHosts.iterator();
+      Iterator<HostImpl> hostIterator = availableHosts.values().iterator();
       while (!requestHostComplete && hostIterator.hasNext()) {
         HostImpl host = hostIterator.next();
         synchronized (reservedHosts) {
@@ -859,6 +870,7 @@ public class TopologyManager {
         LOG.info("TopologyManager.processRequest: offering host name = {} to LogicalRequest ID = {}",
             host.getHostName(), logicalRequest.getRequestId());
         HostOfferResponse response = logicalRequest.offer(host);
+        recordHostOffer();
         switch (response.getAnswer()) {
           case ACCEPTED:
             //todo: when host matches last host it returns ACCEPTED so we don't know that logical request is no
@@ -945,12 +957,12 @@ public class TopologyManager {
 
     LOG.info("TopologyManager.processAcceptedHostOffer: queue tasks for host = {} which responded {}", hostName, response.getAnswer());
     if (parallelTaskCreationEnabled) {
-      executor.execute(new Runnable() { // do not start until cluster config done
+      executor.execute(ClusterSerialExecutorService.forCluster(topology.getClusterId(), new Runnable() {
         @Override
-        public void run() {
+        public void run() { // do not start until cluster config done
           queueHostTasks(topology, response, hostName);
         }
-      });
+      }));
     } else {
       queueHostTasks(topology, response, hostName);
     }
@@ -964,7 +976,41 @@ public class TopologyManager {
 
   private void queueHostTasks(ClusterTopology topology, HostOfferResponse response, String hostName) {
     LOG.info("TopologyManager.processAcceptedHostOffer: queueing tasks for host = {}", hostName);
-    response.executeTasks(taskExecutor, hostName, topology, ambariContext);
+    // without parallel task creation the tasks share the executor with the configure cluster task
+    Executor hostTaskExecutor = parallelTaskCreationEnabled ? taskExecutor :
+        ClusterSerialExecutorService.forCluster(topology.getClusterId(), taskExecutor);
+    response.executeTasks(hostTaskExecutor, hostName, topology, ambariContext);
+    queuedTaskCount.addAndGet(response.getTaskCount());
+  }
+
+  /**
+   * @return the number of hosts offered to logical requests since the server started
+   */
+  public long getOfferedHostCount() {
+    return offeredHostCount.get();
+  }
+
+  /**
+   * @return the number of topology tasks queued for accepted hosts since the server started
+   */
+  public long getQueuedTaskCount() {
+    return queuedTaskCount.get();
+  }
+
+  /**
+   * Count a host offer and periodically log the rate of host offers and of queued tasks, which
+   * shows how fast registering hosts are matched when many of them register at once.
+   */
+  private void recordHostOffer() {
+    long offered = offeredHostCount.incrementAndGet();
+    if (offered % THROUGHPUT_LOG_INTERVAL == 0) {
+      long now = System.currentTimeMillis();
+      long elapsed = Math.max(1, now - throughputIntervalStart.getAndSet(now));
+      long queued = queuedTaskCount.get();
+      long intervalTasks = queued - throughputIntervalTaskCount.getAndSet(queued);
+      LOG.info("TopologyManager: {} hosts offered and {} tasks queued in total; {} host offers and {} queued tasks per second over the last {} offers",
+          offered, queued, THROUGHPUT_LOG_INTERVAL * 1000L / elapsed, intervalTasks * 1000L / elapsed, THROUGHPUT_LOG_INTERVAL);
+    }
   }
 
   private void updateHostWithRackInfo(ClusterTopology topology, HostOfferResponse response, HostImpl host) {
@@ -1116,7 +1162,7 @@ public class TopologyManager {
     AsyncCallableService<Boolean> asyncCallableService = new AsyncCallableService<>(configureClusterTask, timeout, delay,
         Executors.newScheduledThreadPool(1));
 
-    executor.submit(asyncCallableService);
+    executor.submit(ClusterSerialExecutorService.forCluster(topology.getClusterId(), asyncCallableService));
   }
 
   /**
@@ -1133,25 +1179,18 @@ public class TopologyManager {
     }
 
     LOG.info("Removing hosts [{}] from available hosts on hosts removed event.", hostsRemovedEvent.getHostNames());
-    Set<HostImpl> toBeRemoved = new HashSet<>();
+    boolean removed = false;
 
-    // synchronization is required here as the list may be modified concurrently. See comments in this whole class.
+    // synchronization is required here as the map may be modified concurrently. See comments in this whole class.
     synchronized (availableHosts) {
-      for (HostImpl hostImpl : availableHosts) {
-        for (String hostName : hostsRemovedEvent.getHostNames()) {
-          if (hostName.equals(hostImpl.getHostName())) {
-            toBeRemoved.add(hostImpl);
-            break;
-          }
+      for (String hostName : hostsRemovedEvent.getHostNames()) {
+        if (availableHosts.remove(hostName) != null) {
+          removed = true;
+          LOG.info("Removed host: [{}] from available hosts", hostName);
         }
       }
 
-      if (!toBeRemoved.isEmpty()) {
-        for (HostImpl host : toBeRemoved) {
-          availableHosts.remove(host);
-          LOG.info("Removed host: [{}] from available hosts", host.getHostName());
-        }
-      } else {
+      if (!removed) {
         LOG.debug("No any host [{}] found in available hosts", hostsRemovedEvent.getHostNames());
       }
     }
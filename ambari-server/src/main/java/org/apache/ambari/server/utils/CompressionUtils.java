@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Static helper methods to store large binary values, such as task output and
+ * execution commands, gzip compressed. Values which don't start with the gzip
+ * header are returned unchanged by {@link #decompress(byte[])}, so values
+ * written before compression was introduced can still be read.
+ */
+public class CompressionUtils {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CompressionUtils.class);
+
+  /**
+   * Values smaller than this are not worth compressing.
+   */
+  static final int MIN_COMPRESSION_SIZE = 512;
+
+  private static final int GZIP_HEADER_SIZE = 10;
+
+  private CompressionUtils() {
+  }
+
+  /**
+   * Compresses the value if it is large enough and compressing it actually
+   * makes it smaller.
+   *
+   * @param data the value to compress, may be {@code null}
+   * @return the compressed value or the value itself
+   */
+  public static byte[] compress(byte[] data) {
+    if (data == null || data.length < MIN_COMPRESSION_SIZE || isCompressed(data)) {
+      return data;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(data);
+    } catch (IOException e) {
+      // not expected when writing to memory
+      LOG.warn("Unable to compress a value of {} bytes, storing it uncompressed", data.length, e);
+      return data;
+    }
+
+    byte[] compressed = out.toByteArray();
+    return compressed.length < data.length ? compressed : data;
+  }
+
+  /**
+   * Decompresses a value which was returned by {@link #compress(byte[])}.
+   *
+   * @param data the value to decompress, may be {@code null}
+   * @return the decompressed value or the value itself if it is not compressed
+   */
+  public static byte[] decompress(byte[] data) {
+    if (!isCompressed(data)) {
+      return data;
+    }
+
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+      return IOUtils.toByteArray(gzip);
+    } catch (IOException e) {
+      LOG.warn("Unable to decompress a value of {} bytes, returning it as stored", data.length, e);
+      return data;
+    }
+  }
+
+  /**
+   * @return {@code true} if the value starts with the gzip header
+   */
+  static boolean isCompressed(byte[] data) {
+    return data != null && data.length > GZIP_HEADER_SIZE
+        && data[0] == (byte) GZIPInputStream.GZIP_MAGIC
+        && data[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
+  }
+}
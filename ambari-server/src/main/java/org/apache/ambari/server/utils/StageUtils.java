@@ -36,6 +36,8 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.bind.JAXBException;
 
@@ -53,6 +55,7 @@ import org.apache.ambari.server.state.HostComponentAdminState;
 import org.apache.ambari.server.state.Service;
 import org.apache.ambari.server.state.ServiceComponent;
 import org.apache.ambari.server.state.ServiceComponentHost;
+import org.apache.ambari.server.state.cluster.ClusterTopologySnapshot;
 import org.apache.ambari.server.state.svccomphost.ServiceComponentHostInstallEvent;
 import org.apache.ambari.server.topology.TopologyManager;
 import org.apache.commons.lang.StringUtils;
@@ -88,6 +91,12 @@ public class StageUtils {
       new HashMap<String, String>();
   private volatile static Gson gson;
 
+  /**
+   * [ ClusterId -> ComponentHostIndex ], rebuilt when the topology of a cluster changes.
+   */
+  private static final ConcurrentMap<Long, ComponentHostIndex> componentHostIndexes =
+      new ConcurrentHashMap<Long, ComponentHostIndex>();
+
   @Inject
   private static StageFactory stageFactory;
 
@@ -297,65 +306,28 @@ public class StageUtils {
       }
     }
 
-    List<String> hostsList = new ArrayList<String>(hostsSet);
-    Map<String, String> additionalComponentToClusterInfoKeyMap = new HashMap<String, String>();
+    Map<String, Integer> hostIndexes = new HashMap<String, Integer>(hostsSet.size() * 2);
+    for (String hostname : hostsSet) {
+      hostIndexes.put(hostname, hostIndexes.size());
+    }
+
+    ComponentHostIndex componentHostIndex = getComponentHostIndex(cluster);
+    Map<String, String> additionalComponentToClusterInfoKeyMap =
+        new HashMap<String, String>(componentHostIndex.additionalComponentToClusterInfoKeyMap);
 
     // Fill hosts for services
     Map<String, SortedSet<Integer>> hostRolesInfo = new HashMap<String, SortedSet<Integer>>();
-    for (Map.Entry<String, Service> serviceEntry : cluster.getServices().entrySet()) {
-
-      Service service = serviceEntry.getValue();
-
-      for (Map.Entry<String, ServiceComponent> serviceComponentEntry : service.getServiceComponents().entrySet()) {
-
-        ServiceComponent serviceComponent = serviceComponentEntry.getValue();
-        String componentName = serviceComponent.getName();
-
-        String roleName = componentToClusterInfoKeyMap.get(componentName);
-        if(null == roleName) {
-          roleName = additionalComponentToClusterInfoKeyMap.get(componentName);
-        }
-        if (null == roleName && !serviceComponent.isClientComponent()) {
-          roleName = componentName.toLowerCase() + "_hosts";
-          additionalComponentToClusterInfoKeyMap.put(componentName, roleName);
-        }
-
-        String decomRoleName = decommissionedToClusterInfoKeyMap.get(componentName);
-
-        if (roleName == null && decomRoleName == null) {
-          continue;
-        }
-
-        for (String hostName : serviceComponent.getServiceComponentHosts().keySet()) {
-
-          if (roleName != null) {
-            SortedSet<Integer> hostsForComponentsHost = hostRolesInfo.get(roleName);
-
-            if (hostsForComponentsHost == null) {
-              hostsForComponentsHost = new TreeSet<Integer>();
-              hostRolesInfo.put(roleName, hostsForComponentsHost);
-            }
-
-            int hostIndex = hostsList.indexOf(hostName);
-            //Add index of host to current host role
-            hostsForComponentsHost.add(hostIndex);
-          }
-
-          if (decomRoleName != null) {
-            ServiceComponentHost scHost = serviceComponent.getServiceComponentHost(hostName);
-            if (scHost.getComponentAdminState() == HostComponentAdminState.DECOMMISSIONED) {
-              SortedSet<Integer> hostsForComponentsHost = hostRolesInfo.get(decomRoleName);
-
-              if (hostsForComponentsHost == null) {
-                hostsForComponentsHost = new TreeSet<Integer>();
-                hostRolesInfo.put(decomRoleName, hostsForComponentsHost);
-              }
+    for (Map.Entry<String, List<String>> entry : componentHostIndex.hostsByRole.entrySet()) {
+      for (String hostName : entry.getValue()) {
+        addHostIndex(hostRolesInfo, entry.getKey(), getHostIndex(hostIndexes, hostName));
+      }
+    }
 
-              int hostIndex = hostsList.indexOf(hostName);
-              //Add index of host to current host role
-              hostsForComponentsHost.add(hostIndex);
-            }
-          }
+    // the admin state is not part of the topology, check it on every call
+    for (Map.Entry<String, Map<String, ServiceComponentHost>> entry : componentHostIndex.decommissionableByRole.entrySet()) {
+      for (Map.Entry<String, ServiceComponentHost> scHost : entry.getValue().entrySet()) {
+        if (scHost.getValue().getComponentAdminState() == HostComponentAdminState.DECOMMISSIONED) {
+          addHostIndex(hostRolesInfo, entry.getKey(), getHostIndex(hostIndexes, scHost.getKey()));
         }
       }
     }
@@ -372,7 +344,7 @@ public class StageUtils {
         }
         if (null == roleName) {
           // even though all mappings are being added, componentToClusterInfoKeyMap is
-          // a higher priority lookup
+          // a higher priority lookup; components without any host are not part of the index
           for (Service service : cluster.getServices().values()) {
             for (ServiceComponent sc : service.getServiceComponents().values()) {
               if (!sc.isClientComponent() && sc.getName().equals(hostComponent)) {
@@ -384,18 +356,9 @@ public class StageUtils {
         }
 
         if (roleName != null) {
-          SortedSet<Integer> hostsForComponentsHost = hostRolesInfo.get(roleName);
-
-          if (hostsForComponentsHost == null) {
-            hostsForComponentsHost = new TreeSet<Integer>();
-            hostRolesInfo.put(roleName, hostsForComponentsHost);
-          }
-
-          int hostIndex = hostsList.indexOf(hostname);
-          if (hostIndex != -1) {
-            if (!hostsForComponentsHost.contains(hostIndex)) {
-              hostsForComponentsHost.add(hostIndex);
-            }
+          Integer hostIndex = hostIndexes.get(hostname);
+          if (hostIndex != null) {
+            addHostIndex(hostRolesInfo, roleName, hostIndex);
           } else {
             //todo: I don't think that this can happen
             //todo: determine if it can and if so, handle properly
@@ -438,6 +401,129 @@ public class StageUtils {
     return clusterHostInfo;
   }
 
+  /**
+   * Returns the component host index of the cluster's current topology
+   * snapshot, building it if the topology changed since it was last used.
+   * Clusters which don't publish a topology snapshot are indexed on every call.
+   */
+  private static ComponentHostIndex getComponentHostIndex(Cluster cluster) {
+    ClusterTopologySnapshot snapshot = cluster.getTopologySnapshot();
+    if (snapshot == null) {
+      return new ComponentHostIndex(null, cluster.getServices());
+    }
+
+    ComponentHostIndex index = componentHostIndexes.get(cluster.getClusterId());
+    if (index == null || index.snapshot != snapshot) {
+      index = new ComponentHostIndex(snapshot, snapshot.getServices());
+      componentHostIndexes.put(cluster.getClusterId(), index);
+    }
+    return index;
+  }
+
+  /**
+   * Removes the component host index of a cluster which was deleted.
+   *
+   * @param clusterId the cluster id
+   */
+  public static void removeComponentHostIndex(long clusterId) {
+    componentHostIndexes.remove(clusterId);
+  }
+
+  private static int getHostIndex(Map<String, Integer> hostIndexes, String hostName) {
+    Integer hostIndex = hostIndexes.get(hostName);
+    return hostIndex == null ? -1 : hostIndex;
+  }
+
+  private static void addHostIndex(Map<String, SortedSet<Integer>> hostRolesInfo, String roleName, int hostIndex) {
+    SortedSet<Integer> hostsForComponentsHost = hostRolesInfo.get(roleName);
+
+    if (hostsForComponentsHost == null) {
+      hostsForComponentsHost = new TreeSet<Integer>();
+      hostRolesInfo.put(roleName, hostsForComponentsHost);
+    }
+
+    //Add index of host to current host role
+    hostsForComponentsHost.add(hostIndex);
+  }
+
+  /**
+   * The hosts of every cluster info role, derived from one topology snapshot of
+   * a cluster. The hosts of each component are taken from the snapshot, not
+   * from the live maps of the component, so that the index matches the
+   * snapshot it is cached for. Host indexes are not part of the index since
+   * they depend on the cluster hosts and the pending hosts of the topology
+   * manager.
+   */
+  private static final class ComponentHostIndex {
+
+    /**
+     * The snapshot the index was built from.
+     */
+    private final ClusterTopologySnapshot snapshot;
+
+    /**
+     * [ RoleName -> [ HostName ] ]
+     */
+    private final Map<String, List<String>> hostsByRole = new HashMap<String, List<String>>();
+
+    /**
+     * [ DecommissionedRoleName -> [ HostName -> SCH ] ]
+     */
+    private final Map<String, Map<String, ServiceComponentHost>> decommissionableByRole =
+        new HashMap<String, Map<String, ServiceComponentHost>>();
+
+    /**
+     * Role names of non client components which have no fixed cluster info key.
+     */
+    private final Map<String, String> additionalComponentToClusterInfoKeyMap = new HashMap<String, String>();
+
+    private ComponentHostIndex(ClusterTopologySnapshot snapshot, Map<String, Service> services) {
+      this.snapshot = snapshot;
+
+      for (Service service : services.values()) {
+        for (ServiceComponent serviceComponent : service.getServiceComponents().values()) {
+          String componentName = serviceComponent.getName();
+
+          String roleName = componentToClusterInfoKeyMap.get(componentName);
+          if (null == roleName) {
+            roleName = additionalComponentToClusterInfoKeyMap.get(componentName);
+          }
+          if (null == roleName && !serviceComponent.isClientComponent()) {
+            roleName = componentName.toLowerCase() + "_hosts";
+            additionalComponentToClusterInfoKeyMap.put(componentName, roleName);
+          }
+
+          String decomRoleName = decommissionedToClusterInfoKeyMap.get(componentName);
+
+          if (roleName == null && decomRoleName == null) {
+            continue;
+          }
+
+          Map<String, ServiceComponentHost> serviceComponentHosts = null == snapshot
+              ? serviceComponent.getServiceComponentHosts()
+              : snapshot.getServiceComponentHosts(service.getName(), componentName);
+          if (roleName != null) {
+            List<String> hostNames = hostsByRole.get(roleName);
+            if (hostNames == null) {
+              hostNames = new ArrayList<String>();
+              hostsByRole.put(roleName, hostNames);
+            }
+            hostNames.addAll(serviceComponentHosts.keySet());
+          }
+
+          if (decomRoleName != null) {
+            Map<String, ServiceComponentHost> hostComponents = decommissionableByRole.get(decomRoleName);
+            if (hostComponents == null) {
+              hostComponents = new HashMap<String, ServiceComponentHost>();
+              decommissionableByRole.put(decomRoleName, hostComponents);
+            }
+            hostComponents.putAll(serviceComponentHosts);
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Given a clusterHostInfo map, replaces host indexes with the mapped host names.
    * <p/>
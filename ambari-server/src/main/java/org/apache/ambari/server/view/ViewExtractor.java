@@ -19,17 +19,23 @@ package org.apache.ambari.server.view;
 
 import org.apache.ambari.server.orm.entities.ViewEntity;
 import org.apache.ambari.server.view.configuration.ViewConfig;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Properties;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
@@ -45,6 +51,14 @@ public class ViewExtractor {
   private static final String ARCHIVE_LIB_DIR     = "WEB-INF/lib";
   private static final int    BUFFER_SIZE         = 1024;
 
+  /**
+   * The file, relative to the archive directory, describing the archive the directory was extracted from.
+   */
+  private static final String ARCHIVE_CHECKSUM_FILE = "META-INF" + File.separator + "archive-checksum.properties";
+  private static final String ARCHIVE_LENGTH_PROPERTY = "length";
+  private static final String ARCHIVE_LAST_MODIFIED_PROPERTY = "lastModified";
+  private static final String ARCHIVE_SHA1_PROPERTY = "sha1";
+
   @Inject
   ViewArchiveUtility archiveUtility;
 
@@ -73,13 +87,18 @@ public class ViewExtractor {
     String archivePath = archiveDir.getAbsolutePath();
 
     try {
+      // only archive files (as opposed to already extracted directories) are checksummed
+      boolean checksummed = viewArchive != null && viewArchive.isFile();
+
       // Remove directory if jar was updated since last extracting
-      if (archiveDir.exists() && viewArchive != null && viewArchive.lastModified() > archiveDir.lastModified()) {
+      if (archiveDir.exists() && viewArchive != null && isExtractedArchiveStale(viewArchive, archiveDir, checksummed)) {
         FileUtils.deleteDirectory(archiveDir);
       }
 
       // Skip if the archive has already been extracted
-      if (!archiveDir.exists()) {
+      if (archiveDir.exists()) {
+        LOG.info("Using the existing extraction of " + (viewArchive == null ? archivePath : viewArchive.getName()) + ".");
+      } else {
         String msg = "Creating archive folder " + archivePath + ".";
 
         view.setStatusDetail(msg);
@@ -147,6 +166,10 @@ public class ViewExtractor {
           } finally {
             jarInputStream.close();
           }
+
+          if (checksummed) {
+            writeArchiveChecksum(viewArchive, archiveDir, null);
+          }
         } else {
           msg = "Could not create archive directory " + archivePath + ".";
 
@@ -184,6 +207,91 @@ public class ViewExtractor {
   }
 
 
+  // ----- helper methods ----------------------------------------------------
+
+  /**
+   * Determine whether the given extracted archive directory is out of date with respect to the
+   * given archive.  If the archive has been checksummed when it was extracted, the directory is
+   * only stale if the archive content changed; a copy of the same archive with a different
+   * modification time reuses the extracted directory.  Otherwise the modification times are compared.
+   */
+  private boolean isExtractedArchiveStale(File viewArchive, File archiveDir, boolean checksummed)
+      throws IOException {
+
+    Properties checksum = checksummed ? readArchiveChecksum(archiveDir) : null;
+
+    if (checksum == null) {
+      boolean stale = viewArchive.lastModified() > archiveDir.lastModified();
+      if (!stale && checksummed) {
+        // record the checksum of directories extracted before checksums were kept
+        writeArchiveChecksum(viewArchive, archiveDir, null);
+      }
+      return stale;
+    }
+
+    // the archive is unchanged if its length and modification time are the recorded ones
+    if (String.valueOf(viewArchive.length()).equals(checksum.getProperty(ARCHIVE_LENGTH_PROPERTY)) &&
+        String.valueOf(viewArchive.lastModified()).equals(checksum.getProperty(ARCHIVE_LAST_MODIFIED_PROPERTY))) {
+      return false;
+    }
+
+    String sha1 = getSha1(viewArchive);
+    if (sha1.equals(checksum.getProperty(ARCHIVE_SHA1_PROPERTY))) {
+      LOG.info("The archive " + viewArchive.getName() + " was touched but its content is unchanged; skipping extraction.");
+      writeArchiveChecksum(viewArchive, archiveDir, sha1);
+      return false;
+    }
+    return true;
+  }
+
+  // read the checksum recorded for the given extracted archive directory; null if there is none
+  private Properties readArchiveChecksum(File archiveDir) throws IOException {
+    File checksumFile = new File(archiveDir, ARCHIVE_CHECKSUM_FILE);
+    if (!checksumFile.isFile()) {
+      return null;
+    }
+
+    Properties checksum = new Properties();
+    InputStream inputStream = new FileInputStream(checksumFile);
+    try {
+      checksum.load(inputStream);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+    }
+    return checksum;
+  }
+
+  // record the checksum of the archive in the given extracted archive directory
+  private void writeArchiveChecksum(File viewArchive, File archiveDir, String sha1) throws IOException {
+    File checksumFile = new File(archiveDir, ARCHIVE_CHECKSUM_FILE);
+    if (!checksumFile.getParentFile().isDirectory()) {
+      return;
+    }
+
+    Properties checksum = new Properties();
+    checksum.setProperty(ARCHIVE_LENGTH_PROPERTY, String.valueOf(viewArchive.length()));
+    checksum.setProperty(ARCHIVE_LAST_MODIFIED_PROPERTY, String.valueOf(viewArchive.lastModified()));
+    checksum.setProperty(ARCHIVE_SHA1_PROPERTY, sha1 == null ? getSha1(viewArchive) : sha1);
+
+    OutputStream outputStream = new FileOutputStream(checksumFile);
+    try {
+      checksum.store(outputStream, null);
+    } finally {
+      IOUtils.closeQuietly(outputStream);
+    }
+  }
+
+  // get the SHA-1 digest of the given file
+  private String getSha1(File file) throws IOException {
+    InputStream inputStream = new FileInputStream(file);
+    try {
+      return DigestUtils.sha1Hex(inputStream);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+
+
   // ----- archiveUtility methods ----------------------------------------------------
 
   // get a class loader for the given archive directory
@@ -33,7 +33,10 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -194,6 +197,23 @@ public class ViewRegistry {
   private final Map<String, Set<Listener>> listeners =
     new ConcurrentHashMap<String, Set<Listener>>();
 
+  /**
+   * Mapping of view names to the deployment of views which are deployed on first access.
+   */
+  private final Map<String, FutureTask<Void>> pendingActivations =
+    new ConcurrentHashMap<String, FutureTask<Void>>();
+
+  /**
+   * Mapping of extracted archive paths to the locks guarding their extraction.
+   */
+  private final ConcurrentMap<String, Object> extractionLocks =
+    new ConcurrentHashMap<String, Object>();
+
+  /**
+   * Set while the current thread deploys a view on demand.
+   */
+  private static final ThreadLocal<Boolean> activating = new ThreadLocal<Boolean>();
+
   /**
    * The singleton view registry instance.
    */
@@ -424,6 +444,7 @@ public class ViewRegistry {
    */
   public Collection<ViewInstanceEntity> getInstanceDefinitions(ViewEntity definition) {
     if (definition != null) {
+      activateView(definition);
       Map<String, ViewInstanceEntity> instanceEntityMap = viewInstanceDefinitions.get(definition);
       if (instanceEntityMap != null) {
         return instanceEntityMap.values();
@@ -441,12 +462,42 @@ public class ViewRegistry {
    * @return the view instance definition for the given view and instance name
    */
   public ViewInstanceEntity getInstanceDefinition(String viewName, String version, String instanceName) {
+    ViewEntity definition = getDefinition(viewName, version);
+    activateView(definition);
+
     Map<String, ViewInstanceEntity> viewInstanceDefinitionMap =
-      viewInstanceDefinitions.get(getDefinition(viewName, version));
+      viewInstanceDefinitions.get(definition);
 
     return viewInstanceDefinitionMap == null ? null : viewInstanceDefinitionMap.get(instanceName);
   }
 
+  /**
+   * Deploy the given view if its deployment has been deferred until first access and wait for the
+   * deployment to complete.  Nothing is done for views which are already deployed, and the calling
+   * thread does not wait if it is deploying a view itself or holds the registry lock, since that
+   * could wait for the calling thread.
+   *
+   * @param definition  the view definition; may be null
+   */
+  public void activateView(ViewEntity definition) {
+    if (definition == null || pendingActivations.isEmpty()) {
+      return;
+    }
+
+    FutureTask<Void> activation = pendingActivations.get(definition.getName());
+    if (activation != null && activating.get() == null && !Thread.holdsLock(this)) {
+      // deploy the view in this thread unless another thread already started it
+      activation.run();
+      try {
+        activation.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        LOG.error("Caught exception deploying view " + definition.getName(), e);
+      }
+    }
+  }
+
   /**
    * Add an instance definition for the given view definition.
    *
@@ -1713,6 +1764,7 @@ public class ViewRegistry {
           Set<Runnable> extractionRunnables = new HashSet<Runnable>();
 
           final String serverVersion = ambariMetaInfoProvider.get().getServerVersion();
+          boolean onDemand = configuration.isViewActivationOnDemand();
 
           for (final File archiveFile : files) {
             if (!archiveFile.isDirectory()) {
@@ -1739,8 +1791,11 @@ public class ViewRegistry {
                   // update the registry with the view
                   addDefinition(viewDefinition);
 
-                  // always load system views up front
-                  if (systemView || !useExecutor || extractedArchiveDirFile.exists()) {
+                  if (onDemand && !systemView) {
+                    // only index the view for now; it is deployed on first access
+                    addPendingActivation(viewDefinition, archiveFile, extractedArchiveDirFile, serverVersion);
+                  } else if (systemView || !useExecutor || extractedArchiveDirFile.exists()) {
+                    // always load system views up front
                     // if the archive is already extracted then load the view now
                     readViewArchive(viewDefinition, archiveFile, extractedArchiveDirFile, serverVersion);
                   } else {
@@ -1777,6 +1832,15 @@ public class ViewRegistry {
             }
           }
 
+          if (onDemand && configuration.isViewActivationPreloadEnabled() && !pendingActivations.isEmpty()) {
+            final ExecutorService executorService = getExecutorService(configuration);
+
+            LOG.info("Deploying {} on demand views in the background.", pendingActivations.size());
+            for (FutureTask<Void> activation : pendingActivations.values()) {
+              executorService.submit(activation);
+            }
+          }
+
           if (configuration.isViewRemoveUndeployedEnabled()) {
             removeUndeployedViews();
           }
@@ -1790,7 +1854,7 @@ public class ViewRegistry {
   }
 
   // read a view archive
-  private synchronized void readViewArchive(ViewEntity viewDefinition,
+  private void readViewArchive(ViewEntity viewDefinition,
                                File archiveFile,
                                File extractedArchiveDirFile,
                                String serverVersion) {
@@ -1802,13 +1866,44 @@ public class ViewRegistry {
     LOG.info("Reading view archive " + archiveFile + ".");
 
     try {
-      // extract the archive and get the class loader
-      ClassLoader cl = extractor.extractViewArchive(viewDefinition, archiveFile, extractedArchiveDirFile);
+      // extract the archive and get the class loader; different archives are extracted in parallel
+      ClassLoader cl;
+      ViewConfig viewConfig;
+      synchronized (getExtractionLock(extractedArchiveDirPath)) {
+        cl = extractor.extractViewArchive(viewDefinition, archiveFile, extractedArchiveDirFile);
+
+        viewConfig = archiveUtility.getViewConfigFromExtractedArchive(extractedArchiveDirPath,
+          configuration.isViewValidationEnabled());
+      }
 
-      configureViewLogging(viewDefinition, cl);
+      deployViewArchive(viewDefinition, viewConfig, cl, extractedArchiveDirPath, serverVersion);
+    } catch (Throwable e) {
+      String msg = "Caught exception loading view " + viewDefinition.getName();
 
-      ViewConfig viewConfig = archiveUtility.getViewConfigFromExtractedArchive(extractedArchiveDirPath,
-        configuration.isViewValidationEnabled());
+      setViewStatus(viewDefinition, ViewEntity.ViewStatus.ERROR, msg + " : " + e.getMessage());
+      LOG.error(msg, e);
+    }
+  }
+
+  // get the lock guarding the extraction of the given archive directory
+  private Object getExtractionLock(String extractedArchiveDirPath) {
+    String key = String.valueOf(extractedArchiveDirPath);
+    Object lock = extractionLocks.get(key);
+    if (lock == null) {
+      extractionLocks.putIfAbsent(key, new Object());
+      lock = extractionLocks.get(key);
+    }
+    return lock;
+  }
+
+  // register an extracted view archive; views are registered one at a time
+  private synchronized void deployViewArchive(ViewEntity viewDefinition,
+                                              ViewConfig viewConfig,
+                                              ClassLoader cl,
+                                              String extractedArchiveDirPath,
+                                              String serverVersion) {
+    try {
+      configureViewLogging(viewDefinition, cl);
 
       viewDefinition.setConfiguration(viewConfig);
 
@@ -1843,6 +1938,29 @@ public class ViewRegistry {
     }
   }
 
+  // defer the deployment of the given view until it is first accessed
+  private void addPendingActivation(final ViewEntity viewDefinition,
+                                    final File archiveFile,
+                                    final File extractedArchiveDirFile,
+                                    final String serverVersion) {
+    FutureTask<Void> activation = new FutureTask<Void>(new Runnable() {
+      @Override
+      public void run() {
+        activating.set(Boolean.TRUE);
+        try {
+          readViewArchive(viewDefinition, archiveFile, extractedArchiveDirFile, serverVersion);
+          migrateDataFromPreviousVersion(viewDefinition, serverVersion);
+        } finally {
+          activating.remove();
+          pendingActivations.remove(viewDefinition.getName());
+        }
+      }
+    }, null);
+
+    pendingActivations.put(viewDefinition.getName(), activation);
+    LOG.info("View " + viewDefinition.getName() + " will be deployed on first access.");
+  }
+
   private void migrateDataFromPreviousVersion(ViewEntity viewDefinition, String serverVersion) {
     if (!viewDefinitions.containsKey(viewDefinition.getName())) { // migrate only registered views to avoid recursive calls
       LOG.debug("Cancel auto migration of not loaded view: " + viewDefinition.getName() + ".");
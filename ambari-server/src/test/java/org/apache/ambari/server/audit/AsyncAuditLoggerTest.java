@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.audit.event.AuditEvent;
+import org.apache.ambari.server.audit.event.LogoutAuditEvent;
+import org.apache.ambari.server.configuration.Configuration;
+import org.junit.Test;
+
+public class AsyncAuditLoggerTest {
+
+  @Test
+  public void testEventsAreWrittenInOrder() throws Exception {
+    CollectingAuditLogger innerLogger = new CollectingAuditLogger(null);
+    AsyncAuditLogger asyncAuditLogger = new AsyncAuditLogger(innerLogger, createConfiguration(1000, "caller_runs"));
+
+    List<AuditEvent> events = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      AuditEvent event = createEvent(i);
+      events.add(event);
+      asyncAuditLogger.log(event);
+    }
+
+    assertTrue(innerLogger.await(100));
+    assertEquals(events, innerLogger.getEvents());
+    assertEquals(0, asyncAuditLogger.getQueuedEventCount());
+    assertEquals(0, asyncAuditLogger.getDroppedEventCount());
+  }
+
+  @Test
+  public void testOverflowDrop() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CollectingAuditLogger innerLogger = new CollectingAuditLogger(release);
+    AsyncAuditLogger asyncAuditLogger = new AsyncAuditLogger(innerLogger, createConfiguration(2, "drop"));
+
+    // the writer blocks on the first batch it takes, after that at most two more events fit into the queue
+    for (int i = 0; i < 10; i++) {
+      asyncAuditLogger.log(createEvent(i));
+    }
+    release.countDown();
+
+    long dropped = asyncAuditLogger.getDroppedEventCount();
+    assertTrue(dropped >= 6);
+    assertTrue(innerLogger.await(10 - (int) dropped));
+    assertEquals(0, asyncAuditLogger.getCallerWrittenEventCount());
+  }
+
+  @Test
+  public void testOverflowCallerRuns() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CollectingAuditLogger innerLogger = new CollectingAuditLogger(release);
+    AsyncAuditLogger asyncAuditLogger = new AsyncAuditLogger(innerLogger, createConfiguration(2, "caller_runs"));
+
+    // wait until the writer is blocked on the first event before filling the queue
+    asyncAuditLogger.log(createEvent(0));
+    assertTrue(innerLogger.awaitWriterBlocked());
+    for (int i = 1; i < 10; i++) {
+      // once the queue is full the caller writes the event, without waiting for the writer
+      asyncAuditLogger.log(createEvent(i));
+    }
+    assertEquals(7, asyncAuditLogger.getCallerWrittenEventCount());
+    release.countDown();
+
+    assertTrue(innerLogger.await(10));
+    assertEquals(0, asyncAuditLogger.getDroppedEventCount());
+  }
+
+  private Configuration createConfiguration(int capacity, String overflowBehavior) {
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.AUDIT_LOG_ENABLED.getKey(), "true");
+    properties.setProperty(Configuration.AUDIT_LOGGER_CAPACITY.getKey(), String.valueOf(capacity));
+    properties.setProperty(Configuration.AUDIT_LOGGER_OVERFLOW_BEHAVIOR.getKey(), overflowBehavior);
+    return new Configuration(properties);
+  }
+
+  private AuditEvent createEvent(int index) {
+    return LogoutAuditEvent.builder()
+      .withTimestamp((long) index)
+      .withRemoteIp("1.2.3.4")
+      .withUserName("user" + index)
+      .build();
+  }
+
+  /**
+   * Collects the written events; optionally blocks the first write until released.
+   */
+  private static class CollectingAuditLogger implements AuditLogger {
+    private final List<AuditEvent> events = Collections.synchronizedList(new ArrayList<AuditEvent>());
+    private final CountDownLatch release;
+    private final CountDownLatch writerBlocked = new CountDownLatch(1);
+
+    private CollectingAuditLogger(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public void log(AuditEvent event) {
+      if (release != null && writerBlocked.getCount() > 0 && Thread.currentThread().getName().startsWith("auditlog")) {
+        writerBlocked.countDown();
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      events.add(event);
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return true;
+    }
+
+    private boolean awaitWriterBlocked() throws InterruptedException {
+      return writerBlocked.await(10, TimeUnit.SECONDS);
+    }
+
+    private boolean await(int count) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 10000;
+      while (events.size() < count && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      return events.size() >= count;
+    }
+
+    private List<AuditEvent> getEvents() {
+      synchronized (events) {
+        return new ArrayList<>(events);
+      }
+    }
+  }
+}
@@ -25,6 +25,7 @@ import org.apache.ambari.server.orm.entities.ViewInstanceEntityTest;
 import org.apache.ambari.server.security.AmbariViewsSecurityHeaderFilter;
 import org.apache.ambari.server.view.ViewRegistry;
 import org.easymock.Capture;
+import org.easymock.IAnswer;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
@@ -44,6 +45,7 @@ import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 
@@ -156,6 +158,49 @@ public class AmbariHandlerListTest {
     verify(handler, viewRegistry, viewEntity);
   }
 
+  @Test
+  public void testHandleActivatesView() throws Exception {
+    final ViewInstanceEntity viewInstanceEntity = ViewInstanceEntityTest.getViewInstanceEntity();
+    ViewEntity viewEntity = viewInstanceEntity.getViewEntity();
+
+    final WebAppContext handler = createNiceMock(WebAppContext.class);
+    ViewRegistry viewRegistry = createNiceMock(ViewRegistry.class);
+
+    Request baseRequest = createNiceMock(Request.class);
+
+    HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+    HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+
+    final AmbariHandlerList handlerList = getAmbariHandlerList(handler);
+    handlerList.viewRegistry = viewRegistry;
+
+    // the first request for the view is for its web application
+    String target = viewInstanceEntity.getContextPath() + "/index.html";
+
+    expect(viewRegistry.getDefinition(viewEntity.getCommonName(), viewEntity.getVersion()))
+        .andReturn(viewEntity).anyTimes();
+
+    // deploying the view registers the handlers of its instances
+    viewRegistry.activateView(viewEntity);
+    expectLastCall().andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        handlerList.addViewInstance(viewInstanceEntity);
+        return null;
+      }
+    });
+
+    expect(handler.isStarted()).andReturn(true).anyTimes();
+    handler.handle(target, baseRequest, request, response);
+
+    replay(handler, viewRegistry);
+
+    handlerList.start();
+    handlerList.handle(target, baseRequest, request, response);
+
+    verify(handler, viewRegistry);
+  }
+
   private AmbariHandlerList getAmbariHandlerList(final WebAppContext handler) {
 
     AmbariHandlerList handlerList = new AmbariHandlerList();
@@ -2518,6 +2518,60 @@ public class BlueprintConfigurationProcessorTest extends EasyMockSupport {
     }
   }
 
+  @Test
+  public void testDoUpdateForClusterCreate_LargeTopology() throws Exception {
+    Map<String, Map<String, String>> properties = new HashMap<>();
+    Map<String, String> hbaseSiteProps = new HashMap<>();
+    hbaseSiteProps.put("hbase.zookeeper.quorum", "localhost");
+    properties.put("hbase-site", hbaseSiteProps);
+    Map<String, String> yarnSiteProps = new HashMap<>();
+    yarnSiteProps.put("yarn.resourcemanager.hostname", "localhost");
+    properties.put("yarn-site", yarnSiteProps);
+
+    Configuration clusterConfig = new Configuration(properties, Collections.<String, Map<String, Map<String, String>>>emptyMap());
+
+    Collection<TestHostGroup> hostGroups = new HashSet<>();
+    Set<String> zkHosts = new HashSet<>(Arrays.asList("zkhost1", "zkhost2", "zkhost3"));
+    hostGroups.add(new TestHostGroup("zk", Collections.singleton("ZOOKEEPER_SERVER"), zkHosts));
+    hostGroups.add(new TestHostGroup("rm", Collections.singleton("RESOURCEMANAGER"), Collections.singleton("rmhost")));
+
+    // 50 worker host groups with 100 hosts each, all overriding the topology properties
+    Collection<Configuration> workerConfigs = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      Set<String> hosts = new HashSet<>();
+      for (int j = 0; j < 100; j++) {
+        hosts.add("worker" + i + "-" + j);
+      }
+
+      Map<String, Map<String, String>> workerProperties = new HashMap<>();
+      workerProperties.put("hbase-site", new HashMap<>(Collections.singletonMap("hbase.zookeeper.quorum", "localhost")));
+      workerProperties.put("yarn-site", new HashMap<>(Collections.singletonMap("yarn.resourcemanager.hostname", "localhost")));
+      Configuration workerConfig = new Configuration(workerProperties,
+        Collections.<String, Map<String, Map<String, String>>>emptyMap());
+      workerConfigs.add(workerConfig);
+
+      hostGroups.add(new TestHostGroup("worker" + i, Arrays.asList("DATANODE", "HDFS_CLIENT"), hosts, workerConfig));
+    }
+
+    ClusterTopology topology = createClusterTopology(bp, clusterConfig, hostGroups);
+    BlueprintConfigurationProcessor updater = new BlueprintConfigurationProcessor(topology);
+
+    Set<String> configTypesUpdated = updater.doUpdateForClusterCreate();
+
+    assertTrue(configTypesUpdated.contains("hbase-site"));
+    assertTrue(configTypesUpdated.contains("yarn-site"));
+    assertEquals(zkHosts, new HashSet<>(Arrays.asList(
+      clusterConfig.getPropertyValue("hbase-site", "hbase.zookeeper.quorum").split(","))));
+    assertEquals("rmhost", clusterConfig.getPropertyValue("yarn-site", "yarn.resourcemanager.hostname"));
+
+    for (Configuration workerConfig : workerConfigs) {
+      Map<String, Map<String, String>> workerProperties = workerConfig.getProperties();
+      assertEquals(zkHosts, new HashSet<>(Arrays.asList(
+        workerProperties.get("hbase-site").get("hbase.zookeeper.quorum").split(","))));
+      assertEquals("rmhost", workerProperties.get("yarn-site").get("yarn.resourcemanager.hostname"));
+    }
+  }
+
   @Test
   public void testDoUpdateForClusterCreate_MultiHostProperty__defaultValues___withPorts() throws Exception {
     Map<String, Map<String, String>> properties = new HashMap<>();
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.state.ClientConfigFileDefinition;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * ClientConfigArchiveGenerator tests.
+ */
+public class ClientConfigArchiveGeneratorTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testCanGenerate() throws Exception {
+    assumeTrue(".tar.gz".equals(Configuration.DEF_ARCHIVE_EXTENSION));
+
+    File script = createScript("class HdfsClient(Script):\n  def install(self, env):\n    pass\n");
+
+    List<ClientConfigFileDefinition> files = Arrays.asList(
+        createFile("xml", "core-site.xml", "core-site"),
+        createFile("env", "hadoop-env.sh", "hadoop-env"));
+
+    Map<String, Map<String, String>> configurations = new HashMap<>();
+    configurations.put("core-site", Collections.singletonMap("fs.defaultFS", "hdfs://c6401:8020"));
+    assertFalse(ClientConfigArchiveGenerator.canGenerate(script, files, configurations));
+
+    configurations.put("hadoop-env", Collections.singletonMap("content", "export JAVA_HOME=/usr/jdk64"));
+    assertTrue(ClientConfigArchiveGenerator.canGenerate(script, files, configurations));
+
+    configurations.put("hadoop-env", Collections.singletonMap("content", "export JAVA_HOME={{java_home}}"));
+    assertFalse(ClientConfigArchiveGenerator.canGenerate(script, files, configurations));
+
+    assertFalse(ClientConfigArchiveGenerator.canGenerate(script,
+        Collections.singletonList(createFile("yaml", "storm.yaml", "core-site")), configurations));
+  }
+
+  @Test
+  public void testCanGenerateWithScriptOverride() throws Exception {
+    assumeTrue(".tar.gz".equals(Configuration.DEF_ARCHIVE_EXTENSION));
+
+    List<ClientConfigFileDefinition> files = Collections.singletonList(
+        createFile("xml", "oozie-site.xml", "oozie-site"));
+    Map<String, Map<String, String>> configurations = new HashMap<>();
+    configurations.put("oozie-site", Collections.singletonMap("oozie.base.url", "http://c6401:11000/oozie"));
+
+    File script = createScript("class OozieClient(Script):\n"
+        + "  def generate_configs_get_xml_file_content(self, filename, dictionary):\n"
+        + "    return super(OozieClient, self).generate_configs_get_xml_file_content(filename, dictionary)\n");
+    assertFalse(ClientConfigArchiveGenerator.canGenerate(script, files, configurations));
+
+    // a script which doesn't exist can't be checked
+    assertFalse(ClientConfigArchiveGenerator.canGenerate(new File(temporaryFolder.getRoot(), "missing.py"),
+        files, configurations));
+  }
+
+  @Test
+  public void testPropertiesContentDate() throws Exception {
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set(2015, Calendar.OCTOBER, 4, 9, 5, 7);
+
+    String content = ClientConfigArchiveGenerator.getPropertiesContent(
+        Collections.singletonMap("log4j.rootLogger", "INFO"), calendar.getTime());
+    assertTrue(content.startsWith("# Generated by Apache Ambari. Sun Oct  4 09:05:07 2015\n"));
+  }
+
+  @Test
+  public void testWriteArchive() throws Exception {
+    File tmpDir = temporaryFolder.newFolder("tmp");
+    byte[] archive = "archive".getBytes(StandardCharsets.UTF_8);
+
+    ClientConfigArchiveGenerator.writeArchive(tmpDir.getAbsolutePath(), "HDFS_CLIENT", archive);
+
+    File archiveFile = new File(tmpDir, "HDFS_CLIENT-configs" + Configuration.DEF_ARCHIVE_EXTENSION);
+    assertTrue(Arrays.equals(archive, Files.readAllBytes(archiveFile.toPath())));
+    assertEquals(1, tmpDir.listFiles().length);
+
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      assertEquals(PosixFilePermissions.fromString("rw-------"),
+          Files.getPosixFilePermissions(archiveFile.toPath()));
+    }
+  }
+
+  @Test
+  public void testCreateArchive() throws Exception {
+    List<ClientConfigFileDefinition> files = Arrays.asList(
+        createFile("xml", "core-site.xml", "core-site"),
+        createFile("properties", "log4j.properties", "log4j"),
+        createFile("env", "hadoop-env.sh", "hadoop-env, cluster-env"));
+
+    Map<String, Map<String, String>> configurations = new HashMap<>();
+    configurations.put("core-site", Collections.singletonMap("fs.defaultFS", "hdfs://c6401:8020?a=1&b=2"));
+    configurations.put("log4j", Collections.singletonMap("log4j.rootLogger", "INFO,console"));
+    configurations.put("hadoop-env", Collections.singletonMap("content", "export A=1\n"));
+    configurations.put("cluster-env", Collections.singletonMap("content", "export B=2\n"));
+
+    Map<String, Map<String, Map<String, String>>> attributes = new HashMap<>();
+    attributes.put("core-site", Collections.singletonMap("final",
+        Collections.singletonMap("fs.defaultFS", "true")));
+
+    byte[] archive = ClientConfigArchiveGenerator.createArchive(files, configurations, attributes);
+
+    Map<String, String> contents = new HashMap<>();
+    try (TarArchiveInputStream tarIn = new TarArchiveInputStream(
+        new GzipCompressorInputStream(new ByteArrayInputStream(archive)))) {
+      TarArchiveEntry entry;
+      while ((entry = tarIn.getNextTarEntry()) != null) {
+        contents.put(entry.getName(), new String(IOUtils.toByteArray(tarIn), "UTF-8"));
+      }
+    }
+
+    assertEquals(3, contents.size());
+    String xml = contents.get("./core-site.xml");
+    assertTrue(xml.contains("<name>fs.defaultFS</name>"));
+    assertTrue(xml.contains("<value>hdfs://c6401:8020?a=1&amp;b=2</value>"));
+    assertTrue(xml.contains("<final>true</final>"));
+    assertTrue(contents.get("./log4j.properties").contains("\nlog4j.rootLogger=INFO,console"));
+    assertEquals("export A=1\nexport B=2\n", contents.get("./hadoop-env.sh"));
+  }
+
+  private File createScript(String content) throws Exception {
+    File script = temporaryFolder.newFile();
+    Files.write(script.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return script;
+  }
+
+  private ClientConfigFileDefinition createFile(String type, String fileName, String dictionaryName) {
+    ClientConfigFileDefinition file = new ClientConfigFileDefinition();
+    file.setType(type);
+    file.setFileName(fileName);
+    file.setDictionaryName(dictionaryName);
+    return file;
+  }
+}
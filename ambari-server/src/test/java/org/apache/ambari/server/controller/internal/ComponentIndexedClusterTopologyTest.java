@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import static org.easymock.EasyMock.createStrictMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.ambari.server.topology.ClusterTopology;
+import org.junit.Test;
+
+/**
+ * ComponentIndexedClusterTopology unit tests.
+ */
+public class ComponentIndexedClusterTopologyTest {
+
+  @Test
+  public void testComponentLookupsAreResolvedOnce() throws Exception {
+    ClusterTopology topology = createStrictMock(ClusterTopology.class);
+    expect(topology.getHostGroupsForComponent("ZOOKEEPER_SERVER")).andReturn(Arrays.asList("group1", "group2"));
+    expect(topology.getHostAssignmentsForComponent("ZOOKEEPER_SERVER")).andReturn(Arrays.asList("host1", "host2"));
+    expect(topology.getHostAssignmentsForComponent("NAMENODE")).andReturn(Collections.singletonList("host1"));
+    replay(topology);
+
+    ComponentIndexedClusterTopology indexedTopology = new ComponentIndexedClusterTopology(topology);
+    for (int i = 0; i < 3; i++) {
+      Collection<String> hostGroups = indexedTopology.getHostGroupsForComponent("ZOOKEEPER_SERVER");
+      assertEquals(Arrays.asList("group1", "group2"), new ArrayList<>(hostGroups));
+      Collection<String> hosts = indexedTopology.getHostAssignmentsForComponent("ZOOKEEPER_SERVER");
+      assertEquals(Arrays.asList("host1", "host2"), new ArrayList<>(hosts));
+    }
+    Collection<String> hosts = indexedTopology.getHostAssignmentsForComponent("NAMENODE");
+    assertEquals(Collections.singletonList("host1"), new ArrayList<>(hosts));
+
+    verify(topology);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testTopologyChangesAreRejected() throws Exception {
+    ClusterTopology topology = createStrictMock(ClusterTopology.class);
+    replay(topology);
+
+    new ComponentIndexedClusterTopology(topology).addHostToTopology("group1", "host1");
+  }
+}
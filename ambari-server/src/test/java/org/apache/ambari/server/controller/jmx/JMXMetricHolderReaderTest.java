@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.jmx;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link JMXMetricHolderReader}.
+ */
+public class JMXMetricHolderReaderTest {
+
+  private final JMXMetricHolderReader reader = new JMXMetricHolderReader(new ObjectMapper());
+
+  @Test
+  public void testReadAllAttributes() throws Exception {
+    JMXMetricHolder metricHolder = read(null);
+
+    Map<String, Object> rpcBean = getBean(metricHolder, "Hadoop:service=NameNode,name=RpcActivityForPort8020");
+    Assert.assertNotNull(rpcBean);
+    Assert.assertEquals(13670605, rpcBean.get("ReceivedBytes"));
+    Assert.assertEquals("8020", rpcBean.get("tag.port"));
+    Assert.assertTrue(rpcBean.size() > 3);
+  }
+
+  @Test
+  public void testReadFilteredAttributes() throws Exception {
+    JMXMetricHolder metricHolder = read(Collections.singleton("ReceivedBytes"));
+
+    // every bean is kept but only with its name, port tag and the requested attribute
+    Map<String, Object> rpcBean = getBean(metricHolder, "Hadoop:service=NameNode,name=RpcActivityForPort8020");
+    Assert.assertNotNull(rpcBean);
+    Assert.assertEquals(3, rpcBean.size());
+    Assert.assertEquals(13670605, rpcBean.get("ReceivedBytes"));
+    Assert.assertEquals("8020", rpcBean.get("tag.port"));
+
+    Map<String, Object> nameNodeBean = getBean(metricHolder, "Hadoop:service=NameNode,name=NameNode");
+    Assert.assertNotNull(nameNodeBean);
+    Assert.assertEquals(1, nameNodeBean.size());
+  }
+
+  @Test
+  public void testReadNestedAttribute() throws Exception {
+    JMXMetricHolder metricHolder = read(Collections.singleton("HeapMemoryUsage"));
+
+    Map<String, Object> memoryBean = getBean(metricHolder, "java.lang:type=Memory");
+    Assert.assertNotNull(memoryBean);
+    Assert.assertTrue(memoryBean.get("HeapMemoryUsage") instanceof Map);
+    Assert.assertNotNull(((Map<?, ?>) memoryBean.get("HeapMemoryUsage")).get("used"));
+  }
+
+  private JMXMetricHolder read(Set<String> attributes) throws Exception {
+    InputStream inputStream = ClassLoader.getSystemResourceAsStream("hdfs_namenode_jmx.json");
+    try {
+      return reader.read(inputStream, attributes);
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  private Map<String, Object> getBean(JMXMetricHolder metricHolder, String name) {
+    for (Map<String, Object> bean : metricHolder.getBeans()) {
+      if (name.equals(bean.get("name"))) {
+        return bean;
+      }
+    }
+    return null;
+  }
+}
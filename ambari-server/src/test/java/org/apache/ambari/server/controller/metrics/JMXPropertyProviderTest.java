@@ -86,13 +86,14 @@ public class JMXPropertyProviderTest {
   }
 
   private static MetricPropertyProviderFactory metricPropertyProviderFactory;
+  private static Configuration configuration;
 
   @BeforeClass
   public static void setupClass() {
     Injector injector = Guice.createInjector(new InMemoryDefaultTestModule());
 
     // disable request TTL for these tests
-    Configuration configuration = injector.getInstance(Configuration.class);
+    configuration = injector.getInstance(Configuration.class);
     configuration.setProperty(Configuration.METRIC_RETRIEVAL_SERVICE_REQUEST_TTL_ENABLED.getKey(),
         "false");
 
@@ -326,6 +327,56 @@ public class JMXPropertyProviderTest {
     Assert.assertNull(resource.getPropertyValue("metrics/dfs/namenode/CreateFileOps"));
   }
 
+  @Test
+  public void testPopulateResources_targetedQueries() throws Exception {
+    SecurityContextHolder.getContext().setAuthentication(TestAuthenticationFactory.createClusterAdministrator("ClusterAdmin", 2L));
+    configuration.setProperty(Configuration.METRIC_RETRIEVAL_SERVICE_JMX_TARGETED_QUERIES_ENABLED.getKey(), "true");
+
+    try {
+      TestStreamProvider streamProvider = new TestStreamProvider();
+      TestJMXHostProvider hostProvider = new TestJMXHostProvider(false);
+      TestMetricHostProvider metricsHostProvider = new TestMetricHostProvider();
+
+      JMXPropertyProvider propertyProvider = metricPropertyProviderFactory.createJMXPropertyProvider(
+        PropertyHelper.getJMXPropertyIds(Resource.Type.HostComponent),
+        streamProvider,
+        hostProvider,
+        metricsHostProvider,
+        PropertyHelper.getPropertyId("HostRoles", "cluster_name"),
+        PropertyHelper.getPropertyId("HostRoles", "host_name"),
+        PropertyHelper.getPropertyId("HostRoles", "component_name"),
+        PropertyHelper.getPropertyId("HostRoles", "state"));
+
+      // namenode
+      Resource resource = new ResourceImpl(Resource.Type.HostComponent);
+      resource.setProperty(CLUSTER_NAME_PROPERTY_ID, "c1");
+      resource.setProperty(HOST_COMPONENT_HOST_NAME_PROPERTY_ID, "domu-12-31-39-0e-34-e1.compute-1.internal");
+      resource.setProperty(HOST_COMPONENT_COMPONENT_NAME_PROPERTY_ID, "NAMENODE");
+      resource.setProperty(HOST_COMPONENT_STATE_PROPERTY_ID, "STARTED");
+
+      Set<String> propertyIds = new HashSet<String>();
+      propertyIds.add("metrics/rpc/ReceivedBytes");
+      propertyIds.add("metrics/dfs/namenode/CreateFileOps");
+      Request request = PropertyHelper.getReadRequest(propertyIds, new HashMap<String, TemporalInfo>());
+
+      Assert.assertEquals(1, propertyProvider.populateResources(Collections.singleton(resource), request, null).size());
+
+      // the port tagged RPC bean is queried with a wildcard, the single NameNode attribute with a get
+      Set<String> expectedSpecs = new HashSet<String>();
+      expectedSpecs.add(propertyProvider.getSpec("http", "domu-12-31-39-0e-34-e1.compute-1.internal", "50070",
+          "/jmx?qry=Hadoop%3Aservice%3DNameNode%2Cname%3DRpcActivityForPort*"));
+      expectedSpecs.add(propertyProvider.getSpec("http", "domu-12-31-39-0e-34-e1.compute-1.internal", "50070",
+          "/jmx?get=Hadoop%3Aservice%3DNameNode%2Cname%3DNameNode%3A%3ACreateFileOps"));
+      Assert.assertEquals(expectedSpecs, new HashSet<String>(streamProvider.getSpecs()));
+
+      // see test/resources/hdfs_namenode_jmx.json for values
+      Assert.assertEquals(13670605, resource.getPropertyValue("metrics/rpc/ReceivedBytes"));
+      Assert.assertEquals(28, resource.getPropertyValue("metrics/dfs/namenode/CreateFileOps"));
+    } finally {
+      configuration.setProperty(Configuration.METRIC_RETRIEVAL_SERVICE_JMX_TARGETED_QUERIES_ENABLED.getKey(), "false");
+    }
+  }
+
   public void testPopulateResources_category() throws Exception {
     TestStreamProvider streamProvider = new TestStreamProvider();
     TestJMXHostProvider hostProvider = new TestJMXHostProvider(false);
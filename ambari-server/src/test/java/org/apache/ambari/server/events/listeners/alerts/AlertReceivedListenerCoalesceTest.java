@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.events.listeners.alerts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ambari.server.events.listeners.alerts.AlertReceivedListener.ReceivedAlert;
+import org.apache.ambari.server.state.Alert;
+import org.apache.ambari.server.state.AlertState;
+import org.junit.Test;
+
+/**
+ * Tests the coalescing of received alerts by the {@link AlertReceivedListener}.
+ */
+public class AlertReceivedListenerCoalesceTest {
+
+  private static final long CLUSTER_ID = 1L;
+
+  /**
+   * Tests that repeated reports in the same state are coalesced into the latest
+   * one.
+   */
+  @Test
+  public void testRepeatedReportsAreCoalesced() {
+    List<ReceivedAlert> batch = new ArrayList<>();
+    batch.add(createReceivedAlert("alert_1", "h1", AlertState.OK, 1L));
+    batch.add(createReceivedAlert("alert_1", "h1", AlertState.OK, 2L));
+    ReceivedAlert latest = createReceivedAlert("alert_1", "h1", AlertState.OK, 3L);
+    batch.add(latest);
+
+    List<ReceivedAlert> coalesced = AlertReceivedListener.coalesce(batch);
+    assertEquals(1, coalesced.size());
+    assertSame(latest, coalesced.get(0));
+    assertEquals(3, latest.getReports());
+  }
+
+  /**
+   * Tests that state changes and reports for different hosts or definitions
+   * are kept.
+   */
+  @Test
+  public void testStateChangesAndDistinctAlertsAreKept() {
+    List<ReceivedAlert> batch = new ArrayList<>();
+    batch.add(createReceivedAlert("alert_1", "h1", AlertState.OK, 1L));
+    batch.add(createReceivedAlert("alert_1", "h1", AlertState.CRITICAL, 2L));
+    batch.add(createReceivedAlert("alert_1", "h1", AlertState.OK, 3L));
+    batch.add(createReceivedAlert("alert_1", "h2", AlertState.OK, 4L));
+    batch.add(createReceivedAlert("alert_2", "h1", AlertState.OK, 5L));
+
+    List<ReceivedAlert> coalesced = AlertReceivedListener.coalesce(batch);
+    assertEquals(5, coalesced.size());
+    assertEquals(AlertState.CRITICAL, coalesced.get(1).getAlert().getState());
+
+    for (ReceivedAlert receivedAlert : coalesced) {
+      assertEquals(1, receivedAlert.getReports());
+    }
+  }
+
+  /**
+   * Tests that {@link AlertState#SKIPPED} reports are never coalesced.
+   */
+  @Test
+  public void testSkippedReportsAreNotCoalesced() {
+    List<ReceivedAlert> batch = new ArrayList<>();
+    batch.add(createReceivedAlert("alert_1", "h1", AlertState.SKIPPED, 1L));
+    batch.add(createReceivedAlert("alert_1", "h1", AlertState.SKIPPED, 2L));
+
+    assertEquals(2, AlertReceivedListener.coalesce(batch).size());
+  }
+
+  private ReceivedAlert createReceivedAlert(String name, String hostName, AlertState state,
+      long timestamp) {
+    Alert alert = new Alert(name, null, "HDFS", "DATANODE", hostName, state);
+    alert.setCluster("c1");
+    alert.setTimestamp(timestamp);
+    return new ReceivedAlert(CLUSTER_ID, alert);
+  }
+}
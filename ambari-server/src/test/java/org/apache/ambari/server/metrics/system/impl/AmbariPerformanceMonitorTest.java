@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.metrics.system.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link AmbariPerformanceMonitor}.
+ */
+public class AmbariPerformanceMonitorTest {
+
+  @Test
+  public void testAddEntityCacheMetric() {
+    Map<String, Long> metrics = new HashMap<>();
+
+    AmbariPerformanceMonitor.addEntityCacheMetric(metrics,
+        split("Counter:ReadObjectQuery:org.apache.ambari.server.orm.entities.HostEntity:HostEntity.findByHostName:CacheHits"), 5L);
+    AmbariPerformanceMonitor.addEntityCacheMetric(metrics,
+        split("Counter:ReadAllQuery:org.apache.ambari.server.orm.entities.HostEntity:HostEntity.findAll:CacheHits"), 3L);
+    AmbariPerformanceMonitor.addEntityCacheMetric(metrics,
+        split("Counter:ReadObjectQuery:org.apache.ambari.server.orm.entities.HostEntity:HostEntity.findByHostName:CacheMisses"), 2L);
+    AmbariPerformanceMonitor.addEntityCacheMetric(metrics,
+        split("Counter:ReadObjectQuery:org.apache.ambari.server.orm.entities.ClusterEntity:ClusterEntity.findAll:CacheMisses"), 1L);
+
+    assertEquals(3, metrics.size());
+    assertEquals(Long.valueOf(8L), metrics.get("Counter.HostEntity.CacheHits"));
+    assertEquals(Long.valueOf(2L), metrics.get("Counter.HostEntity.CacheMisses"));
+    assertEquals(Long.valueOf(1L), metrics.get("Counter.ClusterEntity.CacheMisses"));
+  }
+
+  @Test
+  public void testAddEntityCacheMetricIgnoresOtherOperations() {
+    Map<String, Long> metrics = new HashMap<>();
+
+    // not a cache counter
+    AmbariPerformanceMonitor.addEntityCacheMetric(metrics,
+        split("Counter:ReadObjectQuery:org.apache.ambari.server.orm.entities.HostEntity:HostEntity.findByHostName:ObjectBuilding"), 5L);
+
+    // not a counter
+    AmbariPerformanceMonitor.addEntityCacheMetric(metrics,
+        split("Timer:ReadObjectQuery:org.apache.ambari.server.orm.entities.HostEntity:HostEntity.findByHostName:CacheHits"), 5L);
+
+    // not an entity of ours
+    AmbariPerformanceMonitor.addEntityCacheMetric(metrics,
+        split("Counter:ReadObjectQuery:com.example.OtherEntity:OtherEntity.findAll:CacheHits"), 5L);
+
+    // too short
+    AmbariPerformanceMonitor.addEntityCacheMetric(metrics, split("Counter:CacheHits"), 5L);
+
+    assertTrue(metrics.isEmpty());
+  }
+
+  private String[] split(String operation) {
+    return operation.split(":");
+  }
+}
@@ -87,7 +87,7 @@ public class AmbariSNMPDispatcherTest {
         properties.put(AmbariSNMPDispatcher.SNMP_VERSION_PROPERTY, "SNMPv1");
         notification.DispatchProperties = properties;
         notification.Recipients = Arrays.asList(new Recipient());
-        doThrow(new IOException()).when(dispatcher).sendTraps(notification, snmpVersion);
+        doThrow(new IOException()).when(dispatcher).sendTraps(any(Snmp.class), eq(notification), eq(snmpVersion));
         dispatcher.dispatch(notification);
         verify(notification.Callback).onFailure(notification.CallbackIds);
         verify(notification.Callback, never()).onSuccess(notification.CallbackIds);
@@ -151,7 +151,7 @@ public class AmbariSNMPDispatcherTest {
         properties.put(AmbariSNMPDispatcher.SNMP_VERSION_PROPERTY, "SNMPv1");
         notification.DispatchProperties = properties;
         notification.Recipients = Arrays.asList(new Recipient());
-        doThrow(new RuntimeException()).when(dispatcher).sendTraps(eq(notification), any(AmbariSNMPDispatcher.SnmpVersion.class));
+        doThrow(new RuntimeException()).when(dispatcher).sendTraps(any(Snmp.class), eq(notification), any(AmbariSNMPDispatcher.SnmpVersion.class));
         dispatcher.dispatch(notification);
         verify(notification.Callback).onFailure(notification.CallbackIds);
         verify(notification.Callback, never()).onSuccess(notification.CallbackIds);
@@ -187,7 +187,7 @@ public class AmbariSNMPDispatcherTest {
         properties.put(AmbariSNMPDispatcher.SNMP_VERSION_PROPERTY, "SNMPv1");
         notification.DispatchProperties = properties;
         notification.Recipients = Arrays.asList(new Recipient());
-        doNothing().when(dispatcher).sendTraps(notification, snmpVersion);
+        doNothing().when(dispatcher).sendTraps(any(Snmp.class), eq(notification), eq(snmpVersion));
         dispatcher.dispatch(notification);
         verify(notification.Callback, never()).onFailure(notification.CallbackIds);
         verify(notification.Callback).onSuccess(notification.CallbackIds);
@@ -206,7 +206,7 @@ public class AmbariSNMPDispatcherTest {
         properties.put(AmbariSNMPDispatcher.SNMP_VERSION_PROPERTY, "SNMPv2c");
         notification.DispatchProperties = properties;
         notification.Recipients = Arrays.asList(new Recipient());
-        doNothing().when(dispatcher).sendTraps(notification, snmpVersion);
+        doNothing().when(dispatcher).sendTraps(any(Snmp.class), eq(notification), eq(snmpVersion));
         dispatcher.dispatch(notification);
         verify(notification.Callback, never()).onFailure(notification.CallbackIds);
         verify(notification.Callback).onSuccess(notification.CallbackIds);
@@ -322,7 +322,7 @@ public class AmbariSNMPDispatcherTest {
         rec1.Identifier = "192.168.0.2";
         notification.Recipients = Arrays.asList(rec1);
         doReturn(trap).when(dispatcher).prepareTrap(notification, snmpVersion);
-        dispatcher.sendTraps(notification, snmpVersion);
+        dispatcher.sendTraps(snmp, notification, snmpVersion);
         ArgumentCaptor<Target> argument = ArgumentCaptor.forClass(Target.class);
         verify(snmp, times(1)).send(eq(trap), argument.capture());
         assertEquals("192.168.0.2/162", argument.getValue().getAddress().toString());
@@ -344,7 +344,7 @@ public class AmbariSNMPDispatcherTest {
         rec1.Identifier = "192.168.0.2";
         notification.Recipients = Arrays.asList(rec1);
         doReturn(trap).when(dispatcher).prepareTrap(notification, snmpVersion);
-        dispatcher.sendTraps(notification, snmpVersion);
+        dispatcher.sendTraps(snmp, notification, snmpVersion);
         ArgumentCaptor<Target> argument = ArgumentCaptor.forClass(Target.class);
         verify(snmp, times(1)).send(eq(trap), argument.capture());
         assertEquals("192.168.0.2/162", argument.getValue().getAddress().toString());
@@ -370,7 +370,7 @@ public class AmbariSNMPDispatcherTest {
         rec1.Identifier = "192.168.0.2";
         notification.Recipients = Arrays.asList(rec1);
         doReturn(trap).when(dispatcher).prepareTrap(notification, snmpVersion);
-        dispatcher.sendTraps(notification, snmpVersion);
+        dispatcher.sendTraps(snmp, notification, snmpVersion);
         ArgumentCaptor<Target> argument = ArgumentCaptor.forClass(Target.class);
         verify(snmp, times(1)).send(eq(trap), argument.capture());
         assertEquals("192.168.0.2/162", argument.getValue().getAddress().toString());
@@ -396,7 +396,7 @@ public class AmbariSNMPDispatcherTest {
         rec1.Identifier = "192.168.0.2";
         notification.Recipients = Arrays.asList(rec1);
         doReturn(trap).when(dispatcher).prepareTrap(notification, snmpVersion);
-        dispatcher.sendTraps(notification, snmpVersion);
+        dispatcher.sendTraps(snmp, notification, snmpVersion);
     }
 
     @Test
@@ -73,7 +73,7 @@ public class SNMPDispatcherTest {
     notification.Body = "body";
     notification.Subject = "subject";
     notification.Recipients = Arrays.asList(new Recipient());
-    doThrow(new IOException()).when(dispatcher).sendTraps(notification, snmpVersion);
+    doThrow(new IOException()).when(dispatcher).sendTraps(any(Snmp.class), eq(notification), eq(snmpVersion));
     dispatcher.dispatch(notification);
     verify(notification.Callback).onFailure(notification.CallbackIds);
     verify(notification.Callback, never()).onSuccess(notification.CallbackIds);
@@ -152,7 +152,7 @@ public class SNMPDispatcherTest {
     notification.Body = "body";
     notification.Subject = "subject";
     notification.Recipients = Arrays.asList(new Recipient());
-    doThrow(new RuntimeException()).when(dispatcher).sendTraps(eq(notification), any(SNMPDispatcher.SnmpVersion.class));
+    doThrow(new RuntimeException()).when(dispatcher).sendTraps(any(Snmp.class), eq(notification), any(SNMPDispatcher.SnmpVersion.class));
     dispatcher.dispatch(notification);
     verify(notification.Callback).onFailure(notification.CallbackIds);
     verify(notification.Callback, never()).onSuccess(notification.CallbackIds);
@@ -198,7 +198,7 @@ public class SNMPDispatcherTest {
     notification.Body = "body";
     notification.Subject = "subject";
     notification.Recipients = Arrays.asList(new Recipient());
-    doNothing().when(dispatcher).sendTraps(notification, snmpVersion);
+    doNothing().when(dispatcher).sendTraps(any(Snmp.class), eq(notification), eq(snmpVersion));
     dispatcher.dispatch(notification);
     verify(notification.Callback, never()).onFailure(notification.CallbackIds);
     verify(notification.Callback).onSuccess(notification.CallbackIds);
@@ -222,7 +222,7 @@ public class SNMPDispatcherTest {
     notification.Body = "body";
     notification.Subject = "subject";
     notification.Recipients = Arrays.asList(new Recipient());
-    doNothing().when(dispatcher).sendTraps(notification, snmpVersion);
+    doNothing().when(dispatcher).sendTraps(any(Snmp.class), eq(notification), eq(snmpVersion));
     dispatcher.dispatch(notification);
     verify(notification.Callback, never()).onFailure(notification.CallbackIds);
     verify(notification.Callback).onSuccess(notification.CallbackIds);
@@ -319,7 +319,7 @@ public class SNMPDispatcherTest {
     rec1.Identifier = "192.168.0.2";
     notification.Recipients = Arrays.asList(rec1);
     doReturn(trap).when(dispatcher).prepareTrap(notification, snmpVersion);
-    dispatcher.sendTraps(notification, snmpVersion);
+    dispatcher.sendTraps(snmp, notification, snmpVersion);
     ArgumentCaptor<Target> argument = ArgumentCaptor.forClass(Target.class);
     verify(snmp, times(1)).send(eq(trap), argument.capture());
     assertEquals("192.168.0.2/162", argument.getValue().getAddress().toString());
@@ -341,7 +341,7 @@ public class SNMPDispatcherTest {
     rec1.Identifier = "192.168.0.2";
     notification.Recipients = Arrays.asList(rec1);
     doReturn(trap).when(dispatcher).prepareTrap(notification, snmpVersion);
-    dispatcher.sendTraps(notification, snmpVersion);
+    dispatcher.sendTraps(snmp, notification, snmpVersion);
     ArgumentCaptor<Target> argument = ArgumentCaptor.forClass(Target.class);
     verify(snmp, times(1)).send(eq(trap), argument.capture());
     assertEquals("192.168.0.2/162", argument.getValue().getAddress().toString());
@@ -368,7 +368,7 @@ public class SNMPDispatcherTest {
     rec1.Identifier = "192.168.0.2";
     notification.Recipients = Arrays.asList(rec1);
     doReturn(trap).when(dispatcher).prepareTrap(notification, snmpVersion);
-    dispatcher.sendTraps(notification, snmpVersion);
+    dispatcher.sendTraps(snmp, notification, snmpVersion);
     ArgumentCaptor<Target> argument = ArgumentCaptor.forClass(Target.class);
     verify(snmp, times(1)).send(eq(trap), argument.capture());
     assertEquals("192.168.0.2/162", argument.getValue().getAddress().toString());
@@ -395,7 +395,7 @@ public class SNMPDispatcherTest {
     rec1.Identifier = "192.168.0.2";
     notification.Recipients = Arrays.asList(rec1);
     doReturn(trap).when(dispatcher).prepareTrap(notification, snmpVersion);
-    dispatcher.sendTraps(notification, snmpVersion);
+    dispatcher.sendTraps(snmp, notification, snmpVersion);
   }
 
   @Test
@@ -152,4 +152,18 @@ public class AmbariJpaLocalTxnInterceptorTest extends EasyMockSupport {
     verifyAll();
   }
 
+  @Test
+  public void runsAfterCommitRightAwayWithoutTransaction() {
+    final boolean[] ran = new boolean[1];
+
+    AmbariJpaLocalTxnInterceptor.runAfterCommit(new Runnable() {
+      @Override
+      public void run() {
+        ran[0] = true;
+      }
+    });
+
+    Assert.assertTrue("Should run right away, since there is no transaction", ran[0]);
+  }
+
 }
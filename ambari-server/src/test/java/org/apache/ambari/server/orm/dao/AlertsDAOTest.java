@@ -23,6 +23,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -36,6 +37,7 @@ import java.util.UUID;
 import javax.persistence.EntityManager;
 
 import org.apache.ambari.server.H2DatabaseCleaner;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.AlertCurrentRequest;
 import org.apache.ambari.server.controller.AlertHistoryRequest;
 import org.apache.ambari.server.controller.internal.AlertHistoryResourceProvider;
@@ -73,7 +75,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.google.inject.Guice;
+import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.persist.Transactional;
 import com.google.inject.persist.UnitOfWork;
 
 /**
@@ -964,6 +968,141 @@ public class AlertsDAOTest {
     assertEquals(0, summary.getUnknownCount());
   }
 
+  /**
+   * Tests that the summary counts maintained by the index of current alerts
+   * match those aggregated by the database as alerts change state, enter
+   * maintenance mode and are removed.
+   */
+  @Test
+  public void testFindCurrentSummaryFromIndex() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(Configuration.ALERTS_CURRENT_INDEX_ENABLED.getKey(), "true");
+
+    AlertSummaryDTO summary = m_dao.findCurrentCounts(m_cluster.getClusterId(), null, null);
+    assertEquals(5, summary.getOkCount());
+    assertSummaryMatchesDatabase(configuration);
+
+    List<AlertCurrentEntity> currents = m_dao.findCurrentByCluster(m_cluster.getClusterId());
+
+    // change state through the history and through a new history entry
+    AlertHistoryEntity h1 = currents.get(0).getAlertHistory();
+    h1.setAlertState(AlertState.WARNING);
+    m_dao.merge(h1);
+
+    AlertCurrentEntity current = currents.get(1);
+    AlertHistoryEntity h2 = new AlertHistoryEntity();
+    h2.setAlertDefinition(current.getAlertHistory().getAlertDefinition());
+    h2.setAlertLabel("");
+    h2.setAlertState(AlertState.CRITICAL);
+    h2.setAlertText("");
+    h2.setAlertTimestamp(Long.valueOf(1L));
+    h2.setClusterId(m_cluster.getClusterId());
+    h2.setComponentName(current.getAlertHistory().getComponentName());
+    h2.setHostName(current.getAlertHistory().getHostName());
+    h2.setServiceName(current.getAlertHistory().getServiceName());
+    m_dao.create(h2);
+    current.setAlertHistory(h2);
+    m_dao.merge(current);
+
+    // put one into maintenance mode
+    current = currents.get(2);
+    current.setMaintenanceState(MaintenanceState.ON);
+    m_dao.merge(current);
+
+    summary = m_dao.findCurrentCounts(m_cluster.getClusterId(), null, null);
+    assertEquals(2, summary.getOkCount());
+    assertEquals(1, summary.getWarningCount());
+    assertEquals(1, summary.getCriticalCount());
+    assertEquals(0, summary.getUnknownCount());
+    assertEquals(1, summary.getMaintenanceCount());
+    assertSummaryMatchesDatabase(configuration);
+
+    // remove a single one and then everything for the host
+    m_dao.removeCurrentByServiceComponentHost(m_cluster.getClusterId(), "YARN",
+        currents.get(3).getAlertHistory().getComponentName(), "h1");
+    assertEquals(1, m_dao.findCurrentCounts(m_cluster.getClusterId(), null, null).getOkCount());
+    assertSummaryMatchesDatabase(configuration);
+
+    m_dao.removeCurrentByHost("h1");
+    assertTrue(m_dao.findCurrentPerHostCounts(m_cluster.getClusterId()).isEmpty());
+    assertSummaryMatchesDatabase(configuration);
+  }
+
+  /**
+   * Tests that changes which are rolled back are not applied to the index of
+   * current alerts.
+   */
+  @Test
+  public void testCurrentAlertIndexIgnoresRollback() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(Configuration.ALERTS_CURRENT_INDEX_ENABLED.getKey(), "true");
+
+    AlertSummaryDTO summary = m_dao.findCurrentCounts(m_cluster.getClusterId(), null, null);
+    assertEquals(5, summary.getOkCount());
+
+    List<AlertCurrentEntity> currents = m_dao.findCurrentByCluster(m_cluster.getClusterId());
+    AlertHistoryEntity history = currents.get(0).getAlertHistory();
+    history.setAlertState(AlertState.CRITICAL);
+
+    try {
+      m_injector.getInstance(RollbackHelper.class).mergeAndRollback(history);
+      fail("The transaction should have been rolled back");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+
+    summary = m_dao.findCurrentCounts(m_cluster.getClusterId(), null, null);
+    assertEquals(5, summary.getOkCount());
+    assertEquals(0, summary.getCriticalCount());
+    assertSummaryMatchesDatabase(configuration);
+  }
+
+  /**
+   * Asserts that the summaries served by the index of current alerts equal
+   * those queried from the database.
+   */
+  private void assertSummaryMatchesDatabase(Configuration configuration) {
+    long clusterId = m_cluster.getClusterId();
+    List<AlertSummaryDTO> indexed = new ArrayList<>();
+    List<AlertSummaryDTO> queried = new ArrayList<>();
+
+    for (boolean indexEnabled : new boolean[] { true, false }) {
+      configuration.setProperty(Configuration.ALERTS_CURRENT_INDEX_ENABLED.getKey(),
+          Boolean.toString(indexEnabled));
+
+      List<AlertSummaryDTO> summaries = indexEnabled ? indexed : queried;
+      summaries.add(m_dao.findCurrentCounts(clusterId, null, null));
+      summaries.add(m_dao.findCurrentCounts(clusterId, "YARN", null));
+      summaries.add(m_dao.findCurrentCounts(clusterId, null, "h1"));
+      summaries.add(m_dao.findAggregateCounts(clusterId, "Alert Definition 0"));
+      summaries.add(m_dao.findAggregateCounts(clusterId, "Alert Definition 4"));
+
+      Map<String, AlertSummaryDTO> perHost = m_dao.findCurrentPerHostCounts(clusterId);
+      summaries.add(perHost.containsKey("h1") ? perHost.get("h1") : null);
+
+      AlertHostSummaryDTO hostSummary = m_dao.findCurrentHostCounts(clusterId);
+      summaries.add(new AlertSummaryDTO(hostSummary.getOkCount(), hostSummary.getWarningCount(),
+          hostSummary.getCriticalCount(), hostSummary.getUnknownCount(), 0));
+    }
+
+    configuration.setProperty(Configuration.ALERTS_CURRENT_INDEX_ENABLED.getKey(), "true");
+
+    for (int i = 0; i < indexed.size(); i++) {
+      AlertSummaryDTO expected = queried.get(i);
+      AlertSummaryDTO actual = indexed.get(i);
+      if (null == expected) {
+        assertNull(actual);
+        continue;
+      }
+
+      assertEquals(expected.getOkCount(), actual.getOkCount());
+      assertEquals(expected.getWarningCount(), actual.getWarningCount());
+      assertEquals(expected.getCriticalCount(), actual.getCriticalCount());
+      assertEquals(expected.getUnknownCount(), actual.getUnknownCount());
+      assertEquals(expected.getMaintenanceCount(), actual.getMaintenanceCount());
+    }
+  }
+
   /**
    * Tests <a
    * href="https://bugs.eclipse.org/bugs/show_bug.cgi?id=398067">https:/
@@ -1476,4 +1615,19 @@ public class AlertsDAOTest {
     currentAlerts = m_dao.findCurrent();
     assertEquals(4, currentAlerts.size());
   }
+
+  /**
+   * Merges an alert history entry in a transaction which is then rolled back.
+   */
+  public static class RollbackHelper {
+
+    @Inject
+    private AlertsDAO m_dao;
+
+    @Transactional
+    public void mergeAndRollback(AlertHistoryEntity history) {
+      m_dao.merge(history);
+      throw new IllegalStateException("Rolling back the merge of " + history.getAlertId());
+    }
+  }
 }
@@ -19,7 +19,9 @@ package org.apache.ambari.server.orm.dao;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.EntityManager;
@@ -43,7 +45,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.google.inject.Guice;
+import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.persist.Transactional;
 
 import junit.framework.Assert;
 
@@ -167,6 +171,124 @@ public class HostRoleCommandDAOTest {
     }
   }
 
+  /**
+   * Tests that the aggregate counts of a request follow the status changes of
+   * its tasks.
+   */
+  @Test
+  public void testAggregateCountsFollowMerges() {
+    OrmTestHelper helper = m_injector.getInstance(OrmTestHelper.class);
+    helper.createDefaultData();
+
+    Long requestId = Long.valueOf(100L);
+    ClusterEntity clusterEntity = m_clusterDAO.findByName("test_cluster1");
+
+    RequestEntity requestEntity = new RequestEntity();
+    requestEntity.setRequestId(requestId);
+    requestEntity.setClusterId(clusterEntity.getClusterId());
+    requestEntity.setStages(new ArrayList<StageEntity>());
+    m_requestDAO.create(requestEntity);
+
+    HostEntity host = m_hostDAO.findByName("test_host1");
+    host.setHostRoleCommandEntities(new ArrayList<HostRoleCommandEntity>());
+
+    createStage(1L, 2, host, requestEntity, HostRoleStatus.QUEUED);
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> counts = m_hostRoleCommandDAO.findAggregateCounts(requestId);
+    Assert.assertEquals(2, counts.get(1L).getCounts().get(HostRoleStatus.QUEUED).intValue());
+
+    List<HostRoleCommandEntity> tasks = m_hostRoleCommandDAO.findByRequest(requestId);
+    tasks.get(0).setStatus(HostRoleStatus.COMPLETED);
+    tasks.get(0).setEndTime(1000L);
+    m_hostRoleCommandDAO.mergeAll(tasks);
+
+    counts = m_hostRoleCommandDAO.findAggregateCounts(requestId);
+    Assert.assertEquals(1, counts.get(1L).getCounts().get(HostRoleStatus.QUEUED).intValue());
+    Assert.assertEquals(1, counts.get(1L).getCounts().get(HostRoleStatus.COMPLETED).intValue());
+    Assert.assertEquals(Long.valueOf(1000L), counts.get(1L).getEndTime());
+  }
+
+  /**
+   * Tests that the counts of completed stages are aggregated by the database
+   * and that a task of such a stage which is reopened is counted again.
+   */
+  @Test
+  public void testAggregateCountsOfCompletedStages() {
+    OrmTestHelper helper = m_injector.getInstance(OrmTestHelper.class);
+    helper.createDefaultData();
+
+    Long requestId = Long.valueOf(100L);
+    ClusterEntity clusterEntity = m_clusterDAO.findByName("test_cluster1");
+
+    RequestEntity requestEntity = new RequestEntity();
+    requestEntity.setRequestId(requestId);
+    requestEntity.setClusterId(clusterEntity.getClusterId());
+    requestEntity.setStages(new ArrayList<StageEntity>());
+    m_requestDAO.create(requestEntity);
+
+    HostEntity host = m_hostDAO.findByName("test_host1");
+    host.setHostRoleCommandEntities(new ArrayList<HostRoleCommandEntity>());
+
+    createStage(1L, 2, host, requestEntity, HostRoleStatus.COMPLETED);
+    createStage(2L, 1, host, requestEntity, HostRoleStatus.QUEUED);
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> counts = m_hostRoleCommandDAO.findAggregateCounts(requestId);
+    Assert.assertEquals(2, counts.get(1L).getCounts().get(HostRoleStatus.COMPLETED).intValue());
+    Assert.assertEquals(1, counts.get(2L).getCounts().get(HostRoleStatus.QUEUED).intValue());
+
+    // only the tasks of the first stage are completed
+    HostRoleCommandEntity task = m_hostRoleCommandDAO.findByRequestIdAndStatuses(requestId,
+        Collections.singletonList(HostRoleStatus.COMPLETED)).get(0);
+    task.setStatus(HostRoleStatus.PENDING);
+    m_hostRoleCommandDAO.merge(task);
+
+    counts = m_hostRoleCommandDAO.findAggregateCounts(requestId);
+    Assert.assertEquals(1, counts.get(1L).getCounts().get(HostRoleStatus.COMPLETED).intValue());
+    Assert.assertEquals(1, counts.get(1L).getCounts().get(HostRoleStatus.PENDING).intValue());
+    Assert.assertEquals(1, counts.get(2L).getCounts().get(HostRoleStatus.QUEUED).intValue());
+  }
+
+  /**
+   * Tests that a status change which is rolled back is not applied to the
+   * aggregate counts of the request.
+   */
+  @Test
+  public void testAggregateCountsIgnoreRollback() {
+    OrmTestHelper helper = m_injector.getInstance(OrmTestHelper.class);
+    helper.createDefaultData();
+
+    Long requestId = Long.valueOf(100L);
+    ClusterEntity clusterEntity = m_clusterDAO.findByName("test_cluster1");
+
+    RequestEntity requestEntity = new RequestEntity();
+    requestEntity.setRequestId(requestId);
+    requestEntity.setClusterId(clusterEntity.getClusterId());
+    requestEntity.setStages(new ArrayList<StageEntity>());
+    m_requestDAO.create(requestEntity);
+
+    HostEntity host = m_hostDAO.findByName("test_host1");
+    host.setHostRoleCommandEntities(new ArrayList<HostRoleCommandEntity>());
+
+    createStage(1L, 2, host, requestEntity, HostRoleStatus.QUEUED);
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> counts = m_hostRoleCommandDAO.findAggregateCounts(requestId);
+    Assert.assertEquals(2, counts.get(1L).getCounts().get(HostRoleStatus.QUEUED).intValue());
+
+    HostRoleCommandEntity task = m_hostRoleCommandDAO.findByRequest(requestId).get(0);
+    task.setStatus(HostRoleStatus.COMPLETED);
+
+    try {
+      m_injector.getInstance(RollbackHelper.class).mergeAndRollback(task);
+      Assert.fail("The transaction should have been rolled back");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+
+    counts = m_hostRoleCommandDAO.findAggregateCounts(requestId);
+    Assert.assertEquals(2, counts.get(1L).getCounts().get(HostRoleStatus.QUEUED).intValue());
+    Assert.assertEquals(0, counts.get(1L).getCounts().get(HostRoleStatus.COMPLETED).intValue());
+  }
+
   /**
    * Creates a single stage with the specified number of commands.
    *
@@ -235,4 +357,19 @@ public class HostRoleCommandDAOTest {
       m_stageDAO.merge(stageEntity);
     }
   }
+
+  /**
+   * Merges a task in a transaction which is then rolled back.
+   */
+  public static class RollbackHelper {
+
+    @Inject
+    private HostRoleCommandDAO m_hostRoleCommandDAO;
+
+    @Transactional
+    public void mergeAndRollback(HostRoleCommandEntity task) {
+      m_hostRoleCommandDAO.merge(task);
+      throw new IllegalStateException("Rolling back the merge of " + task.getTaskId());
+    }
+  }
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.orm.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ambari.server.actionmanager.HostRoleStatus;
+import org.junit.Test;
+
+/**
+ * Tests {@link HostRoleCommandStatusRollup}.
+ */
+public class HostRoleCommandStatusRollupTest {
+
+  @Test
+  public void testCreate() {
+    List<Object[]> rows = new ArrayList<>();
+    rows.add(row(1L, 1L, HostRoleStatus.COMPLETED, 100L, 200L, 0));
+    rows.add(row(2L, 1L, HostRoleStatus.COMPLETED, 150L, 250L, 0));
+    rows.add(row(3L, 2L, HostRoleStatus.IN_PROGRESS, 300L, -1L, 1));
+    rows.add(row(4L, 2L, HostRoleStatus.PENDING, -1L, -1L, 1));
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> summaries =
+        HostRoleCommandStatusRollup.create(rows).getSummaries();
+
+    assertEquals(2, summaries.size());
+
+    HostRoleCommandStatusSummaryDTO stage1 = summaries.get(1L);
+    assertEquals(2, stage1.getTaskTotal());
+    assertEquals(Integer.valueOf(2), stage1.getCounts().get(HostRoleStatus.COMPLETED));
+    assertEquals(Long.valueOf(100L), stage1.getStartTime());
+    assertEquals(Long.valueOf(250L), stage1.getEndTime());
+    assertFalse(stage1.isStageSkippable());
+
+    HostRoleCommandStatusSummaryDTO stage2 = summaries.get(2L);
+    assertEquals(2, stage2.getTaskTotal());
+    assertEquals(Integer.valueOf(1), stage2.getCounts().get(HostRoleStatus.IN_PROGRESS));
+    assertEquals(Integer.valueOf(1), stage2.getCounts().get(HostRoleStatus.PENDING));
+    assertEquals(Long.valueOf(-1L), stage2.getStartTime());
+    assertTrue(stage2.isStageSkippable());
+  }
+
+  @Test
+  public void testUpdate() {
+    List<Object[]> rows = new ArrayList<>();
+    rows.add(row(1L, 1L, HostRoleStatus.COMPLETED, 100L, 200L, 0));
+    rows.add(row(2L, 2L, HostRoleStatus.QUEUED, -1L, -1L, 0));
+    rows.add(row(3L, 2L, HostRoleStatus.QUEUED, -1L, -1L, 0));
+
+    HostRoleCommandStatusRollup rollup = HostRoleCommandStatusRollup.create(rows);
+    Map<Long, HostRoleCommandStatusSummaryDTO> summaries = rollup.getSummaries();
+
+    // reporting the same state again doesn't rebuild the summaries
+    assertTrue(rollup.update(2L, HostRoleStatus.QUEUED, -1L, -1L));
+    assertSame(summaries, rollup.getSummaries());
+
+    assertTrue(rollup.update(2L, HostRoleStatus.IN_PROGRESS, 300L, -1L));
+    assertTrue(rollup.update(3L, HostRoleStatus.COMPLETED, 310L, 400L));
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> updated = rollup.getSummaries();
+    assertNotSame(summaries, updated);
+    assertSame(summaries.get(1L), updated.get(1L));
+
+    HostRoleCommandStatusSummaryDTO stage2 = updated.get(2L);
+    assertEquals(Integer.valueOf(0), stage2.getCounts().get(HostRoleStatus.QUEUED));
+    assertEquals(Integer.valueOf(1), stage2.getCounts().get(HostRoleStatus.IN_PROGRESS));
+    assertEquals(Integer.valueOf(1), stage2.getCounts().get(HostRoleStatus.COMPLETED));
+    assertEquals(Long.valueOf(300L), stage2.getStartTime());
+    assertEquals(Long.valueOf(400L), stage2.getEndTime());
+
+    // an unknown task requires the rollup to be recomputed
+    assertFalse(rollup.update(4L, HostRoleStatus.IN_PROGRESS, 300L, -1L));
+  }
+
+  @Test
+  public void testUpdateAfterCompletion() {
+    List<Object[]> rows = new ArrayList<>();
+    rows.add(row(1L, 1L, HostRoleStatus.IN_PROGRESS, 100L, -1L, 0));
+
+    HostRoleCommandStatusRollup rollup = HostRoleCommandStatusRollup.create(rows);
+    assertTrue(rollup.update(1L, HostRoleStatus.FAILED, 100L, 200L));
+
+    HostRoleCommandStatusSummaryDTO stage1 = rollup.getSummaries().get(1L);
+    assertEquals(Integer.valueOf(1), stage1.getCounts().get(HostRoleStatus.FAILED));
+    assertEquals(Long.valueOf(200L), stage1.getEndTime());
+
+    // once every task has completed, a task which is reopened can't be tracked
+    assertFalse(rollup.update(1L, HostRoleStatus.PENDING, 100L, 200L));
+    assertSame(stage1, rollup.getSummaries().get(1L));
+  }
+
+  @Test
+  public void testCreateFromSummaries() {
+    HostRoleCommandStatusSummaryDTO completed = new HostRoleCommandStatusSummaryDTO(0, 100L, 250L, 1L,
+        0, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+    HostRoleCommandStatusSummaryDTO open = new HostRoleCommandStatusSummaryDTO(0, -1L, -1L, 2L,
+        0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0);
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> summaries = new HashMap<>();
+    summaries.put(1L, completed);
+    summaries.put(2L, open);
+
+    assertFalse(HostRoleCommandStatusRollup.hasOpenTasks(completed));
+    assertTrue(HostRoleCommandStatusRollup.hasOpenTasks(open));
+
+    // only the tasks of the open stage are loaded
+    List<Object[]> rows = new ArrayList<>();
+    rows.add(row(3L, 2L, HostRoleStatus.QUEUED, -1L, -1L, 0));
+
+    HostRoleCommandStatusRollup rollup = HostRoleCommandStatusRollup.create(summaries, rows);
+    assertSame(completed, rollup.getSummaries().get(1L));
+
+    assertTrue(rollup.update(3L, HostRoleStatus.IN_PROGRESS, 300L, -1L));
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> updated = rollup.getSummaries();
+    assertSame(completed, updated.get(1L));
+    assertEquals(Integer.valueOf(1), updated.get(2L).getCounts().get(HostRoleStatus.IN_PROGRESS));
+
+    // a task of a completed stage is not tracked
+    assertFalse(rollup.update(1L, HostRoleStatus.PENDING, 100L, 200L));
+  }
+
+  private Object[] row(long taskId, long stageId, HostRoleStatus status, long startTime,
+      long endTime, int skippable) {
+    return new Object[] { taskId, stageId, status, startTime, endTime, skippable };
+  }
+}
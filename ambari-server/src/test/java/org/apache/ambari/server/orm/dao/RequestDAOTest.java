@@ -31,6 +31,8 @@ import org.apache.ambari.server.Role;
 import org.apache.ambari.server.RoleCommand;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.cleanup.TimeBasedCleanupPolicy;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.internal.CalculatedStatus;
 import org.apache.ambari.server.orm.GuiceJpaInitializer;
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
@@ -155,6 +157,33 @@ public class RequestDAOTest {
     Assert.assertEquals(calc3.getStatus(), calc4.getStatus());
   }
 
+  @Test
+  public void testCleanupInChunks() throws Exception {
+    createGraph();
+
+    ClusterEntity clusterEntity = clusterDAO.findByName("test_cluster1");
+    RequestEntity requestEntity = new RequestEntity();
+    requestEntity.setRequestId(101L);
+    requestEntity.setClusterId(clusterEntity.getClusterId());
+    requestEntity.setStages(new ArrayList<StageEntity>());
+    requestDAO.create(requestEntity);
+    createStages(1L, 2, hostDAO.findByName("test_host1"), requestEntity, HostRoleStatus.COMPLETED, false);
+    requestDAO.merge(requestEntity);
+
+    // purge a single request per transaction
+    injector.getInstance(Configuration.class).setProperty(
+        Configuration.SERVER_CLEANUP_REQUEST_CHUNK_SIZE.getKey(), "1");
+
+    long affectedRows = requestDAO.cleanup(
+        new TimeBasedCleanupPolicy("test_cluster1", System.currentTimeMillis() + 1000));
+
+    // 10 tasks, 10 stages and 2 requests
+    Assert.assertEquals(22L, affectedRows);
+    Assert.assertEquals(0, requestDAO.findAll().size());
+    Assert.assertEquals(0, stageDAO.findAll().size());
+    Assert.assertEquals(0, hostRoleCommandDAO.findAll().size());
+  }
+
   private void createGraph() {
     OrmTestHelper helper = injector.getInstance(OrmTestHelper.class);
     helper.createDefaultData();
@@ -44,6 +44,7 @@ import org.apache.ambari.server.orm.entities.PrincipalTypeEntity;
 import org.apache.ambari.server.orm.entities.ResourceEntity;
 import org.apache.ambari.server.orm.entities.ResourceTypeEntity;
 import org.apache.ambari.server.orm.entities.UserEntity;
+import org.apache.ambari.server.security.ldap.LdapBatchDto;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -406,6 +407,33 @@ public class TestUsers {
     }
   }
 
+  @Test
+  public void testProcessLdapSyncRemovesOnlyLdapUsers() throws Exception {
+    users.createUser("user", "user", UserType.LOCAL, true, false);
+    users.createUser("local_only", "local_only", UserType.LOCAL, true, false);
+
+    // an LDAP user with the same name as the local user
+    PrincipalEntity principalEntity = new PrincipalEntity();
+    principalEntity.setPrincipalType(principalTypeDAO.findById(PrincipalTypeEntity.USER_PRINCIPAL_TYPE));
+    principalDAO.create(principalEntity);
+
+    UserEntity ldapUserEntity = new UserEntity();
+    ldapUserEntity.setUserName(UserName.fromString("user"));
+    ldapUserEntity.setPrincipal(principalEntity);
+    ldapUserEntity.setUserType(UserType.LDAP);
+    ldapUserEntity.setLdapUser(true);
+    userDAO.create(ldapUserEntity);
+
+    LdapBatchDto batchInfo = new LdapBatchDto();
+    batchInfo.getUsersToBeRemoved().add("user");
+    batchInfo.getUsersToBeRemoved().add("local_only");
+    users.processLdapSync(batchInfo);
+
+    assertNull(users.getUser("user", UserType.LDAP));
+    assertNotNull(users.getUser("user", UserType.LOCAL));
+    assertNotNull(users.getUser("local_only", UserType.LOCAL));
+  }
+
   @Test
   @Ignore // TODO @Transactional annotation breaks this test
   public void testCreateUserDefaultParams() throws Exception {
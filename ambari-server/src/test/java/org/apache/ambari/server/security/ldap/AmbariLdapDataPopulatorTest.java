@@ -631,6 +631,106 @@ public class AmbariLdapDataPopulatorTest {
     populator.synchronizeLdapGroups(createSet("x*", "group1", "group2"), batchInfo);
   }
 
+  @Test
+  public void testSynchronizeAllLdapGroups_memberLookedUpOnce() throws Exception {
+    Configuration configuration = createNiceMock(Configuration.class);
+    Users users = createNiceMock(Users.class);
+    LdapTemplate ldapTemplate = createNiceMock(LdapTemplate.class);
+    LdapServerProperties ldapServerProperties = createNiceMock(LdapServerProperties.class);
+    expect(users.getAllGroups()).andReturn(Collections.<Group>emptyList());
+    expect(users.getAllUsers()).andReturn(Collections.<User>emptyList());
+    replay(ldapTemplate, ldapServerProperties, users, configuration);
+
+    AmbariLdapDataPopulatorTestInstance populator = createMockBuilder(AmbariLdapDataPopulatorTestInstance.class)
+        .addMockedMethod("getExternalLdapGroupInfo")
+        .addMockedMethod("getLdapUserByMemberAttr")
+        .addMockedMethod("getInternalMembers")
+        .withConstructor(configuration, users)
+        .createNiceMock();
+
+    LdapGroupDto externalGroup1 = createNiceMock(LdapGroupDto.class);
+    LdapGroupDto externalGroup2 = createNiceMock(LdapGroupDto.class);
+    expect(externalGroup1.getGroupName()).andReturn("group1").anyTimes();
+    expect(externalGroup1.getMemberAttributes()).andReturn(createSet("user1", "user2")).anyTimes();
+    expect(externalGroup2.getGroupName()).andReturn("group2").anyTimes();
+    expect(externalGroup2.getMemberAttributes()).andReturn(createSet("user1")).anyTimes();
+    replay(externalGroup1, externalGroup2);
+
+    LdapUserDto externalUser1 = createNiceMock(LdapUserDto.class);
+    LdapUserDto externalUser2 = createNiceMock(LdapUserDto.class);
+    expect(externalUser1.getUserName()).andReturn("user1").anyTimes();
+    expect(externalUser2.getUserName()).andReturn("user2").anyTimes();
+    replay(externalUser1, externalUser2);
+
+    expect(populator.getExternalLdapGroupInfo()).andReturn(createSet(externalGroup1, externalGroup2));
+    // user1 is a member of both groups but only looked up once
+    expect(populator.getLdapUserByMemberAttr("user1")).andReturn(externalUser1).once();
+    expect(populator.getLdapUserByMemberAttr("user2")).andReturn(externalUser2).once();
+    expect(populator.getInternalMembers(anyString())).andReturn(new HashMap<String, User>()).anyTimes();
+    replay(populator);
+
+    populator.setLdapTemplate(ldapTemplate);
+    populator.setLdapServerProperties(ldapServerProperties);
+
+    LdapBatchDto result = populator.synchronizeAllLdapGroups(new LdapBatchDto());
+
+    assertEquals(2, result.getUsersToBeCreated().size());
+    assertEquals(3, result.getMembershipToAdd().size());
+    verify(populator);
+  }
+
+  @Test
+  public void testSynchronizeAllLdapGroups_parallelMemberLookup() throws Exception {
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.getLdapSyncMemberLookupThreads()).andReturn(4).anyTimes();
+    Users users = createNiceMock(Users.class);
+    LdapTemplate ldapTemplate = createNiceMock(LdapTemplate.class);
+    LdapServerProperties ldapServerProperties = createNiceMock(LdapServerProperties.class);
+    expect(users.getAllGroups()).andReturn(Collections.<Group>emptyList());
+    expect(users.getAllUsers()).andReturn(Collections.<User>emptyList());
+    replay(ldapTemplate, ldapServerProperties, users, configuration);
+
+    AmbariLdapDataPopulatorTestInstance populator = createMockBuilder(AmbariLdapDataPopulatorTestInstance.class)
+        .addMockedMethod("getExternalLdapGroupInfo")
+        .addMockedMethod("getLdapUserByMemberAttr")
+        .addMockedMethod("getInternalMembers")
+        .withConstructor(configuration, users)
+        .createNiceMock();
+
+    Set<String> memberAttributes = new HashSet<String>();
+    for (int i = 0; i < 50; i++) {
+      String userName = "user" + i;
+      memberAttributes.add(userName);
+
+      LdapUserDto externalUser = createNiceMock(LdapUserDto.class);
+      expect(externalUser.getUserName()).andReturn(userName).anyTimes();
+      replay(externalUser);
+      expect(populator.getLdapUserByMemberAttr(userName)).andReturn(externalUser).once();
+    }
+    // not a user, must not be added as a member
+    memberAttributes.add("group2");
+    expect(populator.getLdapUserByMemberAttr("group2")).andReturn(null).once();
+
+    LdapGroupDto externalGroup = createNiceMock(LdapGroupDto.class);
+    expect(externalGroup.getGroupName()).andReturn("group1").anyTimes();
+    expect(externalGroup.getMemberAttributes()).andReturn(memberAttributes).anyTimes();
+    replay(externalGroup);
+
+    expect(populator.getExternalLdapGroupInfo()).andReturn(Collections.singleton(externalGroup));
+    expect(populator.getInternalMembers("group1")).andReturn(new HashMap<String, User>());
+    replay(populator);
+
+    populator.setLdapTemplate(ldapTemplate);
+    populator.setLdapServerProperties(ldapServerProperties);
+
+    LdapBatchDto result = populator.synchronizeAllLdapGroups(new LdapBatchDto());
+
+    assertEquals(50, result.getUsersToBeCreated().size());
+    assertEquals(50, result.getMembershipToAdd().size());
+    assertFalse(result.getUsersToBeCreated().contains("group2"));
+    verify(populator);
+  }
+
   @Test
   public void testSynchronizeAllLdapGroups() throws Exception {
 
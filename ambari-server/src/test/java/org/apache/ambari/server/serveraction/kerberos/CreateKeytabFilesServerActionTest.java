@@ -29,9 +29,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.security.credential.PrincipalKeyCredential;
 import org.apache.ambari.server.utils.ShellCommandUtil;
+import org.apache.directory.server.kerberos.shared.keytab.Keytab;
+import org.apache.directory.server.kerberos.shared.keytab.KeytabEntry;
 
 public class CreateKeytabFilesServerActionTest {
 
@@ -93,4 +107,95 @@ public class CreateKeytabFilesServerActionTest {
     Assert.assertFalse(permissions.contains(PosixFilePermission.OTHERS_WRITE));
     Assert.assertFalse(permissions.contains(PosixFilePermission.OTHERS_EXECUTE));
   }
+
+  /**
+   * Tests that the entries of principals sharing a keytab file, such as <code>HTTP/_HOST</code> and
+   * <code>hbase/_HOST</code> in <code>hbase.service.keytab</code>, all survive when the principals
+   * are processed in parallel.
+   */
+  @Test
+  public void testCreateKeytabFileForSharedKeytab() throws Exception {
+    final CreateKeytabFilesServerAction action = new CreateKeytabFilesServerAction();
+    final KerberosOperationHandler handler = new SlowKerberosOperationHandler();
+    final File destinationKeytabFile = new File(testFolder.newFolder(), "hbase.service.keytab");
+
+    final List<String> principals = Arrays.asList("HTTP/host1@EXAMPLE.COM", "hbase/host1@EXAMPLE.COM");
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+
+    ExecutorService executorService = Executors.newFixedThreadPool(principals.size());
+    try {
+      for (final String principal : principals) {
+        futures.add(executorService.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            Keytab keytab = handler.createKeytab(principal, "password", 1);
+            start.await();
+            return action.createKeytabFile(handler, keytab, destinationKeytabFile);
+          }
+        }));
+      }
+
+      start.countDown();
+      for (Future<Boolean> future : futures) {
+        Assert.assertTrue(future.get(30, TimeUnit.SECONDS));
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    Set<String> keytabPrincipals = new HashSet<String>();
+    for (KeytabEntry entry : Keytab.read(destinationKeytabFile).getEntries()) {
+      keytabPrincipals.add(entry.getPrincipalName());
+    }
+
+    Assert.assertEquals(new HashSet<String>(principals), keytabPrincipals);
+  }
+
+  /**
+   * A KerberosOperationHandler which pauses after reading a keytab file, so that concurrent
+   * additions to the same file overlap unless they are serialized.
+   */
+  private static class SlowKerberosOperationHandler extends KerberosOperationHandler {
+
+    @Override
+    protected Keytab readKeytabFile(File file) {
+      Keytab keytab = super.readKeytabFile(file);
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return keytab;
+    }
+
+    @Override
+    public void open(PrincipalKeyCredential administratorCredential, String defaultRealm,
+                     Map<String, String> kerberosConfiguration) throws KerberosOperationException {
+    }
+
+    @Override
+    public void close() throws KerberosOperationException {
+    }
+
+    @Override
+    public boolean principalExists(String principal) throws KerberosOperationException {
+      return false;
+    }
+
+    @Override
+    public Integer createPrincipal(String principal, String password, boolean service) throws KerberosOperationException {
+      return 0;
+    }
+
+    @Override
+    public Integer setPrincipalPassword(String principal, String password) throws KerberosOperationException {
+      return 0;
+    }
+
+    @Override
+    public boolean removePrincipal(String principal) throws KerberosOperationException {
+      return false;
+    }
+  }
 }
\ No newline at end of file
@@ -30,6 +30,7 @@ import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.agent.CommandReport;
 import org.apache.ambari.server.agent.ExecutionCommand;
 import org.apache.ambari.server.audit.AuditLogger;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.KerberosHelper;
 import org.apache.ambari.server.security.credential.PrincipalKeyCredential;
 import org.apache.ambari.server.state.Cluster;
@@ -41,8 +42,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -57,6 +61,9 @@ public class KerberosServerActionTest {
   File temporaryDirectory;
   private Injector injector;
   private KerberosServerAction action;
+  private boolean concurrentProcessing;
+  private final Set<KerberosOperationHandler> usedHandlers =
+      Collections.newSetFromMap(new ConcurrentHashMap<KerberosOperationHandler, Boolean>());
 
   @Before
   public void setUp() throws Exception {
@@ -68,6 +75,10 @@ public class KerberosServerActionTest {
     final ExecutionCommand mockExecutionCommand = mock(ExecutionCommand.class);
     final HostRoleCommand mockHostRoleCommand = mock(HostRoleCommand.class);
 
+    Properties properties = new Properties();
+    properties.setProperty(Configuration.KERBEROS_OPERATION_CONCURRENCY.getKey(), "4");
+    final Configuration configuration = new Configuration(properties);
+
     injector = Guice.createInjector(new AbstractModule() {
 
       @Override
@@ -82,6 +93,7 @@ public class KerberosServerActionTest {
                                                   Map<String, Object> requestSharedDataContext)
               throws AmbariException {
             Assert.assertNotNull(requestSharedDataContext);
+            usedHandlers.add(operationHandler);
 
             if (requestSharedDataContext.get("FAIL") != null) {
               return createCommandReport(1, HostRoleStatus.FAILED, "{}", "ERROR", "ERROR");
@@ -96,8 +108,14 @@ public class KerberosServerActionTest {
               throws AmbariException, InterruptedException {
             return processIdentities(requestSharedDataContext);
           }
+
+          @Override
+          protected boolean isConcurrentProcessingSupported() {
+            return concurrentProcessing;
+          }
         });
 
+        bind(Configuration.class).toInstance(configuration);
         bind(Clusters.class).toInstance(clusters);
         bind(OsFamily.class).toInstance(createNiceMock(OsFamily.class));
         bind(AuditLogger.class).toInstance(createNiceMock(AuditLogger.class));
@@ -224,4 +242,55 @@ public class KerberosServerActionTest {
 
     verify(kerberosHelper);
   }
+
+  @Test
+  public void testProcessIdentitiesConcurrentSuccess() throws Exception {
+    KerberosHelper kerberosHelper = injector.getInstance(KerberosHelper.class);
+    expect(kerberosHelper.getKDCAdministratorCredentials(EasyMock.anyObject(String.class)))
+        .andReturn(new PrincipalKeyCredential("principal", "password"))
+        .anyTimes();
+
+    replay(kerberosHelper);
+
+    concurrentProcessing = true;
+
+    ConcurrentMap<String, Object> sharedMap = new ConcurrentHashMap<String, Object>();
+    CommandReport report = action.processIdentities(sharedMap);
+    Assert.assertNotNull(report);
+    Assert.assertEquals(HostRoleStatus.COMPLETED.toString(), report.getStatus());
+
+    // every identity is processed, using no more than the configured number of KDC sessions
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals("principal|hostName|REALM.COM" + i, sharedMap.get("principal|_HOST|_REALM" + i));
+    }
+    Assert.assertFalse(usedHandlers.isEmpty());
+    Assert.assertTrue(usedHandlers.size() <= 4);
+
+    // the shared principal maps can be updated concurrently
+    Assert.assertTrue(KerberosServerAction.getPrincipalPasswordMap(sharedMap) instanceof ConcurrentMap);
+    Assert.assertTrue(KerberosServerAction.getPrincipalKeyNumberMap(sharedMap) instanceof ConcurrentMap);
+
+    verify(kerberosHelper);
+  }
+
+  @Test
+  public void testProcessIdentitiesConcurrentFail() throws Exception {
+    KerberosHelper kerberosHelper = injector.getInstance(KerberosHelper.class);
+    expect(kerberosHelper.getKDCAdministratorCredentials(EasyMock.anyObject(String.class)))
+        .andReturn(new PrincipalKeyCredential("principal", "password"))
+        .anyTimes();
+
+    replay(kerberosHelper);
+
+    concurrentProcessing = true;
+
+    ConcurrentMap<String, Object> sharedMap = new ConcurrentHashMap<String, Object>();
+    sharedMap.put("FAIL", "true");
+
+    CommandReport report = action.processIdentities(sharedMap);
+    Assert.assertNotNull(report);
+    Assert.assertEquals(HostRoleStatus.FAILED.toString(), report.getStatus());
+
+    verify(kerberosHelper);
+  }
 }
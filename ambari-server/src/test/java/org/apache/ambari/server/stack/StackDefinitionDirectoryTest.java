@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.stack;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.junit.Test;
+
+/**
+ * Tests {@link StackDefinitionDirectory#parseServiceFolders(File[], String)}.
+ */
+public class StackDefinitionDirectoryTest {
+
+  @Test
+  public void testParseServiceFoldersInForkJoinPool() throws Exception {
+    String stacks = ClassLoader.getSystemClassLoader().getResource("stacks").getPath();
+    final File[] serviceFolders = new File(stacks, "HDP/2.0.6/services").listFiles(AmbariMetaInfo.FILENAME_FILTER);
+
+    Set<String> sequential = getNames(StackDefinitionDirectory.parseServiceFolders(serviceFolders, "stack"));
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Set<String> parallel = getNames(pool.submit(new Callable<Collection<ServiceDirectory>>() {
+        @Override
+        public Collection<ServiceDirectory> call() throws Exception {
+          return StackDefinitionDirectory.parseServiceFolders(serviceFolders, "stack");
+        }
+      }).get());
+
+      assertEquals(serviceFolders.length, sequential.size());
+      assertEquals(sequential, parallel);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private Set<String> getNames(Collection<ServiceDirectory> serviceDirectories) {
+    Set<String> names = new TreeSet<String>();
+    for (ServiceDirectory serviceDirectory : serviceDirectories) {
+      names.add(serviceDirectory.getName());
+    }
+    return names;
+  }
+}
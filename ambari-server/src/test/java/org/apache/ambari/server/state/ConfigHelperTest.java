@@ -48,6 +48,7 @@ import org.apache.ambari.server.controller.spi.ClusterController;
 import org.apache.ambari.server.orm.DBAccessor;
 import org.apache.ambari.server.orm.GuiceJpaInitializer;
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
+import org.apache.ambari.server.orm.OrmTestHelper;
 import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
 import org.apache.ambari.server.security.SecurityHelper;
 import org.apache.ambari.server.security.TestAuthenticationFactory;
@@ -908,28 +909,22 @@ public class ConfigHelperTest {
     @Test
     public void testCalculateIsStaleConfigs() throws Exception {
 
-      Map<String, HostConfig> schReturn = new HashMap<>();
-      HostConfig hc = new HostConfig();
+      ServiceComponentHost sch = addFlumeHandler("h1");
+
+      Map<String, Map<String, String>> schReturn = new HashMap<>();
+      Map<String, String> hc = new HashMap<>();
       // Put a different version to check for change
-      hc.setDefaultVersionTag("version2");
+      hc.put(ConfigHelper.CLUSTER_DEFAULT_TAG, "version2");
       schReturn.put("flume-conf", hc);
+      sch.updateActualConfigs(schReturn);
 
-      // set up mocks
-      ServiceComponentHost sch = createNiceMock(ServiceComponentHost.class);
-      // set up expectations
-      expect(sch.getActualConfigs()).andReturn(schReturn).times(6);
-      expect(sch.getHostName()).andReturn("h1").anyTimes();
-      expect(sch.getClusterId()).andReturn(cluster.getClusterId()).anyTimes();
-      expect(sch.getServiceName()).andReturn("FLUME").anyTimes();
-      expect(sch.getServiceComponentName()).andReturn("FLUME_HANDLER").anyTimes();
-      replay(sch);
       // Cluster level config changes
       Assert.assertTrue(configHelper.isStaleConfigs(sch, null));
 
-      HostConfig hc2 = new HostConfig();
-      hc2.setDefaultVersionTag("version1");
+      Map<String, String> hc2 = new HashMap<>();
+      hc2.put(ConfigHelper.CLUSTER_DEFAULT_TAG, "version1");
       schReturn.put("flume-conf", hc2);
-      // invalidate cache to test new sch
+      sch.updateActualConfigs(schReturn);
       // Cluster level same configs
       Assert.assertFalse(configHelper.isStaleConfigs(sch, null));
 
@@ -942,36 +937,90 @@ public class ConfigHelperTest {
           new HashMap<String,String>(), null);
 
       configs.add(configImpl);
-      addConfigGroup("configGroup1", "FLUME", hosts, configs);
+      Long groupId = addConfigGroup("configGroup1", "FLUME", hosts, configs);
 
       // config group added for host - expect staleness
       Assert.assertTrue(configHelper.isStaleConfigs(sch, null));
 
-      HostConfig hc3 = new HostConfig();
-      hc3.setDefaultVersionTag("version1");
-      hc3.getConfigGroupOverrides().put(1l, "FLUME1");
+      Map<String, String> hc3 = new HashMap<>();
+      hc3.put(ConfigHelper.CLUSTER_DEFAULT_TAG, "version1");
+      hc3.put(groupId.toString(), "FLUME1");
       schReturn.put("flume-conf", hc3);
+      sch.updateActualConfigs(schReturn);
 
       // version1 and FLUME1 - stale=false
       Assert.assertFalse(configHelper.isStaleConfigs(sch, null));
 
-      HostConfig hc4 = new HostConfig();
-      hc4.setDefaultVersionTag("version1");
-      hc4.getConfigGroupOverrides().put(1l, "FLUME2");
+      Map<String, String> hc4 = new HashMap<>();
+      hc4.put(ConfigHelper.CLUSTER_DEFAULT_TAG, "version1");
+      hc4.put(groupId.toString(), "FLUME2");
       schReturn.put("flume-conf", hc4);
+      sch.updateActualConfigs(schReturn);
 
       // version1 and FLUME2 - stale=true
       Assert.assertTrue(configHelper.isStaleConfigs(sch, null));
 
-      HostConfig hc5 = new HostConfig();
-      hc5.setDefaultVersionTag("version3");
-      hc5.getConfigGroupOverrides().put(1l, "FLUME1");
+      Map<String, String> hc5 = new HashMap<>();
+      hc5.put(ConfigHelper.CLUSTER_DEFAULT_TAG, "version3");
+      hc5.put(groupId.toString(), "FLUME1");
       schReturn.put("flume-conf", hc5);
+      sch.updateActualConfigs(schReturn);
 
       // version3 and FLUME1 - stale=true
       Assert.assertTrue(configHelper.isStaleConfigs(sch, null));
+    }
+
+    @Test
+    public void testStaleConfigsIndex() throws Exception {
+
+      ServiceComponentHost sch = addFlumeHandler("h1");
+
+      Map<String, Map<String, String>> actualConfigs = new HashMap<>();
+      actualConfigs.put("flume-conf", new HashMap<String, String>() {{
+        put(ConfigHelper.CLUSTER_DEFAULT_TAG, "version1");
+      }});
+      sch.updateActualConfigs(actualConfigs);
+
+      // desired configs captured before a config change can't be cached
+      long generation = configHelper.getStaleConfigsGeneration(cluster.getClusterId());
+      Map<String, DesiredConfig> desiredConfigs = cluster.getDesiredConfigs();
+
+      applyConfig(new HashMap<String, String>(), "flume-conf", "version2");
+      Assert.assertTrue(generation != configHelper.getStaleConfigsGeneration(cluster.getClusterId()));
+
+      Assert.assertFalse(configHelper.isStaleConfigs(sch, desiredConfigs, generation));
+      Assert.assertTrue(configHelper.isStaleConfigs(sch, null));
+
+      // reporting the same tags again keeps the flag
+      sch.updateActualConfigs(actualConfigs);
+      Assert.assertTrue(configHelper.isStaleConfigs(sch, null));
+
+      // reporting the new tag clears it
+      actualConfigs.get("flume-conf").put(ConfigHelper.CLUSTER_DEFAULT_TAG, "version2");
+      sch.updateActualConfigs(actualConfigs);
+      Assert.assertFalse(configHelper.isStaleConfigs(sch, null));
+    }
 
-      verify(sch);
+    private ServiceComponentHost addFlumeHandler(String hostName) throws Exception {
+      Host host = clusters.getHost(hostName);
+      Map<String, String> hostAttributes = new HashMap<>();
+      hostAttributes.put("os_family", "redhat");
+      hostAttributes.put("os_release_version", "6.3");
+      host.setHostAttributes(hostAttributes);
+      clusters.mapHostToCluster(hostName, clusterName);
+
+      StackId stackId = cluster.getDesiredStackVersion();
+      injector.getInstance(OrmTestHelper.class).getOrCreateRepositoryVersion(stackId,
+          stackId.getStackVersion());
+      cluster.createClusterVersion(stackId, stackId.getStackVersion(), "admin",
+          RepositoryVersionState.INSTALLING);
+
+      Service service = injector.getInstance(ServiceFactory.class).createNew(cluster, "FLUME");
+      cluster.addService(service);
+      ServiceComponent component = injector.getInstance(ServiceComponentFactory.class)
+          .createNew(service, "FLUME_HANDLER");
+      service.addServiceComponent(component);
+      return component.addServiceComponentHost(hostName);
     }
   }
 
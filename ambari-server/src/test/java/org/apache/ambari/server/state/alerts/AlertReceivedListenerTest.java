@@ -31,6 +31,7 @@ import javax.persistence.EntityManager;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.H2DatabaseCleaner;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.RootServiceResponseFactory.Components;
 import org.apache.ambari.server.controller.RootServiceResponseFactory.Services;
 import org.apache.ambari.server.events.AlertReceivedEvent;
@@ -587,6 +588,67 @@ public class AlertReceivedListenerTest {
     assertEquals(3, (long) allCurrent.get(0).getOccurrences());
   }
 
+  /**
+   * Tests that alerts received while batching is enabled are processed
+   * asynchronously and that repeated reports within a batch are coalesced.
+   */
+  @Test
+  public void testBatchedAlertIngest() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(Configuration.ALERTS_INGEST_BATCH_ENABLED.getKey(), "true");
+    configuration.setProperty(Configuration.ALERTS_INGEST_BATCH_WINDOW.getKey(), "1000");
+
+    String definitionName = ALERT_DEFINITION + "1";
+    String serviceName = "HDFS";
+    String componentName = "NAMENODE";
+
+    AlertReceivedListener listener = m_injector.getInstance(AlertReceivedListener.class);
+
+    // report the same OK alert three times within the batch window
+    for (long timestamp = 1L; timestamp <= 3L; timestamp++) {
+      Alert alert = new Alert(definitionName, null, serviceName, componentName, HOST1,
+          AlertState.OK);
+
+      alert.setCluster(m_cluster.getClusterName());
+      alert.setLabel(ALERT_LABEL);
+      alert.setText(serviceName + " " + componentName + " is OK");
+      alert.setTimestamp(timestamp);
+
+      listener.onAlertEvent(new AlertReceivedEvent(m_cluster.getClusterId(), alert));
+    }
+
+    // nothing is written until the batch is processed
+    List<AlertCurrentEntity> allCurrent = m_dao.findCurrent();
+    for (int i = 0; i < 100 && allCurrent.isEmpty(); i++) {
+      Thread.sleep(100);
+      allCurrent = m_dao.findCurrent();
+    }
+
+    // the three reports were coalesced into the latest one, but all of them
+    // are counted as occurrences
+    assertEquals(1, allCurrent.size());
+    assertEquals(3, (long) allCurrent.get(0).getOccurrences());
+    assertEquals(3L, (long) allCurrent.get(0).getLatestTimestamp());
+
+    // alerts received after the batch processor was stopped are processed
+    // right away
+    listener.stopBatchProcessor();
+
+    Alert alert = new Alert(definitionName, null, serviceName, componentName, HOST1,
+        AlertState.OK);
+
+    alert.setCluster(m_cluster.getClusterName());
+    alert.setLabel(ALERT_LABEL);
+    alert.setText(serviceName + " " + componentName + " is OK");
+    alert.setTimestamp(4L);
+
+    listener.onAlertEvent(new AlertReceivedEvent(m_cluster.getClusterId(), alert));
+
+    allCurrent = m_dao.findCurrent();
+    assertEquals(4, (long) allCurrent.get(0).getOccurrences());
+    assertEquals(4L, (long) allCurrent.get(0).getLatestTimestamp());
+  }
+
   /**
    * Tests that we correctly record alert firmness depending on several factors,
    * such as {@link AlertState} and {@link SourceType}.
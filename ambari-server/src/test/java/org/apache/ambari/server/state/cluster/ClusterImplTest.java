@@ -46,12 +46,14 @@ import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.Service;
 import org.apache.ambari.server.state.ServiceComponent;
 import org.apache.ambari.server.state.ServiceComponentHost;
+import org.apache.ambari.server.state.ServiceComponentHostFactory;
 import org.apache.ambari.server.state.StackId;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -256,6 +258,105 @@ public class ClusterImplTest {
 
   }
 
+  @Test
+  public void testTopologySnapshot() throws Exception {
+    String clusterName = "TEST_TOPOLOGY_CLUSTER";
+    String hostName1 = "TOPOLOGY_HOST1", hostName2 = "TOPOLOGY_HOST2";
+
+    clusters.addCluster(clusterName, new StackId("HDP-2.1.1"));
+    Cluster cluster = clusters.getCluster(clusterName);
+
+    clusters.addHost(hostName1);
+    clusters.addHost(hostName2);
+    clusters.getHost(hostName1).setHostAttributes(ImmutableMap.of("os_family", "centos", "os_release_version", "6.0"));
+    clusters.getHost(hostName2).setHostAttributes(ImmutableMap.of("os_family", "centos", "os_release_version", "6.0"));
+    clusters.mapAndPublishHostsToCluster(Sets.newHashSet(hostName1, hostName2), clusterName);
+
+    Service hdfs = cluster.addService("HDFS");
+    ServiceComponent dataNode = hdfs.addServiceComponent("DATANODE");
+    ServiceComponentHost dataNodeHost1 = dataNode.addServiceComponentHost(hostName1);
+
+    ClusterTopologySnapshot before = cluster.getTopologySnapshot();
+    ServiceComponentHost dataNodeHost2 = dataNode.addServiceComponentHost(hostName2);
+    ClusterTopologySnapshot after = cluster.getTopologySnapshot();
+
+    // the published snapshot is never changed, a new one replaces it
+    assertTrue(after.getVersion() > before.getVersion());
+    assertEquals(Collections.singletonList(dataNodeHost1), before.getServiceComponentHostsByHost(hostName1));
+    assertTrue(before.getServiceComponentHostsByHost(hostName2).isEmpty());
+    assertEquals(Collections.singletonList(dataNodeHost2), after.getServiceComponentHostsByHost(hostName2));
+    assertEquals(2, after.getServiceComponentHosts("HDFS", "DATANODE").size());
+    assertEquals(hdfs, after.getService("HDFS"));
+
+    try {
+      after.getServiceComponentHosts("HDFS", "DATANODE").remove(hostName1);
+      fail("Topology snapshots should not be modifiable");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+
+    cluster.deleteService("HDFS");
+
+    assertEquals(2, after.getServiceComponentHosts("HDFS", "DATANODE").size());
+    assertTrue(cluster.getTopologySnapshot().getServices().isEmpty());
+    assertTrue(cluster.getTopologySnapshot().getServiceComponentHostsByHost(hostName1).isEmpty());
+  }
+
+  @Test
+  public void testTopologySnapshotOfBulkChange() throws Exception {
+    String clusterName = "TEST_BULK_TOPOLOGY_CLUSTER";
+    String hostName1 = "BULK_TOPOLOGY_HOST1", hostName2 = "BULK_TOPOLOGY_HOST2",
+        hostName3 = "BULK_TOPOLOGY_HOST3";
+
+    clusters.addCluster(clusterName, new StackId("HDP-2.1.1"));
+    final Cluster cluster = clusters.getCluster(clusterName);
+
+    for (String hostName : new String[] { hostName1, hostName2, hostName3 }) {
+      clusters.addHost(hostName);
+      clusters.getHost(hostName).setHostAttributes(ImmutableMap.of("os_family", "centos", "os_release_version", "6.0"));
+    }
+    clusters.mapAndPublishHostsToCluster(Sets.newHashSet(hostName1, hostName2, hostName3), clusterName);
+
+    Service hdfs = cluster.addService("HDFS");
+    ServiceComponent dataNode = hdfs.addServiceComponent("DATANODE");
+
+    ServiceComponentHostFactory serviceComponentHostFactory = injector.getInstance(ServiceComponentHostFactory.class);
+    long version = cluster.getTopologySnapshot().getVersion();
+
+    // the snapshot is published once for all host components
+    cluster.addServiceComponentHosts(Lists.newArrayList(
+        serviceComponentHostFactory.createNew(dataNode, hostName1),
+        serviceComponentHostFactory.createNew(dataNode, hostName2)));
+
+    ClusterTopologySnapshot snapshot = cluster.getTopologySnapshot();
+    assertEquals(version + 1, snapshot.getVersion());
+    assertEquals(2, snapshot.getServiceComponentHosts("HDFS", "DATANODE").size());
+
+    // other threads don't see the changes of a bulk change before it ends, the
+    // thread making the changes does
+    cluster.beginTopologyChange();
+    try {
+      dataNode.addServiceComponentHost(hostName3);
+
+      final long[] otherThreadVersion = new long[1];
+      Thread otherThread = new Thread() {
+        @Override
+        public void run() {
+          otherThreadVersion[0] = cluster.getTopologySnapshot().getVersion();
+        }
+      };
+      otherThread.start();
+      otherThread.join();
+      assertEquals(snapshot.getVersion(), otherThreadVersion[0]);
+
+      assertEquals(hostName3, cluster.getServiceComponentHost("HDFS", "DATANODE", hostName3).getHostName());
+    } finally {
+      cluster.endTopologyChange();
+    }
+
+    assertEquals(3, cluster.getTopologySnapshot().getServiceComponentHosts("HDFS", "DATANODE").size());
+  }
+
   @Test
   public void testDeleteHost() throws Exception {
     // Given
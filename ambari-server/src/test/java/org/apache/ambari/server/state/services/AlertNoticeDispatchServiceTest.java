@@ -37,6 +37,7 @@ import java.util.Vector;
 import java.util.concurrent.Executor;
 
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.notifications.DispatchFactory;
 import org.apache.ambari.server.notifications.Notification;
 import org.apache.ambari.server.notifications.NotificationDispatcher;
@@ -50,6 +51,7 @@ import org.apache.ambari.server.orm.entities.AlertNoticeEntity;
 import org.apache.ambari.server.orm.entities.AlertTargetEntity;
 import org.apache.ambari.server.state.AlertState;
 import org.apache.ambari.server.state.NotificationState;
+import org.apache.ambari.server.state.alert.AlertNotification;
 import org.apache.ambari.server.state.alert.Scope;
 import org.apache.ambari.server.state.alert.SourceType;
 import org.apache.ambari.server.state.alert.TargetType;
@@ -309,6 +311,52 @@ public class AlertNoticeDispatchServiceTest extends AlertNoticeDispatchService {
     assertEquals(2, notifications.size());
   }
 
+  /**
+   * Tests that notices of the same alert are coalesced into a single SNMP
+   * notification when coalescing is enabled.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testCoalescedSnmpDispatch() throws Exception {
+    MockSnmpDispatcher dispatcher = new MockSnmpDispatcher();
+
+    List<AlertNoticeEntity> notices = getSnmpMockNotices("SNMP");
+    AlertNoticeEntity notice1 = notices.get(0);
+    AlertNoticeEntity notice2 = notices.get(1);
+    notice2.getAlertHistory().setAlertTimestamp(notice1.getAlertHistory().getAlertTimestamp() + 1);
+
+    EasyMock.expect(m_dao.findPendingNotices()).andReturn(notices).once();
+    EasyMock.expect(m_dao.merge(notice1)).andReturn(notice1).once();
+    EasyMock.expect(m_dao.merge(notice2)).andReturn(notice2).once();
+    EasyMock.expect(m_dispatchFactory.getDispatcher("SNMP")).andReturn(dispatcher).atLeastOnce();
+
+    EasyMock.replay(m_dao, m_dispatchFactory);
+
+    m_injector.getInstance(Configuration.class).setProperty(
+        Configuration.ALERTS_NOTIFICATION_COALESCE_ENABLED.getKey(), "true");
+
+    // "startup" the service so that its initialization is done
+    AlertNoticeDispatchService service = m_injector.getInstance(AlertNoticeDispatchService.class);
+    service.startUp();
+
+    // service trigger with mock executor that blocks
+    service.setExecutor(new MockExecutor());
+    service.runOneIteration();
+
+    EasyMock.verify(m_dao, m_dispatchFactory);
+
+    // only the CRITICAL notice is sent, the OK notice is marked along with it
+    List<Notification> notifications = dispatcher.getNotifications();
+    assertEquals(1, notifications.size());
+    AlertNotification notification = (AlertNotification) notifications.get(0);
+    assertEquals(AlertState.CRITICAL, notification.getAlertInfo().getAlertState());
+    assertEquals(2, notification.CallbackIds.size());
+    assertTrue(notification.CallbackIds.contains(ALERT_NOTICE_UUID_1));
+    assertEquals(1, service.getCoalescedCount());
+    assertEquals(2, service.getDispatchedCount());
+  }
+
   /**
    * Tests a digest dispatch for Ambari SNMP.
    *
@@ -20,6 +20,8 @@ package org.apache.ambari.server.state.services;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityManager;
 
@@ -35,6 +37,7 @@ import org.apache.ambari.server.utils.SynchronousThreadPoolExecutor;
 import org.apache.commons.io.IOUtils;
 import org.easymock.EasyMock;
 import org.easymock.EasyMockSupport;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -54,6 +57,7 @@ public class MetricsRetrievalServiceTest extends EasyMockSupport {
 
   private static final String JMX_URL = "http://jmx-endpoint";
   private static final String REST_URL = "http://rest-endpoint";
+  private static final String JMX_QUERY_URL = "http://jmx-endpoint/jmx?qry=Hadoop:service=NameNode,name=NameNode";
 
   MetricsRetrievalService m_service = new MetricsRetrievalService();
 
@@ -237,6 +241,206 @@ public class MetricsRetrievalServiceTest extends EasyMockSupport {
     verifyAll();
   }
 
+  /**
+   * Tests that requested endpoints are refreshed in the background once their
+   * refresh interval has passed.
+   */
+  @Test
+  public void testSubscriptionRefresh() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_PREFETCH_ENABLED.getKey(), "true");
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_REQUEST_TTL_ENABLED.getKey(), "false");
+
+    // one request from the caller and one from the background refresh
+    StreamProvider streamProvider = createStrictMock(StreamProvider.class);
+    EasyMock.expect(streamProvider.readFrom(JMX_URL)).andReturn(
+        IOUtils.toInputStream("{ \"beans\": [] }")).once();
+    EasyMock.expect(streamProvider.readFrom(JMX_URL)).andReturn(
+        IOUtils.toInputStream("{ \"beans\": [] }")).once();
+
+    replayAll();
+
+    m_service.doStart();
+
+    // make the service synchronous
+    m_service.setThreadPoolExecutor(new SynchronousThreadPoolExecutor());
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL);
+    Assert.assertEquals(1, m_service.getSubscriptionCount());
+
+    // not due yet
+    long now = System.currentTimeMillis();
+    m_service.refreshSubscriptions(now);
+
+    // due within the maximum interval plus jitter
+    long maxInterval = TimeUnit.SECONDS.toMillis(configuration.getMetricsServicePrefetchMaxInterval());
+    m_service.refreshSubscriptions(now + 2 * maxInterval);
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that endpoints which have not been requested within the idle timeout
+   * are no longer refreshed.
+   */
+  @Test
+  public void testIdleSubscriptionAgesOut() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_PREFETCH_ENABLED.getKey(), "true");
+
+    // only the request from the caller
+    StreamProvider streamProvider = createStrictMock(StreamProvider.class);
+    EasyMock.expect(streamProvider.readFrom(JMX_URL)).andReturn(
+        IOUtils.toInputStream("{ \"beans\": [] }")).once();
+
+    replayAll();
+
+    m_service.doStart();
+
+    // make the service synchronous
+    m_service.setThreadPoolExecutor(new SynchronousThreadPoolExecutor());
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL);
+    Assert.assertEquals(1, m_service.getSubscriptionCount());
+
+    long idleTimeout = TimeUnit.SECONDS.toMillis(configuration.getMetricsServicePrefetchIdleTimeout());
+    m_service.refreshSubscriptions(System.currentTimeMillis() + idleTimeout + 1);
+    Assert.assertEquals(0, m_service.getSubscriptionCount());
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that requested endpoints are not subscribed to when prefetching is
+   * disabled.
+   */
+  @Test
+  public void testNoSubscriptionWithoutPrefetch() throws Exception {
+    StreamProvider streamProvider = createStrictMock(StreamProvider.class);
+    EasyMock.expect(streamProvider.readFrom(JMX_URL)).andReturn(
+        IOUtils.toInputStream("{ \"beans\": [] }")).once();
+
+    replayAll();
+
+    m_service.doStart();
+
+    // make the service synchronous
+    m_service.setThreadPoolExecutor(new SynchronousThreadPoolExecutor());
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL);
+    Assert.assertNotNull(m_service.getCachedJMXMetric(JMX_URL));
+    Assert.assertEquals(0, m_service.getSubscriptionCount());
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that a request which is discarded from a full worker queue can be
+   * requested again.
+   */
+  @Test
+  public void testDiscardedRequestCanBeResubmitted() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_THREADPOOL_CORE_SIZE.getKey(), "1");
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_THREADPOOL_MAX_SIZE.getKey(), "1");
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_THREADPOOL_WORKER_QUEUE_SIZE.getKey(), "1");
+
+    final String runningUrl = "http://host-1/jmx";
+    final String discardedUrl = "http://host-2/jmx";
+    final String queuedUrl = "http://host-3/jmx";
+
+    final CountDownLatch running = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch resubmitted = new CountDownLatch(1);
+
+    StreamProvider streamProvider = createMock(StreamProvider.class);
+    EasyMock.expect(streamProvider.readFrom(runningUrl)).andAnswer(new IAnswer<InputStream>() {
+      @Override
+      public InputStream answer() throws Throwable {
+        running.countDown();
+        release.await(10, TimeUnit.SECONDS);
+        return IOUtils.toInputStream("{ \"beans\": [] }");
+      }
+    }).once();
+    EasyMock.expect(streamProvider.readFrom(discardedUrl)).andAnswer(new IAnswer<InputStream>() {
+      @Override
+      public InputStream answer() throws Throwable {
+        resubmitted.countDown();
+        return IOUtils.toInputStream("{ \"beans\": [] }");
+      }
+    }).once();
+
+    replayAll();
+
+    m_service.doStart();
+
+    try {
+      // occupy the only worker thread
+      m_service.submitRequest(MetricSourceType.JMX, streamProvider, runningUrl);
+      Assert.assertTrue(running.await(10, TimeUnit.SECONDS));
+
+      // fill the queue and then push the queued request out of it
+      m_service.submitRequest(MetricSourceType.JMX, streamProvider, discardedUrl);
+      m_service.submitRequest(MetricSourceType.JMX, streamProvider, queuedUrl);
+
+      // the discarded request is no longer considered to be queued
+      m_service.submitRequest(MetricSourceType.JMX, streamProvider, discardedUrl);
+
+      release.countDown();
+      Assert.assertTrue(resubmitted.await(10, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      m_service.doStop();
+    }
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that a request to a host which is already at its concurrency limit
+   * is deferred until the running request completes.
+   */
+  @Test
+  public void testHostConcurrencyLimit() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_HOST_CONCURRENCY.getKey(), "1");
+
+    final StreamProvider streamProvider = createStrictMock(StreamProvider.class);
+    EasyMock.expect(streamProvider.readFrom(JMX_URL)).andAnswer(new IAnswer<InputStream>() {
+      @Override
+      public InputStream answer() throws Throwable {
+        // a second request to the same host while the first one is running
+        m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_QUERY_URL);
+        Assert.assertNull(m_service.getCachedJMXMetric(JMX_QUERY_URL));
+        return IOUtils.toInputStream("{ \"beans\": [] }");
+      }
+    }).once();
+    EasyMock.expect(streamProvider.readFrom(JMX_QUERY_URL)).andReturn(
+        IOUtils.toInputStream("{ \"beans\": [] }")).once();
+
+    replayAll();
+
+    m_service.doStart();
+
+    // make the service synchronous
+    m_service.setThreadPoolExecutor(new SynchronousThreadPoolExecutor());
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL);
+
+    // the deferred request ran after the first one completed
+    Assert.assertNotNull(m_service.getCachedJMXMetric(JMX_URL));
+    Assert.assertNotNull(m_service.getCachedJMXMetric(JMX_QUERY_URL));
+
+    verifyAll();
+  }
+
   /**
    *
    */
@@ -1020,6 +1020,91 @@ public class ServiceComponentHostTest {
 
   }
 
+  @Test
+  public void testStaleConfigsInvalidation() throws Exception {
+    String stackVersion = "HDP-2.0.6";
+    StackId stackId = new StackId(stackVersion);
+    String clusterName = "c2";
+    createCluster(stackId, clusterName);
+
+    final String hostName = "h3";
+    Set<String> hostNames = new HashSet<String>();
+    hostNames.add(hostName);
+    addHostsToCluster(clusterName, hostAttributes, hostNames);
+
+    final HostEntity hostEntity = hostDAO.findByName(hostName);
+    Cluster cluster = clusters.getCluster(clusterName);
+
+    helper.getOrCreateRepositoryVersion(stackId, stackId.getStackVersion());
+    cluster.createClusterVersion(stackId, stackId.getStackVersion(), "admin",
+        RepositoryVersionState.INSTALLING);
+
+    ServiceComponentHost sch1 = createNewServiceComponentHost(cluster, "HDFS", "NAMENODE", hostName);
+    ServiceComponentHost sch3 = createNewServiceComponentHost(cluster, "MAPREDUCE2", "HISTORYSERVER", hostName);
+    ServiceComponent namenode = cluster.getService("HDFS").getServiceComponent("NAMENODE");
+    namenode.addServiceComponentHost(sch1);
+
+    makeConfig(cluster, "hdfs-site", "version1",
+        new HashMap<String, String>() {{ put("a", "b"); }}, new HashMap<String, Map<String,String>>());
+    makeConfig(cluster, "mapred-site", "version1",
+        new HashMap<String, String>() {{ put("a", "b"); }}, new HashMap<String, Map<String,String>>());
+
+    Map<String, Map<String, String>> actual = new HashMap<String, Map<String, String>>() {{
+      put("hdfs-site", new HashMap<String, String>() {{ put("tag", "version1"); }});
+      put("mapred-site", new HashMap<String, String>() {{ put("tag", "version1"); }});
+    }};
+    sch1.updateActualConfigs(actual);
+    sch3.updateActualConfigs(actual);
+
+    Assert.assertFalse(sch1.convertToResponse(null).isStaleConfig());
+    Assert.assertFalse(sch3.convertToResponse(null).isStaleConfig());
+
+    // only the components which depend on the changed type become stale
+    makeConfig(cluster, "mapred-site", "version2",
+        new HashMap<String, String>() {{ put("a", "c"); }}, new HashMap<String, Map<String,String>>());
+    Assert.assertFalse(sch1.convertToResponse(null).isStaleConfig());
+    Assert.assertTrue(sch3.convertToResponse(null).isStaleConfig());
+
+    // reporting the same tags again keeps the flag, changed tags update it
+    sch3.updateActualConfigs(actual);
+    Assert.assertTrue(sch3.convertToResponse(null).isStaleConfig());
+    actual.get("mapred-site").put("tag", "version2");
+    sch3.updateActualConfigs(actual);
+    Assert.assertFalse(sch3.convertToResponse(null).isStaleConfig());
+
+    // a config group without hosts doesn't change anything
+    final Host host = clusters.getHostsForCluster(clusterName).get(hostName);
+    final Config c1 = configFactory.createNew(cluster, "hdfs-site", "version2",
+        new HashMap<String, String>() {{ put("a", "d"); }}, new HashMap<String, Map<String,String>>());
+    ConfigGroup configGroup = configGroupFactory.createNew(cluster, "g1", "t1", "",
+        new HashMap<String, Config>() {{ put("hdfs-site", c1); }}, new HashMap<Long, Host>());
+    cluster.addConfigGroup(configGroup);
+    Assert.assertFalse(sch1.convertToResponse(null).isStaleConfig());
+
+    // adding and removing the host of the config group
+    configGroup.addHost(host);
+    Assert.assertTrue(sch1.convertToResponse(null).isStaleConfig());
+    configGroup.removeHost(hostEntity.getHostId());
+    Assert.assertFalse(sch1.convertToResponse(null).isStaleConfig());
+
+    configGroup.addHost(host);
+    actual.get("hdfs-site").put(configGroup.getId().toString(), "version2");
+    sch1.updateActualConfigs(actual);
+    Assert.assertFalse(sch1.convertToResponse(null).isStaleConfig());
+
+    // changing the configs of the config group
+    final Config c2 = configFactory.createNew(cluster, "hdfs-site", "version3",
+        new HashMap<String, String>() {{ put("a", "e"); }}, new HashMap<String, Map<String,String>>());
+    configGroup.setConfigurations(new HashMap<String, Config>() {{ put("hdfs-site", c2); }});
+    Assert.assertTrue(sch1.convertToResponse(null).isStaleConfig());
+    Assert.assertFalse(sch3.convertToResponse(null).isStaleConfig());
+
+    // a component which is added again doesn't inherit the flag of the deleted one
+    namenode.deleteServiceComponentHosts(hostName);
+    sch1 = createNewServiceComponentHost(cluster, "HDFS", "NAMENODE", hostName);
+    Assert.assertFalse(sch1.convertToResponse(null).isStaleConfig());
+  }
+
   /**
    * Helper method to create a configuration
    * @param cluster the cluster
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.topology;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * ClusterSerialExecutorService unit tests.
+ */
+public class ClusterSerialExecutorServiceTest {
+
+  private final ClusterSerialExecutorService executor =
+      new ClusterSerialExecutorService(Executors.newCachedThreadPool());
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testTasksOfClusterRunInOrder() throws Exception {
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+    final CountDownLatch firstTaskRelease = new CountDownLatch(1);
+
+    executor.execute(ClusterSerialExecutorService.forCluster(1L, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          firstTaskRelease.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        order.add(0);
+      }
+    }));
+
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (int i = 1; i < 5; i++) {
+      final int index = i;
+      futures.add(executor.submit(ClusterSerialExecutorService.forCluster(1L, new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          order.add(index);
+          return index;
+        }
+      })));
+    }
+
+    firstTaskRelease.countDown();
+    for (int i = 0; i < futures.size(); i++) {
+      assertEquals(Integer.valueOf(i + 1), futures.get(i).get(10, TimeUnit.SECONDS));
+    }
+    assertEquals(5, order.size());
+    for (int i = 0; i < order.size(); i++) {
+      assertEquals(Integer.valueOf(i), order.get(i));
+    }
+  }
+
+  @Test
+  public void testClustersRunInParallel() throws Exception {
+    final CountDownLatch cluster2Started = new CountDownLatch(1);
+
+    // the cluster 1 task can only finish once the cluster 2 task has started
+    Future<Boolean> cluster1 = executor.submit(ClusterSerialExecutorService.forCluster(1L, new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        return cluster2Started.await(10, TimeUnit.SECONDS);
+      }
+    }));
+
+    executor.execute(ClusterSerialExecutorService.forCluster(2L, new Runnable() {
+      @Override
+      public void run() {
+        cluster2Started.countDown();
+      }
+    }));
+
+    assertTrue(cluster1.get(20, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testFailedTaskDoesNotBlockCluster() throws Exception {
+    executor.execute(ClusterSerialExecutorService.forCluster(1L, new Runnable() {
+      @Override
+      public void run() {
+        throw new IllegalStateException("expected");
+      }
+    }));
+
+    Future<Boolean> next = executor.submit(ClusterSerialExecutorService.forCluster(1L, new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        return Boolean.TRUE;
+      }
+    }));
+
+    assertTrue(next.get(10, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.utils;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.state.Cluster;
+import org.apache.ambari.server.state.Host;
+import org.apache.ambari.server.state.HostComponentAdminState;
+import org.apache.ambari.server.state.Service;
+import org.apache.ambari.server.state.ServiceComponent;
+import org.apache.ambari.server.state.ServiceComponentHost;
+import org.apache.ambari.server.state.cluster.ClusterTopologySnapshot;
+import org.apache.ambari.server.topology.TopologyManager;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Measures the time it takes to create the cluster host info of a stage,
+ * including its json serialization, for large clusters.
+ */
+@Ignore
+public class ClusterHostInfoPerformanceTest {
+
+  private static final int[] HOST_COUNTS = {1000, 5000, 10000};
+  private static final int ITERATIONS = 100;
+
+  @Before
+  public void setUp() {
+    TopologyManager topologyManager = createNiceMock(TopologyManager.class);
+    expect(topologyManager.getPendingHostComponents()).andReturn(
+        Collections.<String, Collection<String>>emptyMap()).anyTimes();
+    replay(topologyManager);
+
+    StageUtils.setTopologyManager(topologyManager);
+    StageUtils.setConfiguration(new Configuration(new Properties()));
+  }
+
+  @Test
+  public void testGetClusterHostInfo() throws Exception {
+    for (int hostCount : HOST_COUNTS) {
+      Cluster cluster = createCluster(hostCount);
+
+      // warm up
+      for (int i = 0; i < 10; i++) {
+        StageUtils.getGson().toJson(StageUtils.getClusterHostInfo(cluster));
+      }
+
+      long time = System.nanoTime();
+      for (int i = 0; i < ITERATIONS; i++) {
+        StageUtils.getGson().toJson(StageUtils.getClusterHostInfo(cluster));
+      }
+      System.out.println(hostCount + " hosts: "
+          + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - time) / ITERATIONS + " us per stage");
+    }
+  }
+
+  /**
+   * A cluster with master components on the first host and slave and client
+   * components on every host.
+   */
+  private Cluster createCluster(int hostCount) {
+    List<Host> hosts = new ArrayList<>(hostCount);
+    Map<String, ServiceComponentHost> allHostComponents = new HashMap<>();
+    Map<String, ServiceComponentHost> firstHostComponents = new HashMap<>();
+
+    ServiceComponentHost sch = createNiceMock(ServiceComponentHost.class);
+    expect(sch.getComponentAdminState()).andReturn(HostComponentAdminState.INSERVICE).anyTimes();
+    replay(sch);
+
+    for (int i = 0; i < hostCount; i++) {
+      String hostName = String.format("c%05d.ambari.apache.org", i);
+      Host host = createNiceMock(Host.class);
+      expect(host.getHostName()).andReturn(hostName).anyTimes();
+      expect(host.getRackInfo()).andReturn("/rack" + (i % 20)).anyTimes();
+      expect(host.getIPv4()).andReturn("10.0." + (i / 256) + "." + (i % 256)).anyTimes();
+      replay(host);
+
+      hosts.add(host);
+      allHostComponents.put(hostName, sch);
+      if (i == 0) {
+        firstHostComponents.put(hostName, sch);
+      }
+    }
+
+    Map<String, Service> services = new HashMap<>();
+    services.put("HDFS", createService(
+        createComponent("NAMENODE", false, firstHostComponents),
+        createComponent("DATANODE", false, allHostComponents),
+        createComponent("HDFS_CLIENT", true, allHostComponents)));
+    services.put("YARN", createService(
+        createComponent("RESOURCEMANAGER", false, firstHostComponents),
+        createComponent("NODEMANAGER", false, allHostComponents),
+        createComponent("YARN_CLIENT", true, allHostComponents)));
+    services.put("HBASE", createService(
+        createComponent("HBASE_MASTER", false, firstHostComponents),
+        createComponent("HBASE_REGIONSERVER", false, allHostComponents)));
+    services.put("AMBARI_METRICS", createService(
+        createComponent("METRICS_COLLECTOR", false, firstHostComponents),
+        createComponent("METRICS_MONITOR", false, allHostComponents)));
+
+    Map<String, Map<String, Map<String, ServiceComponentHost>>> serviceComponentHosts = new HashMap<>();
+    for (Map.Entry<String, Service> service : services.entrySet()) {
+      Map<String, Map<String, ServiceComponentHost>> componentHosts = new HashMap<>();
+      for (ServiceComponent component : service.getValue().getServiceComponents().values()) {
+        componentHosts.put(component.getName(), component.getServiceComponentHosts());
+      }
+      serviceComponentHosts.put(service.getKey(), componentHosts);
+    }
+
+    Cluster cluster = createNiceMock(Cluster.class);
+    expect(cluster.getClusterId()).andReturn((long) hostCount).anyTimes();
+    expect(cluster.getHosts()).andReturn(hosts).anyTimes();
+    expect(cluster.getServices()).andReturn(services).anyTimes();
+    expect(cluster.getTopologySnapshot()).andReturn(ClusterTopologySnapshot.create(1, services,
+        serviceComponentHosts)).anyTimes();
+    replay(cluster);
+    return cluster;
+  }
+
+  private Service createService(ServiceComponent... components) {
+    Map<String, ServiceComponent> serviceComponents = new HashMap<>();
+    for (ServiceComponent component : components) {
+      serviceComponents.put(component.getName(), component);
+    }
+
+    Service service = createNiceMock(Service.class);
+    expect(service.getServiceComponents()).andReturn(serviceComponents).anyTimes();
+    replay(service);
+    return service;
+  }
+
+  private ServiceComponent createComponent(String name, boolean client,
+      Map<String, ServiceComponentHost> hostComponents) {
+    ServiceComponent component = createNiceMock(ServiceComponent.class);
+    expect(component.getName()).andReturn(name).anyTimes();
+    expect(component.isClientComponent()).andReturn(client).anyTimes();
+    expect(component.getServiceComponentHosts()).andReturn(hostComponents).anyTimes();
+    replay(component);
+    return component;
+  }
+}
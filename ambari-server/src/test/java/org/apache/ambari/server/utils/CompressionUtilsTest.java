@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.ambari.server.orm.entities.ExecutionCommandEntity;
+import org.apache.ambari.server.orm.entities.HostRoleCommandEntity;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+/**
+ * Tests {@link CompressionUtils}
+ */
+public class CompressionUtilsTest {
+
+  @Test
+  public void testCompressLargeValue() throws Exception {
+    byte[] data = StringUtils.repeat("{\"clusterHostInfo\": [\"c6401.ambari.apache.org\"]}", 100).getBytes();
+
+    byte[] compressed = CompressionUtils.compress(data);
+    assertTrue(CompressionUtils.isCompressed(compressed));
+    assertTrue(compressed.length < data.length);
+    assertArrayEquals(data, CompressionUtils.decompress(compressed));
+
+    // compressing twice doesn't change the stored value
+    assertSame(compressed, CompressionUtils.compress(compressed));
+  }
+
+  @Test
+  public void testSmallAndUncompressedValues() throws Exception {
+    byte[] small = "small".getBytes();
+    assertSame(small, CompressionUtils.compress(small));
+
+    // values written before compression was introduced are read as they are
+    byte[] stored = StringUtils.repeat("x", CompressionUtils.MIN_COMPRESSION_SIZE * 2).getBytes();
+    assertFalse(CompressionUtils.isCompressed(stored));
+    assertSame(stored, CompressionUtils.decompress(stored));
+
+    assertNull(CompressionUtils.compress(null));
+    assertNull(CompressionUtils.decompress(null));
+  }
+
+  @Test
+  public void testEntitiesStoreCompressedValues() throws Exception {
+    byte[] data = StringUtils.repeat("INFO 2017-01-01 00:00:00 Execute['ls'] {}\n", 100).getBytes();
+
+    HostRoleCommandEntity hostRoleCommandEntity = new HostRoleCommandEntity();
+    hostRoleCommandEntity.setStdOut(data);
+    hostRoleCommandEntity.setStdError(data);
+    hostRoleCommandEntity.setStructuredOut(data);
+    assertArrayEquals(data, hostRoleCommandEntity.getStdOut());
+    assertArrayEquals(data, hostRoleCommandEntity.getStdError());
+    assertArrayEquals(data, hostRoleCommandEntity.getStructuredOut());
+
+    ExecutionCommandEntity executionCommandEntity = new ExecutionCommandEntity();
+    executionCommandEntity.setCommand(data);
+    assertArrayEquals(data, executionCommandEntity.getCommand());
+  }
+}
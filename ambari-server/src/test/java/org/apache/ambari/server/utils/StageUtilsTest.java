@@ -76,6 +76,7 @@ import org.apache.ambari.server.state.ServiceComponentHost;
 import org.apache.ambari.server.state.ServiceComponentHostFactory;
 import org.apache.ambari.server.state.StackId;
 import org.apache.ambari.server.state.cluster.ClusterFactory;
+import org.apache.ambari.server.state.cluster.ClusterTopologySnapshot;
 import org.apache.ambari.server.state.host.HostFactory;
 import org.apache.ambari.server.state.stack.OsFamily;
 import org.apache.ambari.server.topology.PersistedState;
@@ -540,14 +541,37 @@ public class StageUtilsTest extends EasyMockSupport {
     }).anyTimes();
 
 
-    Cluster cluster = createMock(Cluster.class);
-    expect(cluster.getHosts()).andReturn(hosts).anyTimes();
-    expect(cluster.getServices()).andReturn(new HashMap<String, Service>() {{
+    Map<String, Service> services = new HashMap<String, Service>() {{
       put("HDFS", hdfsService);
       put("HBASE", hbaseService);
       put("MAPREDUCE", mrService);
       put("NONAME", nnService);
-    }}).anyTimes();
+    }};
+
+    Cluster cluster = createMock(Cluster.class);
+    expect(cluster.getClusterId()).andReturn(1L).anyTimes();
+    expect(cluster.getHosts()).andReturn(hosts).anyTimes();
+    expect(cluster.getServices()).andReturn(services).anyTimes();
+    Map<String, Map<String, Map<String, ServiceComponentHost>>> serviceComponentHosts = new HashMap<>();
+    serviceComponentHosts.put("HDFS", new HashMap<String, Map<String, ServiceComponentHost>>() {{
+      put("NAMENODE", nnServiceComponentHosts);
+      put("SECONDARY_NAMENODE", snnServiceComponentHosts);
+      put("DATANODE", dnServiceComponentHosts);
+    }});
+    serviceComponentHosts.put("HBASE", new HashMap<String, Map<String, ServiceComponentHost>>() {{
+      put("HBASE_MASTER", hbmServiceComponentHosts);
+      put("HBASE_REGIONSERVER", hbrsServiceComponentHosts);
+    }});
+    serviceComponentHosts.put("MAPREDUCE", new HashMap<String, Map<String, ServiceComponentHost>>() {{
+      put("JOBTRACKER", mrjtServiceComponentHosts);
+      put("TASKTRACKER", mrttServiceComponentHosts);
+    }});
+    serviceComponentHosts.put("NONAME", new HashMap<String, Map<String, ServiceComponentHost>>() {{
+      put("NONAME_SERVER", nnsServiceComponentHosts);
+    }});
+
+    expect(cluster.getTopologySnapshot()).andReturn(ClusterTopologySnapshot.create(1, services,
+        serviceComponentHosts)).anyTimes();
 
 
     final TopologyManager topologyManager = injector.getInstance(TopologyManager.class);
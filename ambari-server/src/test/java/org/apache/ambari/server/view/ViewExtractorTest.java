@@ -24,6 +24,7 @@ import org.apache.ambari.server.orm.entities.ResourceTypeEntity;
 import org.apache.ambari.server.orm.entities.ViewEntity;
 import org.apache.ambari.server.orm.entities.ViewEntityTest;
 import org.apache.ambari.server.view.configuration.ViewConfig;
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -40,6 +41,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
 
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
@@ -141,6 +143,48 @@ public class ViewExtractorTest {
         jarEntry, fos, configuration, viewDir, fileEntry, viewDAO);
   }
 
+  @Test
+  public void testExtractViewArchiveSkipsUnchangedArchive() throws Exception {
+    final ViewEntity viewDefinition = ViewEntityTest.getViewEntity();
+
+    File tempDir = File.createTempFile("ambari_ut_views_", ".d");
+    Assert.assertTrue(tempDir.delete());
+    Assert.assertTrue(tempDir.mkdirs());
+
+    try {
+      File jar = new File(tempDir, "view.jar");
+      File archiveDir = new File(tempDir, "MY_VIEW{1.0.0}");
+      File marker = new File(archiveDir, "marker");
+
+      ViewExtractor viewExtractor = new ViewExtractor();
+      viewExtractor.archiveUtility = new ViewArchiveUtility() {
+        @Override
+        public ViewConfig getViewConfigFromExtractedArchive(String archivePath, boolean validate) {
+          return viewDefinition.getConfiguration();
+        }
+      };
+
+      writeJar(jar, "<view>1</view>");
+      viewExtractor.extractViewArchive(viewDefinition, jar, archiveDir);
+      Assert.assertTrue(new File(archiveDir, "view.xml").isFile());
+      Assert.assertTrue(marker.createNewFile());
+
+      // touching the archive without changing it keeps the extracted directory
+      Assert.assertTrue(jar.setLastModified(archiveDir.lastModified() + 10000L));
+      viewExtractor.extractViewArchive(viewDefinition, jar, archiveDir);
+      Assert.assertTrue(marker.exists());
+
+      // changing the archive extracts it again
+      writeJar(jar, "<view>2</view>");
+      Assert.assertTrue(jar.setLastModified(archiveDir.lastModified() + 20000L));
+      viewExtractor.extractViewArchive(viewDefinition, jar, archiveDir);
+      Assert.assertFalse(marker.exists());
+      Assert.assertTrue(new File(archiveDir, "view.xml").isFile());
+    } finally {
+      FileUtils.deleteDirectory(tempDir);
+    }
+  }
+
   @Test
   public void testEnsureExtractedArchiveDirectory() throws Exception {
 
@@ -204,6 +248,17 @@ public class ViewExtractorTest {
     verify(extractedArchiveDir);
   }
 
+  private void writeJar(File jar, String viewXml) throws IOException {
+    JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      jarOutputStream.putNextEntry(new JarEntry("view.xml"));
+      jarOutputStream.write(viewXml.getBytes("UTF-8"));
+      jarOutputStream.closeEntry();
+    } finally {
+      jarOutputStream.close();
+    }
+  }
+
   private ViewExtractor getViewExtractor(ViewEntity viewDefinition) throws Exception {
 
     Map<File, ViewConfig> viewConfigs =